@@ -1,5 +1,10 @@
 package logia.assistant.gateway.config;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -13,4 +18,1293 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    /** The rate limiting. */
+    private final RateLimiting rateLimiting = new RateLimiting();
+
+    /** The security. */
+    private final Security security = new Security();
+
+    /** The login activity. */
+    private final LoginActivity loginActivity = new LoginActivity();
+
+    /** The elasticsearch reindex. */
+    private final ElasticsearchReindex elasticsearchReindex = new ElasticsearchReindex();
+
+    /** The search indexing. */
+    private final SearchIndexing searchIndexing = new SearchIndexing();
+
+    /** The user import. */
+    private final UserImport userImport = new UserImport();
+
+    /** The mail queue. */
+    private final MailQueue mailQueue = new MailQueue();
+
+    /** The user purge. */
+    private final UserPurge userPurge = new UserPurge();
+
+    /** The login filter. */
+    private final LoginFilter loginFilter = new LoginFilter();
+
+    /** The near caches, by cache name. */
+    private final Map<String, NearCache> nearCaches = new HashMap<>();
+
+    /**
+     * Gets the rate limiting.
+     *
+     * @return the rate limiting
+     */
+    public RateLimiting getRateLimiting() {
+        return rateLimiting;
+    }
+
+    /**
+     * Gets the security.
+     *
+     * @return the security
+     */
+    public Security getSecurity() {
+        return security;
+    }
+
+    /**
+     * Gets the login activity.
+     *
+     * @return the login activity
+     */
+    public LoginActivity getLoginActivity() {
+        return loginActivity;
+    }
+
+    /**
+     * Gets the elasticsearch reindex.
+     *
+     * @return the elasticsearch reindex
+     */
+    public ElasticsearchReindex getElasticsearchReindex() {
+        return elasticsearchReindex;
+    }
+
+    /**
+     * Gets the search indexing.
+     *
+     * @return the search indexing
+     */
+    public SearchIndexing getSearchIndexing() {
+        return searchIndexing;
+    }
+
+    /**
+     * Gets the user import.
+     *
+     * @return the user import
+     */
+    public UserImport getUserImport() {
+        return userImport;
+    }
+
+    /**
+     * Gets the mail queue.
+     *
+     * @return the mail queue
+     */
+    public MailQueue getMailQueue() {
+        return mailQueue;
+    }
+
+    /**
+     * Gets the user purge.
+     *
+     * @return the user purge
+     */
+    public UserPurge getUserPurge() {
+        return userPurge;
+    }
+
+    /**
+     * Gets the login filter.
+     *
+     * @return the login filter
+     */
+    public LoginFilter getLoginFilter() {
+        return loginFilter;
+    }
+
+    /**
+     * Gets the near caches.
+     *
+     * @return the near caches, by cache name
+     */
+    public Map<String, NearCache> getNearCaches() {
+        return nearCaches;
+    }
+
+    /**
+     * Gateway rate limiting properties, complementing {@code jhipster.gateway.rate-limiting}.
+     *
+     * @author Dai Mai
+     */
+    public static class RateLimiting {
+
+        /** The local first. */
+        private final LocalFirst localFirst = new LocalFirst();
+
+        /** The rate limit policies, the default limit applies to requests matching none of them. */
+        private List<Policy> policies = new ArrayList<>();
+
+        /**
+         * Gets the local first.
+         *
+         * @return the local first
+         */
+        public LocalFirst getLocalFirst() {
+            return localFirst;
+        }
+
+        /**
+         * Gets the policies.
+         *
+         * @return the policies
+         */
+        public List<Policy> getPolicies() {
+            return policies;
+        }
+
+        /**
+         * Sets the policies.
+         *
+         * @param policies the new policies
+         */
+        public void setPolicies(List<Policy> policies) {
+            this.policies = policies;
+        }
+
+        /**
+         * Local-first mode: each gateway node consumes from a token allotment borrowed from the cluster bucket.
+         *
+         * @author Dai Mai
+         */
+        public static class LocalFirst {
+
+            /** The enabled. */
+            private boolean enabled = false;
+
+            /** The number of tokens borrowed from the cluster bucket at once. */
+            private long batchSize = 50;
+
+            /** The delay between two returns of the unused tokens to the cluster bucket. */
+            private long syncIntervalMs = 1000;
+
+            /**
+             * Checks if is enabled.
+             *
+             * @return true, if is enabled
+             */
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            /**
+             * Sets the enabled.
+             *
+             * @param enabled the new enabled
+             */
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            /**
+             * Gets the batch size.
+             *
+             * @return the batch size
+             */
+            public long getBatchSize() {
+                return batchSize;
+            }
+
+            /**
+             * Sets the batch size.
+             *
+             * @param batchSize the new batch size
+             */
+            public void setBatchSize(long batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            /**
+             * Gets the sync interval ms.
+             *
+             * @return the sync interval ms
+             */
+            public long getSyncIntervalMs() {
+                return syncIntervalMs;
+            }
+
+            /**
+             * Sets the sync interval ms.
+             *
+             * @param syncIntervalMs the new sync interval ms
+             */
+            public void setSyncIntervalMs(long syncIntervalMs) {
+                this.syncIntervalMs = syncIntervalMs;
+            }
+        }
+
+        /**
+         * Rate limit policy, scoped by Zuul route id, authority and/or user login.
+         * <p>
+         * When several policies match a request, the most specific one wins: a user policy over an authority
+         * policy, over a route policy, a policy scoped on a route over the same policy without route.
+         *
+         * @author Dai Mai
+         */
+        public static class Policy {
+
+            /** The name, used as bucket id prefix. */
+            private String name;
+
+            /** The Zuul route id, or null for all routes. */
+            private String route;
+
+            /** The authority, or null for all authorities. */
+            private String authority;
+
+            /** The user login, or null for all users. */
+            private String user;
+
+            /** The limits, typically a burst and a sustained one. */
+            private List<Limit> limits = new ArrayList<>();
+
+            /** The number of tokens consumed by a request, by HTTP method, 1 when not set. */
+            private Map<String, Long> methodCosts = new HashMap<>();
+
+            /** The request body size consuming one extra token, 0 to ignore the request size. */
+            private long bytesPerToken = 0;
+
+            /**
+             * Gets the name.
+             *
+             * @return the name
+             */
+            public String getName() {
+                return name;
+            }
+
+            /**
+             * Sets the name.
+             *
+             * @param name the new name
+             */
+            public void setName(String name) {
+                this.name = name;
+            }
+
+            /**
+             * Gets the route.
+             *
+             * @return the route
+             */
+            public String getRoute() {
+                return route;
+            }
+
+            /**
+             * Sets the route.
+             *
+             * @param route the new route
+             */
+            public void setRoute(String route) {
+                this.route = route;
+            }
+
+            /**
+             * Gets the authority.
+             *
+             * @return the authority
+             */
+            public String getAuthority() {
+                return authority;
+            }
+
+            /**
+             * Sets the authority.
+             *
+             * @param authority the new authority
+             */
+            public void setAuthority(String authority) {
+                this.authority = authority;
+            }
+
+            /**
+             * Gets the user.
+             *
+             * @return the user
+             */
+            public String getUser() {
+                return user;
+            }
+
+            /**
+             * Sets the user.
+             *
+             * @param user the new user
+             */
+            public void setUser(String user) {
+                this.user = user;
+            }
+
+            /**
+             * Gets the limits.
+             *
+             * @return the limits
+             */
+            public List<Limit> getLimits() {
+                return limits;
+            }
+
+            /**
+             * Sets the limits.
+             *
+             * @param limits the new limits
+             */
+            public void setLimits(List<Limit> limits) {
+                this.limits = limits;
+            }
+
+            /**
+             * Gets the method costs.
+             *
+             * @return the method costs
+             */
+            public Map<String, Long> getMethodCosts() {
+                return methodCosts;
+            }
+
+            /**
+             * Sets the method costs.
+             *
+             * @param methodCosts the new method costs
+             */
+            public void setMethodCosts(Map<String, Long> methodCosts) {
+                this.methodCosts = methodCosts;
+            }
+
+            /**
+             * Gets the bytes per token.
+             *
+             * @return the bytes per token
+             */
+            public long getBytesPerToken() {
+                return bytesPerToken;
+            }
+
+            /**
+             * Sets the bytes per token.
+             *
+             * @param bytesPerToken the new bytes per token
+             */
+            public void setBytesPerToken(long bytesPerToken) {
+                this.bytesPerToken = bytesPerToken;
+            }
+        }
+
+        /**
+         * A single bandwidth of a rate limit policy.
+         *
+         * @author Dai Mai
+         */
+        public static class Limit {
+
+            /** The capacity. */
+            private long capacity;
+
+            /** The number of tokens refilled per duration, the capacity when not set. */
+            private long refillTokens = 0;
+
+            /** The duration in seconds. */
+            private long durationInSeconds;
+
+            /**
+             * Gets the capacity.
+             *
+             * @return the capacity
+             */
+            public long getCapacity() {
+                return capacity;
+            }
+
+            /**
+             * Sets the capacity.
+             *
+             * @param capacity the new capacity
+             */
+            public void setCapacity(long capacity) {
+                this.capacity = capacity;
+            }
+
+            /**
+             * Gets the refill tokens.
+             *
+             * @return the refill tokens
+             */
+            public long getRefillTokens() {
+                return refillTokens;
+            }
+
+            /**
+             * Sets the refill tokens.
+             *
+             * @param refillTokens the new refill tokens
+             */
+            public void setRefillTokens(long refillTokens) {
+                this.refillTokens = refillTokens;
+            }
+
+            /**
+             * Gets the duration in seconds.
+             *
+             * @return the duration in seconds
+             */
+            public long getDurationInSeconds() {
+                return durationInSeconds;
+            }
+
+            /**
+             * Sets the duration in seconds.
+             *
+             * @param durationInSeconds the new duration in seconds
+             */
+            public void setDurationInSeconds(long durationInSeconds) {
+                this.durationInSeconds = durationInSeconds;
+            }
+        }
+    }
+
+    /**
+     * Security properties.
+     *
+     * @author Dai Mai
+     */
+    public static class Security {
+
+        /** The JWT cache. */
+        private final JwtCache jwtCache = new JwtCache();
+
+        /** The password hashing. */
+        private final PasswordHashing passwordHashing = new PasswordHashing();
+
+        /**
+         * Gets the JWT cache.
+         *
+         * @return the JWT cache
+         */
+        public JwtCache getJwtCache() {
+            return jwtCache;
+        }
+
+        /**
+         * Gets the password hashing.
+         *
+         * @return the password hashing
+         */
+        public PasswordHashing getPasswordHashing() {
+            return passwordHashing;
+        }
+
+        /**
+         * Cache of the authentications built from already verified JWT.
+         *
+         * @author Dai Mai
+         */
+        public static class JwtCache {
+
+            /** The enabled. */
+            private boolean enabled = true;
+
+            /** The maximum number of cached tokens. */
+            private int maxSize = 10000;
+
+            /** The maximum time a token stays cached, even if it expires later. */
+            private long timeToLiveSeconds = 300;
+
+            /**
+             * Checks if is enabled.
+             *
+             * @return true, if is enabled
+             */
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            /**
+             * Sets the enabled.
+             *
+             * @param enabled the new enabled
+             */
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            /**
+             * Gets the max size.
+             *
+             * @return the max size
+             */
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            /**
+             * Sets the max size.
+             *
+             * @param maxSize the new max size
+             */
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            /**
+             * Gets the time to live seconds.
+             *
+             * @return the time to live seconds
+             */
+            public long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            /**
+             * Sets the time to live seconds.
+             *
+             * @param timeToLiveSeconds the new time to live seconds
+             */
+            public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+        }
+
+        /**
+         * BCrypt hashing, see BoundedBCryptPasswordEncoder.
+         *
+         * @author Dai Mai
+         */
+        public static class PasswordHashing {
+
+            /** The BCrypt cost, the same on every node. */
+            private int strength = 10;
+
+            /** The latency budget of a single hash, to advise a cost at startup, 0 not to advise. */
+            private long targetMillis = 250;
+
+            /** The lowest advised cost. */
+            private int minStrength = 10;
+
+            /** The highest advised cost. */
+            private int maxStrength = 14;
+
+            /** The number of hashing threads, 0 for the number of processors. */
+            private int threads = 0;
+
+            /** The number of hashes waiting for a thread before rejecting with 503. */
+            private int queueCapacity = 64;
+
+            /**
+             * Gets the strength.
+             *
+             * @return the strength
+             */
+            public int getStrength() {
+                return strength;
+            }
+
+            /**
+             * Sets the strength.
+             *
+             * @param strength the new strength
+             */
+            public void setStrength(int strength) {
+                this.strength = strength;
+            }
+
+            /**
+             * Gets the target millis.
+             *
+             * @return the target millis
+             */
+            public long getTargetMillis() {
+                return targetMillis;
+            }
+
+            /**
+             * Sets the target millis.
+             *
+             * @param targetMillis the new target millis
+             */
+            public void setTargetMillis(long targetMillis) {
+                this.targetMillis = targetMillis;
+            }
+
+            /**
+             * Gets the min strength.
+             *
+             * @return the min strength
+             */
+            public int getMinStrength() {
+                return minStrength;
+            }
+
+            /**
+             * Sets the min strength.
+             *
+             * @param minStrength the new min strength
+             */
+            public void setMinStrength(int minStrength) {
+                this.minStrength = minStrength;
+            }
+
+            /**
+             * Gets the max strength.
+             *
+             * @return the max strength
+             */
+            public int getMaxStrength() {
+                return maxStrength;
+            }
+
+            /**
+             * Sets the max strength.
+             *
+             * @param maxStrength the new max strength
+             */
+            public void setMaxStrength(int maxStrength) {
+                this.maxStrength = maxStrength;
+            }
+
+            /**
+             * Gets the threads.
+             *
+             * @return the threads
+             */
+            public int getThreads() {
+                return threads;
+            }
+
+            /**
+             * Sets the threads.
+             *
+             * @param threads the new threads
+             */
+            public void setThreads(int threads) {
+                this.threads = threads;
+            }
+
+            /**
+             * Gets the queue capacity.
+             *
+             * @return the queue capacity
+             */
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            /**
+             * Sets the queue capacity.
+             *
+             * @param queueCapacity the new queue capacity
+             */
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+        }
+    }
+
+    /**
+     * Write-behind of the last login dates.
+     *
+     * @author Dai Mai
+     */
+    public static class LoginActivity {
+
+        /** The delay between two flushes of the pending last login dates. */
+        private long flushIntervalMs = 5000;
+
+        /** The maximum number of rows updated by a single JDBC batch. */
+        private int batchSize = 500;
+
+        /**
+         * Gets the flush interval ms.
+         *
+         * @return the flush interval ms
+         */
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        /**
+         * Sets the flush interval ms.
+         *
+         * @param flushIntervalMs the new flush interval ms
+         */
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        /**
+         * Gets the batch size.
+         *
+         * @return the batch size
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        /**
+         * Sets the batch size.
+         *
+         * @param batchSize the new batch size
+         */
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    /**
+     * Elasticsearch reindex, see ElasticsearchIndexService.
+     *
+     * @author Dai Mai
+     */
+    public static class ElasticsearchReindex {
+
+        /** The number of rows read by page and sent by bulk request. */
+        private int batchSize = 500;
+
+        /** The number of threads sending the bulk requests. */
+        private int workers = 4;
+
+        /**
+         * Gets the batch size.
+         *
+         * @return the batch size
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        /**
+         * Sets the batch size.
+         *
+         * @param batchSize the new batch size
+         */
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Gets the workers.
+         *
+         * @return the workers
+         */
+        public int getWorkers() {
+            return workers;
+        }
+
+        /**
+         * Sets the workers.
+         *
+         * @param workers the new workers
+         */
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+    }
+
+    /**
+     * Relay of the entity changes from the outbox to Elasticsearch and the caches, see OutboxRelay.
+     *
+     * @author Dai Mai
+     */
+    public static class SearchIndexing {
+
+        /** The delay between two relays of the outbox. */
+        private long flushIntervalMs = 1000;
+
+        /** The maximum number of events relayed by a single bulk request. */
+        private int batchSize = 500;
+
+        /** The time during which the events claimed by a node are hidden from the other nodes. */
+        private long claimMs = 60000;
+
+        /** The delay before retrying a failed write, doubled on each new failure. */
+        private long initialBackoffMs = 1000;
+
+        /** The maximum delay before retrying a failed write. */
+        private long maxBackoffMs = 60000;
+
+        /**
+         * Gets the flush interval ms.
+         *
+         * @return the flush interval ms
+         */
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        /**
+         * Sets the flush interval ms.
+         *
+         * @param flushIntervalMs the new flush interval ms
+         */
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        /**
+         * Gets the batch size.
+         *
+         * @return the batch size
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        /**
+         * Sets the batch size.
+         *
+         * @param batchSize the new batch size
+         */
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Gets the claim ms.
+         *
+         * @return the claim ms
+         */
+        public long getClaimMs() {
+            return claimMs;
+        }
+
+        /**
+         * Sets the claim ms.
+         *
+         * @param claimMs the new claim ms
+         */
+        public void setClaimMs(long claimMs) {
+            this.claimMs = claimMs;
+        }
+
+        /**
+         * Gets the initial backoff ms.
+         *
+         * @return the initial backoff ms
+         */
+        public long getInitialBackoffMs() {
+            return initialBackoffMs;
+        }
+
+        /**
+         * Sets the initial backoff ms.
+         *
+         * @param initialBackoffMs the new initial backoff ms
+         */
+        public void setInitialBackoffMs(long initialBackoffMs) {
+            this.initialBackoffMs = initialBackoffMs;
+        }
+
+        /**
+         * Gets the max backoff ms.
+         *
+         * @return the max backoff ms
+         */
+        public long getMaxBackoffMs() {
+            return maxBackoffMs;
+        }
+
+        /**
+         * Sets the max backoff ms.
+         *
+         * @param maxBackoffMs the new max backoff ms
+         */
+        public void setMaxBackoffMs(long maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+        }
+    }
+
+    /**
+     * Bulk import of the users, see AccountBusinessService#importUsers.
+     *
+     * @author Dai Mai
+     */
+    public static class UserImport {
+
+        /** The number of rows validated and inserted by a single transaction. */
+        private int batchSize = 500;
+
+        /**
+         * Gets the batch size.
+         *
+         * @return the batch size
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        /**
+         * Sets the batch size.
+         *
+         * @param batchSize the new batch size
+         */
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    /**
+     * Queue of the deferred emails, see MailQueue.
+     *
+     * @author Dai Mai
+     */
+    public static class MailQueue {
+
+        /** The delay between two drains of the queue. */
+        private long flushIntervalMs = 1000;
+
+        /** The maximum number of emails sent by a single drain. */
+        private int batchSize = 50;
+
+        /** The duration of the claim of a batch, after which its unsent emails are retried. */
+        private long claimMs = 60000;
+
+        /**
+         * Gets the flush interval ms.
+         *
+         * @return the flush interval ms
+         */
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        /**
+         * Sets the flush interval ms.
+         *
+         * @param flushIntervalMs the new flush interval ms
+         */
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        /**
+         * Gets the batch size.
+         *
+         * @return the batch size
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        /**
+         * Sets the batch size.
+         *
+         * @param batchSize the new batch size
+         */
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Gets the claim ms.
+         *
+         * @return the claim ms
+         */
+        public long getClaimMs() {
+            return claimMs;
+        }
+
+        /**
+         * Sets the claim ms.
+         *
+         * @param claimMs the new claim ms
+         */
+        public void setClaimMs(long claimMs) {
+            this.claimMs = claimMs;
+        }
+    }
+
+    /**
+     * Nightly purge of the users without credential, see UserService#removeNonCredentialUsers.
+     *
+     * @author Dai Mai
+     */
+    public static class UserPurge {
+
+        /** The number of users deleted by a single transaction. */
+        private int batchSize = 500;
+
+        /** The duration of the lease of the purge, extended after each batch. */
+        private long lockMs = 600000;
+
+        /**
+         * Gets the batch size.
+         *
+         * @return the batch size
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        /**
+         * Sets the batch size.
+         *
+         * @param batchSize the new batch size
+         */
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Gets the lock ms.
+         *
+         * @return the lock ms
+         */
+        public long getLockMs() {
+            return lockMs;
+        }
+
+        /**
+         * Sets the lock ms.
+         *
+         * @param lockMs the new lock ms
+         */
+        public void setLockMs(long lockMs) {
+            this.lockMs = lockMs;
+        }
+    }
+
+    /**
+     * Rejection of the unknown logins without a database query, see logia.assistant.gateway.service.LoginFilter.
+     *
+     * @author Dai Mai
+     */
+    public static class LoginFilter {
+
+        /** Whether the unknown logins are rejected by the filter. */
+        private boolean enabled = true;
+
+        /** The expected number of logins, sizing the Bloom filter. */
+        private long expectedLogins = 1000000;
+
+        /** The false positive rate of the Bloom filter at the expected number of logins. */
+        private double falsePositiveRate = 0.01;
+
+        /** The time to live of a login found missing in the database. */
+        private int missingTtlSeconds = 30;
+
+        /** The maximum number of logins found missing kept by each node. */
+        private int missingMaxSize = 100000;
+
+        /** The delay between two rebuilds of the filter from the database, repairing the missed changes. */
+        private long rebuildIntervalMs = 3600000;
+
+        /**
+         * Checks if is enabled.
+         *
+         * @return true, if is enabled
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * Sets the enabled.
+         *
+         * @param enabled the new enabled
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Gets the expected logins.
+         *
+         * @return the expected logins
+         */
+        public long getExpectedLogins() {
+            return expectedLogins;
+        }
+
+        /**
+         * Sets the expected logins.
+         *
+         * @param expectedLogins the new expected logins
+         */
+        public void setExpectedLogins(long expectedLogins) {
+            this.expectedLogins = expectedLogins;
+        }
+
+        /**
+         * Gets the false positive rate.
+         *
+         * @return the false positive rate
+         */
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        /**
+         * Sets the false positive rate.
+         *
+         * @param falsePositiveRate the new false positive rate
+         */
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        /**
+         * Gets the missing ttl seconds.
+         *
+         * @return the missing ttl seconds
+         */
+        public int getMissingTtlSeconds() {
+            return missingTtlSeconds;
+        }
+
+        /**
+         * Sets the missing ttl seconds.
+         *
+         * @param missingTtlSeconds the new missing ttl seconds
+         */
+        public void setMissingTtlSeconds(int missingTtlSeconds) {
+            this.missingTtlSeconds = missingTtlSeconds;
+        }
+
+        /**
+         * Gets the missing max size.
+         *
+         * @return the missing max size
+         */
+        public int getMissingMaxSize() {
+            return missingMaxSize;
+        }
+
+        /**
+         * Sets the missing max size.
+         *
+         * @param missingMaxSize the new missing max size
+         */
+        public void setMissingMaxSize(int missingMaxSize) {
+            this.missingMaxSize = missingMaxSize;
+        }
+
+        /**
+         * Gets the rebuild interval ms.
+         *
+         * @return the rebuild interval ms
+         */
+        public long getRebuildIntervalMs() {
+            return rebuildIntervalMs;
+        }
+
+        /**
+         * Sets the rebuild interval ms.
+         *
+         * @param rebuildIntervalMs the new rebuild interval ms
+         */
+        public void setRebuildIntervalMs(long rebuildIntervalMs) {
+            this.rebuildIntervalMs = rebuildIntervalMs;
+        }
+    }
+
+    /**
+     * Near cache of a Hazelcast cache, keeping its hot entries in the memory of each node, see CacheConfiguration.
+     *
+     * @author Dai Mai
+     */
+    public static class NearCache {
+
+        /** The maximum number of entries kept by each node. */
+        private int maxSize = 10000;
+
+        /** The time to live of an entry, 0 for no limit. */
+        private int timeToLiveSeconds = 300;
+
+        /** The maximum idle time of an entry, 0 for no limit. */
+        private int maxIdleSeconds = 0;
+
+        /**
+         * The in memory format of the entries: BINARY deserializes each hit into a new object, OBJECT shares the
+         * cached object between the hits, so only suits the values never modified by their readers.
+         */
+        private String inMemoryFormat = "BINARY";
+
+        /**
+         * Gets the max size.
+         *
+         * @return the max size
+         */
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * Sets the max size.
+         *
+         * @param maxSize the new max size
+         */
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Gets the time to live seconds.
+         *
+         * @return the time to live seconds
+         */
+        public int getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        /**
+         * Sets the time to live seconds.
+         *
+         * @param timeToLiveSeconds the new time to live seconds
+         */
+        public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+
+        /**
+         * Gets the max idle seconds.
+         *
+         * @return the max idle seconds
+         */
+        public int getMaxIdleSeconds() {
+            return maxIdleSeconds;
+        }
+
+        /**
+         * Sets the max idle seconds.
+         *
+         * @param maxIdleSeconds the new max idle seconds
+         */
+        public void setMaxIdleSeconds(int maxIdleSeconds) {
+            this.maxIdleSeconds = maxIdleSeconds;
+        }
+
+        /**
+         * Gets the in memory format.
+         *
+         * @return the in memory format
+         */
+        public String getInMemoryFormat() {
+            return inMemoryFormat;
+        }
+
+        /**
+         * Sets the in memory format.
+         *
+         * @param inMemoryFormat the new in memory format
+         */
+        public void setInMemoryFormat(String inMemoryFormat) {
+            this.inMemoryFormat = inMemoryFormat;
+        }
+    }
 }
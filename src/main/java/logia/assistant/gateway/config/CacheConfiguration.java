@@ -3,6 +3,7 @@ package logia.assistant.gateway.config;
 import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.config.JHipsterProperties;
 
+import com.codahale.metrics.MetricRegistry;
 import com.hazelcast.config.*;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.Hazelcast;
@@ -22,6 +23,9 @@ import org.springframework.cloud.client.serviceregistry.Registration;
 import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
 
+import logia.assistant.gateway.domain.CachedCredential;
+import logia.assistant.gateway.service.LoginFilter;
+
 import javax.annotation.PreDestroy;
 
 /**
@@ -86,12 +90,19 @@ public class CacheConfiguration {
      * Cache manager.
      *
      * @param hazelcastInstance the hazelcast instance
+     * @param applicationProperties the application properties
+     * @param metricRegistry the metric registry
      * @return the cache manager
      */
     @Bean
-    public CacheManager cacheManager(HazelcastInstance hazelcastInstance) {
+    public CacheManager cacheManager(HazelcastInstance hazelcastInstance, ApplicationProperties applicationProperties,
+            MetricRegistry metricRegistry) {
         log.debug("Starting HazelcastCacheManager");
         CacheManager cacheManager = new com.hazelcast.spring.cache.HazelcastCacheManager(hazelcastInstance);
+        for (String cacheName : applicationProperties.getNearCaches().keySet()) {
+            metricRegistry.register(MetricRegistry.name(NearCacheMetricSet.PREFIX, cacheName),
+                    new NearCacheMetricSet(hazelcastInstance, cacheName));
+        }
         return cacheManager;
     }
 
@@ -99,10 +110,12 @@ public class CacheConfiguration {
      * Hazelcast instance.
      *
      * @param jHipsterProperties the j hipster properties
+     * @param applicationProperties the application properties
      * @return the hazelcast instance
      */
     @Bean
-    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties) {
+    public HazelcastInstance hazelcastInstance(JHipsterProperties jHipsterProperties,
+            ApplicationProperties applicationProperties) {
         log.debug("Configuring Hazelcast");
         HazelcastInstance hazelCastInstance = Hazelcast.getHazelcastInstanceByName("AssistantGateway");
         if (hazelCastInstance != null) {
@@ -142,10 +155,16 @@ public class CacheConfiguration {
             }
         }
         config.getMapConfigs().put("default", initializeDefaultMapConfig());
+        config.getSerializationConfig().addSerializerConfig(new SerializerConfig()
+                .setImplementation(new CachedCredentialSerializer()).setTypeClass(CachedCredential.class));
 
         // Full reference is available at: http://docs.hazelcast.org/docs/management-center/3.9/manual/html/Deploying_and_Starting.html
         config.setManagementCenterConfig(initializeDefaultManagementCenterConfig(jHipsterProperties));
         config.getMapConfigs().put("logia.assistant.gateway.domain.*", initializeDomainMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(LoginFilter.MISSING_LOGINS_MAP,
+                initializeMissingLoginsMapConfig(applicationProperties.getLoginFilter()));
+        applicationProperties.getNearCaches().forEach((cacheName, nearCache) ->
+                config.getMapConfigs().put(cacheName, initializeNearCachedMapConfig(cacheName, nearCache)));
         return Hazelcast.newHazelcastInstance(config);
     }
 
@@ -209,4 +228,45 @@ public class CacheConfiguration {
         mapConfig.setTimeToLiveSeconds(jHipsterProperties.getCache().getHazelcast().getTimeToLiveSeconds());
         return mapConfig;
     }
+
+    /**
+     * Initialize the map config of the logins found missing, short lived and bounded on each node, as the unknown
+     * logins are chosen by the clients.
+     *
+     * @param loginFilter the login filter properties
+     * @return the map config
+     */
+    private MapConfig initializeMissingLoginsMapConfig(ApplicationProperties.LoginFilter loginFilter) {
+        MapConfig mapConfig = new MapConfig();
+        mapConfig.setBackupCount(0);
+        mapConfig.setTimeToLiveSeconds(loginFilter.getMissingTtlSeconds());
+        mapConfig.setEvictionPolicy(EvictionPolicy.LRU);
+        mapConfig.setMaxSizeConfig(
+                new MaxSizeConfig(loginFilter.getMissingMaxSize(), MaxSizeConfig.MaxSizePolicy.PER_NODE));
+        return mapConfig;
+    }
+
+    /**
+     * Initialize the map config of a hot cache, whose entries are also kept by a near cache on each node. The near
+     * cache is invalidated by the cluster whenever an entry changes or is evicted, so it never serves a stale entry
+     * longer than the invalidation takes to arrive.
+     *
+     * @param cacheName the cache name
+     * @param nearCache the near cache properties
+     * @return the map config
+     */
+    private MapConfig initializeNearCachedMapConfig(String cacheName, ApplicationProperties.NearCache nearCache) {
+        MapConfig mapConfig = initializeDefaultMapConfig();
+        mapConfig.setName(cacheName);
+        NearCacheConfig nearCacheConfig = new NearCacheConfig(cacheName)
+                .setInMemoryFormat(InMemoryFormat.valueOf(nearCache.getInMemoryFormat()))
+                .setInvalidateOnChange(true)
+                .setCacheLocalEntries(true)
+                .setTimeToLiveSeconds(nearCache.getTimeToLiveSeconds())
+                .setMaxIdleSeconds(nearCache.getMaxIdleSeconds())
+                .setEvictionConfig(new EvictionConfig(nearCache.getMaxSize(), EvictionConfig.MaxSizePolicy.ENTRY_COUNT,
+                        EvictionPolicy.LRU));
+        mapConfig.setNearCacheConfig(nearCacheConfig);
+        return mapConfig;
+    }
 }
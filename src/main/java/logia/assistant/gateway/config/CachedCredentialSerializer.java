@@ -0,0 +1,75 @@
+package logia.assistant.gateway.config;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+
+import logia.assistant.gateway.domain.CachedCredential;
+
+/**
+ * Hazelcast serializer of the {@link CachedCredential}, writing its fields in a fixed order, without the class
+ * descriptors and the entity graph of the Java serialization.
+ *
+ * @author Dai Mai
+ */
+public class CachedCredentialSerializer implements StreamSerializer<CachedCredential> {
+
+    /** The type id, unique among the custom serializers of the cluster. */
+    public static final int TYPE_ID = 1001;
+
+    /* (non-Javadoc)
+     * @see com.hazelcast.nio.serialization.StreamSerializer#write(com.hazelcast.nio.ObjectDataOutput, java.lang.Object)
+     */
+    @Override
+    public void write(ObjectDataOutput out, CachedCredential credential) throws IOException {
+        out.writeLong(credential.getId());
+        out.writeUTF(credential.getLogin());
+        out.writeLong(credential.getUserId());
+        out.writeUTF(credential.getUserUuid());
+        out.writeUTF(credential.getPassword());
+        out.writeBoolean(credential.isActivated());
+        out.writeInt(credential.getAuthorities().size());
+        for (String authority : credential.getAuthorities()) {
+            out.writeUTF(authority);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.hazelcast.nio.serialization.StreamSerializer#read(com.hazelcast.nio.ObjectDataInput)
+     */
+    @Override
+    public CachedCredential read(ObjectDataInput in) throws IOException {
+        long id = in.readLong();
+        String login = in.readUTF();
+        long userId = in.readLong();
+        String userUuid = in.readUTF();
+        String password = in.readUTF();
+        boolean activated = in.readBoolean();
+        int size = in.readInt();
+        Set<String> authorities = new LinkedHashSet<>(size);
+        for (int i = 0; i < size; i++) {
+            authorities.add(in.readUTF());
+        }
+        return new CachedCredential(id, login, userId, userUuid, password, activated, authorities);
+    }
+
+    /* (non-Javadoc)
+     * @see com.hazelcast.nio.serialization.Serializer#getTypeId()
+     */
+    @Override
+    public int getTypeId() {
+        return TYPE_ID;
+    }
+
+    /* (non-Javadoc)
+     * @see com.hazelcast.nio.serialization.Serializer#destroy()
+     */
+    @Override
+    public void destroy() {
+        // Stateless
+    }
+}
@@ -19,6 +19,12 @@ public final class Constants {
     
     /** The Constant DEFAULT_LANGUAGE. */
     public static final String DEFAULT_LANGUAGE = "vi";
+
+    /** The media type of newline delimited JSON, one document per line. */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /** The media type of comma separated values, with a header line. */
+    public static final String TEXT_CSV_VALUE = "text/csv";
     
     /**
      * Instantiates a new constants.
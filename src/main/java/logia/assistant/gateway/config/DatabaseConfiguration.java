@@ -4,6 +4,11 @@ import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.config.liquibase.AsyncSpringLiquibase;
 
 import liquibase.integration.spring.SpringLiquibase;
+import logia.assistant.gateway.repository.SequenceBlockAllocator;
+import logia.assistant.gateway.repository.UserRepository;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -17,8 +22,10 @@ import org.springframework.data.elasticsearch.repository.config.EnableElasticsea
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
 
 /**
@@ -75,4 +82,20 @@ public class DatabaseConfiguration {
         }
         return liquibase;
     }
+
+    /**
+     * User uuid allocator.
+     *
+     * @param jdbcTemplate the jdbc template
+     * @param entityManagerFactory the entity manager factory
+     * @return the sequence block allocator
+     */
+    @Bean
+    public SequenceBlockAllocator userUuidAllocator(JdbcTemplate jdbcTemplate,
+            EntityManagerFactory entityManagerFactory) {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        return new SequenceBlockAllocator(jdbcTemplate,
+            dialect.getSequenceNextValString(UserRepository.USER_UUID_SEQUENCE),
+            UserRepository.USER_UUID_SEQUENCE_INCREMENT);
+    }
 }
@@ -20,16 +20,27 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @Configuration
 public class ElasticsearchConfiguration {
 
+    /**
+     * Entity mapper, serializing the documents with the application object mapper.
+     *
+     * @param jackson2ObjectMapperBuilder the jackson 2 object mapper builder
+     * @return the entity mapper
+     */
+    @Bean
+    public EntityMapper entityMapper(Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder) {
+        return new CustomEntityMapper(jackson2ObjectMapperBuilder.createXmlMapper(false).build());
+    }
+
     /**
      * Elasticsearch template.
      *
      * @param client the client
-     * @param jackson2ObjectMapperBuilder the jackson 2 object mapper builder
+     * @param entityMapper the entity mapper
      * @return the elasticsearch template
      */
     @Bean
-    public ElasticsearchTemplate elasticsearchTemplate(Client client, Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder) {
-        return new ElasticsearchTemplate(client, new CustomEntityMapper(jackson2ObjectMapperBuilder.createXmlMapper(false).build()));
+    public ElasticsearchTemplate elasticsearchTemplate(Client client, EntityMapper entityMapper) {
+        return new ElasticsearchTemplate(client, entityMapper);
     }
 
     /**
@@ -73,13 +73,19 @@ public class GatewayConfiguration {
         /** The j hipster properties. */
         private final JHipsterProperties jHipsterProperties;
 
+        /** The application properties. */
+        private final ApplicationProperties applicationProperties;
+
         /**
          * Instantiates a new rate limiting configuration.
          *
          * @param jHipsterProperties the j hipster properties
+         * @param applicationProperties the application properties
          */
-        public RateLimitingConfiguration(JHipsterProperties jHipsterProperties) {
+        public RateLimitingConfiguration(JHipsterProperties jHipsterProperties,
+            ApplicationProperties applicationProperties) {
             this.jHipsterProperties = jHipsterProperties;
+            this.applicationProperties = applicationProperties;
         }
 
         /**
@@ -89,7 +95,7 @@ public class GatewayConfiguration {
          */
         @Bean
         public RateLimitingFilter rateLimitingFilter() {
-            return new RateLimitingFilter(jHipsterProperties);
+            return new RateLimitingFilter(jHipsterProperties, applicationProperties);
         }
     }
 }
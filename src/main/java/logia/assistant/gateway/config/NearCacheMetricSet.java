@@ -0,0 +1,83 @@
+package logia.assistant.gateway.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.RatioGauge;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.monitor.NearCacheStats;
+
+/**
+ * Gauges of the near cache of a Hazelcast map on this node: hits, misses, hit ratio and entries.
+ *
+ * @author Dai Mai
+ */
+public class NearCacheMetricSet implements MetricSet {
+
+    /** The prefix of the metric names. */
+    public static final String PREFIX = "hazelcast.near-cache";
+
+    /** The hazelcast instance. */
+    private final HazelcastInstance hazelcastInstance;
+
+    /** The map name. */
+    private final String mapName;
+
+    /**
+     * Instantiates a new near cache metric set.
+     *
+     * @param hazelcastInstance the hazelcast instance
+     * @param mapName the map name
+     */
+    public NearCacheMetricSet(HazelcastInstance hazelcastInstance, String mapName) {
+        this.hazelcastInstance = hazelcastInstance;
+        this.mapName = mapName;
+    }
+
+    /* (non-Javadoc)
+     * @see com.codahale.metrics.MetricSet#getMetrics()
+     */
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+        metrics.put("hits", gauge(NearCacheStats::getHits));
+        metrics.put("misses", gauge(NearCacheStats::getMisses));
+        metrics.put("entries", gauge(NearCacheStats::getOwnedEntryCount));
+        metrics.put("hit-ratio", new RatioGauge() {
+
+            @Override
+            protected Ratio getRatio() {
+                NearCacheStats stats = getStats();
+                return stats == null ? Ratio.of(0, 0)
+                    : Ratio.of(stats.getHits(), (double) stats.getHits() + stats.getMisses());
+            }
+        });
+        return metrics;
+    }
+
+    /**
+     * Gauge of a statistic of the near cache.
+     *
+     * @param statistic the statistic
+     * @return the gauge, 0 while the near cache is not created
+     */
+    private Gauge<Long> gauge(ToLongFunction<NearCacheStats> statistic) {
+        return () -> {
+            NearCacheStats stats = getStats();
+            return stats == null ? 0L : statistic.applyAsLong(stats);
+        };
+    }
+
+    /**
+     * Gets the statistics of the near cache on this node.
+     *
+     * @return the statistics, null if the map has no near cache
+     */
+    private NearCacheStats getStats() {
+        return hazelcastInstance.getMap(mapName).getLocalMapStats().getNearCacheStats();
+    }
+}
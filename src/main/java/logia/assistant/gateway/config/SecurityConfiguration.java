@@ -2,6 +2,8 @@ package logia.assistant.gateway.config;
 
 import javax.annotation.PostConstruct;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,15 +17,15 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.filter.CorsFilter;
 import org.zalando.problem.spring.web.advice.security.SecurityProblemSupport;
 
+import logia.assistant.gateway.security.BoundedBCryptPasswordEncoder;
+import logia.assistant.gateway.security.jwt.JWTAuthenticationCache;
+import logia.assistant.gateway.security.jwt.JWTAuthenticator;
 import logia.assistant.gateway.security.jwt.JWTConfigurer;
 import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
-import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
 
 /**
  * The Class SecurityConfiguration.
@@ -36,14 +38,20 @@ import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
 @EnableGlobalMethodSecurity(prePostEnabled = true, securedEnabled = true)
 public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
+    /** The log. */
+    private final Logger log = LoggerFactory.getLogger(SecurityConfiguration.class);
+
     /** The authentication manager builder. */
     private final AuthenticationManagerBuilder authenticationManagerBuilder;
 
     /** The user details service. */
     private final UserDetailsService userDetailsService;
 
-    /** The token provider. */
-    private final TokenProvider tokenProvider;
+    /** The JWT authenticator. */
+    private final JWTAuthenticator jwtAuthenticator;
+
+    /** The JWT authentication cache. */
+    private final JWTAuthenticationCache jwtAuthenticationCache;
 
     /** The cors filter. */
     private final CorsFilter corsFilter;
@@ -51,21 +59,28 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     /** The problem support. */
     private final SecurityProblemSupport problemSupport;
 
+    /** The application properties. */
+    private final ApplicationProperties applicationProperties;
+
     /**
      * Instantiates a new security configuration.
      *
      * @param authenticationManagerBuilder the authentication manager builder
      * @param userDetailsService the user details service
-     * @param tokenProvider the token provider
+     * @param jwtAuthenticator the JWT authenticator
+     * @param jwtAuthenticationCache the JWT authentication cache
      * @param corsFilter the cors filter
      * @param problemSupport the problem support
+     * @param applicationProperties the application properties
      */
-    public SecurityConfiguration(AuthenticationManagerBuilder authenticationManagerBuilder, UserDetailsService userDetailsService,TokenProvider tokenProvider,CorsFilter corsFilter, SecurityProblemSupport problemSupport) {
+    public SecurityConfiguration(AuthenticationManagerBuilder authenticationManagerBuilder, UserDetailsService userDetailsService,JWTAuthenticator jwtAuthenticator, JWTAuthenticationCache jwtAuthenticationCache, CorsFilter corsFilter, SecurityProblemSupport problemSupport, ApplicationProperties applicationProperties) {
         this.authenticationManagerBuilder = authenticationManagerBuilder;
         this.userDetailsService = userDetailsService;
-        this.tokenProvider = tokenProvider;
+        this.jwtAuthenticator = jwtAuthenticator;
+        this.jwtAuthenticationCache = jwtAuthenticationCache;
         this.corsFilter = corsFilter;
         this.problemSupport = problemSupport;
+        this.applicationProperties = applicationProperties;
     }
 
     /**
@@ -88,8 +103,22 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
      * @return the password encoder
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedBCryptPasswordEncoder passwordEncoder() {
+        ApplicationProperties.Security.PasswordHashing properties =
+            applicationProperties.getSecurity().getPasswordHashing();
+        int strength = properties.getStrength();
+        if (properties.getTargetMillis() > 0) {
+            int advised = BoundedBCryptPasswordEncoder.calibrate(properties.getTargetMillis(),
+                properties.getMinStrength(), properties.getMaxStrength());
+            if (advised != strength) {
+                log.info("BCrypt strength is {}, this node would hash within {} ms at strength {}; "
+                    + "set application.security.password-hashing.strength on every node to change it", strength,
+                    properties.getTargetMillis(), advised);
+            }
+        }
+        int threads = properties.getThreads() > 0 ? properties.getThreads()
+            : Runtime.getRuntime().availableProcessors();
+        return new BoundedBCryptPasswordEncoder(strength, threads, properties.getQueueCapacity());
     }
 
     /* (non-Javadoc)
@@ -150,7 +179,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
      * @return the JWT configurer
      */
     private JWTConfigurer securityConfigurerAdapter() {
-        return new JWTConfigurer(tokenProvider);
+        return new JWTConfigurer(jwtAuthenticator, jwtAuthenticationCache);
     }
 
 }
@@ -0,0 +1,175 @@
+package logia.assistant.gateway.domain;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compact projection of a credential and its user, with what authenticating the credential needs. This is what the
+ * {@code credentialsByLogin} cache holds, rather than the whole entity graph: it is immutable, so the near caches can
+ * share it between their readers, and it is written by the {@code CachedCredentialSerializer} in a few dozen bytes.
+ *
+ * @author Dai Mai
+ */
+public final class CachedCredential {
+
+    /** The credential id. */
+    private final long id;
+
+    /** The login. */
+    private final String login;
+
+    /** The user id. */
+    private final long userId;
+
+    /** The user uuid. */
+    private final String userUuid;
+
+    /** The password hash. */
+    private final String password;
+
+    /** Whether the user is activated. */
+    private final boolean activated;
+
+    /** The authority names. */
+    private final Set<String> authorities;
+
+    /**
+     * Instantiates a new cached credential.
+     *
+     * @param id the credential id
+     * @param login the login
+     * @param userId the user id
+     * @param userUuid the user uuid
+     * @param password the password hash
+     * @param activated whether the user is activated
+     * @param authorities the authority names
+     */
+    public CachedCredential(long id, String login, long userId, String userUuid, String password, boolean activated,
+        Set<String> authorities) {
+        this.id = id;
+        this.login = login;
+        this.userId = userId;
+        this.userUuid = userUuid;
+        this.password = password;
+        this.activated = activated;
+        this.authorities = Collections.unmodifiableSet(new LinkedHashSet<>(authorities));
+    }
+
+    /**
+     * Project a credential, with its user and authorities loaded.
+     *
+     * @param credential the credential
+     * @return the cached credential
+     */
+    public static CachedCredential of(Credential credential) {
+        User user = credential.getUser();
+        Set<String> authorities = new LinkedHashSet<>();
+        user.getAuthorities().forEach(authority -> authorities.add(authority.getName()));
+        return new CachedCredential(credential.getId(), credential.getLogin(), user.getId(), user.getUuid(),
+            user.getPassword(), Boolean.TRUE.equals(user.isActivated()), authorities);
+    }
+
+    /**
+     * Gets the credential id.
+     *
+     * @return the id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the login.
+     *
+     * @return the login
+     */
+    public String getLogin() {
+        return login;
+    }
+
+    /**
+     * Gets the user id.
+     *
+     * @return the user id
+     */
+    public long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the user uuid.
+     *
+     * @return the user uuid
+     */
+    public String getUserUuid() {
+        return userUuid;
+    }
+
+    /**
+     * Gets the password hash.
+     *
+     * @return the password hash
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * Checks if the user is activated.
+     *
+     * @return true, if is activated
+     */
+    public boolean isActivated() {
+        return activated;
+    }
+
+    /**
+     * Gets the authority names.
+     *
+     * @return the authorities
+     */
+    public Set<String> getAuthorities() {
+        return authorities;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CachedCredential other = (CachedCredential) o;
+        return id == other.id && userId == other.userId && activated == other.activated
+            && Objects.equals(login, other.login) && Objects.equals(userUuid, other.userUuid)
+            && Objects.equals(password, other.password) && authorities.equals(other.authorities);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "CachedCredential{" +
+            "id=" + id +
+            ", login='" + login + "'" +
+            ", userId=" + userId +
+            ", activated=" + activated +
+            ", authorities=" + authorities +
+            "}";
+    }
+}
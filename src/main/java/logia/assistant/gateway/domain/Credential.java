@@ -6,13 +6,16 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
 import javax.persistence.*;
 import javax.validation.constraints.*;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
 
 import logia.assistant.share.common.entity.AbstractAuditingEntity;
 
 import java.io.Serializable;
 import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.Locale;
 import java.util.Objects;
 
 /**
@@ -24,6 +27,7 @@ import java.util.Objects;
 @Table(name = "credential")
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Document(indexName = "credential")
+@Mapping(mappingPath = "config/elasticsearch/mappings/credential.json")
 public class Credential extends AbstractAuditingEntity implements Serializable {
 
     /** The Constant serialVersionUID. */
@@ -104,12 +108,12 @@ public class Credential extends AbstractAuditingEntity implements Serializable {
     }
 
     /**
-     * Sets the login.
+     * Sets the login, normalized by {@link #normalizeLogin(String)}.
      *
      * @param login the new login
      */
     public void setLogin(String login) {
-        this.login = login;
+        this.login = normalizeLogin(login);
     }
 
     /**
@@ -300,6 +304,16 @@ public class Credential extends AbstractAuditingEntity implements Serializable {
             "}";
     }
     
+    /**
+     * Normalize a login as stored, so the logins are unique and looked up regardless of their case.
+     *
+     * @param login the login, may be null
+     * @return the lower case login
+     */
+    public static String normalizeLogin(String login) {
+        return StringUtils.lowerCase(login, Locale.ENGLISH);
+    }
+
     /**
      * Clone to another object.
      *
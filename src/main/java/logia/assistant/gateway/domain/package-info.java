@@ -1,4 +1,4 @@
 /**
- * JPA domain objects.
+ * JPA domain objects, and the compact projections of them kept in the caches.
  */
 package logia.assistant.gateway.domain;
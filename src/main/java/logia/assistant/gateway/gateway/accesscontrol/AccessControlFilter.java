@@ -2,13 +2,11 @@ package logia.assistant.gateway.gateway.accesscontrol;
 
 import io.github.jhipster.config.JHipsterProperties;
 
-import java.util.List;
-import java.util.Map;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cloud.netflix.zuul.filters.Route;
+import org.springframework.cloud.netflix.zuul.RoutesRefreshedEvent;
 import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
+import org.springframework.context.ApplicationListener;
 import org.springframework.http.HttpStatus;
 
 import com.netflix.zuul.ZuulFilter;
@@ -16,10 +14,13 @@ import com.netflix.zuul.context.RequestContext;
 
 /**
  * Zuul filter for restricting access to backend micro-services endpoints.
+ * <p>
+ * Routes and their authorized endpoints are compiled into a {@link RouteAccessTrie}, which is rebuilt only when
+ * Zuul's routes are refreshed.
  *
  * @author Dai Mai
  */
-public class AccessControlFilter extends ZuulFilter {
+public class AccessControlFilter extends ZuulFilter implements ApplicationListener<RoutesRefreshedEvent> {
 
     /** The log. */
     private final Logger log = LoggerFactory.getLogger(AccessControlFilter.class);
@@ -30,6 +31,9 @@ public class AccessControlFilter extends ZuulFilter {
     /** The j hipster properties. */
     private final JHipsterProperties jHipsterProperties;
 
+    /** The route access trie, null until first used. */
+    private volatile RouteAccessTrie routeAccessTrie;
+
     /**
      * Instantiates a new access control filter.
      *
@@ -67,53 +71,71 @@ public class AccessControlFilter extends ZuulFilter {
         String requestUri = RequestContext.getCurrentContext().getRequest().getRequestURI();
 
         // If the request Uri does not start with the path of the authorized endpoints, we block the request
-        for (Route route : routeLocator.getRoutes()) {
-            String serviceUrl = route.getFullPath();
-            String serviceName = route.getId();
-
-            // If this route correspond to the current request URI
-            // We do a substring to remove the "**" at the end of the route URL
-            if (requestUri.startsWith(serviceUrl.substring(0, serviceUrl.length() - 2))) {
-				return !isAuthorizedRequest(serviceUrl, serviceName, requestUri);
-            }
+        RouteAccessTrie.RouteAccess route = getRouteAccessTrie().findRoute(requestUri);
+        if (route == null) {
+            return true;
         }
-        return true;
+        return !isAuthorizedRequest(route, requestUri);
     }
 
     /**
      * Checks if is authorized request.
      *
-     * @param serviceUrl the service url
-     * @param serviceName the service name
+     * @param route the route corresponding to the request URI
      * @param requestUri the request uri
      * @return true, if is authorized request
      */
-    private boolean isAuthorizedRequest(String serviceUrl, String serviceName, String requestUri) {
-        Map<String, List<String>> authorizedMicroservicesEndpoints = jHipsterProperties.getGateway()
-            .getAuthorizedMicroservicesEndpoints();
-
+    private boolean isAuthorizedRequest(RouteAccessTrie.RouteAccess route, String requestUri) {
         // If the authorized endpoints list was left empty for this route, all access are allowed
-        if (authorizedMicroservicesEndpoints.get(serviceName) == null) {
+        if (!route.hasPolicy()) {
             log.debug("Access Control: allowing access for {}, as no access control policy has been set up for " +
-                "service: {}", requestUri, serviceName);
+                "service: {}", requestUri, route.getServiceName());
+            return true;
+        }
+        String gatewayEndpoint = route.findAuthorizedEndpoint(requestUri);
+        if (gatewayEndpoint != null) {
+            log.debug("Access Control: allowing access for {}, as it matches the following authorized " +
+                "microservice endpoint: {}", requestUri, gatewayEndpoint);
             return true;
-        } else {
-            List<String> authorizedEndpoints = authorizedMicroservicesEndpoints.get(serviceName);
-
-            // Go over the authorized endpoints to control that the request URI matches it
-            for (String endpoint : authorizedEndpoints) {
-                // We do a substring to remove the "**/" at the end of the route URL
-                String gatewayEndpoint = serviceUrl.substring(0, serviceUrl.length() - 3) + endpoint;
-                if (requestUri.startsWith(gatewayEndpoint)) {
-                    log.debug("Access Control: allowing access for {}, as it matches the following authorized " +
-                        "microservice endpoint: {}", requestUri, gatewayEndpoint);
-                    return true;
-                }
-            }
         }
         return false;
     }
 
+    /**
+     * Rebuild the route access trie when Zuul routes are refreshed.
+     *
+     * @param event the routes refreshed event
+     */
+    @Override
+    public void onApplicationEvent(RoutesRefreshedEvent event) {
+        log.debug("Access Control: Zuul routes refreshed, rebuilding the route access trie");
+        this.routeAccessTrie = buildRouteAccessTrie();
+    }
+
+    /**
+     * Gets the route access trie, building it on first use.
+     *
+     * @return the route access trie
+     */
+    private RouteAccessTrie getRouteAccessTrie() {
+        RouteAccessTrie trie = this.routeAccessTrie;
+        if (trie == null) {
+            trie = buildRouteAccessTrie();
+            this.routeAccessTrie = trie;
+        }
+        return trie;
+    }
+
+    /**
+     * Compile the route access trie from the current routes and access control policy.
+     *
+     * @return the route access trie
+     */
+    private RouteAccessTrie buildRouteAccessTrie() {
+        return RouteAccessTrie.build(routeLocator.getRoutes(),
+            jHipsterProperties.getGateway().getAuthorizedMicroservicesEndpoints());
+    }
+
     /* (non-Javadoc)
      * @see com.netflix.zuul.IZuulFilter#run()
      */
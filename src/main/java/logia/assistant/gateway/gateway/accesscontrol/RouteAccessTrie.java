@@ -0,0 +1,246 @@
+package logia.assistant.gateway.gateway.accesscontrol;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.cloud.netflix.zuul.filters.Route;
+
+/**
+ * Immutable prefix trie mapping Zuul route prefixes to their authorized micro-services endpoints.
+ * <p>
+ * The trie is compiled once from the {@link Route} list and the
+ * {@code jhipster.gateway.authorized-microservices-endpoints} policy, so that the access decision for a request
+ * only walks the characters of its URI, without any substring or allocation.
+ *
+ * @author Dai Mai
+ */
+final class RouteAccessTrie {
+
+    /** The root of the route prefixes trie. */
+    private final Node<RouteAccess> routes;
+
+    /**
+     * Instantiates a new route access trie.
+     *
+     * @param routes the root of the route prefixes trie
+     */
+    private RouteAccessTrie(Node<RouteAccess> routes) {
+        this.routes = routes;
+    }
+
+    /**
+     * Compile the trie from the given routes and access control policy.
+     *
+     * @param routes the Zuul routes, in the order they are matched
+     * @param authorizedMicroservicesEndpoints the authorized endpoints per service name
+     * @return the route access trie
+     */
+    static RouteAccessTrie build(Collection<Route> routes,
+        Map<String, List<String>> authorizedMicroservicesEndpoints) {
+        NodeBuilder<RouteAccess> routesBuilder = new NodeBuilder<>();
+        int order = 0;
+        for (Route route : routes) {
+            String serviceUrl = route.getFullPath();
+            String serviceName = route.getId();
+            List<String> authorizedEndpoints = authorizedMicroservicesEndpoints.get(serviceName);
+
+            Node<String> endpoints = null;
+            if (authorizedEndpoints != null) {
+                NodeBuilder<String> endpointsBuilder = new NodeBuilder<>();
+                int endpointOrder = 0;
+                for (String endpoint : authorizedEndpoints) {
+                    // We do a substring to remove the "**/" at the end of the route URL
+                    String gatewayEndpoint = serviceUrl.substring(0, serviceUrl.length() - 3) + endpoint;
+                    endpointsBuilder.put(gatewayEndpoint, gatewayEndpoint, endpointOrder++);
+                }
+                endpoints = endpointsBuilder.build();
+            }
+
+            // We do a substring to remove the "**" at the end of the route URL
+            routesBuilder.put(serviceUrl.substring(0, serviceUrl.length() - 2),
+                new RouteAccess(serviceName, endpoints), order++);
+        }
+        return new RouteAccessTrie(routesBuilder.build());
+    }
+
+    /**
+     * Find the route matching the request URI.
+     * <p>
+     * When several route prefixes match, the first route in the original route order wins, as it did when the routes
+     * were scanned linearly.
+     *
+     * @param requestUri the request uri
+     * @return the matching route, or null if no route matches
+     */
+    RouteAccess findRoute(String requestUri) {
+        return routes.findFirst(requestUri);
+    }
+
+    /**
+     * Access control policy of a single route.
+     *
+     * @author Dai Mai
+     */
+    static final class RouteAccess {
+
+        /** The service name. */
+        private final String serviceName;
+
+        /** The authorized endpoints trie, null when no access control policy is set up for the service. */
+        private final Node<String> endpoints;
+
+        /**
+         * Instantiates a new route access.
+         *
+         * @param serviceName the service name
+         * @param endpoints the authorized endpoints trie
+         */
+        private RouteAccess(String serviceName, Node<String> endpoints) {
+            this.serviceName = serviceName;
+            this.endpoints = endpoints;
+        }
+
+        /**
+         * Gets the service name.
+         *
+         * @return the service name
+         */
+        String getServiceName() {
+            return serviceName;
+        }
+
+        /**
+         * Checks for an access control policy.
+         *
+         * @return true, if an access control policy has been set up for this route
+         */
+        boolean hasPolicy() {
+            return endpoints != null;
+        }
+
+        /**
+         * Find the authorized gateway endpoint the request URI starts with.
+         *
+         * @param requestUri the request uri
+         * @return the authorized gateway endpoint, or null if none matches
+         */
+        String findAuthorizedEndpoint(String requestUri) {
+            return endpoints == null ? null : endpoints.findFirst(requestUri);
+        }
+    }
+
+    /**
+     * Frozen trie node, children are looked up by binary search on their sorted keys.
+     *
+     * @param <V> the value type
+     */
+    private static final class Node<V> {
+
+        /** The sorted children keys. */
+        private final char[] keys;
+
+        /** The children, in the order of their keys. */
+        private final Node<V>[] children;
+
+        /** The value of the prefix ending at this node, or null. */
+        private final V value;
+
+        /** The insertion order of the value. */
+        private final int order;
+
+        /**
+         * Instantiates a new node.
+         *
+         * @param keys the keys
+         * @param children the children
+         * @param value the value
+         * @param order the order
+         */
+        private Node(char[] keys, Node<V>[] children, V value, int order) {
+            this.keys = keys;
+            this.children = children;
+            this.value = value;
+            this.order = order;
+        }
+
+        /**
+         * Walk the trie along the given string and return the value of the matching prefix inserted first.
+         *
+         * @param string the string
+         * @return the value, or null if no prefix matches
+         */
+        V findFirst(String string) {
+            Node<V> node = this;
+            V match = node.value;
+            int matchOrder = node.order;
+            for (int i = 0, length = string.length(); i < length; i++) {
+                int index = Arrays.binarySearch(node.keys, string.charAt(i));
+                if (index < 0) {
+                    break;
+                }
+                node = node.children[index];
+                if (node.value != null && (match == null || node.order < matchOrder)) {
+                    match = node.value;
+                    matchOrder = node.order;
+                }
+            }
+            return match;
+        }
+    }
+
+    /**
+     * Mutable node used while compiling the trie.
+     *
+     * @param <V> the value type
+     */
+    private static final class NodeBuilder<V> {
+
+        /** The children. */
+        private final TreeMap<Character, NodeBuilder<V>> children = new TreeMap<>();
+
+        /** The value. */
+        private V value;
+
+        /** The order. */
+        private int order;
+
+        /**
+         * Put the value for the given prefix, keeping the first inserted one on duplicates.
+         *
+         * @param prefix the prefix
+         * @param value the value
+         * @param order the insertion order
+         */
+        void put(String prefix, V value, int order) {
+            NodeBuilder<V> node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), key -> new NodeBuilder<>());
+            }
+            if (node.value == null) {
+                node.value = value;
+                node.order = order;
+            }
+        }
+
+        /**
+         * Freeze this node and its children.
+         *
+         * @return the node
+         */
+        @SuppressWarnings("unchecked")
+        Node<V> build() {
+            char[] keys = new char[children.size()];
+            Node<V>[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, NodeBuilder<V>> child : children.entrySet()) {
+                keys[i] = child.getKey();
+                nodes[i] = child.getValue().build();
+                i++;
+            }
+            return new Node<>(keys, nodes, value, order);
+        }
+    }
+}
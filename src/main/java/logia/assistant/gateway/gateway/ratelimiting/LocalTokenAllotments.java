@@ -0,0 +1,183 @@
+package logia.assistant.gateway.gateway.ratelimiting;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.grid.ProxyManager;
+
+/**
+ * Per-node token allotments borrowed from the cluster buckets.
+ * <p>
+ * Instead of doing a grid round trip for every request, a node borrows a batch of tokens from the cluster bucket and
+ * consumes them locally. Unused tokens are periodically given back to the cluster bucket by {@link #synchronize},
+ * so the global limit stays approximately honoured while most requests are served from memory.
+ *
+ * @author Dai Mai
+ */
+public class LocalTokenAllotments {
+
+    /** The log. */
+    private final Logger log = LoggerFactory.getLogger(LocalTokenAllotments.class);
+
+    /** The allotments, by bucket id. */
+    private final ConcurrentMap<String, Allotment> allotments = new ConcurrentHashMap<>();
+
+    /** The cluster buckets. */
+    private final ProxyManager<String> buckets;
+
+    /** The number of tokens borrowed from the cluster bucket at once. */
+    private final long batchSize;
+
+    /**
+     * Instantiates a new local token allotments.
+     *
+     * @param buckets the cluster buckets
+     * @param batchSize the number of tokens borrowed from the cluster bucket at once
+     */
+    public LocalTokenAllotments(ProxyManager<String> buckets, long batchSize) {
+        this.buckets = buckets;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Try to consume tokens, borrowing a new batch from the cluster bucket when the local allotment is not enough.
+     * <p>
+     * The probe reports the cluster bucket as of the last borrowing of this node: the tokens it had left then, plus
+     * those still held by the local allotment. A request is only rejected by the cluster bucket, right after a
+     * borrowing attempt, so its wait time is the one of the cluster bucket.
+     *
+     * @param bucketId the bucket id
+     * @param tokens the number of tokens to consume
+     * @param configuration the configuration of the cluster bucket
+     * @return the consumption probe
+     */
+    public ConsumptionProbe tryConsumeAndReturnRemaining(String bucketId, long tokens,
+        Supplier<BucketConfiguration> configuration) {
+        while (true) {
+            Allotment allotment = allotments.computeIfAbsent(bucketId, key -> new Allotment(configuration));
+            if (allotment.tryConsume(tokens)) {
+                return ConsumptionProbe.consumed(allotment.getRemainingTokens());
+            }
+            synchronized (allotment) {
+                if (allotment.retired) {
+                    // The allotment has just been given back to the cluster, retry with a new one
+                    continue;
+                }
+                Bucket bucket = buckets.getProxy(bucketId, configuration);
+                // The lock-free consumers may drain a borrowed batch before this request takes its tokens: borrow
+                // again until the cluster bucket itself rejects the request
+                while (!allotment.tryConsume(tokens)) {
+                    long needed = tokens - Math.max(0, allotment.tokens.get());
+                    long borrowed = Math.max(batchSize, needed);
+                    ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(borrowed);
+                    if (!probe.isConsumed() && borrowed > needed) {
+                        // Not a whole batch left, borrow just what this request needs
+                        borrowed = needed;
+                        probe = bucket.tryConsumeAndReturnRemaining(borrowed);
+                    }
+                    allotment.clusterRemainingTokens = probe.getRemainingTokens();
+                    if (!probe.isConsumed()) {
+                        return ConsumptionProbe.rejected(allotment.getRemainingTokens(),
+                            probe.getNanosToWaitForRefill());
+                    }
+                    allotment.tokens.addAndGet(borrowed);
+                }
+                return ConsumptionProbe.consumed(allotment.getRemainingTokens());
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tokens left in the local allotment.
+     *
+     * @param bucketId the bucket id
+     * @return the number of tokens left
+     */
+    public long getAvailableTokens(String bucketId) {
+        Allotment allotment = allotments.get(bucketId);
+        return allotment == null ? 0 : Math.max(0, allotment.tokens.get());
+    }
+
+    /**
+     * Give the unused tokens of every allotment back to the cluster buckets.
+     */
+    public void synchronize() {
+        for (Map.Entry<String, Allotment> entry : allotments.entrySet()) {
+            Allotment allotment = entry.getValue();
+            long unused;
+            synchronized (allotment) {
+                allotment.retired = true;
+                unused = Math.max(0, allotment.tokens.getAndSet(0));
+            }
+            allotments.remove(entry.getKey(), allotment);
+            if (unused > 0) {
+                log.trace("Giving back {} unused tokens for {}", unused, entry.getKey());
+                buckets.getProxy(entry.getKey(), allotment.configuration).addTokens(unused);
+            }
+        }
+    }
+
+    /**
+     * Tokens borrowed by this node for a single bucket.
+     *
+     * @author Dai Mai
+     */
+    private static final class Allotment {
+
+        /** The tokens left. */
+        private final AtomicLong tokens = new AtomicLong();
+
+        /** The configuration of the cluster bucket. */
+        private final Supplier<BucketConfiguration> configuration;
+
+        /** Whether the allotment has been given back to the cluster, guarded by the allotment monitor. */
+        private boolean retired;
+
+        /** The tokens left in the cluster bucket at the last borrowing. */
+        private volatile long clusterRemainingTokens;
+
+        /**
+         * Instantiates a new allotment.
+         *
+         * @param configuration the configuration of the cluster bucket
+         */
+        Allotment(Supplier<BucketConfiguration> configuration) {
+            this.configuration = configuration;
+        }
+
+        /**
+         * Gets the tokens left in the cluster bucket, as of the last borrowing, and in this allotment.
+         *
+         * @return the remaining tokens
+         */
+        long getRemainingTokens() {
+            return clusterRemainingTokens + Math.max(0, tokens.get());
+        }
+
+        /**
+         * Try to consume tokens without locking.
+         *
+         * @param count the number of tokens
+         * @return true, if successful
+         */
+        boolean tryConsume(long count) {
+            long current;
+            do {
+                current = tokens.get();
+                if (current < count) {
+                    return false;
+                }
+            } while (!tokens.compareAndSet(current, current - count));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package logia.assistant.gateway.gateway.ratelimiting;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import io.github.jhipster.config.JHipsterProperties;
+import logia.assistant.gateway.config.ApplicationProperties;
+
+/**
+ * The rate limit policies of the gateway, compiled once at startup.
+ * <p>
+ * Requests are matched against the policies configured under {@code application.rate-limiting.policies}, most
+ * specific first; requests matching none of them fall back to the {@code jhipster.gateway.rate-limiting} limit.
+ *
+ * @author Dai Mai
+ */
+public class RateLimitPolicies {
+
+    /** The policies, most specific first. */
+    private final List<RateLimitPolicy> policies;
+
+    /** The default policy. */
+    private final RateLimitPolicy defaultPolicy;
+
+    /**
+     * Instantiates a new rate limit policies.
+     *
+     * @param jHipsterProperties the j hipster properties
+     * @param applicationProperties the application properties
+     */
+    public RateLimitPolicies(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        JHipsterProperties.Gateway.RateLimiting rateLimitingProperties =
+            jHipsterProperties.getGateway().getRateLimiting();
+        this.defaultPolicy = RateLimitPolicy.defaultPolicy(rateLimitingProperties.getLimit(),
+            rateLimitingProperties.getDurationInSeconds());
+
+        List<RateLimitPolicy> compiledPolicies = new ArrayList<>();
+        for (ApplicationProperties.RateLimiting.Policy policy : applicationProperties.getRateLimiting().getPolicies()) {
+            compiledPolicies.add(RateLimitPolicy.compile(policy));
+        }
+        // Stable sort: policies with the same specificity keep their configuration order
+        compiledPolicies.sort(Comparator.comparingInt(RateLimitPolicy::getSpecificity).reversed());
+        this.policies = Collections.unmodifiableList(compiledPolicies);
+    }
+
+    /**
+     * Resolve the policy applying to a request.
+     *
+     * @param routeId the Zuul route id of the request, may be null
+     * @param login the current user login, may be null
+     * @param authorities the current user authorities, may be null
+     * @return the policy
+     */
+    public RateLimitPolicy resolve(String routeId, String login, Collection<? extends GrantedAuthority> authorities) {
+        for (int i = 0; i < policies.size(); i++) {
+            RateLimitPolicy policy = policies.get(i);
+            if (policy.matches(routeId, login, authorities)) {
+                return policy;
+            }
+        }
+        return defaultPolicy;
+    }
+}
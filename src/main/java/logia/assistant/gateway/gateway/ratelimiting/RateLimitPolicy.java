@@ -0,0 +1,236 @@
+package logia.assistant.gateway.gateway.ratelimiting;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConfigurationBuilder;
+import io.github.bucket4j.Refill;
+import logia.assistant.gateway.config.ApplicationProperties;
+
+/**
+ * A rate limit policy compiled once into its {@link BucketConfiguration}.
+ *
+ * @author Dai Mai
+ */
+public final class RateLimitPolicy {
+
+    /** The specificity of a policy scoped on a user. */
+    private static final int USER_SPECIFICITY = 4;
+
+    /** The specificity of a policy scoped on an authority. */
+    private static final int AUTHORITY_SPECIFICITY = 2;
+
+    /** The specificity of a policy scoped on a route. */
+    private static final int ROUTE_SPECIFICITY = 1;
+
+    /** The name, null for the default policy. */
+    private final String name;
+
+    /** The Zuul route id, or null for all routes. */
+    private final String route;
+
+    /** The authority, or null for all authorities. */
+    private final String authority;
+
+    /** The user login, or null for all users. */
+    private final String user;
+
+    /** The bucket configuration. */
+    private final BucketConfiguration configuration;
+
+    /** The bucket configuration supplier, shared by all the requests. */
+    private final Supplier<BucketConfiguration> configurationSupplier;
+
+    /** The capacity of the most restrictive bandwidth, reported to the clients. */
+    private final long limit;
+
+    /** The number of tokens consumed by a request, by upper case HTTP method. */
+    private final Map<String, Long> methodCosts;
+
+    /** The request body size consuming one extra token, 0 to ignore the request size. */
+    private final long bytesPerToken;
+
+    /**
+     * Instantiates a new rate limit policy.
+     *
+     * @param name the name
+     * @param route the route
+     * @param authority the authority
+     * @param user the user
+     * @param configuration the configuration
+     * @param limit the capacity of the most restrictive bandwidth
+     * @param methodCosts the method costs
+     * @param bytesPerToken the bytes per token
+     */
+    private RateLimitPolicy(String name, String route, String authority, String user,
+        BucketConfiguration configuration, long limit, Map<String, Long> methodCosts,
+        long bytesPerToken) {
+        this.name = name;
+        this.route = route;
+        this.authority = authority;
+        this.user = user;
+        this.configuration = configuration;
+        this.configurationSupplier = () -> this.configuration;
+        this.limit = limit;
+        this.methodCosts = methodCosts;
+        this.bytesPerToken = bytesPerToken;
+    }
+
+    /**
+     * Compile the default policy, a single bandwidth shared by all the callers.
+     *
+     * @param limit the limit
+     * @param durationInSeconds the duration in seconds
+     * @return the rate limit policy
+     */
+    static RateLimitPolicy defaultPolicy(long limit, long durationInSeconds) {
+        BucketConfiguration configuration = Bucket4j.configurationBuilder()
+            .addLimit(Bandwidth.simple(limit, Duration.ofSeconds(durationInSeconds)))
+            .buildConfiguration();
+        return new RateLimitPolicy(null, null, null, null, configuration, limit, new HashMap<>(), 0);
+    }
+
+    /**
+     * Compile a configured policy.
+     *
+     * @param policy the policy properties
+     * @return the rate limit policy
+     */
+    static RateLimitPolicy compile(ApplicationProperties.RateLimiting.Policy policy) {
+        if (policy.getName() == null || policy.getLimits().isEmpty()) {
+            throw new IllegalArgumentException("Rate limit policy must have a name and at least one limit");
+        }
+        ConfigurationBuilder<?> builder = Bucket4j.configurationBuilder();
+        long minCapacity = Long.MAX_VALUE;
+        for (ApplicationProperties.RateLimiting.Limit limit : policy.getLimits()) {
+            long refillTokens = limit.getRefillTokens() > 0 ? limit.getRefillTokens() : limit.getCapacity();
+            Duration period = Duration.ofSeconds(limit.getDurationInSeconds());
+            builder.addLimit(Bandwidth.classic(limit.getCapacity(), Refill.smooth(refillTokens, period)));
+            minCapacity = Math.min(minCapacity, limit.getCapacity());
+        }
+        Map<String, Long> methodCosts = new HashMap<>();
+        policy.getMethodCosts().forEach((method, cost) -> methodCosts.put(method.toUpperCase(), cost));
+        return new RateLimitPolicy(policy.getName(), policy.getRoute(), policy.getAuthority(), policy.getUser(),
+            builder.buildConfiguration(), minCapacity, methodCosts, policy.getBytesPerToken());
+    }
+
+    /**
+     * Checks if the policy applies to a request.
+     *
+     * @param routeId the Zuul route id of the request, may be null
+     * @param login the current user login, may be null
+     * @param authorities the current user authorities, may be null
+     * @return true, if the policy applies
+     */
+    boolean matches(String routeId, String login, Collection<? extends GrantedAuthority> authorities) {
+        if (route != null && !route.equals(routeId)) {
+            return false;
+        }
+        if (user != null && !user.equals(login)) {
+            return false;
+        }
+        if (authority != null) {
+            if (authorities == null) {
+                return false;
+            }
+            for (GrantedAuthority grantedAuthority : authorities) {
+                if (authority.equals(grantedAuthority.getAuthority())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the specificity, a more specific policy wins over a less specific one.
+     *
+     * @return the specificity
+     */
+    int getSpecificity() {
+        return (user != null ? USER_SPECIFICITY : 0) + (authority != null ? AUTHORITY_SPECIFICITY : 0)
+            + (route != null ? ROUTE_SPECIFICITY : 0);
+    }
+
+    /**
+     * Gets the id of the bucket of a caller under this policy.
+     *
+     * @param callerId the user login or IP address
+     * @return the bucket id
+     */
+    public String getBucketId(String callerId) {
+        if (name == null) {
+            return callerId;
+        }
+        if (route == null) {
+            return name + ':' + callerId;
+        }
+        return name + ':' + route + ':' + callerId;
+    }
+
+    /**
+     * Gets the number of tokens consumed by a request, at most the capacity of the most restrictive bandwidth: a
+     * costlier request could never be served, however long its caller waits.
+     *
+     * @param request the request
+     * @return the cost
+     */
+    public long getCost(HttpServletRequest request) {
+        Long methodCost = methodCosts.get(request.getMethod());
+        long cost = methodCost != null ? methodCost : 1;
+        if (bytesPerToken > 0) {
+            long contentLength = request.getContentLengthLong();
+            if (contentLength > 0) {
+                cost += contentLength / bytesPerToken;
+            }
+        }
+        return Math.min(cost, limit);
+    }
+
+    /**
+     * Gets the capacity of the most restrictive bandwidth.
+     *
+     * @return the limit
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name, null for the default policy
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the bucket configuration.
+     *
+     * @return the configuration
+     */
+    public BucketConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Gets the bucket configuration supplier.
+     *
+     * @return the configuration supplier
+     */
+    public Supplier<BucketConfiguration> getConfigurationSupplier() {
+        return configurationSupplier;
+    }
+}
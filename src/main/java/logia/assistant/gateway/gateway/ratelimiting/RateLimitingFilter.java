@@ -1,9 +1,10 @@
 package logia.assistant.gateway.gateway.ratelimiting;
 
+import logia.assistant.gateway.config.ApplicationProperties;
 import logia.assistant.gateway.security.SecurityUtils;
 
-import java.time.Duration;
-import java.util.function.Supplier;
+import java.util.concurrent.TimeUnit;
+
 import javax.cache.CacheManager;
 import javax.cache.Caching;
 import javax.cache.configuration.CompleteConfiguration;
@@ -13,7 +14,12 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cloud.netflix.zuul.filters.support.FilterConstants;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
@@ -30,6 +36,17 @@ import io.github.jhipster.config.JHipsterProperties;
  * See the Bucket4j documentation at https://github.com/vladimir-bukhtoyarov/bucket4j
  * https://github.com/vladimir-bukhtoyarov/bucket4j/blob/master/doc-pages/jcache-usage
  * .md#example-1---limiting-access-to-http-server-by-ip-address
+ * <p>
+ * When {@code application.rate-limiting.local-first.enabled} is set, tokens are borrowed from the cluster bucket by
+ * batches and consumed locally, see {@link LocalTokenAllotments}.
+ * <p>
+ * The limit applying to a request is resolved from {@link RateLimitPolicies}: per route, authority or user policies,
+ * each compiled once into its bucket configuration.
+ * <p>
+ * Every response carries the {@code X-RateLimit-Limit} and {@code X-RateLimit-Remaining} headers, read from the same
+ * consumption probe as the limit decision, and rejected requests get a {@code Retry-After} header. In the local-first
+ * mode, the remaining tokens are those of the cluster bucket as of the last batch this node borrowed, plus those left
+ * in its batch, and the retry delay is the one of the cluster bucket, probed when the batch ran out.
  *
  * @author Dai Mai
  */
@@ -41,8 +58,14 @@ public class RateLimitingFilter extends ZuulFilter {
     /** The Constant GATEWAY_RATE_LIMITING_CACHE_NAME. */
     public final static String GATEWAY_RATE_LIMITING_CACHE_NAME = "gateway-rate-limiting";
 
-    /** The j hipster properties. */
-    private final JHipsterProperties jHipsterProperties;
+    /** The Constant RATE_LIMIT_LIMIT_HEADER. */
+    public final static String RATE_LIMIT_LIMIT_HEADER = "X-RateLimit-Limit";
+
+    /** The Constant RATE_LIMIT_REMAINING_HEADER. */
+    public final static String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    /** The rate limit policies. */
+    private final RateLimitPolicies policies;
 
     /** The cache. */
     private javax.cache.Cache<String, GridBucketState> cache;
@@ -50,13 +73,17 @@ public class RateLimitingFilter extends ZuulFilter {
     /** The buckets. */
     private ProxyManager<String> buckets;
 
+    /** The local token allotments, null unless the local-first mode is enabled. */
+    private final LocalTokenAllotments localTokenAllotments;
+
     /**
      * Instantiates a new rate limiting filter.
      *
      * @param jHipsterProperties the j hipster properties
+     * @param applicationProperties the application properties
      */
-    public RateLimitingFilter(JHipsterProperties jHipsterProperties) {
-        this.jHipsterProperties = jHipsterProperties;
+    public RateLimitingFilter(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        this.policies = new RateLimitPolicies(jHipsterProperties, applicationProperties);
 
         CachingProvider cachingProvider = Caching.getCachingProvider();
         CacheManager cacheManager = cachingProvider.getCacheManager();
@@ -66,6 +93,11 @@ public class RateLimitingFilter extends ZuulFilter {
 
         this.cache = cacheManager.createCache(GATEWAY_RATE_LIMITING_CACHE_NAME, config);
         this.buckets = Bucket4j.extension(JCache.class).proxyManagerForCache(cache);
+
+        ApplicationProperties.RateLimiting.LocalFirst localFirst =
+            applicationProperties.getRateLimiting().getLocalFirst();
+        this.localTokenAllotments = localFirst.isEnabled()
+            ? new LocalTokenAllotments(buckets, localFirst.getBatchSize()) : null;
     }
 
     /* (non-Javadoc)
@@ -99,55 +131,66 @@ public class RateLimitingFilter extends ZuulFilter {
      */
     @Override
     public Object run() {
-        String bucketId = getId(RequestContext.getCurrentContext().getRequest());
-        Bucket bucket = buckets.getProxy(bucketId, getConfigSupplier());
-        if (bucket.tryConsume(1)) {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        HttpServletRequest request = ctx.getRequest();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String login = SecurityUtils.getCurrentUserLogin().orElse(null);
+
+        // The route id is set by Zuul's PreDecorationFilter, which runs before this filter
+        RateLimitPolicy policy = policies.resolve((String) ctx.get(FilterConstants.PROXY_KEY), login,
+            authentication == null ? null : authentication.getAuthorities());
+        String bucketId = policy.getBucketId(login != null ? login : request.getRemoteAddr());
+        long tokens = policy.getCost(request);
+
+        ConsumptionProbe probe;
+        if (localTokenAllotments != null) {
+            probe = localTokenAllotments.tryConsumeAndReturnRemaining(bucketId, tokens,
+                policy.getConfigurationSupplier());
+        } else {
+            probe = buckets.getProxy(bucketId, policy.getConfigurationSupplier())
+                .tryConsumeAndReturnRemaining(tokens);
+        }
+
+        ctx.addZuulResponseHeader(RATE_LIMIT_LIMIT_HEADER, Long.toString(policy.getLimit()));
+        ctx.addZuulResponseHeader(RATE_LIMIT_REMAINING_HEADER, Long.toString(probe.getRemainingTokens()));
+        if (probe.isConsumed()) {
             // the limit is not exceeded
             log.debug("API rate limit OK for {}", bucketId);
         } else {
             // limit is exceeded
             log.info("API rate limit exceeded for {}", bucketId);
-            apiLimitExceeded();
+            apiLimitExceeded(probe.getNanosToWaitForRefill());
         }
         return null;
     }
 
     /**
-     * Gets the config supplier.
-     *
-     * @return the config supplier
+     * Give the tokens borrowed by this node and not consumed back to the cluster buckets.
      */
-    private Supplier<BucketConfiguration> getConfigSupplier() {
-        return () -> {
-            JHipsterProperties.Gateway.RateLimiting rateLimitingProperties =
-                jHipsterProperties.getGateway().getRateLimiting();
-
-            return Bucket4j.configurationBuilder()
-                .addLimit(Bandwidth.simple(rateLimitingProperties.getLimit(),
-                    Duration.ofSeconds(rateLimitingProperties.getDurationInSeconds())))
-                .buildConfiguration();
-        };
+    @Scheduled(fixedDelayString = "${application.rate-limiting.local-first.sync-interval-ms:1000}")
+    public void synchronizeLocalTokenAllotments() {
+        if (localTokenAllotments != null) {
+            localTokenAllotments.synchronize();
+        }
     }
 
     /**
      * Create a Zuul response error when the API limit is exceeded.
+     *
+     * @param nanosToWaitForRefill the time to wait before the request may succeed
      */
-    private void apiLimitExceeded() {
+    private void apiLimitExceeded(long nanosToWaitForRefill) {
         RequestContext ctx = RequestContext.getCurrentContext();
         ctx.setResponseStatusCode(HttpStatus.TOO_MANY_REQUESTS.value());
+        long retryAfterSeconds = TimeUnit.NANOSECONDS.toSeconds(nanosToWaitForRefill);
+        if (TimeUnit.SECONDS.toNanos(retryAfterSeconds) < nanosToWaitForRefill || retryAfterSeconds == 0) {
+            // Round up, so that clients do not retry before the tokens are refilled
+            retryAfterSeconds++;
+        }
+        ctx.addZuulResponseHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
         if (ctx.getResponseBody() == null) {
             ctx.setResponseBody("API rate limit exceeded");
             ctx.setSendZuulResponse(false);
         }
     }
-
-    /**
-     * The ID that will identify the limit: the user login or the user IP address.
-     *
-     * @param httpServletRequest the http servlet request
-     * @return the id
-     */
-    private String getId(HttpServletRequest httpServletRequest) {
-        return SecurityUtils.getCurrentUserLogin().orElse(httpServletRequest.getRemoteAddr());
-    }
 }
@@ -1,7 +1,13 @@
 package logia.assistant.gateway.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
@@ -9,8 +15,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import logia.assistant.gateway.domain.CachedCredential;
 import logia.assistant.gateway.domain.Credential;
 
 /**
@@ -23,6 +32,9 @@ public interface CredentialRepository extends JpaRepository<Credential, Long> {
 
     /** The credentials by login cache. */
     String CREDENTIALS_BY_LOGIN_CACHE = "credentialsByLogin";
+
+    /** The rows fetched from the database at once when streaming. */
+    int STREAM_FETCH_SIZE = 500;
     
     /**
      * Find by user is current user.
@@ -41,22 +53,26 @@ public interface CredentialRepository extends JpaRepository<Credential, Long> {
     Optional<Credential> findOneByResetKey(String resetKey);
     
     /**
-     * Find one by login ignore case.
+     * Find one by login. The logins are stored normalized, so this equality is served by the idx_credential_login
+     * index, the login must be normalized by {@link Credential#normalizeLogin(String)}.
      *
-     * @param login the login
+     * @param login the normalized login
      * @return the optional
      */
-    Optional<Credential> findOneByLoginIgnoreCase(String login);
+    @EntityGraph(attributePaths = {"user", "user.authorities"})
+    Optional<Credential> findOneWithUserByLogin(String login);
 
     /**
-     * Find one by login.
+     * Find the cached projection of a credential by login, as needed to authenticate it. Only the existing logins are
+     * cached, the missing ones are remembered by the {@link logia.assistant.gateway.service.LoginFilter}.
      *
-     * @param login the login
+     * @param login the normalized login
      * @return the optional
      */
-    @Cacheable(cacheNames = CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE)
-    @EntityGraph(attributePaths = {"user", "user.authorities"})
-    Optional<Credential> findOneWithUserByLogin(String login);
+    @Cacheable(cacheNames = CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE, unless = "#result == null")
+    default Optional<CachedCredential> findCachedByLogin(String login) {
+        return this.findOneWithUserByLogin(login).map(CachedCredential::of);
+    }
     
     /**
      * Find one with user by user id.
@@ -67,6 +83,24 @@ public interface CredentialRepository extends JpaRepository<Credential, Long> {
     @EntityGraph(attributePaths = "user")
     List<Credential> findWithUserByUserId(Long userId);
     
+    /**
+     * Find all with user by ids.
+     *
+     * @param ids the ids
+     * @return the list
+     */
+    @EntityGraph(attributePaths = "user")
+    List<Credential> findAllWithUserByIdIn(Collection<Long> ids);
+
+    /**
+     * Find the logins already used among some logins.
+     *
+     * @param logins the logins
+     * @return the used logins
+     */
+    @Query("select credential.login from Credential credential where credential.login in :logins")
+    List<String> findLoginsByLoginIn(@Param("logins") Collection<String> logins);
+
     /**
      * Find all by login not.
      *
@@ -75,5 +109,63 @@ public interface CredentialRepository extends JpaRepository<Credential, Long> {
      * @return the page
      */
     Page<Credential> findAllByLoginNot(Pageable pageable, String login);
+
+    /**
+     * Find all with user.
+     *
+     * @param pageable the pageable
+     * @return the page
+     */
+    @EntityGraph(attributePaths = "user")
+    @Query(value = "select credential from Credential credential",
+        countQuery = "select count(credential) from Credential credential")
+    Page<Credential> findAllWithUser(Pageable pageable);
+
+    /**
+     * Stream all with user, by id, fetching the rows from the database by chunks. Must be consumed inside a
+     * transaction.
+     *
+     * @return the stream
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select credential from Credential credential left join fetch credential.user order by credential.id")
+    Stream<Credential> streamAllWithUser();
+
+    /**
+     * Find the next credentials after an id, except a login, for keyset pagination.
+     *
+     * @param login the excluded login
+     * @param id the last id already read
+     * @param pageable the pageable, only its size is used
+     * @return the list
+     */
+    @EntityGraph(attributePaths = "user")
+    List<Credential> findAllByLoginNotAndIdGreaterThanOrderByIdAsc(String login, Long id, Pageable pageable);
+
+    /**
+     * Count the credentials except a login.
+     *
+     * @param login the excluded login
+     * @return the count
+     */
+    long countByLoginNot(String login);
+
+    /**
+     * Find the next credentials after an id, for keyset pagination.
+     *
+     * @param id the last id already read
+     * @param pageable the pageable, only its size is used
+     * @return the list
+     */
+    @EntityGraph(attributePaths = "user")
+    List<Credential> findAllByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Count the credentials after an id.
+     *
+     * @param id the last id already read
+     * @return the count
+     */
+    long countByIdGreaterThan(Long id);
     
 }
@@ -0,0 +1,165 @@
+package logia.assistant.gateway.repository;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository for the outbox of the creation emails.
+ * <p>
+ * An email is appended in the same transaction as its credential, then claimed, handed to the mail service and
+ * deleted. Claiming moves the next attempt date of an email forward only if nobody changed it since it was read, so
+ * each email is handed by a single node at a time, and again once the claim expires if that node died.
+ *
+ * @author Dai Mai
+ */
+@Repository
+public class MailOutboxRepository {
+
+    /** The jdbc template. */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Instantiates a new mail outbox repository.
+     *
+     * @param jdbcTemplate the jdbc template
+     */
+    public MailOutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Append the creation email of each credential by a single JDBC batch, in the current transaction.
+     *
+     * @param credentialIds the credential ids
+     */
+    public void appendAll(Collection<Long> credentialIds) {
+        if (credentialIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO mail_outbox (credential_id, created_date, next_attempt_date) VALUES (?, ?, ?)",
+            credentialIds.stream()
+                .map(credentialId -> new Object[] { credentialId, now, now })
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Find the oldest emails ready to be sent.
+     *
+     * @param now the current time
+     * @param limit the maximum number of emails
+     * @return the emails, by id
+     */
+    public List<PendingEmail> findReady(Instant now, int limit) {
+        return jdbcTemplate.query("SELECT id, credential_id, next_attempt_date FROM mail_outbox "
+            + "WHERE next_attempt_date <= ? ORDER BY id LIMIT ?",
+            (rs, rowNum) -> new PendingEmail(rs.getLong("id"), rs.getLong("credential_id"),
+                rs.getTimestamp("next_attempt_date")),
+            Timestamp.from(now), limit);
+    }
+
+    /**
+     * Claim emails until a date, skipping the ones claimed by another node since they were read.
+     *
+     * @param emails the emails
+     * @param claimedUntil the date from which the emails may be claimed again
+     * @return the claimed emails
+     */
+    public List<PendingEmail> claim(List<PendingEmail> emails, Instant claimedUntil) {
+        if (emails.isEmpty()) {
+            return emails;
+        }
+        Timestamp until = Timestamp.from(claimedUntil);
+        int[] counts = jdbcTemplate.batchUpdate(
+            "UPDATE mail_outbox SET next_attempt_date = ? WHERE id = ? AND next_attempt_date = ?",
+            emails.stream()
+                .map(email -> new Object[] { until, email.getId(), email.nextAttemptDate })
+                .collect(Collectors.toList()));
+        List<PendingEmail> claimed = new ArrayList<>(emails.size());
+        for (int i = 0; i < emails.size(); i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                claimed.add(emails.get(i));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Delete sent emails.
+     *
+     * @param ids the email ids
+     */
+    public void delete(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM mail_outbox WHERE id = ?",
+                ids.stream().map(id -> new Object[] { id }).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Count the emails waiting to be sent.
+     *
+     * @return the count
+     */
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mail_outbox", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * A creation email to send.
+     *
+     * @author Dai Mai
+     */
+    public static final class PendingEmail {
+
+        /** The id. */
+        private final long id;
+
+        /** The credential id. */
+        private final long credentialId;
+
+        /** The next attempt date, as stored, to claim the email. */
+        private final Timestamp nextAttemptDate;
+
+        /**
+         * Instantiates a new pending email.
+         *
+         * @param id the id
+         * @param credentialId the credential id
+         * @param nextAttemptDate the next attempt date
+         */
+        public PendingEmail(long id, long credentialId, Timestamp nextAttemptDate) {
+            this.id = id;
+            this.credentialId = credentialId;
+            this.nextAttemptDate = nextAttemptDate;
+        }
+
+        /**
+         * Gets the id.
+         *
+         * @return the id
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Gets the credential id.
+         *
+         * @return the credential id
+         */
+        public long getCredentialId() {
+            return credentialId;
+        }
+    }
+}
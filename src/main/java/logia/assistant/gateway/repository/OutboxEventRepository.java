@@ -0,0 +1,315 @@
+package logia.assistant.gateway.repository;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository for the outbox of the entity changes.
+ * <p>
+ * An event is appended in the same transaction as the entity change, then claimed, relayed and deleted by the
+ * relay. Claiming moves the next attempt date of an event forward only if nobody changed it since it was read, so
+ * each event is relayed by a single node at a time, and again once the claim expires if that node died.
+ *
+ * @author Dai Mai
+ */
+@Repository
+public class OutboxEventRepository {
+
+    /** The insert of an event. */
+    private static final String INSERT_EVENT = "INSERT INTO outbox_event (aggregate_type, aggregate_id, "
+        + "event_type, cache_name, cache_key, created_date, next_attempt_date, attempts) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+
+    /** The event types. */
+    public enum EventType {
+
+        /** The entity was created or updated. */
+        SAVED,
+
+        /** The entity was deleted. */
+        DELETED
+    }
+
+    /** The jdbc template. */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Instantiates a new outbox event repository.
+     *
+     * @param jdbcTemplate the jdbc template
+     */
+    public OutboxEventRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Append an event, in the current transaction.
+     *
+     * @param aggregateType the entity type
+     * @param aggregateId the entity id
+     * @param eventType the event type
+     * @param cacheName the cache holding the entity, may be null
+     * @param cacheKey the key of the entity in the cache, may be null
+     */
+    public void append(String aggregateType, Long aggregateId, EventType eventType, String cacheName,
+        String cacheKey) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update(INSERT_EVENT, aggregateType, aggregateId, eventType.name(), cacheName, cacheKey, now,
+            now);
+    }
+
+    /**
+     * Append an event per entity by a single JDBC batch, in the current transaction.
+     *
+     * @param aggregateType the entity type
+     * @param eventType the event type
+     * @param cacheName the cache holding the entities, may be null
+     * @param cacheKeys the key of each entity in the cache, by entity id, a key may be null
+     */
+    public void appendAll(String aggregateType, EventType eventType, String cacheName, Map<Long, String> cacheKeys) {
+        if (cacheKeys.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_EVENT, cacheKeys.entrySet().stream()
+            .map(entry -> new Object[] { aggregateType, entry.getKey(), eventType.name(), cacheName,
+                entry.getValue(), now, now })
+            .collect(Collectors.toList()));
+    }
+
+    /**
+     * Find the oldest events ready to be relayed.
+     *
+     * @param now the current time
+     * @param limit the maximum number of events
+     * @return the events, by id
+     */
+    public List<OutboxEvent> findReady(Instant now, int limit) {
+        return jdbcTemplate.query("SELECT id, aggregate_type, aggregate_id, event_type, cache_name, cache_key, "
+            + "created_date, next_attempt_date, attempts FROM outbox_event WHERE next_attempt_date <= ? "
+            + "ORDER BY id LIMIT ?",
+            (rs, rowNum) -> new OutboxEvent(rs.getLong("id"), rs.getString("aggregate_type"),
+                rs.getLong("aggregate_id"), EventType.valueOf(rs.getString("event_type")),
+                rs.getString("cache_name"), rs.getString("cache_key"), rs.getTimestamp("created_date").toInstant(),
+                rs.getTimestamp("next_attempt_date"), rs.getInt("attempts")),
+            Timestamp.from(now), limit);
+    }
+
+    /**
+     * Claim events until a date, skipping the ones claimed by another node since they were read.
+     *
+     * @param events the events
+     * @param claimedUntil the date from which the events may be claimed again
+     * @return the claimed events
+     */
+    public List<OutboxEvent> claim(List<OutboxEvent> events, Instant claimedUntil) {
+        if (events.isEmpty()) {
+            return events;
+        }
+        Timestamp until = Timestamp.from(claimedUntil);
+        int[] counts = jdbcTemplate.batchUpdate(
+            "UPDATE outbox_event SET next_attempt_date = ? WHERE id = ? AND next_attempt_date = ?",
+            events.stream()
+                .map(event -> new Object[] { until, event.getId(), event.nextAttemptDate })
+                .collect(Collectors.toList()));
+        List<OutboxEvent> claimed = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                claimed.add(events.get(i));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Delete relayed events.
+     *
+     * @param ids the event ids
+     */
+    public void delete(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM outbox_event WHERE id = ?",
+                ids.stream().map(id -> new Object[] { id }).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Postpone events which could not be relayed.
+     *
+     * @param events the events
+     * @param nextAttemptDate the next attempt date of an event
+     */
+    public void postpone(List<OutboxEvent> events, Function<OutboxEvent, Instant> nextAttemptDate) {
+        if (!events.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                "UPDATE outbox_event SET next_attempt_date = ?, attempts = attempts + 1 WHERE id = ?",
+                events.stream()
+                    .map(event -> new Object[] { Timestamp.from(nextAttemptDate.apply(event)), event.getId() })
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Count the events.
+     *
+     * @return the count
+     */
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Find the date of the oldest event.
+     *
+     * @return the date, empty if there is no event
+     */
+    public Optional<Instant> findOldestCreatedDate() {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_date) FROM outbox_event",
+            Timestamp.class);
+        return Optional.ofNullable(oldest).map(Timestamp::toInstant);
+    }
+
+    /**
+     * An entity change to relay.
+     *
+     * @author Dai Mai
+     */
+    public static final class OutboxEvent {
+
+        /** The id. */
+        private final long id;
+
+        /** The entity type. */
+        private final String aggregateType;
+
+        /** The entity id. */
+        private final long aggregateId;
+
+        /** The event type. */
+        private final EventType eventType;
+
+        /** The cache name. */
+        private final String cacheName;
+
+        /** The cache key. */
+        private final String cacheKey;
+
+        /** The created date. */
+        private final Instant createdDate;
+
+        /** The next attempt date, as stored, to claim the event. */
+        private final Timestamp nextAttemptDate;
+
+        /** The failed attempts. */
+        private final int attempts;
+
+        /**
+         * Instantiates a new outbox event.
+         *
+         * @param id the id
+         * @param aggregateType the entity type
+         * @param aggregateId the entity id
+         * @param eventType the event type
+         * @param cacheName the cache name
+         * @param cacheKey the cache key
+         * @param createdDate the created date
+         * @param nextAttemptDate the next attempt date
+         * @param attempts the failed attempts
+         */
+        public OutboxEvent(long id, String aggregateType, long aggregateId, EventType eventType, String cacheName,
+            String cacheKey, Instant createdDate, Timestamp nextAttemptDate, int attempts) {
+            this.id = id;
+            this.aggregateType = aggregateType;
+            this.aggregateId = aggregateId;
+            this.eventType = eventType;
+            this.cacheName = cacheName;
+            this.cacheKey = cacheKey;
+            this.createdDate = createdDate;
+            this.nextAttemptDate = nextAttemptDate;
+            this.attempts = attempts;
+        }
+
+        /**
+         * Gets the id.
+         *
+         * @return the id
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Gets the entity type.
+         *
+         * @return the entity type
+         */
+        public String getAggregateType() {
+            return aggregateType;
+        }
+
+        /**
+         * Gets the entity id.
+         *
+         * @return the entity id
+         */
+        public long getAggregateId() {
+            return aggregateId;
+        }
+
+        /**
+         * Gets the event type.
+         *
+         * @return the event type
+         */
+        public EventType getEventType() {
+            return eventType;
+        }
+
+        /**
+         * Gets the cache name.
+         *
+         * @return the cache name
+         */
+        public String getCacheName() {
+            return cacheName;
+        }
+
+        /**
+         * Gets the cache key.
+         *
+         * @return the cache key
+         */
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        /**
+         * Gets the created date.
+         *
+         * @return the created date
+         */
+        public Instant getCreatedDate() {
+            return createdDate;
+        }
+
+        /**
+         * Gets the failed attempts.
+         *
+         * @return the failed attempts
+         */
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+}
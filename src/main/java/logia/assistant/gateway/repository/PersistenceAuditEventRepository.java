@@ -59,4 +59,34 @@ public interface PersistenceAuditEventRepository extends JpaRepository<Persisten
      * @return the page
      */
     Page<PersistentAuditEvent> findAllByAuditEventDateBetween(Instant fromDate, Instant toDate, Pageable pageable);
+
+    /**
+     * Find the previous events before an id, newest first, for keyset pagination.
+     *
+     * @param id the last id already read
+     * @param pageable the pageable, only its size is used
+     * @return the list
+     */
+    List<PersistentAuditEvent> findAllByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    /**
+     * Find the previous events between dates before an id, newest first, for keyset pagination.
+     *
+     * @param fromDate the from date
+     * @param toDate the to date
+     * @param id the last id already read
+     * @param pageable the pageable, only its size is used
+     * @return the list
+     */
+    List<PersistentAuditEvent> findAllByAuditEventDateBetweenAndIdLessThanOrderByIdDesc(Instant fromDate,
+        Instant toDate, Long id, Pageable pageable);
+
+    /**
+     * Count the events between dates.
+     *
+     * @param fromDate the from date
+     * @param toDate the to date
+     * @return the count
+     */
+    long countByAuditEventDateBetween(Instant fromDate, Instant toDate);
 }
@@ -0,0 +1,142 @@
+package logia.assistant.gateway.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository for the checkpoints of the Elasticsearch reindex.
+ * <p>
+ * A checkpoint exists while the reindex of an entity is in progress, and records the index being built and the
+ * highest id below which every row has been indexed.
+ *
+ * @author Dai Mai
+ */
+@Repository
+public class ReindexCheckpointRepository {
+
+    /** The jdbc template. */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Instantiates a new reindex checkpoint repository.
+     *
+     * @param jdbcTemplate the jdbc template
+     */
+    public ReindexCheckpointRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Find the checkpoints of the reindexes in progress.
+     *
+     * @return the checkpoints
+     */
+    public List<ReindexCheckpoint> findAll() {
+        return jdbcTemplate.query("SELECT entity_name, index_name, last_id FROM es_reindex_checkpoint",
+            (rs, rowNum) -> new ReindexCheckpoint(rs.getString("entity_name"), rs.getString("index_name"),
+                rs.getLong("last_id")));
+    }
+
+    /**
+     * Find the checkpoint of an entity.
+     *
+     * @param entityName the entity name
+     * @return the checkpoint, empty if no reindex of the entity is in progress
+     */
+    public Optional<ReindexCheckpoint> findOne(String entityName) {
+        List<ReindexCheckpoint> checkpoints = jdbcTemplate.query(
+            "SELECT entity_name, index_name, last_id FROM es_reindex_checkpoint WHERE entity_name = ?",
+            (rs, rowNum) -> new ReindexCheckpoint(rs.getString("entity_name"), rs.getString("index_name"),
+                rs.getLong("last_id")),
+            entityName);
+        return checkpoints.stream().findFirst();
+    }
+
+    /**
+     * Save the checkpoint of an entity.
+     *
+     * @param checkpoint the checkpoint
+     */
+    public void save(ReindexCheckpoint checkpoint) {
+        Timestamp now = Timestamp.from(Instant.now());
+        int updated = jdbcTemplate.update(
+            "UPDATE es_reindex_checkpoint SET index_name = ?, last_id = ?, updated_date = ? WHERE entity_name = ?",
+            checkpoint.getIndexName(), checkpoint.getLastId(), now, checkpoint.getEntityName());
+        if (updated == 0) {
+            jdbcTemplate.update(
+                "INSERT INTO es_reindex_checkpoint (entity_name, index_name, last_id, updated_date) VALUES (?, ?, ?, ?)",
+                checkpoint.getEntityName(), checkpoint.getIndexName(), checkpoint.getLastId(), now);
+        }
+    }
+
+    /**
+     * Delete the checkpoint of an entity, once its reindex is done.
+     *
+     * @param entityName the entity name
+     */
+    public void delete(String entityName) {
+        jdbcTemplate.update("DELETE FROM es_reindex_checkpoint WHERE entity_name = ?", entityName);
+    }
+
+    /**
+     * The checkpoint of the reindex of an entity.
+     *
+     * @author Dai Mai
+     */
+    public static final class ReindexCheckpoint {
+
+        /** The entity name. */
+        private final String entityName;
+
+        /** The index being built. */
+        private final String indexName;
+
+        /** The highest id below which every row has been indexed. */
+        private final long lastId;
+
+        /**
+         * Instantiates a new reindex checkpoint.
+         *
+         * @param entityName the entity name
+         * @param indexName the index being built
+         * @param lastId the highest id below which every row has been indexed
+         */
+        public ReindexCheckpoint(String entityName, String indexName, long lastId) {
+            this.entityName = entityName;
+            this.indexName = indexName;
+            this.lastId = lastId;
+        }
+
+        /**
+         * Gets the entity name.
+         *
+         * @return the entity name
+         */
+        public String getEntityName() {
+            return entityName;
+        }
+
+        /**
+         * Gets the index name.
+         *
+         * @return the index name
+         */
+        public String getIndexName() {
+            return indexName;
+        }
+
+        /**
+         * Gets the last id.
+         *
+         * @return the last id
+         */
+        public long getLastId() {
+            return lastId;
+        }
+    }
+}
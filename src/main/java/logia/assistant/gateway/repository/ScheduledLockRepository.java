@@ -0,0 +1,76 @@
+package logia.assistant.gateway.repository;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository for the leases of the scheduled tasks which must run on a single node at a time.
+ * <p>
+ * A node holds the lease of a task until a date, and only takes it when the previous holder released it or let it
+ * expire, so a node which died while running the task does not block it forever. The holder extends the lease while
+ * it works, by taking it again.
+ *
+ * @author Dai Mai
+ */
+@Repository
+public class ScheduledLockRepository {
+
+    /** The jdbc template. */
+    private final JdbcTemplate jdbcTemplate;
+
+    /** The identity of this node, as the holder of the leases. */
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    /**
+     * Instantiates a new scheduled lock repository.
+     *
+     * @param jdbcTemplate the jdbc template
+     */
+    public ScheduledLockRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Take or extend the lease of a task, if it is free, expired or already held by this node. Called outside of a
+     * transaction, so the lease is visible to the other nodes at once.
+     *
+     * @param name the task name
+     * @param lockMs the duration of the lease
+     * @return true if this node holds the lease
+     */
+    public boolean tryLock(String name, long lockMs) {
+        Instant now = Instant.now();
+        Timestamp lockedUntil = Timestamp.from(now.plusMillis(lockMs));
+        int updated = jdbcTemplate.update("UPDATE scheduled_lock SET locked_until = ?, locked_date = ?, locked_by = ? "
+            + "WHERE name = ? AND (locked_until <= ? OR locked_by = ?)",
+            lockedUntil, Timestamp.from(now), nodeId, name, Timestamp.from(now), nodeId);
+        if (updated > 0) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update(
+                "INSERT INTO scheduled_lock (name, locked_until, locked_date, locked_by) VALUES (?, ?, ?, ?)",
+                name, lockedUntil, Timestamp.from(now), nodeId);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Held by another node
+            return false;
+        }
+    }
+
+    /**
+     * Release the lease of a task, if this node holds it.
+     *
+     * @param name the task name
+     */
+    public void unlock(String name) {
+        jdbcTemplate.update("UPDATE scheduled_lock SET locked_until = ? WHERE name = ? AND locked_by = ?",
+            Timestamp.from(Instant.now()), name, nodeId);
+    }
+}
@@ -0,0 +1,64 @@
+package logia.assistant.gateway.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Allocates numbers from a database sequence by blocks.
+ * <p>
+ * The sequence is incremented by the block size, so every value it returns reserves the whole block
+ * {@code [value, value + blockSize)} for this node; numbers are then handed out from memory and the sequence is only
+ * queried once per block. Nodes never share a block, so the numbers stay unique across the cluster, with gaps when a
+ * node stops before using its whole block.
+ *
+ * @author Dai Mai
+ */
+public class SequenceBlockAllocator {
+
+    /** The jdbc template. */
+    private final JdbcTemplate jdbcTemplate;
+
+    /** The query returning the next value of the sequence. */
+    private final String nextValueQuery;
+
+    /** The block size, which must be the increment of the sequence. */
+    private final int blockSize;
+
+    /** The next number to hand out, guarded by this. */
+    private long next;
+
+    /** The end of the current block, exclusive, guarded by this. */
+    private long limit;
+
+    /**
+     * Instantiates a new sequence block allocator.
+     *
+     * @param jdbcTemplate the jdbc template
+     * @param nextValueQuery the query returning the next value of the sequence
+     * @param blockSize the block size, which must be the increment of the sequence
+     */
+    public SequenceBlockAllocator(JdbcTemplate jdbcTemplate, String nextValueQuery, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.nextValueQuery = nextValueQuery;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Allocate the next number.
+     *
+     * @return the number
+     */
+    public synchronized long next() {
+        if (next >= limit) {
+            Long blockStart = jdbcTemplate.queryForObject(nextValueQuery, Long.class);
+            if (blockStart == null) {
+                throw new IllegalStateException("Sequence returned no value: " + nextValueQuery);
+            }
+            next = blockStart;
+            limit = blockStart + blockSize;
+        }
+        return next++;
+    }
+}
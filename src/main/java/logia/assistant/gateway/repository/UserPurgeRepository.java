@@ -0,0 +1,80 @@
+package logia.assistant.gateway.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC repository for the set-based purge of the users without credential.
+ * <p>
+ * The users are found by an anti-join and locked, so no credential can reference them until they are deleted, then
+ * their authorities and themselves are deleted by JDBC batches. Each delete checks again that the user has no
+ * credential, so a user which got one meanwhile is kept.
+ *
+ * @author Dai Mai
+ */
+@Repository
+public class UserPurgeRepository {
+
+    /** The anti-join condition of a user without credential. */
+    private static final String NO_CREDENTIAL = "NOT EXISTS (SELECT 1 FROM credential c WHERE c.user_id = %s)";
+
+    /** The jdbc template. */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Instantiates a new user purge repository.
+     *
+     * @param jdbcTemplate the jdbc template
+     */
+    public UserPurgeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Find and lock, until the end of the current transaction, the next users without credential after an id.
+     *
+     * @param afterId the last id already read
+     * @param limit the maximum number of users
+     * @return the uuids of the users, by id, ordered by id
+     */
+    public Map<Long, String> lockNonCredentialUsers(long afterId, int limit) {
+        Map<Long, String> users = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT u.id, u.uuid FROM jhi_user u WHERE u.id > ? AND "
+            + String.format(NO_CREDENTIAL, "u.id") + " ORDER BY u.id LIMIT ? FOR UPDATE",
+            rs -> {
+                users.put(rs.getLong("id"), rs.getString("uuid"));
+            }, afterId, limit);
+        return users;
+    }
+
+    /**
+     * Delete users without credential, with their authorities.
+     *
+     * @param ids the user ids
+     * @return the ids of the deleted users
+     */
+    public List<Long> deleteNonCredentialUsers(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object[]> batch = ids.stream().map(id -> new Object[] { id }).collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("DELETE FROM jhi_user_authority WHERE user_id = ? AND "
+            + String.format(NO_CREDENTIAL, "jhi_user_authority.user_id"), batch);
+        int[] deleted = jdbcTemplate.batchUpdate(
+            "DELETE FROM jhi_user WHERE id = ? AND " + String.format(NO_CREDENTIAL, "jhi_user.id"), batch);
+        List<Long> deletedIds = new ArrayList<>(ids.size());
+        for (int i = 0; i < deleted.length; i++) {
+            // A driver may not tell the count of a batched statement, the user is then considered deleted
+            if (deleted[i] != 0) {
+                deletedIds.add(ids.get(i));
+            }
+        }
+        return deletedIds;
+    }
+}
@@ -1,11 +1,12 @@
 package logia.assistant.gateway.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
-import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import logia.assistant.gateway.domain.User;
@@ -21,6 +22,12 @@ public interface UserRepository extends UuidRepository<User, Long> {
 
     /** The users by email cache. */
     String USERS_BY_UUID_CACHE = "usersByUuid";
+
+    /** The sequence numbering the user uuids. */
+    String USER_UUID_SEQUENCE = "user_uuid_sequence";
+
+    /** The increment of the user uuid sequence, the size of the blocks allocated by each node. */
+    int USER_UUID_SEQUENCE_INCREMENT = 50;
     
     /**
      * Find one by activation key.
@@ -40,12 +47,38 @@ public interface UserRepository extends UuidRepository<User, Long> {
     Optional<User> findOneWithAuthoritiesById(Long id);
 
     /**
-     * Find all users not have credential.
+     * Find all by uuids.
      *
+     * @param uuids the uuids
      * @return the list
      */
-    @Query(value = "select u from User u where u.id not in (select c.user.id from Credential c)")
-    List<User> findAllNotHaveCredential();
+    List<User> findAllByUuidIn(Collection<String> uuids);
+
+    /**
+     * Find all with authorities by ids.
+     *
+     * @param ids the ids
+     * @return the list
+     */
+    @EntityGraph(attributePaths = "authorities")
+    List<User> findAllWithAuthoritiesByIdIn(Collection<Long> ids);
+
+    /**
+     * Find the next users after an id, for keyset pagination.
+     *
+     * @param id the last id already read
+     * @param pageable the pageable, only its size is used
+     * @return the list
+     */
+    List<User> findAllByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Count the users after an id.
+     *
+     * @param id the last id already read
+     * @return the count
+     */
+    long countByIdGreaterThan(Long id);
     
     /**
      * Find one with authorities by uuid.
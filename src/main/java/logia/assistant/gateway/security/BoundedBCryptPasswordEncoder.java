@@ -0,0 +1,223 @@
+package logia.assistant.gateway.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * BCrypt password encoder hashing on a dedicated bounded pool.
+ * <p>
+ * BCrypt is the most CPU intensive part of logging in and registering. Hashing on the servlet threads lets a login
+ * storm starve the whole worker pool, so hashes are computed by a fixed number of threads behind a bounded queue;
+ * when the queue is full the caller fails fast with a {@link PasswordHashingSaturatedException}, translated to
+ * 503 Service Unavailable, instead of waiting.
+ * <p>
+ * The cost factor is configured, so that every node of the cluster hashes with the same one; {@link #calibrate} only
+ * advises a cost for a latency budget. {@link #needsRehash} tells whether a stored hash was computed with a lower
+ * cost, so that a node never downgrades a hash written by a node configured with a higher one.
+ *
+ * @author Dai Mai
+ */
+public class BoundedBCryptPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    /** The lowest cost accepted by BCrypt. */
+    public static final int MIN_STRENGTH = 4;
+
+    /** The highest cost accepted by BCrypt. */
+    public static final int MAX_STRENGTH = 31;
+
+    /** The log. */
+    private final Logger log = LoggerFactory.getLogger(BoundedBCryptPasswordEncoder.class);
+
+    /** The cost factor. */
+    private final int strength;
+
+    /** The hashing executor. */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Instantiates a new bounded BCrypt password encoder.
+     *
+     * @param strength the cost factor
+     * @param threads the number of hashing threads
+     * @param queueCapacity the number of hashes waiting for a thread before rejecting
+     */
+    public BoundedBCryptPasswordEncoder(int strength, int threads, int queueCapacity) {
+        if (strength < MIN_STRENGTH || strength > MAX_STRENGTH) {
+            throw new IllegalArgumentException("BCrypt strength must be between " + MIN_STRENGTH + " and "
+                + MAX_STRENGTH);
+        }
+        this.strength = strength;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                Thread thread = new Thread(runnable, "assistant-gateway-Hashing-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Find the highest cost whose hashing time stays within a latency budget.
+     * <p>
+     * Each extra cost doubles the hashing time, so a single measurement at the minimum strength is extrapolated.
+     *
+     * @param targetMillis the latency budget of a single hash
+     * @param minStrength the lowest cost to return
+     * @param maxStrength the highest cost to return
+     * @return the cost factor
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        String salt = BCrypt.gensalt(minStrength);
+        // Warm up before measuring
+        BCrypt.hashpw("calibration", BCrypt.gensalt(MIN_STRENGTH));
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration", salt);
+        long nanos = Math.max(1, System.nanoTime() - start);
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        int calibrated = minStrength;
+        while (calibrated < maxStrength && nanos * 2 <= targetNanos) {
+            nanos *= 2;
+            calibrated++;
+        }
+        return calibrated;
+    }
+
+    /**
+     * Gets the cost factor.
+     *
+     * @return the strength
+     */
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * Checks if a stored hash was computed with a lower cost than the current one.
+     *
+     * @param encodedPassword the encoded password
+     * @return true, if the password should be hashed again
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return encodedPassword != null && getStrength(encodedPassword) < strength;
+    }
+
+    /* (non-Javadoc)
+     * @see org.springframework.security.crypto.password.PasswordEncoder#encode(java.lang.CharSequence)
+     */
+    @Override
+    public String encode(CharSequence rawPassword) {
+        String password = rawPassword.toString();
+        return await(submit(() -> BCrypt.hashpw(password, BCrypt.gensalt(strength))));
+    }
+
+    /* (non-Javadoc)
+     * @see org.springframework.security.crypto.password.PasswordEncoder#matches(java.lang.CharSequence, java.lang.String)
+     */
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null || getStrength(encodedPassword) < 0) {
+            log.warn("Encoded password does not look like BCrypt");
+            return false;
+        }
+        String password = rawPassword.toString();
+        return await(submit(() -> BCrypt.checkpw(password, encodedPassword)));
+    }
+
+    /**
+     * Hash a password without waiting for the result, for work that may be skipped when the pool is saturated.
+     *
+     * @param rawPassword the raw password
+     * @return the encoded password, completed exceptionally if the pool is saturated
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        String password = rawPassword.toString();
+        try {
+            return CompletableFuture.supplyAsync(() -> BCrypt.hashpw(password, BCrypt.gensalt(strength)), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<String> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new PasswordHashingSaturatedException("Password hashing is saturated", e));
+            return rejected;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.springframework.beans.factory.DisposableBean#destroy()
+     */
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Submit a hashing task.
+     *
+     * @param <T> the generic type
+     * @param task the task
+     * @return the future
+     */
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingSaturatedException("Password hashing is saturated", e);
+        }
+    }
+
+    /**
+     * Wait for a hashing task.
+     *
+     * @param <T> the generic type
+     * @param future the future
+     * @return the result
+     */
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingSaturatedException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Read the cost of a BCrypt hash, such as {@code $2a$10$...}.
+     *
+     * @param encodedPassword the encoded password
+     * @return the cost, or -1 if the hash is not a BCrypt hash
+     */
+    static int getStrength(String encodedPassword) {
+        if (encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$' || encodedPassword.charAt(1) != '2') {
+            return -1;
+        }
+        int offset = encodedPassword.charAt(2) == '$' ? 3 : 4;
+        if (encodedPassword.length() < offset + 3 || encodedPassword.charAt(offset + 2) != '$') {
+            return -1;
+        }
+        char tens = encodedPassword.charAt(offset);
+        char units = encodedPassword.charAt(offset + 1);
+        if (!Character.isDigit(tens) || !Character.isDigit(units)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+}
@@ -6,7 +6,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.SpringSecurityCoreVersion;
 import org.springframework.security.core.userdetails.User;
 
-import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.domain.CachedCredential;
 
 /**
  * The Class DomainUserDetail.
@@ -18,8 +18,8 @@ public class DomainUserDetail extends User {
     /** The Constant serialVersionUID. */
     private static final long                         serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
 
-    /** The credential. */
-    private final Credential credential;
+    /** The credential, as cached. */
+    private final CachedCredential credential;
 
     /**
      * Instantiates a new domain user detail.
@@ -27,21 +27,21 @@ public class DomainUserDetail extends User {
      * @param username the username
      * @param password the password
      * @param authorities the authorities
-     * @param credential the credential
+     * @param credential the credential, as cached
      */
     public DomainUserDetail(String username, String password,
             Collection<? extends GrantedAuthority> authorities,
-            Credential credential) {
+            CachedCredential credential) {
         super(username, password, authorities);
         this.credential = credential;
     }
 
     /**
-     * Gets the entity.
+     * Gets the credential.
      *
-     * @return the entity
+     * @return the credential, as cached
      */
-    public Credential getCredential() {
+    public CachedCredential getCredential() {
         return credential;
     }
 
@@ -14,8 +14,8 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import logia.assistant.gateway.domain.Credential;
-import logia.assistant.gateway.repository.CredentialRepository;
+import logia.assistant.gateway.domain.CachedCredential;
+import logia.assistant.gateway.service.LoginFilter;
 
 /**
  * Authenticate a user from the database.
@@ -28,28 +28,28 @@ public class DomainUserDetailsService implements UserDetailsService {
     /** The log. */
     private final Logger log = LoggerFactory.getLogger(DomainUserDetailsService.class);
 
-    /** The credential repository. */
-    private final CredentialRepository credentialRepository;
+    /** The login filter. */
+    private final LoginFilter loginFilter;
 
     /**
      * Instantiates a new domain user details service.
      *
-     * @param credentialRepository the credential repository
+     * @param loginFilter the login filter, rejecting the unknown logins without a database query
      */
-    public DomainUserDetailsService(CredentialRepository credentialRepository) {
+    public DomainUserDetailsService(LoginFilter loginFilter) {
         super();
-        this.credentialRepository = credentialRepository;
+        this.loginFilter = loginFilter;
     }
 
     /* (non-Javadoc)
      * @see org.springframework.security.core.userdetails.UserDetailsService#loadUserByUsername(java.lang.String)
      */
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(final String login) {
         log.debug("Authenticating {}", login);
         String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
-        return this.credentialRepository.findOneWithUserByLogin(login)
+        return this.loginFilter.findCachedByLogin(lowercaseLogin)
                 .map(credential -> createSpringSecurityUser(lowercaseLogin, credential))
                 .orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the " + "database"));
     }
@@ -58,18 +58,18 @@ public class DomainUserDetailsService implements UserDetailsService {
      * Creates the spring security user.
      *
      * @param lowercaseLogin the lowercase login
-     * @param credential the credential
+     * @param credential the credential, as cached
      * @return the domain user detail
      */
-    private DomainUserDetail createSpringSecurityUser(String lowercaseLogin, Credential credential) {
-        if (!credential.getUser().isActivated()) {
+    private DomainUserDetail createSpringSecurityUser(String lowercaseLogin, CachedCredential credential) {
+        if (!credential.isActivated()) {
             throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
         }
-        List<GrantedAuthority> grantedAuthorities = credential.getUser().getAuthorities().stream()
-                .map(authority -> new SimpleGrantedAuthority(authority.getName()))
+        List<GrantedAuthority> grantedAuthorities = credential.getAuthorities().stream()
+                .map(SimpleGrantedAuthority::new)
                 .collect(Collectors.toList());
         return new DomainUserDetail(credential.getLogin(),
-                credential.getUser().getPassword(),
+                credential.getPassword(),
                 grantedAuthorities, credential);
     }
 }
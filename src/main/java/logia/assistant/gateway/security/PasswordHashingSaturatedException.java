@@ -0,0 +1,32 @@
+package logia.assistant.gateway.security;
+
+/**
+ * This exception is thrown when too many passwords are already being hashed, so the request is rejected instead of
+ * waiting for a hashing thread.
+ *
+ * @author Dai Mai
+ */
+public class PasswordHashingSaturatedException extends RuntimeException {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Instantiates a new password hashing saturated exception.
+     *
+     * @param message the message
+     */
+    public PasswordHashingSaturatedException(String message) {
+        super(message);
+    }
+
+    /**
+     * Instantiates a new password hashing saturated exception.
+     *
+     * @param message the message
+     * @param cause the cause
+     */
+    public PasswordHashingSaturatedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,235 @@
+package logia.assistant.gateway.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
+import logia.assistant.gateway.config.ApplicationProperties;
+
+/**
+ * Bounded cache of the authentications built from already verified JWT.
+ * <p>
+ * Verifying the signature and parsing the claims of the same token on every request is the most expensive part of the
+ * {@link JWTFilter}. Once a token has been verified, its authentication is kept until the token expires, or
+ * until {@code application.security.jwt-cache.time-to-live-seconds} elapses, whichever comes first. Tokens are keyed
+ * by their SHA-256 digest so the raw tokens are never kept in memory, and invalid tokens are never cached.
+ * <p>
+ * The entries are also queued in insertion order, so a full cache drops its oldest entries, which expire first, by
+ * polling the queue head rather than scanning the whole map.
+ *
+ * @author Dai Mai
+ */
+@Component
+public class JWTAuthenticationCache {
+
+    /** The entries, by token digest. */
+    private final ConcurrentMap<TokenDigest, Entry> entries = new ConcurrentHashMap<>();
+
+    /** The entries in insertion order, including those already removed from the map. */
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    /** The size of the insertion order queue, whose own size is not constant time. */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /** The authenticator. */
+    private final JWTAuthenticator authenticator;
+
+    /** The enabled. */
+    private final boolean enabled;
+
+    /** The max size. */
+    private final int maxSize;
+
+    /** The time to live in millis. */
+    private final long timeToLiveMillis;
+
+    /** The hits. */
+    private final Meter hits;
+
+    /** The misses. */
+    private final Meter misses;
+
+    /**
+     * Instantiates a new JWT authentication cache.
+     *
+     * @param authenticator the authenticator
+     * @param applicationProperties the application properties
+     * @param metricRegistry the metric registry
+     */
+    public JWTAuthenticationCache(JWTAuthenticator authenticator, ApplicationProperties applicationProperties,
+        MetricRegistry metricRegistry) {
+        ApplicationProperties.Security.JwtCache properties = applicationProperties.getSecurity().getJwtCache();
+        this.authenticator = authenticator;
+        this.enabled = properties.isEnabled() && properties.getMaxSize() > 0;
+        this.maxSize = properties.getMaxSize();
+        this.timeToLiveMillis = TimeUnit.SECONDS.toMillis(properties.getTimeToLiveSeconds());
+        this.hits = metricRegistry.meter(MetricRegistry.name(JWTAuthenticationCache.class, "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(JWTAuthenticationCache.class, "misses"));
+        metricRegistry.register(MetricRegistry.name(JWTAuthenticationCache.class, "hit-ratio"), new RatioGauge() {
+
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getOneMinuteRate(), hits.getOneMinuteRate() + misses.getOneMinuteRate());
+            }
+        });
+        metricRegistry.register(MetricRegistry.name(JWTAuthenticationCache.class, "size"),
+            (Gauge<Integer>) entries::size);
+    }
+
+    /**
+     * Authenticate a token, verifying it only if it is not already cached.
+     *
+     * @param jwt the raw token
+     * @return the JWT authentication result
+     */
+    public JWTAuthenticationResult authenticate(String jwt) {
+        if (!enabled || jwt == null) {
+            return authenticator.authenticate(jwt);
+        }
+        long now = System.currentTimeMillis();
+        TokenDigest digest = new TokenDigest(jwt);
+        Entry entry = entries.get(digest);
+        if (entry != null) {
+            if (entry.expiresAt > now) {
+                hits.mark();
+                return entry.result;
+            }
+            entries.remove(digest, entry);
+        }
+        misses.mark();
+        JWTAuthenticationResult result = authenticator.authenticate(jwt);
+        if (result.isAuthenticated()) {
+            long expiresAt = Math.min(result.getExpiresAt(), now + timeToLiveMillis);
+            if (expiresAt > now) {
+                Entry newEntry = new Entry(digest, result, expiresAt);
+                entries.put(digest, newEntry);
+                insertionOrder.add(newEntry);
+                queued.incrementAndGet();
+                evict();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clear the cache, so every token is verified again.
+     */
+    public void clear() {
+        entries.clear();
+        while (insertionOrder.poll() != null) {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of cached tokens.
+     *
+     * @return the size
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drop the oldest entries while the cache is over its max size. The queue is also bounded, since the entries
+     * removed when they expired or were replaced stay queued until polled.
+     */
+    private void evict() {
+        while (entries.size() > maxSize || queued.get() > 2 * maxSize) {
+            Entry oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            queued.decrementAndGet();
+            entries.remove(oldest.digest, oldest);
+        }
+    }
+
+    /**
+     * A cached authentication.
+     *
+     * @author Dai Mai
+     */
+    private static final class Entry {
+
+        /** The token digest. */
+        private final TokenDigest digest;
+
+        /** The result. */
+        private final JWTAuthenticationResult result;
+
+        /** The expiration of the entry in millis. */
+        private final long expiresAt;
+
+        /**
+         * Instantiates a new entry.
+         *
+         * @param digest the token digest
+         * @param result the result
+         * @param expiresAt the expiration of the entry in millis
+         */
+        Entry(TokenDigest digest, JWTAuthenticationResult result, long expiresAt) {
+            this.digest = digest;
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * The SHA-256 digest of a raw token.
+     *
+     * @author Dai Mai
+     */
+    private static final class TokenDigest {
+
+        /** The digest. */
+        private final byte[] digest;
+
+        /** The hash code. */
+        private final int hashCode;
+
+        /**
+         * Instantiates a new token digest.
+         *
+         * @param jwt the raw token
+         */
+        TokenDigest(String jwt) {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            this.hashCode = Arrays.hashCode(digest);
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TokenDigest && Arrays.equals(digest, ((TokenDigest) obj).digest);
+        }
+    }
+}
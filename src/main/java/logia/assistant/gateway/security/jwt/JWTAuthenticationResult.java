@@ -0,0 +1,113 @@
+package logia.assistant.gateway.security.jwt;
+
+import org.springframework.security.core.Authentication;
+
+/**
+ * The outcome of authenticating a JWT: either a ready {@link Authentication} or the reason of the failure.
+ *
+ * @author Dai Mai
+ */
+public final class JWTAuthenticationResult {
+
+    /**
+     * The reasons a token is rejected.
+     *
+     * @author Dai Mai
+     */
+    public enum Failure {
+
+        /** No token was sent. */
+        MISSING,
+
+        /** The token is not a well formed JWT, or misses the required claims. */
+        MALFORMED,
+
+        /** The token is not a signed claims JWT. */
+        UNSUPPORTED,
+
+        /** The signature of the token does not match. */
+        INVALID_SIGNATURE,
+
+        /** The token has expired. */
+        EXPIRED
+    }
+
+    /** The authentication, null on failure. */
+    private final Authentication authentication;
+
+    /** The expiration of the token in millis, Long.MAX_VALUE if it never expires. */
+    private final long expiresAt;
+
+    /** The failure, null on success. */
+    private final Failure failure;
+
+    /**
+     * Instantiates a new JWT authentication result.
+     *
+     * @param authentication the authentication
+     * @param expiresAt the expiration of the token in millis
+     * @param failure the failure
+     */
+    private JWTAuthenticationResult(Authentication authentication, long expiresAt, Failure failure) {
+        this.authentication = authentication;
+        this.expiresAt = expiresAt;
+        this.failure = failure;
+    }
+
+    /**
+     * A successful authentication.
+     *
+     * @param authentication the authentication
+     * @param expiresAt the expiration of the token in millis
+     * @return the JWT authentication result
+     */
+    public static JWTAuthenticationResult success(Authentication authentication, long expiresAt) {
+        return new JWTAuthenticationResult(authentication, expiresAt, null);
+    }
+
+    /**
+     * A failed authentication.
+     *
+     * @param failure the failure
+     * @return the JWT authentication result
+     */
+    public static JWTAuthenticationResult failure(Failure failure) {
+        return new JWTAuthenticationResult(null, 0, failure);
+    }
+
+    /**
+     * Checks if the token was authenticated.
+     *
+     * @return true, if successful
+     */
+    public boolean isAuthenticated() {
+        return authentication != null;
+    }
+
+    /**
+     * Gets the authentication.
+     *
+     * @return the authentication, null on failure
+     */
+    public Authentication getAuthentication() {
+        return authentication;
+    }
+
+    /**
+     * Gets the expiration of the token.
+     *
+     * @return the expiration in millis
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Gets the failure.
+     *
+     * @return the failure, null on success
+     */
+    public Failure getFailure() {
+        return failure;
+    }
+}
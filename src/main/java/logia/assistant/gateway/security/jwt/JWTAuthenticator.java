@@ -0,0 +1,107 @@
+package logia.assistant.gateway.security.jwt;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import io.github.jhipster.config.JHipsterProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import logia.assistant.gateway.security.jwt.JWTAuthenticationResult.Failure;
+
+/**
+ * Verifies a JWT and builds its {@link org.springframework.security.core.Authentication} in a single parse.
+ * <p>
+ * {@code TokenProvider#validateToken} followed by {@code TokenProvider#getAuthentication} parses and verifies every
+ * token twice; this authenticator reads the same claims ({@code sub} and the comma separated {@code auth}
+ * authorities) from one parse, and tells why a token is rejected instead of a bare boolean. The signing key is the
+ * configured {@code jhipster.security.authentication.jwt.secret}, the one the TokenProvider signs the tokens with.
+ *
+ * @author Dai Mai
+ */
+@Component
+public class JWTAuthenticator {
+
+    /** The claim holding the authorities, as written by the TokenProvider. */
+    static final String AUTHORITIES_KEY = "auth";
+
+    /** The prefix of the authorization header. */
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /** The parser, configured once: parsing does not change its state. */
+    private final JwtParser parser;
+
+    /**
+     * Instantiates a new JWT authenticator.
+     *
+     * @param jHipsterProperties the j hipster properties
+     */
+    public JWTAuthenticator(JHipsterProperties jHipsterProperties) {
+        this.parser = Jwts.parser()
+            .setSigningKey(jHipsterProperties.getSecurity().getAuthentication().getJwt().getSecret());
+    }
+
+    /**
+     * Resolve the token of an authorization header.
+     *
+     * @param authorizationHeader the authorization header, may be null
+     * @return the token, or null if the header is not a bearer authorization
+     */
+    public static String resolveToken(String authorizationHeader) {
+        if (authorizationHeader != null && authorizationHeader.length() > BEARER_PREFIX.length()
+            && authorizationHeader.startsWith(BEARER_PREFIX)) {
+            return authorizationHeader.substring(BEARER_PREFIX.length());
+        }
+        return null;
+    }
+
+    /**
+     * Verify a token and build its authentication.
+     *
+     * @param jwt the raw token, may be null
+     * @return the JWT authentication result
+     */
+    public JWTAuthenticationResult authenticate(String jwt) {
+        if (!StringUtils.hasText(jwt)) {
+            return JWTAuthenticationResult.failure(Failure.MISSING);
+        }
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(jwt).getBody();
+        } catch (ExpiredJwtException e) {
+            return JWTAuthenticationResult.failure(Failure.EXPIRED);
+        } catch (SignatureException e) {
+            return JWTAuthenticationResult.failure(Failure.INVALID_SIGNATURE);
+        } catch (UnsupportedJwtException e) {
+            return JWTAuthenticationResult.failure(Failure.UNSUPPORTED);
+        } catch (MalformedJwtException | IllegalArgumentException e) {
+            return JWTAuthenticationResult.failure(Failure.MALFORMED);
+        }
+        Object authoritiesClaim = claims.get(AUTHORITIES_KEY);
+        if (!StringUtils.hasText(claims.getSubject()) || authoritiesClaim == null) {
+            return JWTAuthenticationResult.failure(Failure.MALFORMED);
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String authority : StringUtils.commaDelimitedListToStringArray(authoritiesClaim.toString())) {
+            if (!authority.isEmpty()) {
+                authorities.add(new SimpleGrantedAuthority(authority));
+            }
+        }
+        User principal = new User(claims.getSubject(), "", authorities);
+        Date expiration = claims.getExpiration();
+        return JWTAuthenticationResult.success(new UsernamePasswordAuthenticationToken(principal, jwt, authorities),
+            expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+    }
+}
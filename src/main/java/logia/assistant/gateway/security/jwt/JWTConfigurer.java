@@ -5,8 +5,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.DefaultSecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
-import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
-
 /**
  * The Class JWTConfigurer.
  *
@@ -17,16 +15,21 @@ public class JWTConfigurer extends SecurityConfigurerAdapter<DefaultSecurityFilt
     /** The Constant AUTHORIZATION_HEADER. */
     public static final String AUTHORIZATION_HEADER = "Authorization";
 
-    /** The token provider. */
-    private TokenProvider tokenProvider;
+    /** The authenticator. */
+    private JWTAuthenticator authenticator;
+
+    /** The authentication cache. */
+    private JWTAuthenticationCache authenticationCache;
 
     /**
      * Instantiates a new JWT configurer.
      *
-     * @param tokenProvider the token provider
+     * @param authenticator the authenticator
+     * @param authenticationCache the authentication cache
      */
-    public JWTConfigurer(TokenProvider tokenProvider) {
-        this.tokenProvider = tokenProvider;
+    public JWTConfigurer(JWTAuthenticator authenticator, JWTAuthenticationCache authenticationCache) {
+        this.authenticator = authenticator;
+        this.authenticationCache = authenticationCache;
     }
 
     /* (non-Javadoc)
@@ -34,7 +37,7 @@ public class JWTConfigurer extends SecurityConfigurerAdapter<DefaultSecurityFilt
      */
     @Override
     public void configure(HttpSecurity http) throws Exception {
-        JWTFilter customFilter = new JWTFilter(tokenProvider);
+        JWTFilter customFilter = new JWTFilter(authenticator, authenticationCache);
         http.addFilterBefore(customFilter, UsernamePasswordAuthenticationFilter.class);
     }
 }
@@ -8,13 +8,11 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 
-import org.springframework.security.core.Authentication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.GenericFilterBean;
 
-import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
-
 /**
  * Filters incoming requests and installs a Spring Security principal if a header corresponding to a valid user is
  * found.
@@ -23,16 +21,33 @@ import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
  */
 public class JWTFilter extends GenericFilterBean {
 
-    /** The token provider. */
-    private TokenProvider tokenProvider;
+    /** The log. */
+    private final Logger log = LoggerFactory.getLogger(JWTFilter.class);
+
+    /** The authenticator. */
+    private JWTAuthenticator authenticator;
+
+    /** The authentication cache, null to verify every token. */
+    private JWTAuthenticationCache authenticationCache;
 
     /**
      * Instantiates a new JWT filter.
      *
-     * @param tokenProvider the token provider
+     * @param authenticator the authenticator
      */
-    public JWTFilter(TokenProvider tokenProvider) {
-        this.tokenProvider = tokenProvider;
+    public JWTFilter(JWTAuthenticator authenticator) {
+        this(authenticator, null);
+    }
+
+    /**
+     * Instantiates a new JWT filter.
+     *
+     * @param authenticator the authenticator
+     * @param authenticationCache the authentication cache, null to verify every token
+     */
+    public JWTFilter(JWTAuthenticator authenticator, JWTAuthenticationCache authenticationCache) {
+        this.authenticator = authenticator;
+        this.authenticationCache = authenticationCache;
     }
 
     /* (non-Javadoc)
@@ -42,25 +57,16 @@ public class JWTFilter extends GenericFilterBean {
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
         throws IOException, ServletException {
         HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
-        String jwt = resolveToken(httpServletRequest);
-        if (StringUtils.hasText(jwt) && this.tokenProvider.validateToken(jwt)) {
-            Authentication authentication = this.tokenProvider.getAuthentication(jwt);
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        String jwt = JWTAuthenticator.resolveToken(httpServletRequest.getHeader(JWTConfigurer.AUTHORIZATION_HEADER));
+        if (jwt != null) {
+            JWTAuthenticationResult result = this.authenticationCache != null
+                ? this.authenticationCache.authenticate(jwt) : this.authenticator.authenticate(jwt);
+            if (result.isAuthenticated()) {
+                SecurityContextHolder.getContext().setAuthentication(result.getAuthentication());
+            } else {
+                log.debug("Rejected JWT token on {}: {}", httpServletRequest.getRequestURI(), result.getFailure());
+            }
         }
         filterChain.doFilter(servletRequest, servletResponse);
     }
-
-    /**
-     * Resolve token.
-     *
-     * @param request the request
-     * @return the string
-     */
-    private String resolveToken(HttpServletRequest request){
-        String bearerToken = request.getHeader(JWTConfigurer.AUTHORIZATION_HEADER);
-        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7, bearerToken.length());
-        }
-        return null;
-    }
 }
@@ -1,10 +1,14 @@
 package logia.assistant.gateway.service;
 
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import logia.assistant.gateway.domain.Credential;
 import logia.assistant.gateway.domain.User;
 import logia.assistant.gateway.service.dto.UserDTO;
+import logia.assistant.gateway.service.dto.UserImportResultDTO;
+import logia.assistant.gateway.service.dto.UserImportRow;
 
 /**
  * The Interface AccountBusinessService.
@@ -86,5 +90,25 @@ public interface AccountBusinessService {
      * @return updated user
      */
     Optional<UserDTO> updateUser(UserDTO userDTO);
-    
+
+    /**
+     * Import users in bulk, as if each row was created by an admin, reporting the result of each row.
+     * <p>
+     * The rows are read as they come, validated, and inserted by chunks, each in its own transaction: the users of a
+     * committed chunk stay created even if a later chunk fails. The id, activation and audit fields of the rows are
+     * ignored, the users are created with new UUIDs, not activated, and get their creation email from the
+     * {@link MailQueue}.
+     *
+     * @param rows the rows, in the order of the imported document
+     * @param results the consumer of the result of each row, in the order of the rows
+     */
+    void importUsers(Iterator<UserImportRow> rows, Consumer<UserImportResultDTO> results);
+
+    /**
+     * Export the managed users, with their login, by pages read in their own transaction.
+     *
+     * @param consumer the consumer of each user, called outside of any transaction
+     */
+    void exportUsers(Consumer<UserDTO> consumer);
+
 }
@@ -1,14 +1,18 @@
 package logia.assistant.gateway.service;
 
 import logia.assistant.gateway.config.audit.AuditEventConverter;
+import logia.assistant.gateway.domain.PersistentAuditEvent;
 import logia.assistant.gateway.repository.PersistenceAuditEventRepository;
+import logia.assistant.gateway.service.dto.KeysetPage;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -66,6 +70,44 @@ public class AuditEventService {
             .map(auditEventConverter::convertToAuditEvent);
     }
 
+    /**
+     * Find all, newest first, by keyset pagination.
+     *
+     * @param beforeId the id of the last event already read, null for the first page
+     * @param size the page size
+     * @param count whether to count all the events
+     * @return the page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<AuditEvent> findAll(Long beforeId, int size, boolean count) {
+        List<PersistentAuditEvent> rows = persistenceAuditEventRepository.findAllByIdLessThanOrderByIdDesc(
+            beforeId == null ? Long.MAX_VALUE : beforeId, new PageRequest(0, size + 1));
+        return KeysetPage.of(rows, size, PersistentAuditEvent::getId,
+            count ? persistenceAuditEventRepository.count() : null)
+            .map(auditEventConverter::convertToAuditEvent);
+    }
+
+    /**
+     * Find by dates, newest first, by keyset pagination.
+     *
+     * @param fromDate the from date
+     * @param toDate the to date
+     * @param beforeId the id of the last event already read, null for the first page
+     * @param size the page size
+     * @param count whether to count all the events between the dates
+     * @return the page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<AuditEvent> findByDates(Instant fromDate, Instant toDate, Long beforeId, int size,
+        boolean count) {
+        List<PersistentAuditEvent> rows = persistenceAuditEventRepository
+            .findAllByAuditEventDateBetweenAndIdLessThanOrderByIdDesc(fromDate, toDate,
+                beforeId == null ? Long.MAX_VALUE : beforeId, new PageRequest(0, size + 1));
+        return KeysetPage.of(rows, size, PersistentAuditEvent::getId,
+            count ? persistenceAuditEventRepository.countByAuditEventDateBetween(fromDate, toDate) : null)
+            .map(auditEventConverter::convertToAuditEvent);
+    }
+
     /**
      * Find.
      *
@@ -1,13 +1,18 @@
 package logia.assistant.gateway.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import logia.assistant.gateway.domain.CachedCredential;
 import logia.assistant.gateway.domain.Credential;
 import logia.assistant.gateway.service.dto.CredentialDTO;
+import logia.assistant.gateway.service.dto.KeysetPage;
 import logia.assistant.share.common.service.EntityService;
 
 /**
@@ -34,6 +39,42 @@ public interface CredentialService extends EntityService<CredentialDTO, Credenti
      */
     Page<Credential> findAllByLoginNot(Pageable pageable, String login);
 
+    /**
+     * Find all by login not, by keyset pagination.
+     *
+     * @param afterId the id of the last credential already read, null for the first page
+     * @param size the page size
+     * @param count whether to count all the credentials
+     * @param login the login
+     * @return the page
+     */
+    KeysetPage<Credential> findAllByLoginNot(Long afterId, int size, boolean count, String login);
+
+    /**
+     * Find all dtos.
+     *
+     * @param pageable the pageable
+     * @return the page
+     */
+    Page<CredentialDTO> findAllDtos(Pageable pageable);
+
+    /**
+     * Stream all dtos, by id, with a bounded memory whatever the number of credentials.
+     *
+     * @param consumer the consumer of each dto, called inside the reading transaction
+     */
+    void streamAllDtos(Consumer<CredentialDTO> consumer);
+
+    /**
+     * Find all dtos, by keyset pagination.
+     *
+     * @param afterId the id of the last credential already read, null for the first page
+     * @param size the page size
+     * @param count whether to count all the credentials
+     * @return the page
+     */
+    KeysetPage<CredentialDTO> findAllDtos(Long afterId, int size, boolean count);
+
     /**
      * Find by user id.
      *
@@ -42,6 +83,14 @@ public interface CredentialService extends EntityService<CredentialDTO, Credenti
      */
     List<Credential> findByUserId(Long userId);
 
+    /**
+     * Publish the change of a user as a change of each of its credentials, in the current transaction, so their
+     * cached projections, which hold the user, are evicted with it.
+     *
+     * @param userId the user id
+     */
+    void publishUserChanged(Long userId);
+
     /**
      * Find one by email.
      *
@@ -66,6 +115,30 @@ public interface CredentialService extends EntityService<CredentialDTO, Credenti
      */
     Optional<Credential> findOneWithUserByLogin(String login);
 
+    /**
+     * Find the cached projection of a credential by login, for the reads which need no entity.
+     *
+     * @param login the login
+     * @return the optional
+     */
+    Optional<CachedCredential> findCachedByLogin(String login);
+
+    /**
+     * Find the logins already used among some logins, compared as they are stored.
+     *
+     * @param logins the logins
+     * @return the used logins, normalized by {@link Credential#normalizeLogin(String)}
+     */
+    Set<String> findUsedLogins(Collection<String> logins);
+
+    /**
+     * Save new credentials by JDBC batches.
+     *
+     * @param credentials the credentials
+     * @return the saved credentials, in the same order
+     */
+    List<Credential> saveEntities(List<Credential> credentials);
+
     /**
      * Update by user id.
      *
@@ -1,124 +1,602 @@
 package logia.assistant.gateway.service;
 
-import com.codahale.metrics.annotation.Timed;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import logia.assistant.gateway.config.ApplicationProperties;
 import logia.assistant.gateway.domain.*;
 import logia.assistant.gateway.repository.*;
-import logia.assistant.gateway.repository.search.*;
-import org.elasticsearch.indices.IndexAlreadyExistsException;
+import logia.assistant.gateway.repository.ReindexCheckpointRepository.ReindexCheckpoint;
+import logia.assistant.gateway.service.ReindexJob.Status;
+import logia.assistant.gateway.service.SearchIndexWriter.DocumentKey;
+import logia.assistant.gateway.service.SearchIndexWriter.SearchDocument;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.indices.InvalidAliasNameException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+import org.springframework.data.elasticsearch.annotations.Setting;
 import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
-import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.ManyToMany;
 import java.beans.IntrospectionException;
 import java.beans.PropertyDescriptor;
-import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+/**
+ * Rebuilds the Elasticsearch indices from the database.
+ * <p>
+ * Rows are read by keyset pages, each in its own short read-only transaction, and sent as bulk requests by a pool of
+ * workers. A checkpoint records the highest id below which every row has been indexed, so a reindex interrupted by a
+ * crash or a failed bulk request resumes from there instead of starting over.
+ * <p>
+ * Each entity index is an alias over versioned indices: the rows are indexed into a new {@code <alias>_v<n>} index
+ * while searches and lookups keep reading the current one, then the alias is swapped atomically and the old index is
+ * dropped.
+ * <p>
+ * While an index is being built, the {@link OutboxRelay} writes the changed entities into it as well as through the
+ * alias, so the changes made during the build, or while it is interrupted, are in the new index when the alias is
+ * swapped. The scanned rows are written with the lowest version, {@value #SCAN_VERSION}: a row relayed with the
+ * version of its latest change is never overwritten by the older state the scan may have read.
+ * <p>
+ * A single reindex job runs at a time on this node; its progress is kept in memory for the last
+ * {@value #MAX_JOBS} jobs and published as metrics.
+ *
+ * @author Dai Mai
+ */
 @Service
-@Transactional(readOnly = true)
 public class ElasticsearchIndexService {
 
-    private static final Lock reindexLock = new ReentrantLock();
+    private static final String VERSION_SEPARATOR = "_v";
+
+    static final int MAX_JOBS = 10;
+
+    static final long SCAN_VERSION = 0L;
+
+    private static final int MAX_ALIAS_ATTEMPTS = 3;
 
     private final Logger log = LoggerFactory.getLogger(ElasticsearchIndexService.class);
 
     private final UserRepository userRepository;
 
-    private final UserSearchRepository userSearchRepository;
+    private final CredentialRepository credentialRepository;
+
+    private final ReindexCheckpointRepository checkpointRepository;
 
     private final ElasticsearchTemplate elasticsearchTemplate;
 
+    private final SearchIndexWriter searchIndexWriter;
+
+    private final TransactionTemplate readTransactionTemplate;
+
+    private final int batchSize;
+
+    private final int workers;
+
+    private final Executor taskExecutor;
+
+    private final AtomicReference<ReindexJob> runningJob = new AtomicReference<>();
+
+    private final Map<String, ReindexJob> jobs = Collections.synchronizedMap(
+        new LinkedHashMap<String, ReindexJob>() {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ReindexJob> eldest) {
+                return size() > MAX_JOBS;
+            }
+        });
+
+    private final Meter documentsMeter;
+
+    private final Meter errorsMeter;
+
+    private final Timer reindexTimer;
+
     public ElasticsearchIndexService(
         UserRepository userRepository,
-        UserSearchRepository userSearchRepository,
-        ElasticsearchTemplate elasticsearchTemplate) {
+        CredentialRepository credentialRepository,
+        ReindexCheckpointRepository checkpointRepository,
+        ElasticsearchTemplate elasticsearchTemplate,
+        SearchIndexWriter searchIndexWriter,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties,
+        @Qualifier("taskExecutor") Executor taskExecutor,
+        MetricRegistry metricRegistry) {
         this.userRepository = userRepository;
-        this.userSearchRepository = userSearchRepository;
+        this.credentialRepository = credentialRepository;
+        this.checkpointRepository = checkpointRepository;
         this.elasticsearchTemplate = elasticsearchTemplate;
+        this.searchIndexWriter = searchIndexWriter;
+        this.readTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readTransactionTemplate.setReadOnly(true);
+        this.batchSize = Math.max(1, applicationProperties.getElasticsearchReindex().getBatchSize());
+        this.workers = Math.max(1, applicationProperties.getElasticsearchReindex().getWorkers());
+        this.taskExecutor = taskExecutor;
+        this.documentsMeter = metricRegistry.meter(MetricRegistry.name(ElasticsearchIndexService.class, "documents"));
+        this.errorsMeter = metricRegistry.meter(MetricRegistry.name(ElasticsearchIndexService.class, "errors"));
+        this.reindexTimer = metricRegistry.timer(MetricRegistry.name(ElasticsearchIndexService.class, "reindex"));
+        metricRegistry.register(MetricRegistry.name(ElasticsearchIndexService.class, "remaining"),
+            (Gauge<Long>) () -> Optional.ofNullable(runningJob.get())
+                .map(job -> Math.max(0, job.getTotal() - job.getDone()))
+                .orElse(0L));
     }
 
-    @Async
-    @Timed
-    public void reindexAll() {
-        if (reindexLock.tryLock()) {
-            try {
-                reindexForClass(User.class, userRepository, userSearchRepository);
+    /**
+     * Start a reindex of all the entities in the background.
+     *
+     * @return the started job, empty if a reindex is already running
+     */
+    public Optional<ReindexJob> startReindex() {
+        ReindexJob job = new ReindexJob();
+        if (!runningJob.compareAndSet(null, job)) {
+            log.info("Elasticsearch: concurrent reindexing attempt");
+            return Optional.empty();
+        }
+        jobs.put(job.getId(), job);
+        try {
+            taskExecutor.execute(() -> reindexAll(job));
+        } catch (RejectedExecutionException e) {
+            job.error(e.getMessage());
+            job.end(Status.FAILED);
+            runningJob.set(null);
+            throw e;
+        }
+        return Optional.of(job);
+    }
+
+    /**
+     * Find a reindex job among the last ones.
+     *
+     * @param id the job id
+     * @return the job
+     */
+    public Optional<ReindexJob> findJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Cancel a reindex job. The pages being indexed are completed, and the next reindex resumes from there.
+     *
+     * @param id the job id
+     * @return the job
+     */
+    public Optional<ReindexJob> cancelJob(String id) {
+        Optional<ReindexJob> job = findJob(id);
+        job.filter(found -> found.getStatus() == Status.RUNNING).ifPresent(ReindexJob::cancel);
+        return job;
+    }
 
-                log.info("Elasticsearch: Successfully performed reindexing");
-            } finally {
-                reindexLock.unlock();
+    private void reindexAll(ReindexJob job) {
+        List<IndexedEntity<?>> entities = Arrays.asList(
+            new IndexedEntity<>(User.class, userRepository::findAllByIdGreaterThanOrderByIdAsc, User::getId,
+                userRepository::countByIdGreaterThan),
+            new IndexedEntity<>(Credential.class, credentialRepository::findAllByIdGreaterThanOrderByIdAsc,
+                Credential::getId, credentialRepository::countByIdGreaterThan));
+
+        Status status = Status.COMPLETED;
+        try (Timer.Context ignored = reindexTimer.time()) {
+            entities.forEach(entity -> job.addTotal(countRemaining(entity)));
+            for (IndexedEntity<?> entity : entities) {
+                if (!reindexForClass(job, entity)) {
+                    status = job.isCancelRequested() ? Status.CANCELLED : Status.FAILED;
+                    break;
+                }
             }
+        } catch (RuntimeException e) {
+            log.error("Elasticsearch: Reindexing failed", e);
+            errorsMeter.mark();
+            job.error(e.getMessage());
+            status = Status.FAILED;
+        } finally {
+            job.end(status);
+            runningJob.set(null);
+        }
+
+        if (status == Status.COMPLETED) {
+            log.info("Elasticsearch: Successfully performed reindexing");
         } else {
-            log.info("Elasticsearch: concurrent reindexing attempt");
+            log.warn("Elasticsearch: Reindexing {}, it will resume from its checkpoints", status);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private <T, ID extends Serializable> void reindexForClass(Class<T> entityClass, JpaRepository<T, ID> jpaRepository,
-                                                              ElasticsearchRepository<T, ID> elasticsearchRepository) {
-        elasticsearchTemplate.deleteIndex(entityClass);
+    /**
+     * Reindex all the rows of an entity, resuming from its checkpoint if a previous reindex was interrupted.
+     *
+     * @param job the job
+     * @param entity the entity
+     * @return true, if every row was indexed
+     */
+    private <T> boolean reindexForClass(ReindexJob job, IndexedEntity<T> entity) {
+        Class<T> entityClass = entity.entityClass;
+        Function<T, Long> idGetter = entity.idGetter;
+        String entityName = entityClass.getSimpleName();
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getPersistentEntityFor(entityClass);
+        String alias = persistentEntity.getIndexName();
+
+        String indexName;
+        long lastId;
+        // A checkpoint on the alias itself was left by a reindex into the concrete index, it cannot be resumed
+        Optional<ReindexCheckpoint> checkpoint = checkpointRepository.findOne(entityName)
+            .filter(found -> !found.getIndexName().equals(alias))
+            .filter(found -> elasticsearchTemplate.indexExists(found.getIndexName()));
+        if (checkpoint.isPresent()) {
+            indexName = checkpoint.get().getIndexName();
+            lastId = checkpoint.get().getLastId();
+            log.info("Elasticsearch: Resuming the indexing of {} into {} after id {}", entityName, indexName, lastId);
+        } else {
+            indexName = createNextIndex(entityClass, alias);
+            lastId = 0;
+            checkpointRepository.save(new ReindexCheckpoint(entityName, indexName, lastId));
+            log.info("Elasticsearch: Indexing {} into {}", entityName, indexName);
+        }
+
+        List<Method> relationshipGetters = getRelationshipGetters(entityClass);
+        CheckpointTracker tracker = new CheckpointTracker(entityName, indexName, lastId);
+        ThreadPoolExecutor executor = newWorkers(entityName);
+        long pageNumber = 0;
         try {
-            elasticsearchTemplate.createIndex(entityClass);
-        } catch (IndexAlreadyExistsException e) {
-            // Do nothing. Index was already concurrently recreated by some other service.
-        }
-        elasticsearchTemplate.putMapping(entityClass);
-        if (jpaRepository.count() > 0) {
-            // if a JHipster entity field is the owner side of a many-to-many relationship, it should be loaded manually
-            List<Method> relationshipGetters = Arrays.stream(entityClass.getDeclaredFields())
-                .filter(field -> field.getType().equals(Set.class))
-                .filter(field -> field.getAnnotation(ManyToMany.class) != null)
-                .filter(field -> field.getAnnotation(ManyToMany.class).mappedBy().isEmpty())
-                .filter(field -> field.getAnnotation(JsonIgnore.class) == null)
-                .map(field -> {
-                    try {
-                        return new PropertyDescriptor(field.getName(), entityClass).getReadMethod();
-                    } catch (IntrospectionException e) {
-                        log.error("Error retrieving getter for class {}, field {}. Field will NOT be indexed",
-                            entityClass.getSimpleName(), field.getName(), e);
-                        return null;
+            while (!tracker.isFailed() && !job.isCancelRequested()) {
+                long after = lastId;
+                List<T> rows = readTransactionTemplate.execute(status -> {
+                    List<T> page = entity.keysetReader.findAfter(after, new PageRequest(0, batchSize));
+                    page.forEach(row -> loadRelationships(row, relationshipGetters));
+                    return page;
+                });
+                if (rows.isEmpty()) {
+                    break;
+                }
+                lastId = idGetter.apply(rows.get(rows.size() - 1));
+                List<SearchDocument> documents = toDocuments(rows, idGetter, indexName);
+                if (documents.size() < rows.size()) {
+                    errorsMeter.mark();
+                    job.error(entityName + " up to id " + lastId + ": unable to serialize "
+                        + (rows.size() - documents.size()) + " rows");
+                    tracker.failed();
+                    break;
+                }
+                long page = pageNumber++;
+                long pageLastId = lastId;
+                executor.execute(() -> {
+                    if (tracker.isFailed()) {
+                        return;
+                    }
+                    Set<DocumentKey> failed = searchIndexWriter.write(documents);
+                    if (failed.isEmpty()) {
+                        documentsMeter.mark(documents.size());
+                        job.indexed(documents.size());
+                        tracker.completed(page, pageLastId);
+                    } else {
+                        log.error("Elasticsearch: Failed to index {} of {} up to id {}", failed.size(), entityName,
+                            pageLastId);
+                        errorsMeter.mark();
+                        job.error(entityName + " up to id " + pageLastId + ": " + failed.size() + " rows failed");
+                        tracker.failed();
                     }
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
-            int size = 100;
-            for (int i = 0; i <= jpaRepository.count() / size; i++) {
-                Pageable page = new PageRequest(i, size);
-                log.info("Indexing page {} of {}, size {}", i, jpaRepository.count() / size, size);
-                Page<T> results = jpaRepository.findAll(page);
-                results.map(result -> {
-                    // if there are any relationships to load, do it now
-                    relationshipGetters.forEach(method -> {
-                        try {
-                            // eagerly load the relationship set
-                            ((Set) method.invoke(result)).size();
-                        } catch (Exception ex) {
-                            log.error(ex.getMessage());
-                        }
-                    });
-                    return result;
                 });
-                elasticsearchRepository.save(results.getContent());
+                log.debug("Elasticsearch: Read page {} of {} up to id {}", page, entityName, lastId);
+                if (rows.size() < batchSize) {
+                    break;
+                }
             }
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tracker.failed();
+            }
+        }
+
+        if (tracker.isFailed() || job.isCancelRequested()) {
+            log.warn("Elasticsearch: Indexing of {} will resume after id {}", entityName, tracker.getCheckpoint());
+            return false;
+        }
+        elasticsearchTemplate.refresh(indexName);
+        swapAlias(alias, indexName);
+        checkpointRepository.delete(entityName);
+        log.info("Elasticsearch: Indexed all rows for {} into {}", entityName, indexName);
+        return true;
+    }
+
+    /**
+     * Serialize a page of rows, with their loaded relationships, into the documents of the index being built.
+     *
+     * @param rows the rows
+     * @param idGetter the id getter
+     * @param indexName the index being built
+     * @return the documents, without the rows which could not be serialized
+     */
+    private <T> List<SearchDocument> toDocuments(List<T> rows, Function<T, Long> idGetter, String indexName) {
+        return rows.stream()
+            .map(row -> searchIndexWriter.document(row, idGetter.apply(row), SCAN_VERSION))
+            .filter(Optional::isPresent)
+            .map(document -> document.get().inIndex(indexName))
+            .collect(Collectors.toList());
+    }
+
+    private long countRemaining(IndexedEntity<?> entity) {
+        long lastId = checkpointRepository.findOne(entity.entityClass.getSimpleName())
+            .map(ReindexCheckpoint::getLastId)
+            .orElse(0L);
+        return entity.counter.applyAsLong(lastId);
+    }
+
+    /**
+     * Create the next versioned index behind an alias, with the settings and the mapping of the entity, by one
+     * request so the index is never used without its mapping. The mapping is read from the {@link Mapping} file of
+     * the entity, the one the repository also puts on the index it creates at startup.
+     *
+     * @param entityClass the entity class
+     * @param alias the alias
+     * @return the name of the new index
+     */
+    private <T> String createNextIndex(Class<T> entityClass, String alias) {
+        Pattern versionPattern = Pattern.compile(Pattern.quote(alias + VERSION_SEPARATOR) + "(\\d+)");
+        String[] versionedIndices = elasticsearchTemplate.getClient().admin().indices()
+            .prepareGetIndex().addIndices(alias + VERSION_SEPARATOR + "*").get().getIndices();
+        int version = Arrays.stream(versionedIndices)
+            .map(versionPattern::matcher)
+            .filter(Matcher::matches)
+            .mapToInt(matcher -> Integer.parseInt(matcher.group(1)))
+            .max()
+            .orElse(0) + 1;
+        String indexName = alias + VERSION_SEPARATOR + version;
+
+        Mapping mapping = entityClass.getAnnotation(Mapping.class);
+        String mappings = mapping != null && StringUtils.isNotBlank(mapping.mappingPath())
+            ? ElasticsearchTemplate.readFileFromClasspath(mapping.mappingPath()) : null;
+        if (StringUtils.isBlank(mappings)) {
+            throw new IllegalStateException("Unable to create " + indexName + ", " + entityClass.getSimpleName()
+                + " has no @Mapping file");
+        }
+
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getPersistentEntityFor(entityClass);
+        CreateIndexRequestBuilder createRequest = elasticsearchTemplate.getClient().admin().indices()
+            .prepareCreate(indexName)
+            .addMapping(persistentEntity.getIndexType(), mappings);
+        Setting setting = entityClass.getAnnotation(Setting.class);
+        String settings = setting != null && StringUtils.isNotBlank(setting.settingPath())
+            ? ElasticsearchTemplate.readFileFromClasspath(setting.settingPath()) : null;
+        if (StringUtils.isNotBlank(settings)) {
+            createRequest.setSettings(settings);
+        } else {
+            createRequest.setSettings(getDefaultSettings(persistentEntity));
+        }
+        createRequest.get();
+        return indexName;
+    }
+
+    /**
+     * The settings of the {@link Document} annotation, as the Elasticsearch template creates the index of an entity
+     * without {@link Setting}.
+     *
+     * @param persistentEntity the persistent entity
+     * @return the settings
+     */
+    private Map<String, String> getDefaultSettings(ElasticsearchPersistentEntity<?> persistentEntity) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("index.number_of_shards", String.valueOf(persistentEntity.getShards()));
+        settings.put("index.number_of_replicas", String.valueOf(persistentEntity.getReplicas()));
+        settings.put("index.refresh_interval", persistentEntity.getRefreshInterval());
+        settings.put("index.store.type", persistentEntity.getIndexStoreType());
+        return settings;
+    }
+
+    /**
+     * Atomically point an alias to a new index, then drop the indices it pointed to.
+     * <p>
+     * The first reindex migrates from a concrete index named like the alias, which cannot be swapped atomically: the
+     * aliases API of this Elasticsearch version cannot remove an index, so it is deleted just before the alias is
+     * added. In between, searches and lookups through the alias fail, and a document written through it creates a
+     * concrete index again, which is deleted and the alias retried. The documents written meanwhile are not lost, the
+     * relay also writes them into the new index until the reindex checkpoint is deleted, after the swap.
+     *
+     * @param alias the alias
+     * @param indexName the new index name
+     */
+    private void swapAlias(String alias, String indexName) {
+        Set<String> previousIndices = getAliasedIndices(alias);
+        previousIndices.remove(indexName);
+        for (int attempt = 1; ; attempt++) {
+            boolean concreteIndex = previousIndices.isEmpty() && elasticsearchTemplate.indexExists(alias);
+            if (concreteIndex) {
+                log.warn("Elasticsearch: Replacing the index {} by an alias to {}", alias, indexName);
+                elasticsearchTemplate.deleteIndex(alias);
+            }
+
+            IndicesAliasesRequestBuilder aliasesRequest = elasticsearchTemplate.getClient().admin().indices()
+                .prepareAliases()
+                .addAlias(indexName, alias);
+            previousIndices.forEach(previousIndex -> aliasesRequest.removeAlias(previousIndex, alias));
+            try {
+                aliasesRequest.get();
+                break;
+            } catch (ElasticsearchException e) {
+                // The concrete index was created again by a write through the alias
+                if (!concreteIndex || attempt >= MAX_ALIAS_ATTEMPTS
+                    || !(ExceptionsHelper.unwrapCause(e) instanceof InvalidAliasNameException)) {
+                    throw e;
+                }
+                log.warn("Elasticsearch: The index {} was created again, retrying the alias", alias);
+            }
+        }
+
+        previousIndices.forEach(elasticsearchTemplate::deleteIndex);
+    }
+
+    private Set<String> getAliasedIndices(String alias) {
+        Set<String> indices = new HashSet<>();
+        ImmutableOpenMap<String, List<AliasMetaData>> aliases = elasticsearchTemplate.getClient().admin().indices()
+            .prepareGetAliases(alias).get().getAliases();
+        aliases.forEach(entry -> {
+            if (!entry.value.isEmpty()) {
+                indices.add(entry.key);
+            }
+        });
+        return indices;
+    }
+
+    private <T> List<Method> getRelationshipGetters(Class<T> entityClass) {
+        // if a JHipster entity field is the owner side of a many-to-many relationship, it should be loaded manually
+        return Arrays.stream(entityClass.getDeclaredFields())
+            .filter(field -> field.getType().equals(Set.class))
+            .filter(field -> field.getAnnotation(ManyToMany.class) != null)
+            .filter(field -> field.getAnnotation(ManyToMany.class).mappedBy().isEmpty())
+            .filter(field -> field.getAnnotation(JsonIgnore.class) == null)
+            .map(field -> {
+                try {
+                    return new PropertyDescriptor(field.getName(), entityClass).getReadMethod();
+                } catch (IntrospectionException e) {
+                    log.error("Error retrieving getter for class {}, field {}. Field will NOT be indexed",
+                        entityClass.getSimpleName(), field.getName(), e);
+                    return null;
+                }
+            })
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void loadRelationships(Object row, List<Method> relationshipGetters) {
+        relationshipGetters.forEach(method -> {
+            try {
+                // eagerly load the relationship set
+                ((Set) method.invoke(row)).size();
+            } catch (Exception ex) {
+                log.error(ex.getMessage());
+            }
+        });
+    }
+
+    private ThreadPoolExecutor newWorkers(String entityName) {
+        AtomicInteger threadCount = new AtomicInteger();
+        // A bounded queue: the reader waits for the workers instead of loading the whole table in memory
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(workers * 2), runnable -> new Thread(runnable,
+                "assistant-gateway-Reindex-" + entityName + "-" + threadCount.incrementAndGet()),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Reads the rows of an entity after an id, ordered by id.
+     *
+     * @param <T> the entity type
+     */
+    @FunctionalInterface
+    private interface KeysetReader<T> {
+
+        List<T> findAfter(Long id, Pageable pageable);
+    }
+
+    /**
+     * An entity indexed by the reindex.
+     *
+     * @param <T> the entity type
+     */
+    private static final class IndexedEntity<T> {
+
+        private final Class<T> entityClass;
+
+        private final KeysetReader<T> keysetReader;
+
+        private final Function<T, Long> idGetter;
+
+        private final ToLongFunction<Long> counter;
+
+        private IndexedEntity(Class<T> entityClass, KeysetReader<T> keysetReader, Function<T, Long> idGetter,
+                              ToLongFunction<Long> counter) {
+            this.entityClass = entityClass;
+            this.keysetReader = keysetReader;
+            this.idGetter = idGetter;
+            this.counter = counter;
+        }
+    }
+
+    /**
+     * Tracks the pages indexed out of order by the workers, and saves as checkpoint the last id of the highest page
+     * below which every page has been indexed.
+     */
+    private final class CheckpointTracker {
+
+        private final String entityName;
+
+        private final String indexName;
+
+        private final Map<Long, Long> completedPages = new TreeMap<>();
+
+        private long nextPage;
+
+        private long checkpoint;
+
+        private volatile boolean failed;
+
+        private CheckpointTracker(String entityName, String indexName, long checkpoint) {
+            this.entityName = entityName;
+            this.indexName = indexName;
+            this.checkpoint = checkpoint;
+        }
+
+        private synchronized void completed(long page, long pageLastId) {
+            completedPages.put(page, pageLastId);
+            long advancedTo = checkpoint;
+            while (completedPages.containsKey(nextPage)) {
+                advancedTo = completedPages.remove(nextPage++);
+            }
+            if (advancedTo != checkpoint && !failed) {
+                checkpoint = advancedTo;
+                checkpointRepository.save(new ReindexCheckpoint(entityName, indexName, checkpoint));
+            }
+        }
+
+        private void failed() {
+            failed = true;
+        }
+
+        private boolean isFailed() {
+            return failed;
+        }
+
+        private synchronized long getCheckpoint() {
+            return checkpoint;
         }
-        log.info("Elasticsearch: Indexed all rows for {}", entityClass.getSimpleName());
     }
 }
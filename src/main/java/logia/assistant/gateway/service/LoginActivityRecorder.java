@@ -0,0 +1,161 @@
+package logia.assistant.gateway.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import logia.assistant.gateway.config.ApplicationProperties;
+import logia.assistant.gateway.domain.Credential;
+
+/**
+ * Write-behind recorder of the last login dates.
+ * <p>
+ * Saving the whole credential on every login also re-indexes it in Elasticsearch and evicts it from the
+ * {@code credentialsByLogin} cache, only to change one column. Logins are instead coalesced in memory, keeping the
+ * latest date per credential, and flushed on a schedule by a single JDBC batch that updates
+ * {@code credential.last_login_date} only. The search index and the login cache are left untouched, so they may show
+ * an older last login date until the credential is saved for another reason. The written credentials are evicted from
+ * the Hibernate second level cache, which the JDBC batch bypasses, so that a later save does not write back the
+ * cached last login date.
+ *
+ * @author Dai Mai
+ */
+@Service
+public class LoginActivityRecorder {
+
+    /** The update, which never moves a last login date backwards when several nodes flush. */
+    private static final String UPDATE_LAST_LOGIN_DATE = "UPDATE credential SET last_login_date = ? "
+        + "WHERE id = ? AND (last_login_date IS NULL OR last_login_date < ?)";
+
+    /** The log. */
+    private final Logger log = LoggerFactory.getLogger(LoginActivityRecorder.class);
+
+    /** The pending last login dates, by credential id. */
+    private final ConcurrentMap<Long, Instant> pending = new ConcurrentHashMap<>();
+
+    /** The jdbc template. */
+    private final JdbcTemplate jdbcTemplate;
+
+    /** The entity manager factory. */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /** The batch size. */
+    private final int batchSize;
+
+    /**
+     * Instantiates a new login activity recorder.
+     *
+     * @param jdbcTemplate the jdbc template
+     * @param entityManagerFactory the entity manager factory
+     * @param applicationProperties the application properties
+     */
+    public LoginActivityRecorder(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+        ApplicationProperties applicationProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.batchSize = Math.max(1, applicationProperties.getLoginActivity().getBatchSize());
+    }
+
+    /**
+     * Record a login, to be written with the next flush.
+     *
+     * @param credentialId the credential id
+     * @param loginDate the login date
+     */
+    public void recordLogin(Long credentialId, Instant loginDate) {
+        if (credentialId == null) {
+            return;
+        }
+        pending.merge(credentialId, loginDate, LoginActivityRecorder::latest);
+    }
+
+    /**
+     * Gets the number of credentials waiting for the next flush.
+     *
+     * @return the pending count
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Write the pending last login dates.
+     */
+    @Scheduled(fixedDelayString = "${application.login-activity.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        for (Long credentialId : pending.keySet()) {
+            Instant loginDate = pending.remove(credentialId);
+            if (loginDate != null) {
+                Timestamp timestamp = Timestamp.from(loginDate);
+                batch.add(new Object[] { timestamp, credentialId, timestamp });
+            }
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Flush the pending last login dates before shutdown.
+     */
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * Write a batch, putting it back in the pending dates if the database is not available, then evict the written
+     * credentials from the second level cache.
+     *
+     * @param batch the batch
+     */
+    private void write(List<Object[]> batch) {
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN_DATE, batch);
+            log.debug("Wrote {} last login dates", batch.size());
+        } catch (DataAccessException e) {
+            log.warn("Unable to write {} last login dates, retrying on next flush: {}", batch.size(), e.getMessage());
+            for (Object[] row : batch) {
+                pending.merge((Long) row[1], ((Timestamp) row[0]).toInstant(), LoginActivityRecorder::latest);
+            }
+            return;
+        }
+        Cache cache = entityManagerFactory.getCache();
+        for (Object[] row : batch) {
+            cache.evict(Credential.class, row[1]);
+        }
+    }
+
+    /**
+     * The latest of two dates.
+     *
+     * @param first the first
+     * @param second the second
+     * @return the latest
+     */
+    private static Instant latest(Instant first, Instant second) {
+        return first.isAfter(second) ? first : second;
+    }
+}
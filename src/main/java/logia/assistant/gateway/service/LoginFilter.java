@@ -0,0 +1,531 @@
+package logia.assistant.gateway.service;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.Message;
+import com.hazelcast.topic.ReliableMessageListener;
+
+import logia.assistant.gateway.config.ApplicationProperties;
+import logia.assistant.gateway.domain.CachedCredential;
+import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.repository.CredentialRepository;
+import logia.assistant.gateway.service.util.CountingBloomFilter;
+
+/**
+ * Rejects the lookups of unknown logins without querying the database.
+ * <p>
+ * The {@link CredentialRepository#CREDENTIALS_BY_LOGIN_CACHE} cache only holds the existing logins, so each attempt
+ * with an unknown login, as sent by credential stuffing, used to query the database. Each node now keeps a
+ * {@link CountingBloomFilter} of all the logins, loaded from the database at startup, which rejects most unknown
+ * logins at once. The few it lets through are remembered for a short while in the {@link #MISSING_LOGINS_MAP} map,
+ * shared by the cluster, once the database did not find them. A login found missing is only remembered if no
+ * credential was committed with it meanwhile: the commit of a credential marks its login as found, and a lookup never
+ * overwrites that mark.
+ * <p>
+ * The filter follows the credentials written through Hibernate: a login is added as soon as its credential is
+ * inserted or renamed, before the commit, and removed once the deletion of its credential committed. Each change is
+ * broadcast to the other nodes once committed, on the {@link #CHANGES_TOPIC} reliable topic, so on the other nodes a
+ * new login is rejected until its change arrives, usually within milliseconds. A node which missed some changes,
+ * because it fell too far behind the topic, rebuilds its filter from the database; every node also rebuilds it
+ * periodically, repairing the changes made out of Hibernate. Otherwise the filter may only let some deleted or
+ * unknown logins reach the database.
+ *
+ * @author Dai Mai
+ */
+@Service
+public class LoginFilter {
+
+    /** The map of the logins recently found missing in the database. */
+    public static final String MISSING_LOGINS_MAP = "missingLogins";
+
+    /** The topic of the changes of the logins, applied by the other nodes. */
+    private static final String CHANGES_TOPIC = "loginFilterChanges";
+
+    /** The number of logins read from the database at once while loading. */
+    private static final int LOAD_FETCH_SIZE = 1000;
+
+    /** The delay between two checks of whether the filter must be rebuilt. */
+    private static final long REBUILD_CHECK_MS = 10000;
+
+    /** The log. */
+    private final Logger log = LoggerFactory.getLogger(LoginFilter.class);
+
+    /** The credential repository. */
+    private final CredentialRepository credentialRepository;
+
+    /** The jdbc template. */
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Whether the unknown logins are rejected. */
+    private final boolean enabled;
+
+    /** The expected number of logins, sizing the filter. */
+    private final long expectedLogins;
+
+    /** The false positive rate of the filter. */
+    private final double falsePositiveRate;
+
+    /** The delay between two periodic rebuilds of the filter. */
+    private final long rebuildIntervalMs;
+
+    /** The logins of the credentials. */
+    private volatile CountingBloomFilter logins;
+
+    /** The filter being rebuilt, also receiving the added logins until it replaces the current one. */
+    private volatile CountingBloomFilter rebuilding;
+
+    /** Whether some changes published by the other nodes were missed. */
+    private volatile boolean changesLost;
+
+    /** The time of the last rebuild. */
+    private volatile long rebuiltAt;
+
+    /** The logins recently found missing. */
+    private final IMap<String, Boolean> missingLogins;
+
+    /** The changes of the logins. */
+    private final ITopic<LoginChange> changes;
+
+    /** The lookups rejected by the filter. */
+    private final Meter rejectedByFilter;
+
+    /** The lookups rejected by the missing logins. */
+    private final Meter rejectedByMissingLogins;
+
+    /** Whether the logins were loaded, the lookups are not rejected before. */
+    private volatile boolean loaded;
+
+    /**
+     * Instantiates a new login filter.
+     *
+     * @param credentialRepository the credential repository
+     * @param jdbcTemplate the jdbc template
+     * @param hazelcastInstance the hazelcast instance
+     * @param entityManagerFactory the entity manager factory
+     * @param applicationProperties the application properties
+     * @param metricRegistry the metric registry
+     */
+    public LoginFilter(CredentialRepository credentialRepository, JdbcTemplate jdbcTemplate,
+        HazelcastInstance hazelcastInstance, EntityManagerFactory entityManagerFactory,
+        ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        ApplicationProperties.LoginFilter properties = applicationProperties.getLoginFilter();
+        this.credentialRepository = credentialRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = properties.isEnabled();
+        this.expectedLogins = properties.getExpectedLogins();
+        this.falsePositiveRate = properties.getFalsePositiveRate();
+        this.rebuildIntervalMs = Math.max(REBUILD_CHECK_MS, properties.getRebuildIntervalMs());
+        this.logins = new CountingBloomFilter(expectedLogins, falsePositiveRate);
+        this.missingLogins = hazelcastInstance.getMap(MISSING_LOGINS_MAP);
+        this.changes = hazelcastInstance.getReliableTopic(CHANGES_TOPIC);
+        this.rejectedByFilter = metricRegistry.meter(MetricRegistry.name(LoginFilter.class, "rejected", "filter"));
+        this.rejectedByMissingLogins = metricRegistry
+            .meter(MetricRegistry.name(LoginFilter.class, "rejected", "missing"));
+        if (enabled) {
+            this.changes.addMessageListener(new LoginChangeListener());
+            CredentialLoginListener listener = new CredentialLoginListener();
+            EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.POST_INSERT, listener);
+            registry.appendListeners(EventType.POST_UPDATE, listener);
+            registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        }
+    }
+
+    /**
+     * Load the logins of all the credentials, once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuild the filter from the database if some changes were missed, or periodically.
+     */
+    @Scheduled(fixedDelay = REBUILD_CHECK_MS)
+    @Transactional(readOnly = true)
+    public void rebuildIfStale() {
+        if (enabled && loaded && (changesLost || System.currentTimeMillis() - rebuiltAt >= rebuildIntervalMs)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Read the logins of all the credentials into a new filter, then replace the current one. The logins added
+     * meanwhile are also added to the new filter, the logins removed meanwhile may stay in it.
+     */
+    synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        boolean lost = changesLost;
+        changesLost = false;
+        CountingBloomFilter rebuilt = new CountingBloomFilter(expectedLogins, falsePositiveRate);
+        rebuilding = rebuilt;
+        long[] count = new long[1];
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("SELECT login FROM credential");
+                statement.setFetchSize(LOAD_FETCH_SIZE);
+                return statement;
+            }, resultSet -> {
+                rebuilt.add(resultSet.getString(1));
+                count[0]++;
+            });
+            logins = rebuilt;
+        } catch (RuntimeException e) {
+            changesLost |= lost;
+            throw e;
+        } finally {
+            rebuilding = null;
+        }
+        loaded = true;
+        rebuiltAt = System.currentTimeMillis();
+        log.info("Loaded {} logins in the login filter of {} counters in {} ms{}", count[0], rebuilt.size(),
+            rebuiltAt - start, lost ? ", after missing some changes" : "");
+    }
+
+    /**
+     * Tell whether a login might exist, regardless of its case, without querying the database.
+     *
+     * @param login the login
+     * @return false if the login surely does not exist
+     */
+    public boolean mightExist(String login) {
+        if (!enabled || !loaded || login == null) {
+            return true;
+        }
+        login = Credential.normalizeLogin(login);
+        if (!logins.mightContain(login)) {
+            rejectedByFilter.mark();
+            return false;
+        }
+        if (Boolean.TRUE.equals(missingLogins.get(login))) {
+            rejectedByMissingLogins.mark();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find the credential of a login regardless of its case, with its user and authorities, unless the login surely
+     * does not exist. The credential is read from the database, for the callers which modify it.
+     *
+     * @param login the login
+     * @return the credential
+     */
+    public Optional<Credential> findOneWithUserByLogin(String login) {
+        return find(login, credentialRepository::findOneWithUserByLogin);
+    }
+
+    /**
+     * Find the cached projection of the credential of a login regardless of its case, unless the login surely does
+     * not exist. This is the lookup of the authentication.
+     *
+     * @param login the login
+     * @return the cached credential
+     */
+    public Optional<CachedCredential> findCachedByLogin(String login) {
+        return find(login, credentialRepository::findCachedByLogin);
+    }
+
+    /**
+     * Find a login by the single lookup path of the logins: normalized, checked by the filter then the missing logins,
+     * and remembered as missing when not found, unless a credential was committed with it since.
+     *
+     * @param <T> the type of the result
+     * @param login the login
+     * @param finder the finder, of a normalized login
+     * @return the result
+     */
+    private <T> Optional<T> find(String login, Function<String, Optional<T>> finder) {
+        String normalizedLogin = Credential.normalizeLogin(login);
+        if (!mightExist(normalizedLogin)) {
+            return Optional.empty();
+        }
+        Optional<T> result = finder.apply(normalizedLogin);
+        if (enabled && normalizedLogin != null && !result.isPresent()) {
+            // A credential committed after the lookup marked its login as found, which must not be overwritten
+            missingLogins.putIfAbsent(normalizedLogin, Boolean.TRUE);
+        }
+        return result;
+    }
+
+    /**
+     * Add the login of a credential created or renamed on this node, and forget that it was missing. Once committed,
+     * the login is marked as found, so a lookup of another transaction which missed it cannot remember it as missing,
+     * and the change is published to the other nodes.
+     *
+     * @param login the login
+     */
+    private void added(String login) {
+        LoginChange change = new LoginChange(login, true);
+        apply(change);
+        missingLogins.delete(login);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCommit() {
+                    committed(change);
+                }
+            });
+        } else {
+            committed(change);
+        }
+    }
+
+    /**
+     * Mark the login of a committed credential as found, and publish it.
+     *
+     * @param change the change
+     */
+    private void committed(LoginChange change) {
+        missingLogins.set(change.getLogin(), Boolean.FALSE);
+        // A rebuild started before the commit may have read the logins without this one
+        CountingBloomFilter rebuilt = rebuilding;
+        if (rebuilt != null) {
+            rebuilt.add(change.getLogin());
+        }
+        changes.publish(change);
+    }
+
+    /**
+     * Remove the login of a credential deleted on this node, once the deletion committed.
+     *
+     * @param login the login
+     */
+    private void removed(String login) {
+        LoginChange change = new LoginChange(login, false);
+        apply(change);
+        changes.publish(change);
+    }
+
+    /**
+     * Apply a change of a login to the filter of this node.
+     *
+     * @param change the change
+     */
+    private void apply(LoginChange change) {
+        if (change.isAdded()) {
+            // Read before the current filter, which a rebuild replaces before clearing it
+            CountingBloomFilter rebuilt = rebuilding;
+            logins.add(change.getLogin());
+            if (rebuilt != null) {
+                rebuilt.add(change.getLogin());
+            }
+        }
+        else if (loaded) {
+            // While loading, the login may have been read or not, removing it could forget another one
+            logins.remove(change.getLogin());
+        }
+    }
+
+    /**
+     * Listener of the changes published by the other nodes, noting when some were missed.
+     */
+    private final class LoginChangeListener implements ReliableMessageListener<LoginChange> {
+
+        /** The sequence of the last received change, -1 before the first one. */
+        private long lastSequence = -1;
+
+        /* (non-Javadoc)
+         * @see com.hazelcast.core.MessageListener#onMessage(com.hazelcast.core.Message)
+         */
+        @Override
+        public void onMessage(Message<LoginChange> message) {
+            Member publisher = message.getPublishingMember();
+            if (publisher == null || !publisher.localMember()) {
+                apply(message.getMessageObject());
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see com.hazelcast.topic.ReliableMessageListener#retrieveInitialSequence()
+         */
+        @Override
+        public long retrieveInitialSequence() {
+            // The changes published before this node started are in the database it loads
+            return -1;
+        }
+
+        /* (non-Javadoc)
+         * @see com.hazelcast.topic.ReliableMessageListener#storeSequence(long)
+         */
+        @Override
+        public void storeSequence(long sequence) {
+            if (lastSequence >= 0 && sequence > lastSequence + 1) {
+                log.warn("Missed {} login changes, the login filter will be rebuilt", sequence - lastSequence - 1);
+                changesLost = true;
+            }
+            lastSequence = sequence;
+        }
+
+        /* (non-Javadoc)
+         * @see com.hazelcast.topic.ReliableMessageListener#isLossTolerant()
+         */
+        @Override
+        public boolean isLossTolerant() {
+            // Skip to the oldest change still kept, the missed ones are repaired by a rebuild
+            return true;
+        }
+
+        /* (non-Javadoc)
+         * @see com.hazelcast.topic.ReliableMessageListener#isTerminal(java.lang.Throwable)
+         */
+        @Override
+        public boolean isTerminal(Throwable failure) {
+            log.warn("Cannot apply a login change, the login filter will be rebuilt: {}", failure.getMessage());
+            changesLost = true;
+            return false;
+        }
+    }
+
+    /**
+     * Hibernate listener of the writes of the credentials, keeping the filter in sync.
+     */
+    private final class CredentialLoginListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostCommitDeleteEventListener {
+
+        /** The Constant serialVersionUID. */
+        private static final long serialVersionUID = 1L;
+
+        /* (non-Javadoc)
+         * @see org.hibernate.event.spi.PostInsertEventListener#onPostInsert(org.hibernate.event.spi.PostInsertEvent)
+         */
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof Credential) {
+                String login = ((Credential) event.getEntity()).getLogin();
+                if (login != null) {
+                    added(login);
+                }
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see org.hibernate.event.spi.PostUpdateEventListener#onPostUpdate(org.hibernate.event.spi.PostUpdateEvent)
+         */
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (!(event.getEntity() instanceof Credential)) {
+                return;
+            }
+            String login = ((Credential) event.getEntity()).getLogin();
+            int index = Arrays.asList(event.getPersister().getPropertyNames()).indexOf("login");
+            if (login != null
+                && (event.getOldState() == null || !Objects.equals(event.getOldState()[index], login))) {
+                added(login);
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see org.hibernate.event.spi.PostDeleteEventListener#onPostDelete(org.hibernate.event.spi.PostDeleteEvent)
+         */
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Credential) {
+                String login = ((Credential) event.getEntity()).getLogin();
+                if (login != null) {
+                    removed(login);
+                }
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see org.hibernate.event.spi.PostCommitDeleteEventListener#onPostDeleteCommitFailed(org.hibernate.event.spi.PostDeleteEvent)
+         */
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+            // The credential still exists, its login stays in the filter
+        }
+
+        /* (non-Javadoc)
+         * @see org.hibernate.event.spi.PostActionEventListener#requiresPostCommitHanding(org.hibernate.persister.entity.EntityPersister)
+         */
+        @Override
+        public boolean requiresPostCommitHanding(EntityPersister persister) {
+            return Credential.class.isAssignableFrom(persister.getMappedClass());
+        }
+    }
+
+    /**
+     * A change of a login, broadcast to the other nodes.
+     */
+    public static final class LoginChange implements Serializable {
+
+        /** The Constant serialVersionUID. */
+        private static final long serialVersionUID = 1L;
+
+        /** The login. */
+        private final String login;
+
+        /** Whether the login was added, or removed. */
+        private final boolean added;
+
+        /**
+         * Instantiates a new login change.
+         *
+         * @param login the login
+         * @param added whether the login was added, or removed
+         */
+        public LoginChange(String login, boolean added) {
+            this.login = login;
+            this.added = added;
+        }
+
+        /**
+         * Gets the login.
+         *
+         * @return the login
+         */
+        public String getLogin() {
+            return login;
+        }
+
+        /**
+         * Checks if the login was added.
+         *
+         * @return true, if added
+         */
+        public boolean isAdded() {
+            return added;
+        }
+    }
+}
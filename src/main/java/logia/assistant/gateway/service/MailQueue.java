@@ -0,0 +1,162 @@
+package logia.assistant.gateway.service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import logia.assistant.gateway.config.ApplicationProperties;
+import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.repository.CredentialRepository;
+import logia.assistant.gateway.repository.MailOutboxRepository;
+import logia.assistant.gateway.repository.MailOutboxRepository.PendingEmail;
+
+/**
+ * Queue of the emails of the bulk operations, sent at a bounded rate.
+ * <p>
+ * Sending one email per created user straight to {@link MailService} would flood the shared async executor, and the
+ * SMTP server, with thousands of tasks at once. The credentials to email are instead queued in the mail outbox table,
+ * in the same transaction as the credentials, and drained on a schedule by batches: each batch is claimed, loads its
+ * credentials by one query, then sends them one after the other on the scheduling thread. The queued emails survive a
+ * restart of the nodes, and an email is deleted only once the mail server accepted it, so the emails which failed,
+ * or of a node which died while draining, are sent again when their claim expires.
+ *
+ * @author Dai Mai
+ */
+@Service
+public class MailQueue {
+
+    /** The log. */
+    private final Logger log = LoggerFactory.getLogger(MailQueue.class);
+
+    /** The mail outbox repository, holding the emails waiting to be sent. */
+    private final MailOutboxRepository mailOutboxRepository;
+
+    /** The credential repository. */
+    private final CredentialRepository credentialRepository;
+
+    /** The mail service. */
+    private final MailService mailService;
+
+    /** The read transaction template, loading the credentials. */
+    private final TransactionTemplate readTransactionTemplate;
+
+    /** The batch size. */
+    private final int batchSize;
+
+    /** The duration of the claim of a batch, after which its unsent emails are retried. */
+    private final long claimMs;
+
+    /** The emails sent. */
+    private final Meter sent;
+
+    /** The emails which could not be sent, retried once their claim expires. */
+    private final Meter failures;
+
+    /** The emails waiting, as of the last drain. */
+    private volatile long pendingCount;
+
+    /**
+     * Instantiates a new mail queue.
+     *
+     * @param mailOutboxRepository the mail outbox repository
+     * @param credentialRepository the credential repository
+     * @param mailService the mail service
+     * @param transactionManager the transaction manager
+     * @param applicationProperties the application properties
+     * @param metricRegistry the metric registry
+     */
+    public MailQueue(MailOutboxRepository mailOutboxRepository, CredentialRepository credentialRepository,
+        MailService mailService, PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        ApplicationProperties.MailQueue properties = applicationProperties.getMailQueue();
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.credentialRepository = credentialRepository;
+        this.mailService = mailService;
+        this.readTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readTransactionTemplate.setReadOnly(true);
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.claimMs = Math.max(1, properties.getClaimMs());
+        this.sent = metricRegistry.meter(MetricRegistry.name(MailQueue.class, "sent"));
+        this.failures = metricRegistry.meter(MetricRegistry.name(MailQueue.class, "failures"));
+        metricRegistry.register(MetricRegistry.name(MailQueue.class, "pending"),
+            (Gauge<Long>) () -> pendingCount);
+    }
+
+    /**
+     * Queue the creation emails of credentials, in the current transaction: they are sent only if it commits.
+     *
+     * @param credentialIds the credential ids
+     */
+    public void enqueueCreationEmails(Collection<Long> credentialIds) {
+        mailOutboxRepository.appendAll(credentialIds);
+    }
+
+    /**
+     * Gets the number of emails waiting in the queue.
+     *
+     * @return the pending count
+     */
+    public long getPendingCount() {
+        return mailOutboxRepository.count();
+    }
+
+    /**
+     * Send a batch of the queued emails.
+     */
+    @Scheduled(fixedDelayString = "${application.mail-queue.flush-interval-ms:1000}")
+    public void drain() {
+        Instant now = Instant.now();
+        List<PendingEmail> emails = mailOutboxRepository.claim(mailOutboxRepository.findReady(now, batchSize),
+            now.plusMillis(claimMs));
+        if (emails.isEmpty()) {
+            pendingCount = mailOutboxRepository.count();
+            return;
+        }
+        List<Long> credentialIds = emails.stream().map(PendingEmail::getCredentialId).distinct()
+            .collect(Collectors.toList());
+        Map<Long, Credential> credentials = readTransactionTemplate
+            .execute(status -> credentialRepository.findAllWithUserByIdIn(credentialIds)).stream()
+            .collect(Collectors.toMap(Credential::getId, Function.identity()));
+        List<Long> done = emails.stream()
+            // The credentials deleted since they were queued have no email to send
+            .filter(email -> !credentials.containsKey(email.getCredentialId())
+                || send(credentials.get(email.getCredentialId())))
+            .map(PendingEmail::getId)
+            .collect(Collectors.toList());
+        mailOutboxRepository.delete(done);
+        pendingCount = mailOutboxRepository.count();
+        log.debug("Sent {} queued creation emails, {} still queued", done.size(), pendingCount);
+    }
+
+    /**
+     * Send the creation email of a credential, waiting for the mail server.
+     *
+     * @param credential the credential
+     * @return true, if the email was sent
+     */
+    private boolean send(Credential credential) {
+        try {
+            mailService.sendCreationEmailNow(credential);
+            sent.mark();
+            return true;
+        } catch (RuntimeException e) {
+            failures.mark();
+            log.warn("Cannot send creation email to {}, will retry: {}", credential.getLogin(), e.getMessage());
+            return false;
+        }
+    }
+}
@@ -2,12 +2,15 @@ package logia.assistant.gateway.service;
 
 import java.util.Locale;
 
+import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 
 import org.apache.commons.lang3.CharEncoding;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
@@ -24,7 +27,8 @@ import logia.assistant.gateway.domain.User;
 /**
  * Service for sending emails.
  * <p>
- * We use the @Async annotation to send emails asynchronously.
+ * We use the @Async annotation to send emails asynchronously. The queued emails are sent by
+ * {@link #sendCreationEmailNow(Credential)} instead, which fails when the email is not sent.
  *
  * @author Dai Mai
  */
@@ -78,6 +82,31 @@ public class MailService {
     @Async
     public void sendEmail(String to, String subject, String content, boolean isMultipart,
             boolean isHtml) {
+        try {
+            deliverEmail(to, subject, content, isMultipart, isHtml);
+        }
+        catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.warn("Email could not be sent to user '{}'", to, e);
+            }
+            else {
+                log.warn("Email could not be sent to user '{}': {}", to, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Deliver an email in the calling thread.
+     *
+     * @param to the to
+     * @param subject the subject
+     * @param content the content
+     * @param isMultipart the is multipart
+     * @param isHtml the is html
+     * @throws MailException if the email could not be sent
+     */
+    private void deliverEmail(String to, String subject, String content, boolean isMultipart,
+            boolean isHtml) {
         log.debug(
                 "Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
                 isMultipart, isHtml, to, subject, content);
@@ -91,17 +120,12 @@ public class MailService {
             message.setFrom(jHipsterProperties.getMail().getFrom());
             message.setSubject(subject);
             message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            log.debug("Sent email to User '{}'", to);
         }
-        catch (Exception e) {
-            if (log.isDebugEnabled()) {
-                log.warn("Email could not be sent to user '{}'", to, e);
-            }
-            else {
-                log.warn("Email could not be sent to user '{}': {}", to, e.getMessage());
-            }
+        catch (MessagingException e) {
+            throw new MailPreparationException("Email to '" + to + "' could not be prepared", e);
         }
+        javaMailSender.send(mimeMessage);
+        log.debug("Sent email to User '{}'", to);
     }
 
     /**
@@ -117,15 +141,28 @@ public class MailService {
     public void sendEmailFromTemplate(String language, String email, String templateName,
             String titleKey, ImmutableMap<String, Object> templateArgs) {
         Locale locale = Locale.forLanguageTag(language);
-        Context context = new Context(locale);
-        context.setVariables(templateArgs);
-        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
-        String content = templateEngine.process(templateName, context);
+        String content = renderTemplate(locale, templateName, templateArgs);
         String subject = messageSource.getMessage(titleKey, null, locale);
         sendEmail(email, subject, content, false, true);
 
     }
 
+    /**
+     * Render an email template.
+     *
+     * @param locale the locale
+     * @param templateName the template name
+     * @param templateArgs the template args
+     * @return the content
+     */
+    private String renderTemplate(Locale locale, String templateName,
+            ImmutableMap<String, Object> templateArgs) {
+        Context context = new Context(locale);
+        context.setVariables(templateArgs);
+        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
+        return templateEngine.process(templateName, context);
+    }
+
     /**
      * Send activation email.
      *
@@ -152,10 +189,32 @@ public class MailService {
     public void sendCreationEmail(Credential credential) {
         User user = credential.getUser();
         log.debug("Sending creation email to '{}'", credential.getLogin());
-        ImmutableMap<String, Object> templateArgs = ImmutableMap.<String, Object> builder()
-                .put("user", user).put("resetKey", credential.getResetKey()).build();
         sendEmailFromTemplate(user.getLangKey(), credential.getLogin(), "creationEmail",
-                "email.activation.title", templateArgs);
+                "email.activation.title", creationEmailArgs(credential));
+    }
+
+    /**
+     * Send the creation email in the calling thread.
+     *
+     * @param credential the credential
+     * @throws MailException if the email could not be sent
+     */
+    public void sendCreationEmailNow(Credential credential) {
+        Locale locale = Locale.forLanguageTag(credential.getUser().getLangKey());
+        log.debug("Sending creation email to '{}'", credential.getLogin());
+        deliverEmail(credential.getLogin(), messageSource.getMessage("email.activation.title", null, locale),
+                renderTemplate(locale, "creationEmail", creationEmailArgs(credential)), false, true);
+    }
+
+    /**
+     * The arguments of the creation email template.
+     *
+     * @param credential the credential
+     * @return the template args
+     */
+    private static ImmutableMap<String, Object> creationEmailArgs(Credential credential) {
+        return ImmutableMap.<String, Object> builder().put("user", credential.getUser())
+                .put("resetKey", credential.getResetKey()).build();
     }
 
     /**
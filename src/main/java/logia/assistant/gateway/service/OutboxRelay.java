@@ -0,0 +1,591 @@
+package logia.assistant.gateway.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import logia.assistant.gateway.config.ApplicationProperties;
+import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.repository.CredentialRepository;
+import logia.assistant.gateway.repository.OutboxEventRepository;
+import logia.assistant.gateway.repository.OutboxEventRepository.EventType;
+import logia.assistant.gateway.repository.OutboxEventRepository.OutboxEvent;
+import logia.assistant.gateway.repository.ReindexCheckpointRepository;
+import logia.assistant.gateway.repository.ReindexCheckpointRepository.ReindexCheckpoint;
+import logia.assistant.gateway.repository.UserRepository;
+import logia.assistant.gateway.service.SearchIndexWriter.DocumentKey;
+import logia.assistant.gateway.service.SearchIndexWriter.SearchDocument;
+
+/**
+ * Transactional outbox of the entity changes, relayed to Elasticsearch and the caches.
+ * <p>
+ * The services publish each change as an outbox event written in the same transaction as the entity, so the write
+ * path only pays one insert and a change cannot be committed without its event. The relay drains the outbox on a
+ * schedule: it keeps the latest event per entity, loads the current state of the saved entities, writes them by one
+ * bulk request, evicts their cache entries, then deletes the events. Events which failed are retried with an
+ * exponential back-off, so every change reaches Elasticsearch and the caches at least once.
+ * <p>
+ * Several nodes relay at once, each reading the state of its entities when it relays. Each document is versioned by
+ * the id of the latest event of its entity, so a node relaying an older event after another node relayed a newer one
+ * cannot overwrite the newer state. The indices written before the documents were versioned must be rebuilt once,
+ * so their documents carry these versions.
+ * <p>
+ * While an index is rebuilt by the {@link ElasticsearchIndexService}, the documents are written both through the alias
+ * and into the index being built, so the changes made during the rebuild, or while it is interrupted, are not lost
+ * when the alias is swapped. The indices being built are read before the entities, so a change committed after they
+ * were read is relayed again by its own event.
+ * <p>
+ * The cache entries are also evicted right after the commit on the node which made the change, so it reads its own
+ * writes without waiting for the relay. Until then, {@link #isChangedInTransaction(String, String)} tells the readers
+ * of the transaction to bypass the cache. The second eviction by the relay drops the stale entries that a concurrent
+ * reader, which loaded the entity before the commit, may have put back after the first eviction.
+ *
+ * @author Dai Mai
+ */
+@Service
+public class OutboxRelay {
+
+    /** The log. */
+    private final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    /** The outbox event repository. */
+    private final OutboxEventRepository outboxEventRepository;
+
+    /** The search index writer. */
+    private final SearchIndexWriter searchIndexWriter;
+
+    /** The reindex checkpoint repository, telling the indices being rebuilt. */
+    private final ReindexCheckpointRepository checkpointRepository;
+
+    /** The cache manager. */
+    private final CacheManager cacheManager;
+
+    /** The read transaction template, loading the relayed entities. */
+    private final TransactionTemplate readTransactionTemplate;
+
+    /** The relayed entities, by aggregate type. */
+    private final Map<String, RelayedEntity<?>> relayedEntities = new HashMap<>();
+
+    /** The batch size. */
+    private final int batchSize;
+
+    /** The claim duration. */
+    private final long claimMs;
+
+    /** The initial back-off. */
+    private final long initialBackoffMs;
+
+    /** The max back-off. */
+    private final long maxBackoffMs;
+
+    /** The relayed events. */
+    private final Meter relayed;
+
+    /** The failed events, each retried later. */
+    private final Meter failures;
+
+    /** The events in the outbox, as of the last relay. */
+    private volatile long pendingCount;
+
+    /** The date of the oldest event in the outbox, as of the last relay. */
+    private volatile Instant oldestPending;
+
+    /**
+     * Instantiates a new outbox relay.
+     *
+     * @param outboxEventRepository the outbox event repository
+     * @param userRepository the user repository
+     * @param credentialRepository the credential repository
+     * @param searchIndexWriter the search index writer
+     * @param checkpointRepository the reindex checkpoint repository
+     * @param cacheManager the cache manager
+     * @param transactionManager the transaction manager
+     * @param applicationProperties the application properties
+     * @param metricRegistry the metric registry
+     */
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, UserRepository userRepository,
+        CredentialRepository credentialRepository, SearchIndexWriter searchIndexWriter,
+        ReindexCheckpointRepository checkpointRepository, CacheManager cacheManager,
+        PlatformTransactionManager transactionManager, ApplicationProperties applicationProperties,
+        MetricRegistry metricRegistry) {
+        ApplicationProperties.SearchIndexing properties = applicationProperties.getSearchIndexing();
+        this.outboxEventRepository = outboxEventRepository;
+        this.searchIndexWriter = searchIndexWriter;
+        this.checkpointRepository = checkpointRepository;
+        this.cacheManager = cacheManager;
+        this.readTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readTransactionTemplate.setReadOnly(true);
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.claimMs = Math.max(1, properties.getClaimMs());
+        this.initialBackoffMs = Math.max(1, properties.getInitialBackoffMs());
+        this.maxBackoffMs = Math.max(initialBackoffMs, properties.getMaxBackoffMs());
+        this.relayed = metricRegistry.meter(MetricRegistry.name(OutboxRelay.class, "relayed"));
+        this.failures = metricRegistry.meter(MetricRegistry.name(OutboxRelay.class, "failures"));
+        metricRegistry.register(MetricRegistry.name(OutboxRelay.class, "pending"),
+            (Gauge<Long>) () -> pendingCount);
+        metricRegistry.register(MetricRegistry.name(OutboxRelay.class, "lag-ms"),
+            (Gauge<Long>) this::getLagMillis);
+        register(User.class, userRepository::findAll, User::getId);
+        register(Credential.class, credentialRepository::findAll, Credential::getId);
+    }
+
+    /**
+     * Publish the save of an entity, in the current transaction.
+     *
+     * @param entityClass the entity class
+     * @param id the entity id
+     * @param cacheName the cache holding the entity, may be null
+     * @param cacheKey the key of the entity in the cache, may be null
+     */
+    public void publishSaved(Class<?> entityClass, Long id, String cacheName, String cacheKey) {
+        publish(entityClass, id, EventType.SAVED, cacheName, cacheKey);
+    }
+
+    /**
+     * Publish the save of several entities of a class by a single JDBC batch, in the current transaction.
+     *
+     * @param entityClass the entity class
+     * @param cacheName the cache holding the entities, may be null
+     * @param cacheKeys the key of each entity in the cache, by entity id, a key may be null
+     */
+    public void publishAllSaved(Class<?> entityClass, String cacheName, Map<Long, String> cacheKeys) {
+        outboxEventRepository.appendAll(entityClass.getSimpleName(), EventType.SAVED, cacheName, cacheKeys);
+        cacheKeys.values().forEach(cacheKey -> scheduleEviction(cacheName, cacheKey));
+    }
+
+    /**
+     * Publish the deletion of an entity, in the current transaction.
+     *
+     * @param entityClass the entity class
+     * @param id the entity id
+     * @param cacheName the cache holding the entity, may be null
+     * @param cacheKey the key of the entity in the cache, may be null
+     */
+    public void publishDeleted(Class<?> entityClass, Long id, String cacheName, String cacheKey) {
+        publish(entityClass, id, EventType.DELETED, cacheName, cacheKey);
+    }
+
+    /**
+     * Publish the deletion of several entities of a class by a single JDBC batch, in the current transaction.
+     *
+     * @param entityClass the entity class
+     * @param cacheName the cache holding the entities, may be null
+     * @param cacheKeys the key of each entity in the cache, by entity id, a key may be null
+     */
+    public void publishAllDeleted(Class<?> entityClass, String cacheName, Map<Long, String> cacheKeys) {
+        outboxEventRepository.appendAll(entityClass.getSimpleName(), EventType.DELETED, cacheName, cacheKeys);
+        cacheKeys.values().forEach(cacheKey -> scheduleEviction(cacheName, cacheKey));
+    }
+
+    /**
+     * Gets the age of the oldest event in the outbox, as of the last relay.
+     *
+     * @return the lag in milliseconds, 0 when the outbox is empty
+     */
+    public long getLagMillis() {
+        Instant oldest = oldestPending;
+        return oldest == null ? 0L : Math.max(0L, System.currentTimeMillis() - oldest.toEpochMilli());
+    }
+
+    /**
+     * Relay the outbox until no event is ready.
+     */
+    @Scheduled(fixedDelayString = "${application.search-indexing.flush-interval-ms:1000}")
+    public void relay() {
+        try {
+            int read;
+            do {
+                read = relayBatch();
+            } while (read >= batchSize);
+            pendingCount = outboxEventRepository.count();
+            oldestPending = outboxEventRepository.findOldestCreatedDate().orElse(null);
+        } catch (DataAccessException e) {
+            log.warn("Unable to relay the outbox, retrying on next relay: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Relay one batch of events.
+     *
+     * @return the number of events read, claimed or not
+     */
+    int relayBatch() {
+        Instant now = Instant.now();
+        List<OutboxEvent> ready = outboxEventRepository.findReady(now, batchSize);
+        List<OutboxEvent> events = outboxEventRepository.claim(ready, now.plusMillis(claimMs));
+        if (events.isEmpty()) {
+            return ready.size();
+        }
+
+        // The latest event of an entity supersedes the previous ones
+        Map<AggregateKey, OutboxEvent> latestEvents = new LinkedHashMap<>();
+        List<OutboxEvent> unknownEvents = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (relayedEntities.containsKey(event.getAggregateType())) {
+                latestEvents.put(new AggregateKey(event), event);
+            } else {
+                log.error("Dropping outbox event {} of unknown type {}", event.getId(), event.getAggregateType());
+                unknownEvents.add(event);
+            }
+        }
+        // Read before the entities, the rebuild of an index starting later scans their changes
+        Map<String, String> rebuiltIndices = checkpointRepository.findAll().stream()
+            .collect(Collectors.toMap(ReindexCheckpoint::getEntityName, ReindexCheckpoint::getIndexName));
+        Map<AggregateKey, List<SearchDocument>> documents = readTransactionTemplate.execute(status -> toDocuments(
+            latestEvents.values(), rebuiltIndices));
+        Set<DocumentKey> failedDocuments = searchIndexWriter.write(documents.values().stream()
+            .flatMap(List::stream).collect(Collectors.toList()));
+
+        List<Long> done = unknownEvents.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+        List<OutboxEvent> failed = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (unknownEvents.contains(event)) {
+                continue;
+            }
+            List<SearchDocument> eventDocuments = documents.get(new AggregateKey(event));
+            if (eventDocuments == null
+                || eventDocuments.stream().anyMatch(document -> failedDocuments.contains(document.key))) {
+                failed.add(event);
+            } else {
+                evict(event.getCacheName(), event.getCacheKey());
+                done.add(event.getId());
+            }
+        }
+        outboxEventRepository.delete(done);
+        outboxEventRepository.postpone(failed, event -> now.plusMillis(backoff(event.getAttempts())));
+        relayed.mark(done.size());
+        failures.mark(failed.size());
+        if (!failed.isEmpty()) {
+            log.warn("Unable to relay {} outbox events, retrying later", failed.size());
+        }
+        return ready.size();
+    }
+
+    /**
+     * Build the documents of the latest events, from the current state of the entities.
+     *
+     * @param events the latest event of each entity
+     * @param rebuiltIndices the indices being rebuilt, by entity type
+     * @return the documents of each entity, through its alias then into the index being rebuilt
+     */
+    private Map<AggregateKey, List<SearchDocument>> toDocuments(Iterable<OutboxEvent> events,
+        Map<String, String> rebuiltIndices) {
+        Map<String, List<Long>> savedIds = new HashMap<>();
+        for (OutboxEvent event : events) {
+            if (event.getEventType() == EventType.SAVED) {
+                savedIds.computeIfAbsent(event.getAggregateType(), type -> new ArrayList<>())
+                    .add(event.getAggregateId());
+            }
+        }
+        Map<AggregateKey, Object> savedEntities = new HashMap<>();
+        savedIds.forEach((type, ids) -> savedEntities.putAll(relayedEntities.get(type).load(ids)));
+
+        Map<AggregateKey, List<SearchDocument>> documents = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            AggregateKey key = new AggregateKey(event);
+            Object entity = savedEntities.get(key);
+            // The latest event of the entity versions its document, the event ids grow with the changes
+            Optional<SearchDocument> document;
+            if (entity != null) {
+                document = searchIndexWriter.document(entity, event.getAggregateId(), event.getId());
+            } else {
+                // Deleted, or saved then deleted since the event was written
+                document = Optional.of(searchIndexWriter.deletion(
+                    relayedEntities.get(event.getAggregateType()).entityClass, event.getAggregateId(), event.getId()));
+            }
+            document.ifPresent(found -> {
+                List<SearchDocument> entityDocuments = new ArrayList<>(2);
+                entityDocuments.add(found);
+                String rebuiltIndex = rebuiltIndices.get(event.getAggregateType());
+                if (rebuiltIndex != null && !rebuiltIndex.equals(found.key.indexName)) {
+                    entityDocuments.add(found.inIndex(rebuiltIndex));
+                }
+                documents.put(key, entityDocuments);
+            });
+        }
+        return documents;
+    }
+
+    /**
+     * Whether a cache entry was changed by the current transaction, and is still stale in the cache until the
+     * transaction commits.
+     *
+     * @param cacheName the cache name
+     * @param cacheKey the cache key
+     * @return true if the entry must be read from the database
+     */
+    public boolean isChangedInTransaction(String cacheName, String cacheKey) {
+        @SuppressWarnings("unchecked")
+        Set<CacheEntry> pendingEvictions = (Set<CacheEntry>) TransactionSynchronizationManager.getResource(this);
+        return pendingEvictions != null && pendingEvictions.contains(new CacheEntry(cacheName, cacheKey));
+    }
+
+    /**
+     * Append an event, and evict the cache entry once the transaction commits.
+     *
+     * @param entityClass the entity class
+     * @param id the entity id
+     * @param eventType the event type
+     * @param cacheName the cache name
+     * @param cacheKey the cache key
+     */
+    private void publish(Class<?> entityClass, Long id, EventType eventType, String cacheName, String cacheKey) {
+        outboxEventRepository.append(entityClass.getSimpleName(), id, eventType, cacheName, cacheKey);
+        scheduleEviction(cacheName, cacheKey);
+    }
+
+    /**
+     * Evict a cache entry once the current transaction commits, or at once without transaction.
+     *
+     * @param cacheName the cache name, may be null
+     * @param cacheKey the cache key, may be null
+     */
+    private void scheduleEviction(String cacheName, String cacheKey) {
+        if (cacheName == null || cacheKey == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            getPendingEvictions().add(new CacheEntry(cacheName, cacheKey));
+        } else {
+            evict(cacheName, cacheKey);
+        }
+    }
+
+    /**
+     * Gets the cache entries to evict when the current transaction commits.
+     *
+     * @return the pending evictions
+     */
+    private Set<CacheEntry> getPendingEvictions() {
+        @SuppressWarnings("unchecked")
+        Set<CacheEntry> pendingEvictions = (Set<CacheEntry>) TransactionSynchronizationManager.getResource(this);
+        if (pendingEvictions == null) {
+            Set<CacheEntry> evictions = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, evictions);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCommit() {
+                    evictions.forEach(entry -> evict(entry.cacheName, entry.cacheKey));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OutboxRelay.this);
+                }
+            });
+            pendingEvictions = evictions;
+        }
+        return pendingEvictions;
+    }
+
+    /**
+     * Evict a cache entry.
+     *
+     * @param cacheName the cache name, may be null
+     * @param cacheKey the cache key, may be null
+     */
+    private void evict(String cacheName, String cacheKey) {
+        if (cacheName == null || cacheKey == null) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(cacheKey);
+        }
+    }
+
+    /**
+     * The delay before retrying an event which failed a number of times.
+     *
+     * @param attempts the failed attempts
+     * @return the back-off in milliseconds
+     */
+    private long backoff(int attempts) {
+        return attempts >= 30 ? maxBackoffMs : Math.min(maxBackoffMs, initialBackoffMs << attempts);
+    }
+
+    /**
+     * Register a relayed entity.
+     *
+     * @param entityClass the entity class
+     * @param loader the loader of the entities by ids
+     * @param idGetter the id getter
+     */
+    private <T> void register(Class<T> entityClass, Function<List<Long>, List<T>> loader,
+        Function<T, Long> idGetter) {
+        relayedEntities.put(entityClass.getSimpleName(), new RelayedEntity<>(entityClass, loader, idGetter));
+    }
+
+    /**
+     * An entity type relayed from the outbox.
+     *
+     * @param <T> the entity type
+     */
+    private static final class RelayedEntity<T> {
+
+        /** The entity class. */
+        private final Class<T> entityClass;
+
+        /** The loader of the entities by ids. */
+        private final Function<List<Long>, List<T>> loader;
+
+        /** The id getter. */
+        private final Function<T, Long> idGetter;
+
+        /**
+         * Instantiates a new relayed entity.
+         *
+         * @param entityClass the entity class
+         * @param loader the loader
+         * @param idGetter the id getter
+         */
+        private RelayedEntity(Class<T> entityClass, Function<List<Long>, List<T>> loader,
+            Function<T, Long> idGetter) {
+            this.entityClass = entityClass;
+            this.loader = loader;
+            this.idGetter = idGetter;
+        }
+
+        /**
+         * Load the entities which still exist.
+         *
+         * @param ids the ids
+         * @return the entities, by key
+         */
+        private Map<AggregateKey, Object> load(List<Long> ids) {
+            Map<AggregateKey, Object> entities = new HashMap<>();
+            for (T entity : loader.apply(ids)) {
+                entities.put(new AggregateKey(entityClass.getSimpleName(), idGetter.apply(entity)), entity);
+            }
+            return entities;
+        }
+    }
+
+    /**
+     * An entry of a cache.
+     */
+    private static final class CacheEntry {
+
+        /** The cache name. */
+        private final String cacheName;
+
+        /** The cache key. */
+        private final String cacheKey;
+
+        /**
+         * Instantiates a new cache entry.
+         *
+         * @param cacheName the cache name
+         * @param cacheKey the cache key
+         */
+        private CacheEntry(String cacheName, String cacheKey) {
+            this.cacheName = cacheName;
+            this.cacheKey = cacheKey;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheEntry other = (CacheEntry) o;
+            return Objects.equals(cacheName, other.cacheName) && Objects.equals(cacheKey, other.cacheKey);
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(cacheName, cacheKey);
+        }
+    }
+
+    /**
+     * The key of an entity in the outbox.
+     */
+    private static final class AggregateKey {
+
+        /** The aggregate type. */
+        private final String type;
+
+        /** The aggregate id. */
+        private final long id;
+
+        /**
+         * Instantiates a new aggregate key.
+         *
+         * @param event the event
+         */
+        private AggregateKey(OutboxEvent event) {
+            this(event.getAggregateType(), event.getAggregateId());
+        }
+
+        /**
+         * Instantiates a new aggregate key.
+         *
+         * @param type the type
+         * @param id the id
+         */
+        private AggregateKey(String type, long id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            AggregateKey other = (AggregateKey) o;
+            return id == other.id && type.equals(other.type);
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, id);
+        }
+    }
+}
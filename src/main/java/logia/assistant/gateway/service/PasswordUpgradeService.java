@@ -0,0 +1,108 @@
+package logia.assistant.gateway.service;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import logia.assistant.gateway.domain.CachedCredential;
+import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.repository.CredentialRepository;
+import logia.assistant.gateway.repository.UserRepository;
+import logia.assistant.gateway.security.BoundedBCryptPasswordEncoder;
+
+/**
+ * Rehash on login the passwords stored with an outdated BCrypt cost.
+ * <p>
+ * The raw password is only known while logging in, so this is the only time a hash can be upgraded. The new hash is
+ * computed on the hashing pool without blocking the login, skipped when the pool is saturated, and written only if
+ * the stored hash did not change in between. The update bypasses Hibernate, so the user is also evicted from the
+ * second level cache, where a later save would otherwise write the old hash back.
+ *
+ * @author Dai Mai
+ */
+@Service
+public class PasswordUpgradeService {
+
+    /** The update, guarded by the previous hash. */
+    private static final String UPDATE_PASSWORD_HASH = "UPDATE jhi_user SET password_hash = ? "
+        + "WHERE id = ? AND password_hash = ?";
+
+    /** The log. */
+    private final Logger log = LoggerFactory.getLogger(PasswordUpgradeService.class);
+
+    /** The password encoder. */
+    private final BoundedBCryptPasswordEncoder passwordEncoder;
+
+    /** The jdbc template. */
+    private final JdbcTemplate jdbcTemplate;
+
+    /** The cache manager. */
+    private final CacheManager cacheManager;
+
+    /** The entity manager factory. */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Instantiates a new password upgrade service.
+     *
+     * @param passwordEncoder the password encoder
+     * @param jdbcTemplate the jdbc template
+     * @param cacheManager the cache manager
+     * @param entityManagerFactory the entity manager factory
+     */
+    public PasswordUpgradeService(BoundedBCryptPasswordEncoder passwordEncoder, JdbcTemplate jdbcTemplate,
+        CacheManager cacheManager, EntityManagerFactory entityManagerFactory) {
+        this.passwordEncoder = passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Rehash the password of a credential that just logged in, if its hash uses an outdated cost.
+     *
+     * @param credential the credential, as cached
+     * @param rawPassword the raw password, already verified
+     */
+    public void upgradeIfNeeded(CachedCredential credential, String rawPassword) {
+        String previousHash = credential.getPassword();
+        if (previousHash == null || !passwordEncoder.needsRehash(previousHash)) {
+            return;
+        }
+        passwordEncoder.encodeAsync(rawPassword).whenComplete((newHash, error) -> {
+            if (error != null) {
+                log.debug("Skipped rehashing the password of {}: {}", credential.getLogin(), error.getMessage());
+                return;
+            }
+            try {
+                if (jdbcTemplate.update(UPDATE_PASSWORD_HASH, newHash, credential.getUserId(), previousHash) > 0) {
+                    log.debug("Rehashed the password of {} with strength {}", credential.getLogin(),
+                        passwordEncoder.getStrength());
+                    evict(CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE, credential.getLogin());
+                    evict(UserRepository.USERS_BY_UUID_CACHE, credential.getUserUuid());
+                    entityManagerFactory.getCache().evict(User.class, credential.getUserId());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Unable to rehash the password of {}: {}", credential.getLogin(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Evict a cache entry.
+     *
+     * @param cacheName the cache name
+     * @param key the key
+     */
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package logia.assistant.gateway.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Meter;
+
+/**
+ * The progress of an Elasticsearch reindex.
+ *
+ * @author Dai Mai
+ */
+public class ReindexJob {
+
+    /** The maximum number of errors kept. */
+    static final int MAX_ERRORS = 100;
+
+    /** The age from which the one minute rate is used as throughput, before that the mean rate is more accurate. */
+    private static final Duration RATE_WARMUP = Duration.ofMinutes(1);
+
+    /**
+     * The status of a reindex.
+     */
+    public enum Status {
+
+        /** Running. */
+        RUNNING,
+
+        /** Every row was indexed. */
+        COMPLETED,
+
+        /** Stopped on errors, the next reindex resumes from the checkpoints. */
+        FAILED,
+
+        /** Cancelled, the next reindex resumes from the checkpoints. */
+        CANCELLED
+    }
+
+    /** The id. */
+    private final String id = UUID.randomUUID().toString();
+
+    /** The started date. */
+    private final Instant startedDate = Instant.now();
+
+    /** The indexed documents. */
+    private final Meter documents = new Meter();
+
+    /** The rows to index. */
+    private final AtomicLong total = new AtomicLong();
+
+    /** The errors, guarded by itself. */
+    private final List<String> errors = new ArrayList<>();
+
+    /** The status. */
+    private volatile Status status = Status.RUNNING;
+
+    /** The ended date. */
+    private volatile Instant endedDate;
+
+    /** The cancel requested. */
+    private volatile boolean cancelRequested;
+
+    /**
+     * Add rows to index.
+     *
+     * @param rows the rows
+     */
+    void addTotal(long rows) {
+        total.addAndGet(rows);
+    }
+
+    /**
+     * Record indexed documents.
+     *
+     * @param count the count
+     */
+    void indexed(long count) {
+        documents.mark(count);
+    }
+
+    /**
+     * Record an error.
+     *
+     * @param error the error
+     */
+    void error(String error) {
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+
+    /**
+     * Request the cancellation, the rows being indexed are completed first.
+     */
+    void cancel() {
+        cancelRequested = true;
+    }
+
+    /**
+     * Checks if the cancellation was requested.
+     *
+     * @return true, if the cancellation was requested
+     */
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    /**
+     * End the job.
+     *
+     * @param status the final status
+     */
+    void end(Status status) {
+        this.endedDate = Instant.now();
+        this.status = status;
+    }
+
+    /**
+     * Gets the id.
+     *
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the status.
+     *
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the started date.
+     *
+     * @return the started date
+     */
+    public Instant getStartedDate() {
+        return startedDate;
+    }
+
+    /**
+     * Gets the ended date.
+     *
+     * @return the ended date, null while running
+     */
+    public Instant getEndedDate() {
+        return endedDate;
+    }
+
+    /**
+     * Gets the indexed documents.
+     *
+     * @return the indexed documents
+     */
+    public long getDone() {
+        return documents.getCount();
+    }
+
+    /**
+     * Gets the rows to index.
+     *
+     * @return the rows to index
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Gets the current throughput: the mean rate over the first minute, then the one minute rate.
+     *
+     * @return the indexed documents per second
+     */
+    public double getDocumentsPerSecond() {
+        if (status != Status.RUNNING) {
+            long seconds = Duration.between(startedDate, endedDate).getSeconds();
+            return seconds > 0 ? (double) getDone() / seconds : getDone();
+        }
+        if (Duration.between(startedDate, Instant.now()).compareTo(RATE_WARMUP) < 0) {
+            return documents.getMeanRate();
+        }
+        return documents.getOneMinuteRate();
+    }
+
+    /**
+     * Gets the estimated time remaining at the current throughput.
+     *
+     * @return the estimated time remaining, empty if not running or if nothing was indexed yet
+     */
+    public Optional<Duration> getEstimatedRemaining() {
+        double documentsPerSecond = getDocumentsPerSecond();
+        if (status != Status.RUNNING || documentsPerSecond <= 0) {
+            return Optional.empty();
+        }
+        long remaining = Math.max(0, getTotal() - getDone());
+        return Optional.of(Duration.ofSeconds((long) Math.ceil(remaining / documentsPerSecond)));
+    }
+
+    /**
+     * Gets the errors.
+     *
+     * @return a copy of the errors, at most {@link #MAX_ERRORS}
+     */
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+}
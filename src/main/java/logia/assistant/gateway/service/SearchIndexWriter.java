@@ -0,0 +1,281 @@
+package logia.assistant.gateway.service;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.stereotype.Service;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Writes the entity documents to Elasticsearch by bulk requests, reporting the documents which failed so they can
+ * be retried.
+ * <p>
+ * Documents are written through the index alias of their entity, and serialized with the same entity mapper as the
+ * Elasticsearch template. Each document carries an external version, growing with the changes of its entity: a write
+ * older than the document already indexed is rejected by Elasticsearch, and counts as done since a newer state was
+ * written, so concurrent writers of the same entity cannot overwrite a newer state with an older one.
+ *
+ * @author Dai Mai
+ */
+@Service
+public class SearchIndexWriter {
+
+    /** The log. */
+    private final Logger log = LoggerFactory.getLogger(SearchIndexWriter.class);
+
+    /** The elasticsearch template. */
+    private final ElasticsearchTemplate elasticsearchTemplate;
+
+    /** The entity mapper. */
+    private final EntityMapper entityMapper;
+
+    /** The written documents. */
+    private final Meter written;
+
+    /** The failed documents. */
+    private final Meter failures;
+
+    /**
+     * Instantiates a new search index writer.
+     *
+     * @param elasticsearchTemplate the elasticsearch template
+     * @param entityMapper the entity mapper
+     * @param metricRegistry the metric registry
+     */
+    public SearchIndexWriter(ElasticsearchTemplate elasticsearchTemplate, EntityMapper entityMapper,
+        MetricRegistry metricRegistry) {
+        this.elasticsearchTemplate = elasticsearchTemplate;
+        this.entityMapper = entityMapper;
+        this.written = metricRegistry.meter(MetricRegistry.name(SearchIndexWriter.class, "written"));
+        this.failures = metricRegistry.meter(MetricRegistry.name(SearchIndexWriter.class, "failures"));
+    }
+
+    /**
+     * The document indexing an entity. Must be called while the lazy associations of the entity can be loaded.
+     *
+     * @param entity the entity
+     * @param id the entity id
+     * @param version the version of the document
+     * @return the document, empty if the entity could not be serialized
+     */
+    Optional<SearchDocument> document(Object entity, Long id, long version) {
+        DocumentKey key = key(entity.getClass(), id);
+        try {
+            return Optional.of(new SearchDocument(key, entityMapper.mapToString(entity), version));
+        } catch (IOException e) {
+            log.error("Unable to serialize document {}", key, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The document deleting an entity.
+     *
+     * @param entityClass the entity class
+     * @param id the entity id
+     * @param version the version of the deletion
+     * @return the document
+     */
+    SearchDocument deletion(Class<?> entityClass, Long id, long version) {
+        return new SearchDocument(key(entityClass, id), null, version);
+    }
+
+    /**
+     * Write documents by one bulk request.
+     *
+     * @param documents the documents
+     * @return the documents which failed, all of them if Elasticsearch is not available
+     */
+    Set<DocumentKey> write(List<SearchDocument> documents) {
+        Set<DocumentKey> failed = new HashSet<>();
+        if (documents.isEmpty()) {
+            return failed;
+        }
+        try {
+            failed.addAll(failed(documents, bulk(documents)));
+        } catch (RuntimeException e) {
+            log.warn("Unable to write {} documents to Elasticsearch: {}", documents.size(), e.getMessage());
+            for (SearchDocument document : documents) {
+                failed.add(document.key);
+            }
+        }
+        written.mark(documents.size() - failed.size());
+        failures.mark(failed.size());
+        return failed;
+    }
+
+    /**
+     * Send documents as one bulk request, each with its external version.
+     *
+     * @param documents the documents
+     * @return the bulk response
+     */
+    BulkResponse bulk(List<SearchDocument> documents) {
+        Client client = elasticsearchTemplate.getClient();
+        BulkRequestBuilder bulkRequest = client.prepareBulk();
+        for (SearchDocument document : documents) {
+            DocumentKey key = document.key;
+            if (document.source == null) {
+                bulkRequest.add(client.prepareDelete(key.indexName, key.type, key.id)
+                    .setVersion(document.version).setVersionType(VersionType.EXTERNAL_GTE));
+            } else {
+                bulkRequest.add(client.prepareIndex(key.indexName, key.type, key.id).setSource(document.source)
+                    .setVersion(document.version).setVersionType(VersionType.EXTERNAL_GTE));
+            }
+        }
+        return bulkRequest.get();
+    }
+
+    /**
+     * Gets the documents which failed in a bulk response. A version conflict is not a failure: a newer version of
+     * the document is already indexed.
+     *
+     * @param documents the documents, in the order of the bulk request
+     * @param response the bulk response
+     * @return the documents which failed
+     */
+    Set<DocumentKey> failed(List<SearchDocument> documents, BulkResponse response) {
+        Set<DocumentKey> failed = new HashSet<>();
+        if (response.hasFailures()) {
+            for (BulkItemResponse item : response.getItems()) {
+                if (!item.isFailed()) {
+                    continue;
+                }
+                DocumentKey key = documents.get(item.getItemId()).key;
+                if (item.getFailure().getStatus() == RestStatus.CONFLICT) {
+                    log.debug("Skipped document {}, superseded by a newer version", key);
+                } else {
+                    log.warn("Unable to write document {}: {}", key, item.getFailureMessage());
+                    failed.add(key);
+                }
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * The document of an entity.
+     *
+     * @param entityClass the entity class
+     * @param id the entity id
+     * @return the document key
+     */
+    DocumentKey key(Class<?> entityClass, Long id) {
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getPersistentEntityFor(entityClass);
+        return new DocumentKey(persistentEntity.getIndexName(), persistentEntity.getIndexType(), String.valueOf(id));
+    }
+
+    /**
+     * The key of a document.
+     */
+    static final class DocumentKey {
+
+        /** The index name. */
+        final String indexName;
+
+        /** The type. */
+        final String type;
+
+        /** The id. */
+        final String id;
+
+        /**
+         * Instantiates a new document key.
+         *
+         * @param indexName the index name
+         * @param type the type
+         * @param id the id
+         */
+        DocumentKey(String indexName, String type, String id) {
+            this.indexName = indexName;
+            this.type = type;
+            this.id = id;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DocumentKey other = (DocumentKey) o;
+            return indexName.equals(other.indexName) && type.equals(other.type) && id.equals(other.id);
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(indexName, type, id);
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return indexName + "/" + type + "/" + id;
+        }
+    }
+
+    /**
+     * A document to write.
+     */
+    static final class SearchDocument {
+
+        /** The document key. */
+        final DocumentKey key;
+
+        /** The document source, null to delete the document. */
+        final String source;
+
+        /** The external version of the document. */
+        final long version;
+
+        /**
+         * Instantiates a new search document.
+         *
+         * @param key the key
+         * @param source the source, null to delete the document
+         * @param version the external version of the document
+         */
+        SearchDocument(DocumentKey key, String source, long version) {
+            this.key = key;
+            this.source = source;
+            this.version = version;
+        }
+
+        /**
+         * The same document, written into another index than the alias of its entity.
+         *
+         * @param indexName the index name
+         * @return the document
+         */
+        SearchDocument inIndex(String indexName) {
+            return new SearchDocument(new DocumentKey(indexName, key.type, key.id), source, version);
+        }
+    }
+}
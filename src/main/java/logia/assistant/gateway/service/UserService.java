@@ -1,32 +1,53 @@
 package logia.assistant.gateway.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import logia.assistant.gateway.config.ApplicationProperties;
 import logia.assistant.gateway.config.Constants;
 import logia.assistant.gateway.domain.Authority;
 import logia.assistant.gateway.domain.User;
 import logia.assistant.gateway.repository.AuthorityRepository;
+import logia.assistant.gateway.repository.ScheduledLockRepository;
+import logia.assistant.gateway.repository.SequenceBlockAllocator;
+import logia.assistant.gateway.repository.UserPurgeRepository;
 import logia.assistant.gateway.repository.UserRepository;
-import logia.assistant.gateway.repository.search.UserSearchRepository;
 import logia.assistant.gateway.security.SecurityUtils;
+import logia.assistant.gateway.service.dto.KeysetPage;
 import logia.assistant.gateway.service.dto.UserDTO;
 import logia.assistant.gateway.service.impl.CredentialServiceImpl;
 import logia.assistant.share.common.service.UuidService;
+import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
 
 /**
  * Service class for managing users.
@@ -37,63 +58,107 @@ import logia.assistant.share.common.service.UuidService;
 @Transactional
 public class UserService implements UuidService<User> {
 
+    /** The lease name of the purge of the users without credential. */
+    private static final String REMOVE_NON_CREDENTIAL_USERS_LOCK = "removeNonCredentialUsers";
+
     /** The log. */
     private final Logger                log = LoggerFactory.getLogger(UserService.class);
 
     /** The user repository. */
     private final UserRepository        userRepository;
 
-    /** The user search repository. */
-    private final UserSearchRepository  userSearchRepository;
-
     /** The credential service. */
     private final CredentialServiceImpl credentialService;
 
     /** The authority repository. */
     private final AuthorityRepository   authorityRepository;
 
-    /** The cache manager. */
-    private final CacheManager          cacheManager;
+    /** The user uuid allocator. */
+    private final SequenceBlockAllocator userUuidAllocator;
+
+    /** The outbox relay. */
+    private final OutboxRelay           outboxRelay;
+
+    /** The user purge repository. */
+    private final UserPurgeRepository   userPurgeRepository;
+
+    /** The scheduled lock repository. */
+    private final ScheduledLockRepository scheduledLockRepository;
+
+    /** The purge transaction template, one transaction per batch. */
+    private final TransactionTemplate   purgeTransactionTemplate;
+
+    /** The entity manager factory, holding the second level cache. */
+    private final EntityManagerFactory  entityManagerFactory;
+
+    /** The purge batch size. */
+    private final int                   purgeBatchSize;
+
+    /** The purge lease duration. */
+    private final long                  purgeLockMs;
+
+    /** The duration of the purges. */
+    private final Timer                 purgeDuration;
+
+    /** The users removed by the purges. */
+    private final Meter                 purgedUsers;
 
     /**
      * Instantiates a new user service.
      *
      * @param userRepository the user repository
-     * @param userSearchRepository the user search repository
      * @param credentialService the credential service
      * @param authorityRepository the authority repository
-     * @param cacheManager the cache manager
+     * @param userUuidAllocator the user uuid allocator
+     * @param outboxRelay the outbox relay
+     * @param userPurgeRepository the user purge repository
+     * @param scheduledLockRepository the scheduled lock repository
+     * @param transactionManager the transaction manager
+     * @param entityManagerFactory the entity manager factory
+     * @param applicationProperties the application properties
+     * @param metricRegistry the metric registry
      */
-    public UserService(UserRepository userRepository, UserSearchRepository userSearchRepository,
-            CredentialServiceImpl credentialService, AuthorityRepository authorityRepository,
-            CacheManager cacheManager) {
+    public UserService(UserRepository userRepository, CredentialServiceImpl credentialService,
+            AuthorityRepository authorityRepository,
+            SequenceBlockAllocator userUuidAllocator, OutboxRelay outboxRelay,
+            UserPurgeRepository userPurgeRepository, ScheduledLockRepository scheduledLockRepository,
+            PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory,
+            ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
         super();
         this.userRepository = userRepository;
-        this.userSearchRepository = userSearchRepository;
         this.credentialService = credentialService;
         this.authorityRepository = authorityRepository;
-        this.cacheManager = cacheManager;
+        this.userUuidAllocator = userUuidAllocator;
+        this.outboxRelay = outboxRelay;
+        this.userPurgeRepository = userPurgeRepository;
+        this.scheduledLockRepository = scheduledLockRepository;
+        this.purgeTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.purgeBatchSize = Math.max(1, applicationProperties.getUserPurge().getBatchSize());
+        this.purgeLockMs = applicationProperties.getUserPurge().getLockMs();
+        this.purgeDuration = metricRegistry.timer(MetricRegistry.name(UserService.class, "purge", "duration"));
+        this.purgedUsers = metricRegistry.meter(MetricRegistry.name(UserService.class, "purge", "removed"));
     }
 
-    /*
-     * (non-Javadoc)
-     * 
-     * @see logia.assistant.share.common.service.UuidService#getByUuid(java.lang.String)
+    /**
+     * Find a user by uuid, with its authorities.
+     * <p>
+     * The user is served from the {@link UserRepository#USERS_BY_UUID_CACHE} cache, loaded from the database on a
+     * miss. The cache entry is evicted after each committed change, and the user is read from the database while the
+     * current transaction has changed it, so callers always read their own writes. Elasticsearch is only used for the
+     * full-text search, and is never written on this path.
+     *
+     * @param uuid the uuid
+     * @return the user
+     * @see logia.assistant.share.common.service.UuidService#findByUuid(java.lang.String)
      */
     @Override
+    @Transactional(readOnly = true)
     public Optional<User> findByUuid(String uuid) {
-        Optional<User> optUser = this.userSearchRepository.findOneByUuid(uuid);
-        if (optUser.isPresent()) {
-            return optUser;
-        }
-        else {
-            // Maybe elastic search not persistent, try finding in DB
-            optUser = this.userRepository.findOneWithAuthoritiesByUuid(uuid);
-            if (optUser.isPresent()) {
-                this.userSearchRepository.save(optUser.get());
-            }
-            return optUser;
+        if (this.outboxRelay.isChangedInTransaction(UserRepository.USERS_BY_UUID_CACHE, uuid)) {
+            return this.userRepository.findOneByUuid(uuid);
         }
+        return this.userRepository.findOneWithAuthoritiesByUuid(uuid);
     }
 
     /*
@@ -103,12 +168,7 @@ public class UserService implements UuidService<User> {
      */
     @Override
     public User createUuid(User entity) {
-        Long lastId = 0L;
-        List<User> tmpList = this.userRepository.findAllByOrderByIdDesc();
-        if (tmpList.size() > 0) {
-            lastId = tmpList.get(0).getId();
-        }
-        String uuid = this.createUuid(this.getClass().getSimpleName(), lastId + 1);
+        String uuid = this.createUuid(this.getClass().getSimpleName(), this.userUuidAllocator.next());
         entity.setUuid(uuid);
         return entity;
     }
@@ -154,25 +214,60 @@ public class UserService implements UuidService<User> {
         return this.saveOrUpdate(user, persistent);
     }
 
+    /**
+     * Create users by JDBC batches, not activated and sharing an encrypted password nobody knows, their users must
+     * reset it. The users without authority get the {@link AuthoritiesConstants#USER} authority.
+     *
+     * @param userDTOs the users to create, with known authorities
+     * @param encryptedPassword the encrypted password
+     * @return the created users, in the same order
+     */
+    public List<User> createUsers(List<UserDTO> userDTOs, String encryptedPassword) {
+        Map<String, Authority> authorities = authorityRepository.findAll().stream()
+                .collect(Collectors.toMap(Authority::getName, Function.identity()));
+        List<User> users = new ArrayList<>(userDTOs.size());
+        for (UserDTO userDTO : userDTOs) {
+            User user = new User().password(encryptedPassword).activated(false)
+                    .firstName(userDTO.getFirstName()).lastName(userDTO.getLastName())
+                    .imageUrl(userDTO.getImageUrl()).langKey(userDTO.getLangKey());
+            if (Objects.isNull(userDTO.getAuthorities()) || userDTO.getAuthorities().isEmpty()) {
+                user.getAuthorities().add(authorities.get(AuthoritiesConstants.USER));
+            }
+            else {
+                userDTO.getAuthorities().stream().map(authorities::get)
+                        .forEach(user.getAuthorities()::add);
+            }
+            users.add(this.createUuid(user));
+        }
+        users = this.userRepository.save(users);
+        Map<Long, String> cacheKeys = new LinkedHashMap<>();
+        users.forEach(user -> cacheKeys.put(user.getId(), user.getUuid()));
+        this.outboxRelay.publishAllSaved(User.class, UserRepository.USERS_BY_UUID_CACHE, cacheKeys);
+        log.debug("Created {} users", users.size());
+        return users;
+    }
+
     /**
      * Save or update.
      *
      * @param user the user
-     * @param force the force
+     * @param force the force, ignored: the user is always flushed before its event is published
      * @return the user
      */
     public User saveOrUpdate(User user, boolean force) {
         if (Objects.isNull(user.getUuid())) {
             user = this.createUuid(user);
         }
-        if (force) {
-            user = this.userRepository.saveAndFlush(user);
+        boolean created = Objects.isNull(user.getId());
+        // Flushed whatever the flag: the row must be locked by its UPDATE before the event id is drawn, so the events of
+        // a row are numbered in the order of their commits
+        user = this.userRepository.saveAndFlush(user);
+        this.outboxRelay.publishSaved(User.class, user.getId(), UserRepository.USERS_BY_UUID_CACHE,
+                user.getUuid());
+        if (!created) {
+            // The cached credentials of the user hold its password, activation and authorities
+            this.credentialService.publishUserChanged(user.getId());
         }
-        else {
-            user = this.userRepository.save(user);
-        }
-        userSearchRepository.save(user);
-        this.cacheManager.getCache(UserRepository.USERS_BY_UUID_CACHE).evict(user.getUuid());
         log.debug("Create user or change information for User: {}", user);
         return user;
     }
@@ -190,16 +285,30 @@ public class UserService implements UuidService<User> {
     }
 
     /**
-     * Gets the user with authorities by login.
+     * Gets the managed users, by keyset pagination.
+     *
+     * @param afterId the id of the credential of the last user already read, null for the first page
+     * @param size the page size
+     * @param count whether to count all the managed users
+     * @return the managed users
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<UserDTO> getAllManagedUsers(Long afterId, int size, boolean count) {
+        return this.credentialService.findAllByLoginNot(afterId, size, count, Constants.ANONYMOUS_USER)
+                .map(UserDTO::new);
+    }
+
+    /**
+     * Gets the user with authorities by login, through the cached credential then the cached user.
      *
      * @param login the login
      * @return the user with authorities by login
      */
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthoritiesByLogin(String login) {
-        return this.credentialService.findOneWithUserByLogin(login).flatMap(credential -> {
-            return Optional.ofNullable(credential.getUser());
-        });
+        return this.credentialService.findCachedByLogin(login)
+                .flatMap(credential -> credential.getUserUuid() != null ? this.findByUuid(credential.getUserUuid())
+                        : this.getUserWithAuthorities(credential.getUserId()));
     }
 
     /**
@@ -214,29 +323,89 @@ public class UserService implements UuidService<User> {
     }
 
     /**
-     * Gets the user with authorities.
+     * Find users with their authorities, by one query.
+     *
+     * @param ids the ids
+     * @return the users
+     */
+    @Transactional(readOnly = true)
+    public List<User> findAllWithAuthorities(Collection<Long> ids) {
+        return userRepository.findAllWithAuthoritiesByIdIn(ids);
+    }
+
+    /**
+     * Gets the user with authorities of the current login.
      *
      * @return the user with authorities
      */
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthorities() {
-        return SecurityUtils.getCurrentUserLogin()
-                .flatMap(login -> this.credentialService.findOneWithUserByLogin(login)
-                        .flatMap(credential -> Optional.of(credential.getUser())));
+        return SecurityUtils.getCurrentUserLogin().flatMap(this::getUserWithAuthoritiesByLogin);
     }
 
     /**
      * Non credential users should be automatically deleted.
      * <p>
-     * This is scheduled to get fired everyday, at 01:00 (am).
+     * This is scheduled to get fired everyday, at 01:00 (am), and runs on the node holding the lease of the task only.
+     * The users are deleted by batches of set-based statements, each batch in its own transaction, and their removal
+     * from the search index and the caches is relayed by the outbox.
      */
     @Scheduled(cron = "0 0 1 * * ?")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeNonCredentialUsers() {
-        List<User> users = userRepository.findAllNotHaveCredential();
-        for (User user : users) {
-            log.debug("Deleting user {} not have credential", user);
-            this.delete(user);
+        if (!scheduledLockRepository.tryLock(REMOVE_NON_CREDENTIAL_USERS_LOCK, purgeLockMs)) {
+            log.debug("Non credential users are being removed by another node");
+            return;
+        }
+        Timer.Context duration = purgeDuration.time();
+        AtomicLong removed = new AtomicLong();
+        try {
+            long afterId = 0L;
+            Map<Long, String> users;
+            do {
+                long lastId = afterId;
+                users = purgeTransactionTemplate.execute(status -> removeNonCredentialUsers(lastId, removed));
+                if (!users.isEmpty()) {
+                    afterId = users.keySet().stream().reduce((first, second) -> second).get();
+                }
+                // Extend the lease while working
+                scheduledLockRepository.tryLock(REMOVE_NON_CREDENTIAL_USERS_LOCK, purgeLockMs);
+            } while (users.size() >= purgeBatchSize);
+        } finally {
+            long elapsed = duration.stop();
+            scheduledLockRepository.unlock(REMOVE_NON_CREDENTIAL_USERS_LOCK);
+            log.info("Removed {} non credential users in {} ms", removed.get(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    /**
+     * Remove a batch of users without credential, in the current transaction.
+     *
+     * @param afterId the last id already read
+     * @param removed the count of removed users, incremented
+     * @return the users of the batch, removed or not, by id
+     */
+    private Map<Long, String> removeNonCredentialUsers(long afterId, AtomicLong removed) {
+        Map<Long, String> users = userPurgeRepository.lockNonCredentialUsers(afterId, purgeBatchSize);
+        List<Long> deletedIds = userPurgeRepository.deleteNonCredentialUsers(new ArrayList<>(users.keySet()));
+        if (deletedIds.isEmpty()) {
+            return users;
         }
+        Map<Long, String> deleted = new LinkedHashMap<>();
+        deletedIds.forEach(id -> deleted.put(id, users.get(id)));
+        outboxRelay.publishAllDeleted(User.class, UserRepository.USERS_BY_UUID_CACHE, deleted);
+        // The rows are deleted behind Hibernate, so its second level cache must forget them
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+            @Override
+            public void afterCommit() {
+                deletedIds.forEach(id -> entityManagerFactory.getCache().evict(User.class, id));
+            }
+        });
+        removed.addAndGet(deletedIds.size());
+        purgedUsers.mark(deletedIds.size());
+        log.debug("Deleted {} users not have credential", deletedIds.size());
+        return users;
     }
 
     /**
@@ -255,9 +424,12 @@ public class UserService implements UuidService<User> {
      * @param user the user
      */
     public void delete(User user) {
+        this.credentialService.publishUserChanged(user.getId());
         userRepository.delete(user.getId());
-        userSearchRepository.delete(user.getId());
-        this.cacheManager.getCache(UserRepository.USERS_BY_UUID_CACHE).evict(user.getUuid());
+        // Lock the row before drawing the event id, see saveOrUpdate
+        userRepository.flush();
+        this.outboxRelay.publishDeleted(User.class, user.getId(), UserRepository.USERS_BY_UUID_CACHE,
+                user.getUuid());
         log.debug("Deleted User: {}", user);
     }
 
@@ -268,8 +440,7 @@ public class UserService implements UuidService<User> {
     public void fixNonUuid() {
         List<User> nonUuidUsers = this.userRepository.findByUuidIsNull();
         for (User user : nonUuidUsers) {
-            user.setUuid(this.createUuid(this.getClass().getSimpleName(), user.getId()));
-            this.saveOrUpdate(user, false);
+            this.saveOrUpdate(this.createUuid(user), false);
         }
     }
 
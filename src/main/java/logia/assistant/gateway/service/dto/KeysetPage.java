@@ -0,0 +1,109 @@
+package logia.assistant.gateway.service.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page read by keyset pagination: the rows after the key of the last row of the previous page, ordered by key.
+ * <p>
+ * Unlike a {@link org.springframework.data.domain.Page}, reading a page never skips the previous rows, and the total
+ * count is only computed when asked for.
+ *
+ * @param <T> the type of the content
+ * @author Dai Mai
+ */
+public class KeysetPage<T> {
+
+    /** The content. */
+    private final List<T> content;
+
+    /** The key of the last row, to read the next page from, null if this is the last page. */
+    private final Long nextKey;
+
+    /** The total count, null if not computed. */
+    private final Long totalCount;
+
+    /**
+     * Instantiates a new keyset page.
+     *
+     * @param content the content
+     * @param nextKey the key to read the next page from, null if this is the last page
+     * @param totalCount the total count, null if not computed
+     */
+    public KeysetPage(List<T> content, Long nextKey, Long totalCount) {
+        this.content = Collections.unmodifiableList(content);
+        this.nextKey = nextKey;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * Build a page from rows read with one more row than the page size, telling whether a next page exists.
+     *
+     * @param <E> the type of the rows
+     * @param rows the rows, at most size + 1
+     * @param size the page size
+     * @param keyGetter the key getter of a row
+     * @param totalCount the total count, null if not computed
+     * @return the page
+     */
+    public static <E> KeysetPage<E> of(List<E> rows, int size, Function<E, Long> keyGetter, Long totalCount) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null, totalCount);
+        }
+        List<E> content = new ArrayList<>(rows.subList(0, size));
+        return new KeysetPage<>(content, keyGetter.apply(content.get(size - 1)), totalCount);
+    }
+
+    /**
+     * Map the content of this page.
+     *
+     * @param <U> the type of the mapped content
+     * @param mapper the mapper
+     * @return the mapped page
+     */
+    public <U> KeysetPage<U> map(Function<? super T, ? extends U> mapper) {
+        List<U> mapped = new ArrayList<>(content.size());
+        for (T element : content) {
+            mapped.add(mapper.apply(element));
+        }
+        return new KeysetPage<>(mapped, nextKey, totalCount);
+    }
+
+    /**
+     * Gets the content.
+     *
+     * @return the content
+     */
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * Checks for next page.
+     *
+     * @return true, if a next page exists
+     */
+    public boolean hasNext() {
+        return nextKey != null;
+    }
+
+    /**
+     * Gets the key to read the next page from.
+     *
+     * @return the next key, null if this is the last page
+     */
+    public Long getNextKey() {
+        return nextKey;
+    }
+
+    /**
+     * Gets the total count.
+     *
+     * @return the total count, null if not computed
+     */
+    public Long getTotalCount() {
+        return totalCount;
+    }
+}
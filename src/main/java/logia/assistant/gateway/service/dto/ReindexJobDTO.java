@@ -0,0 +1,243 @@
+package logia.assistant.gateway.service.dto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import logia.assistant.gateway.service.ReindexJob;
+
+/**
+ * A DTO representing the progress of an Elasticsearch reindex.
+ *
+ * @author Dai Mai
+ */
+public class ReindexJobDTO {
+
+    /** The id. */
+    private String id;
+
+    /** The status. */
+    private ReindexJob.Status status;
+
+    /** The started date. */
+    private Instant startedDate;
+
+    /** The ended date. */
+    private Instant endedDate;
+
+    /** The indexed documents. */
+    private long done;
+
+    /** The rows to index. */
+    private long total;
+
+    /** The indexed documents per second. */
+    private double documentsPerSecond;
+
+    /** The estimated seconds remaining. */
+    private Long etaSeconds;
+
+    /** The errors. */
+    private List<String> errors;
+
+    /**
+     * Instantiates a new reindex job DTO.
+     */
+    public ReindexJobDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    /**
+     * Instantiates a new reindex job DTO.
+     *
+     * @param job the job
+     */
+    public ReindexJobDTO(ReindexJob job) {
+        this.id = job.getId();
+        this.status = job.getStatus();
+        this.startedDate = job.getStartedDate();
+        this.endedDate = job.getEndedDate();
+        this.done = job.getDone();
+        this.total = job.getTotal();
+        this.documentsPerSecond = job.getDocumentsPerSecond();
+        this.etaSeconds = job.getEstimatedRemaining().map(Duration::getSeconds).orElse(null);
+        this.errors = job.getErrors();
+    }
+
+    /**
+     * Gets the id.
+     *
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id.
+     *
+     * @param id the new id
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the status.
+     *
+     * @return the status
+     */
+    public ReindexJob.Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the status.
+     *
+     * @param status the new status
+     */
+    public void setStatus(ReindexJob.Status status) {
+        this.status = status;
+    }
+
+    /**
+     * Gets the started date.
+     *
+     * @return the started date
+     */
+    public Instant getStartedDate() {
+        return startedDate;
+    }
+
+    /**
+     * Sets the started date.
+     *
+     * @param startedDate the new started date
+     */
+    public void setStartedDate(Instant startedDate) {
+        this.startedDate = startedDate;
+    }
+
+    /**
+     * Gets the ended date.
+     *
+     * @return the ended date
+     */
+    public Instant getEndedDate() {
+        return endedDate;
+    }
+
+    /**
+     * Sets the ended date.
+     *
+     * @param endedDate the new ended date
+     */
+    public void setEndedDate(Instant endedDate) {
+        this.endedDate = endedDate;
+    }
+
+    /**
+     * Gets the indexed documents.
+     *
+     * @return the indexed documents
+     */
+    public long getDone() {
+        return done;
+    }
+
+    /**
+     * Sets the indexed documents.
+     *
+     * @param done the new indexed documents
+     */
+    public void setDone(long done) {
+        this.done = done;
+    }
+
+    /**
+     * Gets the rows to index.
+     *
+     * @return the rows to index
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Sets the rows to index.
+     *
+     * @param total the new rows to index
+     */
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    /**
+     * Gets the indexed documents per second.
+     *
+     * @return the indexed documents per second
+     */
+    public double getDocumentsPerSecond() {
+        return documentsPerSecond;
+    }
+
+    /**
+     * Sets the indexed documents per second.
+     *
+     * @param documentsPerSecond the new indexed documents per second
+     */
+    public void setDocumentsPerSecond(double documentsPerSecond) {
+        this.documentsPerSecond = documentsPerSecond;
+    }
+
+    /**
+     * Gets the estimated seconds remaining.
+     *
+     * @return the estimated seconds remaining, null when unknown
+     */
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    /**
+     * Sets the estimated seconds remaining.
+     *
+     * @param etaSeconds the new estimated seconds remaining
+     */
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    /**
+     * Gets the errors.
+     *
+     * @return the errors
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Sets the errors.
+     *
+     * @param errors the new errors
+     */
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ReindexJobDTO{" +
+            "id='" + id + "'" +
+            ", status=" + status +
+            ", done=" + done +
+            ", total=" + total +
+            ", documentsPerSecond=" + documentsPerSecond +
+            ", etaSeconds=" + etaSeconds +
+            "}";
+    }
+}
@@ -0,0 +1,167 @@
+package logia.assistant.gateway.service.dto;
+
+import java.util.List;
+
+/**
+ * A DTO representing the result of a row of a bulk user import.
+ *
+ * @author Dai Mai
+ */
+public class UserImportResultDTO {
+
+    /** The statuses of a row. */
+    public enum Status {
+
+        /** The user was created. */
+        CREATED,
+
+        /** The row was not valid, nothing was created. */
+        REJECTED,
+
+        /** The row was valid, but the user could not be created. */
+        FAILED
+    }
+
+    /** The line of the row in the imported document, from 1. */
+    private long line;
+
+    /** The login. */
+    private String login;
+
+    /** The UUID of the created user. */
+    private String id;
+
+    /** The status. */
+    private Status status;
+
+    /** The errors. */
+    private List<String> errors;
+
+    /**
+     * Instantiates a new user import result DTO.
+     */
+    public UserImportResultDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    /**
+     * Instantiates a new user import result DTO.
+     *
+     * @param line the line
+     * @param login the login
+     * @param id the UUID of the created user
+     * @param status the status
+     * @param errors the errors
+     */
+    public UserImportResultDTO(long line, String login, String id, Status status, List<String> errors) {
+        this.line = line;
+        this.login = login;
+        this.id = id;
+        this.status = status;
+        this.errors = errors;
+    }
+
+    /**
+     * Gets the line.
+     *
+     * @return the line
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Sets the line.
+     *
+     * @param line the new line
+     */
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    /**
+     * Gets the login.
+     *
+     * @return the login
+     */
+    public String getLogin() {
+        return login;
+    }
+
+    /**
+     * Sets the login.
+     *
+     * @param login the new login
+     */
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    /**
+     * Gets the id.
+     *
+     * @return the UUID of the created user
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id.
+     *
+     * @param id the new id
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the status.
+     *
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the status.
+     *
+     * @param status the new status
+     */
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * Gets the errors.
+     *
+     * @return the errors
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Sets the errors.
+     *
+     * @param errors the new errors
+     */
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "UserImportResultDTO{" +
+            "line=" + line +
+            ", login='" + login + "'" +
+            ", id='" + id + "'" +
+            ", status=" + status +
+            ", errors=" + errors +
+            "}";
+    }
+}
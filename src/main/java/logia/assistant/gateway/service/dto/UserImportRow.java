@@ -0,0 +1,80 @@
+package logia.assistant.gateway.service.dto;
+
+/**
+ * A row of a bulk user import: the user read from the row, or the reason why the row could not be read.
+ *
+ * @author Dai Mai
+ */
+public class UserImportRow {
+
+    /** The line of the row in the imported document, from 1. */
+    private final long line;
+
+    /** The user, null if the row could not be read. */
+    private final UserDTO user;
+
+    /** The reason why the row could not be read, null if it was read. */
+    private final String error;
+
+    /**
+     * Instantiates a new user import row.
+     *
+     * @param line the line
+     * @param user the user, null if the row could not be read
+     * @param error the reason why the row could not be read, null if it was read
+     */
+    private UserImportRow(long line, UserDTO user, String error) {
+        this.line = line;
+        this.user = user;
+        this.error = error;
+    }
+
+    /**
+     * A row read as a user.
+     *
+     * @param line the line
+     * @param user the user
+     * @return the row
+     */
+    public static UserImportRow of(long line, UserDTO user) {
+        return new UserImportRow(line, user, null);
+    }
+
+    /**
+     * A row which could not be read.
+     *
+     * @param line the line
+     * @param error the reason why the row could not be read
+     * @return the row
+     */
+    public static UserImportRow unreadable(long line, String error) {
+        return new UserImportRow(line, null, error);
+    }
+
+    /**
+     * Gets the line.
+     *
+     * @return the line
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Gets the user.
+     *
+     * @return the user, null if the row could not be read
+     */
+    public UserDTO getUser() {
+        return user;
+    }
+
+    /**
+     * Gets the error.
+     *
+     * @return the reason why the row could not be read, null if it was read
+     */
+    public String getError() {
+        return error;
+    }
+}
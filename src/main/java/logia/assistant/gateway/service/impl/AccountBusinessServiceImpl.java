@@ -2,24 +2,44 @@ package logia.assistant.gateway.service.impl;
 
 import java.text.MessageFormat;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import logia.assistant.gateway.config.ApplicationProperties;
 import logia.assistant.gateway.config.Constants;
 import logia.assistant.gateway.domain.Credential;
 import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.repository.CredentialRepository;
 import logia.assistant.gateway.security.SecurityUtils;
 import logia.assistant.gateway.service.AccountBusinessService;
 import logia.assistant.gateway.service.CredentialService;
+import logia.assistant.gateway.service.MailQueue;
 import logia.assistant.gateway.service.MailService;
 import logia.assistant.gateway.service.UserService;
+import logia.assistant.gateway.service.dto.KeysetPage;
 import logia.assistant.gateway.service.dto.UserDTO;
+import logia.assistant.gateway.service.dto.UserImportResultDTO;
+import logia.assistant.gateway.service.dto.UserImportRow;
 import logia.assistant.gateway.service.util.RandomUtil;
 import logia.assistant.gateway.service.validator.ValidatorService;
 import logia.assistant.gateway.web.rest.errors.BadRequestAlertException;
@@ -54,6 +74,18 @@ public class AccountBusinessServiceImpl implements AccountBusinessService {
     /** The validator service. */
     private final ValidatorService  validatorService;
 
+    /** The mail queue. */
+    private final MailQueue         mailQueue;
+
+    /** The transaction template, of each chunk of imported users. */
+    private final TransactionTemplate importTransactionTemplate;
+
+    /** The read transaction template, of each page of exported users. */
+    private final TransactionTemplate exportTransactionTemplate;
+
+    /** The number of imported users by chunk. */
+    private final int               importBatchSize;
+
     /**
      * Instantiates a new account business service impl.
      *
@@ -62,16 +94,26 @@ public class AccountBusinessServiceImpl implements AccountBusinessService {
      * @param passwordEncoder the password encoder
      * @param userService the user service
      * @param validatorService the validator service
+     * @param mailQueue the mail queue
+     * @param transactionManager the transaction manager
+     * @param applicationProperties the application properties
      */
     public AccountBusinessServiceImpl(CredentialService credentialService, MailService mailService,
             PasswordEncoder passwordEncoder, UserService userService,
-            ValidatorService validatorService) {
+            ValidatorService validatorService, MailQueue mailQueue,
+            PlatformTransactionManager transactionManager,
+            ApplicationProperties applicationProperties) {
         super();
         this.credentialService = credentialService;
         this.mailService = mailService;
         this.passwordEncoder = passwordEncoder;
         this.userService = userService;
         this.validatorService = validatorService;
+        this.mailQueue = mailQueue;
+        this.importTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.exportTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.exportTransactionTemplate.setReadOnly(true);
+        this.importBatchSize = Math.max(1, applicationProperties.getUserImport().getBatchSize());
     }
 
     /*
@@ -144,10 +186,8 @@ public class AccountBusinessServiceImpl implements AccountBusinessService {
     @Override
     public User createUser(UserDTO userDTO) {
         log.debug("Admin created Information for User: {}", userDTO);
-        // Low case login if is email
-        if (this.validatorService.isEmail(userDTO.getLogin())) {
-            userDTO.setLogin(userDTO.getLogin());
-        }
+        // Check the login as it is stored
+        userDTO.setLogin(Credential.normalizeLogin(userDTO.getLogin()));
 
         if (userDTO.getId() != null) {
             throw new BadRequestAlertException("A new user cannot already have an UUID",
@@ -221,10 +261,8 @@ public class AccountBusinessServiceImpl implements AccountBusinessService {
      */
     @Override
     public User registerUser(UserDTO userDTO, String password) {
-        // Low case login if is email
-        if (this.validatorService.isEmail(userDTO.getLogin())) {
-            userDTO.setLogin(userDTO.getLogin().toLowerCase());
-        }
+        // Check the login as it is stored
+        userDTO.setLogin(Credential.normalizeLogin(userDTO.getLogin()));
 
         log.debug("User create new account: {}", userDTO);
         // Validate register information
@@ -295,4 +333,206 @@ public class AccountBusinessServiceImpl implements AccountBusinessService {
         this.userService.updateOrCreateUser(user, userDTO, false);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see logia.assistant.gateway.service.AccountBusinessService#importUsers(java.util.Iterator,
+     * java.util.function.Consumer)
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void importUsers(Iterator<UserImportRow> rows, Consumer<UserImportResultDTO> results) {
+        Set<String> authorities = new HashSet<>(this.userService.getAuthorities());
+        // The imported users set their password from the creation email, so they share one unknown password
+        // instead of paying a BCrypt hash per row
+        String encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword());
+        Set<String> importedLogins = new HashSet<>();
+        List<UserImportRow> chunk = new ArrayList<>(importBatchSize);
+        long created = 0;
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == importBatchSize || !rows.hasNext()) {
+                for (UserImportResultDTO result : importChunk(chunk, authorities, encryptedPassword,
+                        importedLogins)) {
+                    if (result.getStatus() == UserImportResultDTO.Status.CREATED) {
+                        created++;
+                    }
+                    results.accept(result);
+                }
+                chunk.clear();
+            }
+        }
+        log.info("Imported {} users", created);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see logia.assistant.gateway.service.AccountBusinessService#exportUsers(java.util.function.
+     * Consumer)
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void exportUsers(Consumer<UserDTO> consumer) {
+        Long afterId = null;
+        KeysetPage<UserDTO> page;
+        do {
+            Long pageAfterId = afterId;
+            page = exportTransactionTemplate.execute(status -> {
+                KeysetPage<Credential> credentials = this.credentialService.findAllByLoginNot(pageAfterId,
+                        CredentialRepository.STREAM_FETCH_SIZE, false, Constants.ANONYMOUS_USER);
+                // Initialize the authorities of the users of the page, in the same persistence context
+                Set<Long> userIds = credentials.getContent().stream()
+                        .map(credential -> credential.getUser().getId()).collect(Collectors.toSet());
+                if (!userIds.isEmpty()) {
+                    this.userService.findAllWithAuthorities(userIds);
+                }
+                return credentials.map(UserDTO::new);
+            });
+            page.getContent().forEach(consumer);
+            afterId = page.getNextKey();
+        }
+        while (page.hasNext());
+    }
+
+    /**
+     * Validate a chunk of imported rows, then insert the valid ones in a transaction. If the transaction fails, each
+     * row is inserted again in its own transaction to find the failing rows.
+     *
+     * @param chunk the rows
+     * @param authorities the known authorities
+     * @param encryptedPassword the encrypted password of the users
+     * @param importedLogins the logins of the rows already imported, updated with the valid rows
+     * @return the results, in the order of the rows
+     */
+    private List<UserImportResultDTO> importChunk(List<UserImportRow> chunk, Set<String> authorities,
+            String encryptedPassword, Set<String> importedLogins) {
+        Map<UserImportRow, UserImportResultDTO> results = new LinkedHashMap<>();
+        List<UserImportRow> validRows = new ArrayList<>(chunk.size());
+        for (UserImportRow row : chunk) {
+            List<String> errors = validate(row, authorities);
+            if (errors.isEmpty() && !importedLogins.add(row.getUser().getLogin())) {
+                errors = Collections.singletonList("login: is duplicated in the import");
+            }
+            if (errors.isEmpty()) {
+                validRows.add(row);
+                results.put(row, null);
+            }
+            else {
+                results.put(row, new UserImportResultDTO(row.getLine(),
+                        row.getUser() == null ? null : row.getUser().getLogin(), null,
+                        UserImportResultDTO.Status.REJECTED, errors));
+            }
+        }
+        try {
+            List<UserImportResultDTO> insertedResults = insert(validRows, encryptedPassword);
+            for (int i = 0; i < validRows.size(); i++) {
+                results.put(validRows.get(i), insertedResults.get(i));
+            }
+        }
+        catch (DataAccessException | TransactionException e) {
+            if (validRows.size() == 1) {
+                UserImportRow row = validRows.get(0);
+                log.warn("Cannot import user at line {}: {}", row.getLine(), e.getMessage());
+                results.put(row, new UserImportResultDTO(row.getLine(), row.getUser().getLogin(), null,
+                        UserImportResultDTO.Status.FAILED, Collections.singletonList(e.getMessage())));
+            }
+            else {
+                log.debug("Cannot import {} users at once, importing them one by one", validRows.size(), e);
+                for (UserImportRow row : validRows) {
+                    results.put(row, importChunk(Collections.singletonList(row), authorities,
+                            encryptedPassword, new HashSet<>()).get(0));
+                }
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    /**
+     * Insert valid rows in a new transaction, by JDBC batches, rejecting the rows of the logins already used.
+     *
+     * @param rows the valid rows
+     * @param encryptedPassword the encrypted password of the users
+     * @return the results, in the order of the rows
+     */
+    private List<UserImportResultDTO> insert(List<UserImportRow> rows, String encryptedPassword) {
+        if (rows.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return importTransactionTemplate.execute(status -> {
+            Set<String> usedLogins = this.credentialService.findUsedLogins(
+                    rows.stream().map(row -> row.getUser().getLogin()).collect(Collectors.toList()));
+            List<UserImportResultDTO> results = new ArrayList<>(rows.size());
+            List<UserImportRow> newRows = new ArrayList<>(rows.size());
+            for (UserImportRow row : rows) {
+                if (usedLogins.contains(row.getUser().getLogin())) {
+                    results.add(new UserImportResultDTO(row.getLine(), row.getUser().getLogin(), null,
+                            UserImportResultDTO.Status.REJECTED,
+                            Collections.singletonList("login: is already used")));
+                }
+                else {
+                    newRows.add(row);
+                    results.add(null);
+                }
+            }
+            if (newRows.isEmpty()) {
+                return results;
+            }
+
+            List<User> users = this.userService.createUsers(
+                    newRows.stream().map(UserImportRow::getUser).collect(Collectors.toList()),
+                    encryptedPassword);
+            Instant now = Instant.now();
+            List<Credential> credentials = new ArrayList<>(newRows.size());
+            for (int i = 0; i < newRows.size(); i++) {
+                credentials.add(new Credential().user(users.get(i)).login(newRows.get(i).getUser().getLogin())
+                        .primary(true).resetKey(RandomUtil.generateResetKey()).resetDate(now));
+            }
+            credentials = this.credentialService.saveEntities(credentials);
+            this.mailQueue.enqueueCreationEmails(credentials.stream()
+                    .filter(credential -> this.validatorService.isEmail(credential.getLogin()))
+                    .map(Credential::getId).collect(Collectors.toList()));
+
+            Iterator<User> createdUsers = users.iterator();
+            Iterator<UserImportRow> createdRows = newRows.iterator();
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i) == null) {
+                    UserImportRow row = createdRows.next();
+                    results.set(i, new UserImportResultDTO(row.getLine(), row.getUser().getLogin(),
+                            createdUsers.next().getUuid(), UserImportResultDTO.Status.CREATED,
+                            Collections.emptyList()));
+                }
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Validate an imported row, normalizing its user when it is valid: the login is normalized as it is stored, so
+     * the duplicate and used login checks see the stored logins, and the default language is set.
+     *
+     * @param row the row
+     * @param authorities the known authorities
+     * @return the errors, empty if the row is valid
+     */
+    private List<String> validate(UserImportRow row, Set<String> authorities) {
+        if (row.getUser() == null) {
+            return Collections.singletonList(row.getError());
+        }
+        UserDTO userDTO = row.getUser();
+        List<String> errors = new ArrayList<>(this.validatorService.findViolations(userDTO));
+        if (userDTO.getAuthorities() != null) {
+            userDTO.getAuthorities().stream().filter(authority -> !authorities.contains(authority))
+                    .map(String::valueOf).sorted()
+                    .forEach(authority -> errors.add("authorities: unknown authority " + authority));
+        }
+        if (errors.isEmpty()) {
+            userDTO.setLogin(Credential.normalizeLogin(userDTO.getLogin()));
+            if (userDTO.getLangKey() == null) {
+                userDTO.setLangKey(Constants.DEFAULT_LANGUAGE);
+            }
+        }
+        return errors;
+    }
+
 }
@@ -2,26 +2,41 @@ package logia.assistant.gateway.service.impl;
 
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import javax.persistence.EntityManager;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import logia.assistant.gateway.domain.CachedCredential;
 import logia.assistant.gateway.domain.Credential;
 import logia.assistant.gateway.repository.CredentialRepository;
 import logia.assistant.gateway.repository.search.CredentialSearchRepository;
 import logia.assistant.gateway.service.CredentialService;
+import logia.assistant.gateway.service.LoginFilter;
+import logia.assistant.gateway.service.OutboxRelay;
 import logia.assistant.gateway.service.dto.CredentialDTO;
+import logia.assistant.gateway.service.dto.KeysetPage;
 import logia.assistant.gateway.service.mapper.CredentialMapper;
 import logia.assistant.gateway.service.validator.ValidatorService;
 import logia.assistant.gateway.web.rest.errors.LoginAlreadyUsedException;
@@ -48,31 +63,42 @@ public class CredentialServiceImpl implements CredentialService {
     /** The credential search repository. */
     private final CredentialSearchRepository credentialSearchRepository;
 
-    /** The cache manager. */
-    private final CacheManager               cacheManager;
-
     /** The validator service. */
     private final ValidatorService           validatorService;
 
+    /** The outbox relay. */
+    private final OutboxRelay                outboxRelay;
+
+    /** The entity manager. */
+    private final EntityManager              entityManager;
+
+    /** The login filter. */
+    private final LoginFilter                loginFilter;
+
     /**
      * Instantiates a new credential service impl.
      *
      * @param credentialRepository the credential repository
      * @param credentialMapper the credential mapper
      * @param credentialSearchRepository the credential search repository
-     * @param cacheManager the cache manager
      * @param validatorService the validator service
+     * @param outboxRelay the outbox relay
+     * @param entityManager the entity manager
+     * @param loginFilter the login filter
      */
     public CredentialServiceImpl(CredentialRepository credentialRepository,
             CredentialMapper credentialMapper,
-            CredentialSearchRepository credentialSearchRepository, CacheManager cacheManager,
-            ValidatorService validatorService) {
+            CredentialSearchRepository credentialSearchRepository,
+            ValidatorService validatorService, OutboxRelay outboxRelay, EntityManager entityManager,
+            LoginFilter loginFilter) {
         super();
         this.credentialRepository = credentialRepository;
         this.credentialMapper = credentialMapper;
         this.credentialSearchRepository = credentialSearchRepository;
-        this.cacheManager = cacheManager;
         this.validatorService = validatorService;
+        this.outboxRelay = outboxRelay;
+        this.entityManager = entityManager;
+        this.loginFilter = loginFilter;
     }
 
     /*
@@ -94,7 +120,7 @@ public class CredentialServiceImpl implements CredentialService {
     @Override
     public Credential delete(String login) {
         log.debug("Request to delete Credential login : {}", login);
-        return this.credentialRepository.findOneWithUserByLogin(login).map(credential -> {
+        return this.loginFilter.findOneWithUserByLogin(login).map(credential -> {
             this.delete(credential.getId(), credential.getLogin());
             return credential;
         }).get();
@@ -113,6 +139,71 @@ public class CredentialServiceImpl implements CredentialService {
         return this.credentialRepository.findAllByLoginNot(pageable, login);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see logia.assistant.gateway.service.CredentialService#findAllByLoginNot(java.lang.Long, int,
+     * boolean, java.lang.String)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<Credential> findAllByLoginNot(Long afterId, int size, boolean count, String login) {
+        List<Credential> rows = this.credentialRepository.findAllByLoginNotAndIdGreaterThanOrderByIdAsc(login,
+                Objects.isNull(afterId) ? 0L : afterId, new PageRequest(0, size + 1));
+        return KeysetPage.of(rows, size, Credential::getId,
+                count ? this.credentialRepository.countByLoginNot(login) : null);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see logia.assistant.gateway.service.CredentialService#findAllDtos(org.springframework.data.
+     * domain.Pageable)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<CredentialDTO> findAllDtos(Pageable pageable) {
+        log.debug("Request to get a page of Credentials");
+        return this.credentialRepository.findAllWithUser(pageable).map(credentialMapper::toDto);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see logia.assistant.gateway.service.CredentialService#streamAllDtos(java.util.function.Consumer)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllDtos(Consumer<CredentialDTO> consumer) {
+        log.debug("Request to stream all Credentials");
+        // Keep the persistence context from holding every row read so far, unless it belongs to the caller
+        boolean clear = TransactionAspectSupport.currentTransactionStatus().isNewTransaction();
+        int read = 0;
+        try (Stream<Credential> credentials = this.credentialRepository.streamAllWithUser()) {
+            for (Credential credential : (Iterable<Credential>) credentials::iterator) {
+                consumer.accept(credentialMapper.toDto(credential));
+                if (clear && ++read % CredentialRepository.STREAM_FETCH_SIZE == 0) {
+                    this.entityManager.clear();
+                }
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see logia.assistant.gateway.service.CredentialService#findAllDtos(java.lang.Long, int, boolean)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<CredentialDTO> findAllDtos(Long afterId, int size, boolean count) {
+        log.debug("Request to get Credentials after {}", afterId);
+        List<Credential> rows = this.credentialRepository.findAllByIdGreaterThanOrderByIdAsc(
+                Objects.isNull(afterId) ? 0L : afterId, new PageRequest(0, size + 1));
+        return KeysetPage.of(rows, size, Credential::getId, count ? this.credentialRepository.count() : null)
+                .map(credentialMapper::toDto);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -148,6 +239,20 @@ public class CredentialServiceImpl implements CredentialService {
         return this.credentialRepository.findWithUserByUserId(userId);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see logia.assistant.gateway.service.CredentialService#publishUserChanged(java.lang.Long)
+     */
+    @Override
+    public void publishUserChanged(Long userId) {
+        Map<Long, String> cacheKeys = new LinkedHashMap<>();
+        this.credentialRepository.findWithUserByUserId(userId)
+                .forEach(credential -> cacheKeys.put(credential.getId(), credential.getLogin()));
+        this.outboxRelay.publishAllSaved(Credential.class, CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE,
+                cacheKeys);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -156,7 +261,7 @@ public class CredentialServiceImpl implements CredentialService {
     @Override
     public Optional<Credential> findOneByEmail(String mail) {
         this.validatorService.validateEmail(mail);
-        return this.credentialRepository.findOneByLoginIgnoreCase(mail);
+        return this.loginFilter.findOneWithUserByLogin(mail);
     }
 
     /*
@@ -204,8 +309,18 @@ public class CredentialServiceImpl implements CredentialService {
     @Override
     @Transactional(readOnly = true)
     public Optional<Credential> findOneWithUserByLogin(String login) {
-        Optional<Credential> credential = this.credentialRepository.findOneWithUserByLogin(login);
-        return credential;
+        return this.loginFilter.findOneWithUserByLogin(login);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * logia.assistant.gateway.service.CredentialService#findCachedByLogin(java.lang.String)
+     */
+    @Override
+    public Optional<CachedCredential> findCachedByLogin(String login) {
+        return this.loginFilter.findCachedByLogin(login);
     }
 
     /*
@@ -269,19 +384,46 @@ public class CredentialServiceImpl implements CredentialService {
      */
     @Override
     public Credential saveEntity(Credential credential, boolean flush) {
-        Credential savedCredential;
-        if (flush) {
-            savedCredential = this.credentialRepository.saveAndFlush(credential);
-        }
-        else {
-            savedCredential = this.credentialRepository.save(credential);
-        }
-        this.credentialSearchRepository.save(savedCredential);
-        cacheManager.getCache(CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE)
-                .evict(savedCredential.getLogin());
+        // Flushed whatever the flag: the row must be locked by its UPDATE before the event id is drawn, so the events of
+        // a row are numbered in the order of their commits
+        Credential savedCredential = this.credentialRepository.saveAndFlush(credential);
+        this.outboxRelay.publishSaved(Credential.class, savedCredential.getId(),
+                CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE, savedCredential.getLogin());
         return savedCredential;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see logia.assistant.gateway.service.CredentialService#findUsedLogins(java.util.Collection)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> findUsedLogins(Collection<String> logins) {
+        if (logins.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(this.credentialRepository.findLoginsByLoginIn(
+                logins.stream().map(Credential::normalizeLogin).collect(Collectors.toList())));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see logia.assistant.gateway.service.CredentialService#saveEntities(java.util.List)
+     */
+    @Override
+    public List<Credential> saveEntities(List<Credential> credentials) {
+        List<Credential> savedCredentials = this.credentialRepository.save(credentials);
+        // Lock the rows before drawing the event ids, see saveEntity
+        this.credentialRepository.flush();
+        Map<Long, String> cacheKeys = new LinkedHashMap<>();
+        savedCredentials.forEach(credential -> cacheKeys.put(credential.getId(), credential.getLogin()));
+        this.outboxRelay.publishAllSaved(Credential.class, CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE,
+                cacheKeys);
+        return savedCredentials;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -302,8 +444,9 @@ public class CredentialServiceImpl implements CredentialService {
      */
     @Override
     public Credential updateByUserId(Long userId, String login) {
+        String normalizedLogin = Credential.normalizeLogin(login);
         Credential credential;
-        Optional<Credential> existingCredential = this.findOneWithUserByLogin(login);
+        Optional<Credential> existingCredential = this.findOneWithUserByLogin(normalizedLogin);
         if (existingCredential.isPresent()
                 && (!existingCredential.get().getUser().getId().equals(userId))) {
             // another user already have this credential
@@ -311,11 +454,11 @@ public class CredentialServiceImpl implements CredentialService {
         }
         List<Credential> currentCredentials = this.findByUserId(userId);
         Optional<Credential> optCredential = currentCredentials.stream()
-                .filter(currentCredential -> currentCredential.getLogin().equals(login))
+                .filter(currentCredential -> currentCredential.getLogin().equals(normalizedLogin))
                 .findFirst();
         if (!optCredential.isPresent()) {
             credential = Credential.clone(currentCredentials.get(0));
-            credential.primary(false).login(login);
+            credential.primary(false).login(normalizedLogin);
             credential = this.saveEntity(credential, true);
 
             // TODO send validation email
@@ -334,10 +477,10 @@ public class CredentialServiceImpl implements CredentialService {
      */
     private void delete(Long credentialId, String login) {
         this.credentialRepository.delete(credentialId);
-        this.credentialSearchRepository.delete(credentialId);
-        if (Objects.nonNull(login)) {
-            cacheManager.getCache(CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE).evict(login);
-        }
+        // Lock the row before drawing the event id, see saveEntity
+        this.credentialRepository.flush();
+        this.outboxRelay.publishDeleted(Credential.class, credentialId,
+                CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE, login);
         log.debug("Deleted Credential: {}", credentialId);
     }
 
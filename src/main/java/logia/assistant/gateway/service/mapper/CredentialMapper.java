@@ -1,30 +1,115 @@
 package logia.assistant.gateway.service.mapper;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.repository.UserRepository;
 import logia.assistant.gateway.service.dto.CredentialDTO;
 
 /**
  * Mapper for the entity Credential and its DTO CredentialDTO.
+ * <p>
+ * The users of the credentials are resolved by their uuid, with one query per list of credentials rather than per
+ * credential.
  *
  * @author Dai Mai
  */
-@Mapper(componentModel = "spring", uses = {UserMapper.class, CredentialMapperProcessor.class})
-public interface CredentialMapper extends EntityMapper<CredentialDTO, Credential> {
+@Mapper(componentModel = "spring", uses = {UserMapper.class})
+public abstract class CredentialMapper implements EntityMapper<CredentialDTO, Credential> {
+
+    /** The number of uuids resolved by one query, below the bind parameter limits of the databases. */
+    static final int USERS_BY_QUERY = 1000;
+
+    /** The user repository. */
+    @Autowired
+    private UserRepository userRepository;
 
     /* (non-Javadoc)
      * @see logia.assistant.gateway.service.mapper.EntityMapper#toDto(java.lang.Object)
      */
+    @Override
     @Mapping(source = "user.uuid", target = "userId")
-    CredentialDTO toDto(Credential credential);
+    public abstract CredentialDTO toDto(Credential credential);
 
     /* (non-Javadoc)
      * @see logia.assistant.gateway.service.mapper.EntityMapper#toEntity(java.lang.Object)
      */
+    @Override
+    public Credential toEntity(CredentialDTO credentialDTO) {
+        Credential credential = toEntityWithoutUser(credentialDTO);
+        if (Objects.nonNull(credential)) {
+            credential.setUser(this.userRepository.getOneByUuid(credentialDTO.getUserId()));
+        }
+        return credential;
+    }
+
+    /* (non-Javadoc)
+     * @see logia.assistant.gateway.service.mapper.EntityMapper#toEntity(java.util.List)
+     */
+    @Override
+    public List<Credential> toEntity(List<CredentialDTO> dtoList) {
+        if (Objects.isNull(dtoList)) {
+            return null;
+        }
+        Map<String, User> users = findUsers(dtoList);
+        List<Credential> credentials = new ArrayList<>(dtoList.size());
+        for (CredentialDTO credentialDTO : dtoList) {
+            Credential credential = toEntityWithoutUser(credentialDTO);
+            if (Objects.nonNull(credential)) {
+                credential.setUser(users.get(credentialDTO.getUserId()));
+            }
+            credentials.add(credential);
+        }
+        return credentials;
+    }
+
+    /**
+     * To entity, leaving the user unset.
+     *
+     * @param credentialDTO the credential DTO
+     * @return the credential
+     */
     @Mapping(target = "user", ignore = true)
-    Credential toEntity(CredentialDTO credentialDTO);
+    protected abstract Credential toEntityWithoutUser(CredentialDTO credentialDTO);
+
+    /**
+     * Find the users of credentials.
+     *
+     * @param dtoList the credential DTOs
+     * @return the users, by uuid
+     */
+    private Map<String, User> findUsers(List<CredentialDTO> dtoList) {
+        Set<String> uuids = new LinkedHashSet<>();
+        for (CredentialDTO credentialDTO : dtoList) {
+            if (Objects.nonNull(credentialDTO) && Objects.nonNull(credentialDTO.getUserId())) {
+                uuids.add(credentialDTO.getUserId());
+            }
+        }
+        Map<String, User> users = new HashMap<>();
+        List<String> chunk = new ArrayList<>(Math.min(uuids.size(), USERS_BY_QUERY));
+        for (String uuid : uuids) {
+            chunk.add(uuid);
+            if (chunk.size() == USERS_BY_QUERY) {
+                this.userRepository.findAllByUuidIn(chunk).forEach(user -> users.put(user.getUuid(), user));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            this.userRepository.findAllByUuidIn(chunk).forEach(user -> users.put(user.getUuid(), user));
+        }
+        return users;
+    }
 
     /**
      * From id.
@@ -32,7 +117,7 @@ public interface CredentialMapper extends EntityMapper<CredentialDTO, Credential
      * @param id the id
      * @return the credential
      */
-    default Credential fromId(Long id) {
+    public Credential fromId(Long id) {
         if (id == null) {
             return null;
         }
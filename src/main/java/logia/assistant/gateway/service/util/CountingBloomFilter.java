@@ -0,0 +1,152 @@
+package logia.assistant.gateway.service.util;
+
+/**
+ * Counting Bloom filter of strings: tells that a string was never added, or that it might have been.
+ * <p>
+ * Each string increments a few counters, chosen by its hash, and removing it decrements them again, so the filter
+ * follows a set whose members come and go. A counter which reached its maximum is never decremented anymore, it only
+ * keeps a removed string reported as possibly present, never the reverse. Writes are serialized, while reads take no
+ * lock.
+ *
+ * @author Dai Mai
+ */
+public final class CountingBloomFilter {
+
+    /** The maximum value of a counter, stored as an unsigned byte. */
+    private static final int MAX_COUNT = 0xFF;
+
+    /** The counters. */
+    private final byte[] counters;
+
+    /** The number of counters of each string. */
+    private final int hashes;
+
+    /** The writes made so far, publishing the counters to the readers. */
+    private volatile long writes;
+
+    /**
+     * Instantiates a new counting bloom filter sized for an expected number of strings.
+     *
+     * @param expectedInsertions the expected number of strings
+     * @param falsePositiveRate the expected false positive rate, between 0 and 1 exclusive
+     */
+    public CountingBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long insertions = Math.max(1L, expectedInsertions);
+        long size = (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.counters = new byte[(int) Math.min(Math.max(size, 64L), Integer.MAX_VALUE - 8L)];
+        this.hashes = Math.max(1, (int) Math.round((double) counters.length / insertions * Math.log(2)));
+    }
+
+    /**
+     * Add a string.
+     *
+     * @param value the value
+     */
+    public synchronized void add(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            int index = index(hash, i);
+            int count = counters[index] & MAX_COUNT;
+            if (count < MAX_COUNT) {
+                counters[index] = (byte) (count + 1);
+            }
+        }
+        writes++;
+    }
+
+    /**
+     * Remove a string, which must have been added before.
+     *
+     * @param value the value
+     */
+    public synchronized void remove(String value) {
+        long hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            if ((counters[index(hash, i)] & MAX_COUNT) == 0) {
+                // Never added, decrementing would forget other strings
+                return;
+            }
+        }
+        for (int i = 0; i < hashes; i++) {
+            int index = index(hash, i);
+            int count = counters[index] & MAX_COUNT;
+            if (count < MAX_COUNT) {
+                counters[index] = (byte) (count - 1);
+            }
+        }
+        writes++;
+    }
+
+    /**
+     * Tell whether a string might have been added.
+     *
+     * @param value the value
+     * @return false if the string was surely not added
+     */
+    public boolean mightContain(String value) {
+        // Reading the volatile field first makes the counters of the last writes visible
+        if (writes == 0) {
+            return false;
+        }
+        long hash = hash(value);
+        for (int i = 0; i < hashes; i++) {
+            if (counters[index(hash, i)] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of counters.
+     *
+     * @return the size
+     */
+    public int size() {
+        return counters.length;
+    }
+
+    /**
+     * Gets the number of counters of each string.
+     *
+     * @return the hashes
+     */
+    public int getHashes() {
+        return hashes;
+    }
+
+    /**
+     * Gets the counter of the i-th hash of a string, combining the two halves of its hash.
+     *
+     * @param hash the hash of the string
+     * @param i the hash number
+     * @return the index of the counter
+     */
+    private int index(long hash, int i) {
+        int combined = (int) hash + i * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % counters.length;
+    }
+
+    /**
+     * Hash a string on 64 bits, by FNV-1a over its chars then the MurmurHash3 finalizer.
+     *
+     * @param value the value
+     * @return the hash
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,6 +1,8 @@
 package logia.assistant.gateway.service.validator;
 
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ValidationException;
@@ -10,7 +12,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.hibernate.validator.constraints.Email;
 import org.springframework.stereotype.Component;
 
-import logia.assistant.gateway.repository.CredentialRepository;
+import logia.assistant.gateway.service.LoginFilter;
 import logia.assistant.gateway.web.rest.errors.InvalidPasswordException;
 import logia.assistant.gateway.web.rest.errors.LoginAlreadyUsedException;
 import logia.assistant.gateway.web.rest.vm.ManagedUserVM;
@@ -26,19 +28,19 @@ public class ValidatorService {
     /** The validator. */
     private final Validator            validator;
 
-    /** The credential repository. */
-    private final CredentialRepository credentialRepository;
+    /** The login filter. */
+    private final LoginFilter          loginFilter;
 
     /**
      * Instantiates a new validator service.
      *
      * @param validator the validator
-     * @param credentialRepository the credential repository
+     * @param loginFilter the login filter
      */
-    public ValidatorService(Validator validator, CredentialRepository credentialRepository) {
+    public ValidatorService(Validator validator, LoginFilter loginFilter) {
         super();
         this.validator = validator;
-        this.credentialRepository = credentialRepository;
+        this.loginFilter = loginFilter;
     }
 
     /**
@@ -53,6 +55,18 @@ public class ValidatorService {
         }
     }
     
+    /**
+     * Find the constraint violations of an object.
+     *
+     * @param object the object
+     * @return the violations, each as the path of the property and the message
+     */
+    public List<String> findViolations(Object object) {
+        return this.validator.validate(object).stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted().collect(Collectors.toList());
+    }
+
     /**
      * Checks if given string is email.
      *
@@ -86,7 +100,7 @@ public class ValidatorService {
      * @param login the login
      */
     public void validateNewCredential(String login) {
-        this.credentialRepository.findOneWithUserByLogin(login.toLowerCase()).ifPresent(u -> {
+        this.loginFilter.findCachedByLogin(login).ifPresent(u -> {
             throw new LoginAlreadyUsedException();
         });
     }
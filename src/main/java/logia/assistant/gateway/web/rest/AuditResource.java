@@ -1,6 +1,7 @@
 package logia.assistant.gateway.web.rest;
 
 import logia.assistant.gateway.service.AuditEventService;
+import logia.assistant.gateway.service.dto.KeysetPage;
 import logia.assistant.gateway.web.rest.util.PaginationUtil;
 
 import io.github.jhipster.web.util.ResponseUtil;
@@ -11,6 +12,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -25,6 +27,9 @@ import java.util.List;
 @RequestMapping("/management/audits")
 public class AuditResource {
 
+    /** The Constant ENTITY_NAME. */
+    private static final String ENTITY_NAME = "audits";
+
     /** The audit event service. */
     private final AuditEventService auditEventService;
 
@@ -72,6 +77,54 @@ public class AuditResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET /audits?cursor= : get the AuditEvents before a cursor, newest first, by keyset pagination.
+     *
+     * @param cursor the cursor of the last page read, empty for the first page
+     * @param pageable the pagination information, only the size is used
+     * @param count whether to send the total count in the X-Total-Count header
+     * @return the ResponseEntity with status 200 (OK) and the list of AuditEvents in body
+     */
+    @GetMapping(params = PaginationUtil.CURSOR_PARAM)
+    public ResponseEntity<List<AuditEvent>> getAllByCursor(@RequestParam String cursor, Pageable pageable,
+        @RequestParam(defaultValue = "false") boolean count) {
+        KeysetPage<AuditEvent> page = auditEventService.findAll(PaginationUtil.decodeCursor(cursor, ENTITY_NAME),
+            pageable.getPageSize(), count);
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, "/management/audits",
+            pageable.getPageSize());
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /audits?cursor= : get the AuditEvents between the fromDate and toDate before a cursor, newest first, by
+     * keyset pagination.
+     *
+     * @param fromDate the start of the time period of AuditEvents to get
+     * @param toDate the end of the time period of AuditEvents to get
+     * @param cursor the cursor of the last page read, empty for the first page
+     * @param pageable the pagination information, only the size is used
+     * @param count whether to send the total count in the X-Total-Count header
+     * @return the ResponseEntity with status 200 (OK) and the list of AuditEvents in body
+     */
+    @GetMapping(params = {"fromDate", "toDate", PaginationUtil.CURSOR_PARAM})
+    public ResponseEntity<List<AuditEvent>> getByDatesByCursor(
+        @RequestParam(value = "fromDate") LocalDate fromDate,
+        @RequestParam(value = "toDate") LocalDate toDate,
+        @RequestParam String cursor,
+        Pageable pageable,
+        @RequestParam(defaultValue = "false") boolean count) {
+
+        KeysetPage<AuditEvent> page = auditEventService.findByDates(
+            fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant(),
+            toDate.atStartOfDay(ZoneId.systemDefault()).plusDays(1).toInstant(),
+            PaginationUtil.decodeCursor(cursor, ENTITY_NAME), pageable.getPageSize(), count);
+        String baseUrl = UriComponentsBuilder.fromUriString("/management/audits")
+            .queryParam("fromDate", fromDate).queryParam("toDate", toDate).toUriString();
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, baseUrl,
+            pageable.getPageSize());
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
     /**
      * GET  /audits/:id : get an AuditEvent by id.
      *
@@ -1,5 +1,7 @@
 package logia.assistant.gateway.web.rest;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -9,6 +11,11 @@ import javax.validation.Valid;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,14 +26,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.github.jhipster.web.util.ResponseUtil;
+import logia.assistant.gateway.config.Constants;
 import logia.assistant.gateway.service.CredentialService;
 import logia.assistant.gateway.service.dto.CredentialDTO;
+import logia.assistant.gateway.service.dto.KeysetPage;
 import logia.assistant.gateway.web.rest.errors.BadRequestAlertException;
 import logia.assistant.gateway.web.rest.util.HeaderUtil;
+import logia.assistant.gateway.web.rest.util.PaginationUtil;
 
 /**
  * REST controller for managing Credential.
@@ -46,13 +58,18 @@ public class CredentialResource {
     /** The credential service. */
     private final CredentialService credentialService;
 
+    /** The object mapper. */
+    private final ObjectMapper objectMapper;
+
     /**
      * Instantiates a new credential resource.
      *
      * @param credentialService the credential service
+     * @param objectMapper the object mapper
      */
-    public CredentialResource(CredentialService credentialService) {
+    public CredentialResource(CredentialService credentialService, ObjectMapper objectMapper) {
         this.credentialService = credentialService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -98,16 +115,72 @@ public class CredentialResource {
     }
 
     /**
-     * GET  /credentials : get all the credentials.
+     * GET  /credentials : get a page of the credentials.
      *
+     * @param pageable the pagination information
      * @return the ResponseEntity with status 200 (OK) and the list of credentials in body
      */
     @GetMapping("/credentials")
     @Timed
-    public List<CredentialDTO> getAllCredentials() {
-        log.debug("REST request to get all Credentials");
-        return credentialService.findAllDtos();
-        }
+    public ResponseEntity<List<CredentialDTO>> getAllCredentials(Pageable pageable) {
+        log.debug("REST request to get a page of Credentials");
+        Page<CredentialDTO> page = credentialService.findAllDtos(pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/credentials");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /credentials, accepting application/x-ndjson : stream all the credentials, one JSON document per line.
+     * <p>
+     * The credentials are read from the database by chunks while they are written, so the memory used does not
+     * grow with the number of credentials.
+     *
+     * @return the ResponseEntity with status 200 (OK) and the credentials in body
+     */
+    @GetMapping(value = "/credentials", produces = Constants.APPLICATION_NDJSON_VALUE)
+    @Timed
+    public ResponseEntity<StreamingResponseBody> streamAllCredentials() {
+        log.debug("REST request to stream all Credentials");
+        StreamingResponseBody body = out -> {
+            try {
+                credentialService.streamAllDtos(credentialDTO -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(credentialDTO));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(Constants.APPLICATION_NDJSON_VALUE))
+            .body(body);
+    }
+
+    /**
+     * GET  /credentials?cursor= : get the credentials after a cursor, by keyset pagination.
+     * <p>
+     * An empty cursor reads the first page, the next page is linked by the Link header.
+     *
+     * @param cursor the cursor of the last page read, empty for the first page
+     * @param pageable the pagination information, only the size is used
+     * @param count whether to send the total count in the X-Total-Count header
+     * @return the ResponseEntity with status 200 (OK) and the list of credentials in body, or with status 400 (Bad
+     *         Request) if the cursor is not valid
+     */
+    @GetMapping(value = "/credentials", params = PaginationUtil.CURSOR_PARAM)
+    @Timed
+    public ResponseEntity<List<CredentialDTO>> getAllCredentialsByCursor(@RequestParam String cursor,
+        Pageable pageable, @RequestParam(defaultValue = "false") boolean count) {
+        log.debug("REST request to get a page of Credentials after cursor {}", cursor);
+        KeysetPage<CredentialDTO> page = credentialService.findAllDtos(
+            PaginationUtil.decodeCursor(cursor, ENTITY_NAME), pageable.getPageSize(), count);
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, "/api/credentials",
+            pageable.getPageSize());
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 
     /**
      * GET  /credentials/:id : get the "id" credential.
@@ -1,19 +1,27 @@
 package logia.assistant.gateway.web.rest;
 
+import java.net.URI;
 import java.net.URISyntaxException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.codahale.metrics.annotation.Timed;
 
+import io.github.jhipster.web.util.ResponseUtil;
 import logia.assistant.gateway.security.SecurityUtils;
 import logia.assistant.gateway.service.ElasticsearchIndexService;
+import logia.assistant.gateway.service.ReindexJob;
+import logia.assistant.gateway.service.dto.ReindexJobDTO;
+import logia.assistant.gateway.web.rest.errors.ReindexInProgressException;
 import logia.assistant.gateway.web.rest.util.HeaderUtil;
 import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
 
@@ -33,16 +41,51 @@ public class ElasticsearchIndexResource {
     }
 
     /**
-     * POST  /elasticsearch/index -> Reindex all Elasticsearch documents
+     * POST  /elasticsearch/index -> Start a reindex of all Elasticsearch documents
+     *
+     * @return the ResponseEntity with status 202 (Accepted) and with body the started job, or with status 409
+     *         (Conflict) if a reindex is already running
+     * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @PostMapping("/elasticsearch/index")
     @Timed
     @Secured(AuthoritiesConstants.ADMIN)
-    public ResponseEntity<Void> reindexAll() throws URISyntaxException {
+    public ResponseEntity<ReindexJobDTO> reindexAll() throws URISyntaxException {
         log.info("REST request to reindex Elasticsearch by user : {}", SecurityUtils.getCurrentUserLogin());
-        elasticsearchIndexService.reindexAll();
+        ReindexJob job = elasticsearchIndexService.startReindex().orElseThrow(ReindexInProgressException::new);
         return ResponseEntity.accepted()
-            .headers(HeaderUtil.createAlert("elasticsearch.reindex.accepted", null))
-            .build();
+            .location(new URI("/api/elasticsearch/index/" + job.getId()))
+            .headers(HeaderUtil.createAlert("elasticsearch.reindex.accepted", job.getId()))
+            .body(new ReindexJobDTO(job));
+    }
+
+    /**
+     * GET  /elasticsearch/index/:id -> Get the progress of a reindex
+     *
+     * @param id the id of the reindex job
+     * @return the ResponseEntity with status 200 (OK) and with body the job, or with status 404 (Not Found)
+     */
+    @GetMapping("/elasticsearch/index/{id}")
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<ReindexJobDTO> getReindex(@PathVariable String id) {
+        log.debug("REST request to get Elasticsearch reindex : {}", id);
+        return ResponseUtil.wrapOrNotFound(elasticsearchIndexService.findJob(id).map(ReindexJobDTO::new));
+    }
+
+    /**
+     * DELETE  /elasticsearch/index/:id -> Cancel a reindex, the next one resumes from where it stopped
+     *
+     * @param id the id of the reindex job
+     * @return the ResponseEntity with status 200 (OK) and with body the job, or with status 404 (Not Found)
+     */
+    @DeleteMapping("/elasticsearch/index/{id}")
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<ReindexJobDTO> cancelReindex(@PathVariable String id) {
+        log.info("REST request to cancel Elasticsearch reindex {} by user : {}", id,
+            SecurityUtils.getCurrentUserLogin());
+        return ResponseUtil.wrapOrNotFound(elasticsearchIndexService.cancelJob(id).map(ReindexJobDTO::new),
+            HeaderUtil.createAlert("elasticsearch.reindex.cancelled", id));
     }
 }
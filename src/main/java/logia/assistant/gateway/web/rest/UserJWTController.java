@@ -1,6 +1,6 @@
 package logia.assistant.gateway.web.rest;
 
-import java.time.ZonedDateTime;
+import java.time.Instant;
 
 import javax.validation.Valid;
 
@@ -19,11 +19,11 @@ import org.springframework.web.bind.annotation.RestController;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import logia.assistant.gateway.domain.Credential;
-import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.domain.CachedCredential;
 import logia.assistant.gateway.security.DomainUserDetail;
 import logia.assistant.gateway.security.jwt.JWTConfigurer;
-import logia.assistant.gateway.service.CredentialService;
+import logia.assistant.gateway.service.LoginActivityRecorder;
+import logia.assistant.gateway.service.PasswordUpgradeService;
 import logia.assistant.gateway.web.rest.vm.LoginVM;
 import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
 
@@ -41,21 +41,29 @@ public class UserJWTController {
 
     /** The authentication manager. */
     private final AuthenticationManager authenticationManager;
-    
-    private final CredentialService credentialService;
+
+    /** The login activity recorder. */
+    private final LoginActivityRecorder loginActivityRecorder;
+
+    /** The password upgrade service. */
+    private final PasswordUpgradeService passwordUpgradeService;
 
     /**
      * Instantiates a new user JWT controller.
      *
      * @param tokenProvider the token provider
      * @param authenticationManager the authentication manager
+     * @param loginActivityRecorder the login activity recorder
+     * @param passwordUpgradeService the password upgrade service
      */
     public UserJWTController(TokenProvider tokenProvider,
-            AuthenticationManager authenticationManager, CredentialService credentialService) {
+            AuthenticationManager authenticationManager, LoginActivityRecorder loginActivityRecorder,
+            PasswordUpgradeService passwordUpgradeService) {
         super();
         this.tokenProvider = tokenProvider;
         this.authenticationManager = authenticationManager;
-        this.credentialService = credentialService;
+        this.loginActivityRecorder = loginActivityRecorder;
+        this.passwordUpgradeService = passwordUpgradeService;
     }
 
     /**
@@ -73,10 +81,10 @@ public class UserJWTController {
 
         Authentication authentication = this.authenticationManager.authenticate(authenticationToken);
         
-        // Update last login time
-        Credential credential = ((DomainUserDetail)authentication.getPrincipal()).getCredential();
-        credential.setLastLoginDate(ZonedDateTime.now());
-        this.credentialService.saveEntity(credential, false);
+        // Update last login time, written behind by batches
+        CachedCredential credential = ((DomainUserDetail)authentication.getPrincipal()).getCredential();
+        this.loginActivityRecorder.recordLogin(credential.getId(), Instant.now());
+        this.passwordUpgradeService.upgradeIfNeeded(credential, loginVM.getPassword());
         
         SecurityContextHolder.getContext().setAuthentication(authentication);
         boolean rememberMe = (loginVM.isRememberMe() == null) ? false : loginVM.isRememberMe();
@@ -2,13 +2,23 @@ package logia.assistant.gateway.web.rest;
 
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 import org.slf4j.Logger;
@@ -17,6 +27,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -25,10 +36,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.github.jhipster.web.util.ResponseUtil;
 import logia.assistant.gateway.config.Constants;
@@ -36,12 +51,15 @@ import logia.assistant.gateway.domain.User;
 import logia.assistant.gateway.repository.search.UserSearchRepository;
 import logia.assistant.gateway.service.AccountBusinessService;
 import logia.assistant.gateway.service.UserService;
+import logia.assistant.gateway.service.dto.KeysetPage;
 import logia.assistant.gateway.service.dto.UserDTO;
+import logia.assistant.gateway.service.dto.UserImportRow;
 import logia.assistant.gateway.web.rest.errors.BadRequestAlertException;
 import logia.assistant.gateway.web.rest.errors.EmailAlreadyUsedException;
 import logia.assistant.gateway.web.rest.errors.LoginAlreadyUsedException;
 import logia.assistant.gateway.web.rest.util.HeaderUtil;
 import logia.assistant.gateway.web.rest.util.PaginationUtil;
+import logia.assistant.gateway.web.rest.util.UserRecordUtil;
 import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
 
 /**
@@ -79,6 +97,9 @@ import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
 @RequestMapping("/api")
 public class UserResource {
 
+    /** The CSV media type. */
+    private static final MediaType       TEXT_CSV = MediaType.parseMediaType(Constants.TEXT_CSV_VALUE);
+
     /** The log. */
     private final Logger                 log = LoggerFactory.getLogger(UserResource.class);
 
@@ -91,12 +112,16 @@ public class UserResource {
     /** The user search repository. */
     private final UserSearchRepository   userSearchRepository;
 
+    /** The object mapper. */
+    private final ObjectMapper           objectMapper;
+
     public UserResource(AccountBusinessService accountBusinessService, UserService userService,
-            UserSearchRepository userSearchRepository) {
+            UserSearchRepository userSearchRepository, ObjectMapper objectMapper) {
         super();
         this.accountBusinessService = accountBusinessService;
         this.userService = userService;
         this.userSearchRepository = userSearchRepository;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -124,6 +149,98 @@ public class UserResource {
                 .body(newUser);
     }
 
+    /**
+     * POST /users/import : Creates users in bulk, from a CSV document with a header line or from a NDJSON document.
+     * <p>
+     * The rows are validated and inserted by chunks while the document is read, and the result of each row is
+     * streamed back as soon as its chunk is committed, one JSON document per line. The created users get their
+     * creation email from a queue, sending them at a bounded rate.
+     *
+     * @param request the request, whose body is the document
+     * @return the ResponseEntity with status 200 (OK) and with body the result of each row, or with status 400 (Bad
+     *         Request) if the CSV header is not valid
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @PostMapping(value = "/users/import",
+            consumes = { Constants.TEXT_CSV_VALUE, Constants.APPLICATION_NDJSON_VALUE },
+            produces = Constants.APPLICATION_NDJSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<StreamingResponseBody> importUsers(HttpServletRequest request) throws IOException {
+        log.info("REST request to import Users");
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(),
+                contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset()));
+        Iterator<UserImportRow> rows = TEXT_CSV.includes(contentType)
+                ? UserRecordUtil.readCsv(reader, "userManagement")
+                : UserRecordUtil.readNdjson(reader, objectMapper);
+        StreamingResponseBody body = out -> {
+            try {
+                this.accountBusinessService.importUsers(rows, result -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(result));
+                        out.write('\n');
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(Constants.APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    /**
+     * GET /users/export : Export all users, as a CSV document with a header line when text/csv is accepted,
+     * otherwise as a NDJSON document.
+     * <p>
+     * The CSV document can be imported again by POST /users/import. The users are read from the database by pages
+     * while they are written, so the memory used does not grow with the number of users.
+     *
+     * @param accept the accepted media types
+     * @return the ResponseEntity with status 200 (OK) and with body the users
+     */
+    @GetMapping(value = "/users/export",
+            produces = { Constants.APPLICATION_NDJSON_VALUE, Constants.TEXT_CSV_VALUE })
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = Constants.APPLICATION_NDJSON_VALUE)
+            String accept) {
+        log.debug("REST request to export Users");
+        boolean csv = MediaType.parseMediaTypes(accept).stream().anyMatch(TEXT_CSV::includes);
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write(UserRecordUtil.toCsvHeader());
+                writer.write('\n');
+            }
+            try {
+                this.accountBusinessService.exportUsers(userDTO -> {
+                    try {
+                        writer.write(csv ? UserRecordUtil.toCsvRecord(userDTO)
+                                : objectMapper.writeValueAsString(userDTO));
+                        writer.write('\n');
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(csv ? TEXT_CSV : MediaType.parseMediaType(Constants.APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
     /**
      * PUT /users : Updates an existing User.
      *
@@ -157,6 +274,29 @@ public class UserResource {
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET /users?cursor= : get the users after a cursor, by keyset pagination.
+     * <p>
+     * An empty cursor reads the first page, the next page is linked by the Link header.
+     *
+     * @param cursor the cursor of the last page read, empty for the first page
+     * @param pageable the pagination information, only the size is used
+     * @param count whether to send the total count in the X-Total-Count header
+     * @return the ResponseEntity with status 200 (OK) and with body the users, or with status 400 (Bad Request) if
+     *         the cursor is not valid
+     */
+    @GetMapping(value = "/users", params = PaginationUtil.CURSOR_PARAM)
+    @Timed
+    @Secured({ AuthoritiesConstants.ADMIN, AuthoritiesConstants.SYSTEM })
+    public ResponseEntity<List<UserDTO>> getAllUsersByCursor(@RequestParam String cursor, Pageable pageable,
+            @RequestParam(defaultValue = "false") boolean count) {
+        final KeysetPage<UserDTO> page = userService.getAllManagedUsers(
+                PaginationUtil.decodeCursor(cursor, "userManagement"), pageable.getPageSize(), count);
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, "/api/users",
+                pageable.getPageSize());
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
     /**
      * Gets the authorities.
      *
@@ -14,6 +14,12 @@ public final class ErrorConstants {
     
     /** The Constant ERR_VALIDATION. */
     public static final String ERR_VALIDATION = "error.validation";
+
+    /** The Constant ERR_REINDEX_IN_PROGRESS. */
+    public static final String ERR_REINDEX_IN_PROGRESS = "error.reindexInProgress";
+
+    /** The Constant ERR_SERVICE_UNAVAILABLE. */
+    public static final String ERR_SERVICE_UNAVAILABLE = "error.serviceUnavailable";
     
     /** The Constant PROBLEM_BASE_URL. */
     public static final String PROBLEM_BASE_URL = "http://www.jhipster.tech/problem";
@@ -39,6 +45,9 @@ public final class ErrorConstants {
     /** The Constant EMAIL_NOT_FOUND_TYPE. */
     public static final URI EMAIL_NOT_FOUND_TYPE = URI.create(PROBLEM_BASE_URL + "/email-not-found");
 
+    /** The Constant REINDEX_IN_PROGRESS_TYPE. */
+    public static final URI REINDEX_IN_PROGRESS_TYPE = URI.create(PROBLEM_BASE_URL + "/reindex-in-progress");
+
     /**
      * Instantiates a new error constants.
      */
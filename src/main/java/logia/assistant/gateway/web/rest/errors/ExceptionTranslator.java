@@ -1,8 +1,10 @@
 package logia.assistant.gateway.web.rest.errors;
 
+import logia.assistant.gateway.security.PasswordHashingSaturatedException;
 import logia.assistant.gateway.web.rest.util.HeaderUtil;
 
 import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -118,4 +120,23 @@ public class ExceptionTranslator implements ProblemHandling {
             .build();
         return create(ex, problem, request);
     }
+
+    /**
+     * Handle password hashing saturated, the client should retry shortly.
+     *
+     * @param ex the ex
+     * @param request the request
+     * @return the response entity
+     */
+    @ExceptionHandler(PasswordHashingSaturatedException.class)
+    public ResponseEntity<Problem> handlePasswordHashingSaturated(PasswordHashingSaturatedException ex,
+        NativeWebRequest request) {
+        Problem problem = Problem.builder()
+            .withStatus(Status.SERVICE_UNAVAILABLE)
+            .with("message", ErrorConstants.ERR_SERVICE_UNAVAILABLE)
+            .build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return create(ex, problem, request, headers);
+    }
 }
@@ -0,0 +1,22 @@
+package logia.assistant.gateway.web.rest.errors;
+
+import java.util.Collections;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+/**
+ * The Class ReindexInProgressException.
+ *
+ * @author Dai Mai
+ */
+public class ReindexInProgressException extends AbstractThrowableProblem {
+
+    /**
+     * Instantiates a new reindex in progress exception.
+     */
+    public ReindexInProgressException() {
+        super(ErrorConstants.REINDEX_IN_PROGRESS_TYPE, "Elasticsearch reindex already running", Status.CONFLICT, null,
+            null, null, Collections.singletonMap("message", ErrorConstants.ERR_REINDEX_IN_PROGRESS));
+    }
+}
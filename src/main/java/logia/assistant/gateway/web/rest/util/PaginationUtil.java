@@ -1,11 +1,16 @@
 package logia.assistant.gateway.web.rest.util;
 
+import logia.assistant.gateway.service.dto.KeysetPage;
+import logia.assistant.gateway.web.rest.errors.BadRequestAlertException;
+
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
 /**
  * Utility class for handling pagination.
@@ -13,11 +18,20 @@ import java.net.URLEncoder;
  * <p>
  * Pagination uses the same principles as the <a href="https://developer.github.com/v3/#pagination">GitHub API</a>,
  * and follow <a href="http://tools.ietf.org/html/rfc5988">RFC 5988 (Link header)</a>.
+ * <p>
+ * Keyset pagination links the next page by an opaque cursor rather than a page number, and only sends the total
+ * count when it was asked for.
  *
  * @author Dai Mai
  */
 public final class PaginationUtil {
 
+    /** The request parameter of the keyset pagination cursor. */
+    public static final String CURSOR_PARAM = "cursor";
+
+    /** The prefix of the cursor payload, versioning its format. */
+    private static final String CURSOR_PREFIX = "k1:";
+
     /**
      * Instantiates a new pagination util.
      */
@@ -101,4 +115,73 @@ public final class PaginationUtil {
         headers.add(HttpHeaders.LINK, link);
         return headers;
     }
+
+    /**
+     * Generate keyset pagination http headers.
+     *
+     * @param page the page
+     * @param baseUrl the base url
+     * @param size the page size
+     * @return the http headers
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(KeysetPage<?> page, String baseUrl, int size) {
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getTotalCount() != null) {
+            headers.add("X-Total-Count", Long.toString(page.getTotalCount()));
+        }
+        String link = "";
+        if (page.hasNext()) {
+            link = "<" + generateCursorUri(baseUrl, encodeCursor(page.getNextKey()), size) + ">; rel=\"next\",";
+        }
+        link += "<" + generateCursorUri(baseUrl, "", size) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    /**
+     * Encode the key of the last row of a page as an opaque cursor.
+     *
+     * @param key the key
+     * @return the cursor
+     */
+    public static String encodeCursor(long key) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((CURSOR_PREFIX + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor.
+     *
+     * @param cursor the cursor, empty for the first page
+     * @param entityName the name of the listed entity, for the error
+     * @return the key of the last row already read, null for the first page
+     * @throws BadRequestAlertException if the cursor is not valid
+     */
+    public static Long decodeCursor(String cursor, String entityName) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String payload = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (payload.startsWith(CURSOR_PREFIX)) {
+                return Long.valueOf(payload.substring(CURSOR_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // Not Base64 or not a number, same as an unknown format
+        }
+        throw new BadRequestAlertException("Invalid pagination cursor", entityName, "invalidcursor");
+    }
+
+    /**
+     * Generate cursor uri.
+     *
+     * @param baseUrl the base url
+     * @param cursor the cursor
+     * @param size the size
+     * @return the string
+     */
+    private static String generateCursorUri(String baseUrl, String cursor, int size) {
+        return UriComponentsBuilder.fromUriString(baseUrl).queryParam(CURSOR_PARAM, cursor).queryParam("size", size)
+            .toUriString();
+    }
 }
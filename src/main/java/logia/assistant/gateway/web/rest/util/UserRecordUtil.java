@@ -0,0 +1,355 @@
+package logia.assistant.gateway.web.rest.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import logia.assistant.gateway.service.dto.UserDTO;
+import logia.assistant.gateway.service.dto.UserImportRow;
+import logia.assistant.gateway.web.rest.errors.BadRequestAlertException;
+
+/**
+ * Utility class for reading and writing users as CSV or NDJSON records, one user per record.
+ * <p>
+ * The records are read lazily, one at a time, so a document of any size is imported without being held in memory.
+ * A record which cannot be read becomes an unreadable row, reported with its line, and the next records are still
+ * read.
+ *
+ * @author Dai Mai
+ */
+public final class UserRecordUtil {
+
+    /** The login column. */
+    public static final String LOGIN = "login";
+
+    /** The columns of the CSV records, the header line names them in any order. */
+    public static final List<String> CSV_COLUMNS = Collections.unmodifiableList(
+        Arrays.asList(LOGIN, "firstName", "lastName", "imageUrl", "langKey", "authorities"));
+
+    /** The separator of the authorities in a CSV field. */
+    private static final String AUTHORITY_SEPARATOR = "|";
+
+    /** The byte order mark, which some spreadsheets write before the header. */
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    /**
+     * Instantiates a new user record util.
+     */
+    private UserRecordUtil() {
+    }
+
+    /**
+     * Read users from a CSV document, the header line being read at once.
+     *
+     * @param reader the reader
+     * @param entityName the entity name, for the error
+     * @return the rows, read as iterated
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws BadRequestAlertException if the header is missing, has an unknown column, or has no login column
+     */
+    public static Iterator<UserImportRow> readCsv(BufferedReader reader, String entityName) throws IOException {
+        CsvReader csvReader = new CsvReader(reader);
+        List<String> header = csvReader.readRecord();
+        if (header == null) {
+            throw new BadRequestAlertException("Missing CSV header", entityName, "invalidheader");
+        }
+        if (!header.isEmpty() && StringUtils.startsWith(header.get(0), String.valueOf(BYTE_ORDER_MARK))) {
+            header.set(0, header.get(0).substring(1));
+        }
+        Set<String> unknown = new TreeSet<>(header);
+        unknown.removeAll(CSV_COLUMNS);
+        if (!unknown.isEmpty() || !header.contains(LOGIN) || new HashSet<>(header).size() != header.size()) {
+            throw new BadRequestAlertException("Invalid CSV header, expected columns among " + CSV_COLUMNS,
+                entityName, "invalidheader");
+        }
+        return new RowIterator() {
+
+            @Override
+            protected UserImportRow read() throws IOException {
+                List<String> fields;
+                try {
+                    fields = csvReader.readRecord();
+                } catch (MalformedRecordException e) {
+                    return UserImportRow.unreadable(csvReader.getRecordLine(), e.getMessage());
+                }
+                if (fields == null) {
+                    return null;
+                }
+                if (fields.size() != header.size()) {
+                    return UserImportRow.unreadable(csvReader.getRecordLine(),
+                        "expected " + header.size() + " fields, found " + fields.size());
+                }
+                Map<String, String> values = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    values.put(header.get(i), StringUtils.trimToNull(fields.get(i)));
+                }
+                return UserImportRow.of(csvReader.getRecordLine(), toUser(values));
+            }
+        };
+    }
+
+    /**
+     * Read users from a NDJSON document, one JSON user per line.
+     *
+     * @param reader the reader
+     * @param objectMapper the object mapper
+     * @return the rows, read as iterated
+     */
+    public static Iterator<UserImportRow> readNdjson(BufferedReader reader, ObjectMapper objectMapper) {
+        return new RowIterator() {
+
+            /** The current line. */
+            private long line;
+
+            @Override
+            protected UserImportRow read() throws IOException {
+                String text;
+                do {
+                    text = reader.readLine();
+                    line++;
+                } while (text != null && StringUtils.isBlank(text));
+                if (text == null) {
+                    return null;
+                }
+                try {
+                    UserDTO userDTO = objectMapper.readValue(text, UserDTO.class);
+                    return userDTO == null ? UserImportRow.unreadable(line, "expected a JSON object")
+                        : UserImportRow.of(line, userDTO);
+                } catch (JsonProcessingException e) {
+                    return UserImportRow.unreadable(line, "invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets the CSV header line, naming all the columns.
+     *
+     * @return the header line, without line separator
+     */
+    public static String toCsvHeader() {
+        return String.join(",", CSV_COLUMNS);
+    }
+
+    /**
+     * Gets the CSV record of a user, in the columns of {@link #toCsvHeader()}.
+     *
+     * @param userDTO the user
+     * @return the record, without line separator
+     */
+    public static String toCsvRecord(UserDTO userDTO) {
+        String authorities = userDTO.getAuthorities() == null ? null
+            : userDTO.getAuthorities().stream().sorted().collect(Collectors.joining(AUTHORITY_SEPARATOR));
+        return Arrays.asList(userDTO.getLogin(), userDTO.getFirstName(), userDTO.getLastName(),
+            userDTO.getImageUrl(), userDTO.getLangKey(), authorities).stream()
+            .map(UserRecordUtil::escapeCsv).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Build a user from the fields of a CSV record, by column.
+     *
+     * @param values the values, by column
+     * @return the user
+     */
+    private static UserDTO toUser(Map<String, String> values) {
+        UserDTO userDTO = new UserDTO().firstName(values.get("firstName")).lastName(values.get("lastName"))
+            .imageUrl(values.get("imageUrl")).langKey(values.get("langKey"));
+        userDTO.setLogin(values.get(LOGIN));
+        String authorities = values.get("authorities");
+        if (authorities != null) {
+            userDTO.setAuthorities(Arrays.stream(StringUtils.split(authorities, AUTHORITY_SEPARATOR))
+                .map(String::trim).filter(StringUtils::isNotEmpty).collect(Collectors.toSet()));
+        }
+        return userDTO;
+    }
+
+    /**
+     * Escape a CSV field, quoting it when needed.
+     *
+     * @param value the value, may be null
+     * @return the field
+     */
+    private static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (StringUtils.containsAny(value, ',', '"', '\n', '\r')) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    /**
+     * Iterator of rows reading the next row on demand.
+     */
+    private abstract static class RowIterator implements Iterator<UserImportRow> {
+
+        /** The next row, null if not read yet. */
+        private UserImportRow nextRow;
+
+        /** Whether the end of the document was reached. */
+        private boolean ended;
+
+        /**
+         * Read the next row.
+         *
+         * @return the row, null at the end of the document
+         * @throws IOException Signals that an I/O exception has occurred.
+         */
+        protected abstract UserImportRow read() throws IOException;
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            if (nextRow == null && !ended) {
+                try {
+                    nextRow = read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                ended = nextRow == null;
+            }
+            return nextRow != null;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public UserImportRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            UserImportRow row = nextRow;
+            nextRow = null;
+            return row;
+        }
+    }
+
+    /**
+     * Reader of RFC 4180 CSV records, whose quoted fields may span several lines.
+     */
+    private static final class CsvReader {
+
+        /** The reader. */
+        private final BufferedReader reader;
+
+        /** The last line read. */
+        private long line;
+
+        /** The first line of the last record read. */
+        private long recordLine;
+
+        /**
+         * Instantiates a new CSV reader.
+         *
+         * @param reader the reader
+         */
+        private CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Gets the first line of the last record read.
+         *
+         * @return the record line
+         */
+        private long getRecordLine() {
+            return recordLine;
+        }
+
+        /**
+         * Read the next record, skipping the blank lines.
+         *
+         * @return the fields, null at the end of the document
+         * @throws IOException Signals that an I/O exception has occurred.
+         * @throws MalformedRecordException if a quoted field is not terminated
+         */
+        private List<String> readRecord() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && StringUtils.isBlank(text));
+            if (text == null) {
+                return null;
+            }
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == text.length()) {
+                    if (!quoted) {
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    text = reader.readLine();
+                    if (text == null) {
+                        throw new MalformedRecordException("unterminated quoted field");
+                    }
+                    line++;
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < text.length() && text.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * A CSV record which cannot be read.
+     */
+    private static final class MalformedRecordException extends IOException {
+
+        /** The Constant serialVersionUID. */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Instantiates a new malformed record exception.
+         *
+         * @param message the message
+         */
+        private MalformedRecordException(String message) {
+            super(message);
+        }
+    }
+}
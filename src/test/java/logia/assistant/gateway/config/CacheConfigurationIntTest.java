@@ -0,0 +1,73 @@
+package logia.assistant.gateway.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+
+import logia.assistant.gateway.AssistantGatewayApp;
+import logia.assistant.gateway.repository.CredentialRepository;
+import logia.assistant.gateway.repository.UserRepository;
+
+/**
+ * Test class for the near caches configured by CacheConfiguration.
+ *
+ * @see CacheConfiguration
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AssistantGatewayApp.class)
+public class CacheConfigurationIntTest {
+
+    /** The hazelcast instance. */
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    /** The metric registry. */
+    @Autowired
+    private MetricRegistry metricRegistry;
+
+    /**
+     * Should configure an invalidated near cache for the hot caches.
+     */
+    @Test
+    public void shouldConfigureNearCaches() {
+        for (String cacheName : new String[] { CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE,
+            UserRepository.USERS_BY_UUID_CACHE }) {
+            NearCacheConfig nearCacheConfig = hazelcastInstance.getConfig().getMapConfig(cacheName)
+                .getNearCacheConfig();
+            assertThat(nearCacheConfig).isNotNull();
+            assertThat(nearCacheConfig.isInvalidateOnChange()).isTrue();
+            assertThat(nearCacheConfig.getInMemoryFormat()).isEqualTo(InMemoryFormat.BINARY);
+            assertThat(nearCacheConfig.getEvictionConfig().getSize()).isEqualTo(100);
+        }
+    }
+
+    /**
+     * Should report the hits of the near cache.
+     */
+    @Test
+    public void shouldReportNearCacheHits() {
+        IMap<String, String> map = hazelcastInstance.getMap(UserRepository.USERS_BY_UUID_CACHE);
+        map.put("near-cache-test", "value");
+        map.get("near-cache-test");
+        map.get("near-cache-test");
+        map.delete("near-cache-test");
+
+        Gauge<?> hits = metricRegistry.getGauges()
+            .get(MetricRegistry.name(NearCacheMetricSet.PREFIX, UserRepository.USERS_BY_UUID_CACHE, "hits"));
+        assertThat(hits).isNotNull();
+        assertThat((Long) hits.getValue()).isGreaterThan(0L);
+        assertThat(metricRegistry.getGauges()).containsKey(
+            MetricRegistry.name(NearCacheMetricSet.PREFIX, UserRepository.USERS_BY_UUID_CACHE, "hit-ratio"));
+    }
+}
@@ -0,0 +1,139 @@
+package logia.assistant.gateway.config;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.serialization.Data;
+
+import logia.assistant.gateway.domain.Authority;
+import logia.assistant.gateway.domain.CachedCredential;
+import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.domain.User;
+
+/**
+ * Cost of putting a credential in the {@code credentialsByLogin} cache and reading it back: the former Java
+ * serialization of the credential, user and authorities graph, against the {@link CachedCredential} projection
+ * written by the {@link CachedCredentialSerializer}. The serialized sizes are compared by
+ * {@link CachedCredentialSerializerTest}.
+ *
+ * @author Dai Mai
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachedCredentialSerializationBenchmark {
+
+    /** The serialization service, configured as the cluster. */
+    private InternalSerializationService serializationService;
+
+    /** The credential, with its user and authorities. */
+    private Credential credential;
+
+    /** The projection of the credential. */
+    private CachedCredential cachedCredential;
+
+    /** The serialized credential. */
+    private Data credentialData;
+
+    /** The serialized projection. */
+    private Data cachedCredentialData;
+
+    /**
+     * Setup.
+     */
+    @Setup
+    public void setup() {
+        SerializationConfig serializationConfig = new SerializationConfig().addSerializerConfig(new SerializerConfig()
+            .setImplementation(new CachedCredentialSerializer()).setTypeClass(CachedCredential.class));
+        serializationService = new DefaultSerializationServiceBuilder().setConfig(serializationConfig).build();
+
+        Authority user = new Authority();
+        user.setName("ROLE_USER");
+        Authority admin = new Authority();
+        admin.setName("ROLE_ADMIN");
+        User owner = new User().password("$2a$10$gSAhZrxMllrbgj/kkK9UceBPpChGWJA7SYIb1Mqo.n5aNLq1/oRrC")
+            .firstName("john").lastName("doe").langKey("en").activated(true);
+        owner.setId(2L);
+        owner.setUuid("User-2");
+        owner.setAuthorities(new HashSet<>(Arrays.asList(user, admin)));
+        credential = new Credential().login("john.doe@localhost").user(owner);
+        credential.setId(1L);
+        cachedCredential = CachedCredential.of(credential);
+
+        credentialData = serializationService.toData(credential);
+        cachedCredentialData = serializationService.toData(cachedCredential);
+    }
+
+    /**
+     * Serialize the credential graph.
+     *
+     * @return the data
+     */
+    @Benchmark
+    public Data serializeCredential() {
+        return serializationService.toData(credential);
+    }
+
+    /**
+     * Deserialize the credential graph.
+     *
+     * @return the credential
+     */
+    @Benchmark
+    public Credential deserializeCredential() {
+        return serializationService.toObject(credentialData);
+    }
+
+    /**
+     * Serialize the projection.
+     *
+     * @return the data
+     */
+    @Benchmark
+    public Data serializeCachedCredential() {
+        return serializationService.toData(cachedCredential);
+    }
+
+    /**
+     * Deserialize the projection.
+     *
+     * @return the cached credential
+     */
+    @Benchmark
+    public CachedCredential deserializeCachedCredential() {
+        return serializationService.toObject(cachedCredentialData);
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args the arguments
+     * @throws RunnerException the runner exception
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CachedCredentialSerializationBenchmark.class.getSimpleName()).build())
+            .run();
+    }
+}
@@ -0,0 +1,104 @@
+package logia.assistant.gateway.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.nio.serialization.Data;
+
+import logia.assistant.gateway.domain.Authority;
+import logia.assistant.gateway.domain.CachedCredential;
+import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.domain.User;
+
+/**
+ * Test class for the CachedCredentialSerializer, through the Hazelcast serialization service.
+ *
+ * @see CachedCredentialSerializer
+ */
+public class CachedCredentialSerializerTest {
+
+    /** The serialization service. */
+    private InternalSerializationService serializationService;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setup() {
+        SerializationConfig serializationConfig = new SerializationConfig().addSerializerConfig(new SerializerConfig()
+            .setImplementation(new CachedCredentialSerializer()).setTypeClass(CachedCredential.class));
+        serializationService = new DefaultSerializationServiceBuilder().setConfig(serializationConfig).build();
+    }
+
+    /**
+     * Test round trip.
+     */
+    @Test
+    public void testRoundTrip() {
+        CachedCredential credential = new CachedCredential(1L, "john.doe@localhost", 2L, "User-3", "$2a$10$hash",
+            true, new LinkedHashSet<>(Arrays.asList("ROLE_USER", "ROLE_ADMIN")));
+
+        Data data = serializationService.toData(credential);
+        CachedCredential read = serializationService.toObject(data);
+
+        assertThat(data.getType()).isEqualTo(CachedCredentialSerializer.TYPE_ID);
+        assertThat(read).isNotSameAs(credential);
+        assertThat(read.getId()).isEqualTo(1L);
+        assertThat(read.getLogin()).isEqualTo("john.doe@localhost");
+        assertThat(read.getUserId()).isEqualTo(2L);
+        assertThat(read.getUserUuid()).isEqualTo("User-3");
+        assertThat(read.getPassword()).isEqualTo("$2a$10$hash");
+        assertThat(read.isActivated()).isTrue();
+        assertThat(read.getAuthorities()).containsExactly("ROLE_USER", "ROLE_ADMIN");
+    }
+
+    /**
+     * Test round trip of the missing values.
+     */
+    @Test
+    public void testRoundTripWithoutOptionalValues() {
+        CachedCredential credential = new CachedCredential(1L, "john.doe@localhost", 2L, null, null, false,
+            Collections.emptySet());
+
+        CachedCredential read = serializationService.toObject(serializationService.toData(credential));
+
+        assertThat(read.getUserUuid()).isNull();
+        assertThat(read.getPassword()).isNull();
+        assertThat(read.isActivated()).isFalse();
+        assertThat(read.getAuthorities()).isEmpty();
+    }
+
+    /**
+     * Test the projection is serialized smaller than the credential graph it replaces in the cache.
+     */
+    @Test
+    public void testSmallerThanCredentialGraph() {
+        Authority user = new Authority();
+        user.setName("ROLE_USER");
+        Authority admin = new Authority();
+        admin.setName("ROLE_ADMIN");
+        User owner = new User().password("$2a$10$gSAhZrxMllrbgj/kkK9UceBPpChGWJA7SYIb1Mqo.n5aNLq1/oRrC")
+            .firstName("john").lastName("doe").langKey("en").activated(true);
+        owner.setId(2L);
+        owner.setUuid("User-2");
+        owner.setAuthorities(new HashSet<>(Arrays.asList(user, admin)));
+        Credential credential = new Credential().login("john.doe@localhost").user(owner);
+        credential.setId(1L);
+
+        int credentialSize = serializationService.toData(credential).totalSize();
+        int cachedCredentialSize = serializationService.toData(CachedCredential.of(credential)).totalSize();
+
+        assertThat(cachedCredentialSize).isLessThan(credentialSize / 2);
+    }
+}
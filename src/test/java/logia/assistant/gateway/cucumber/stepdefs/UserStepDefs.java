@@ -63,7 +63,8 @@ public class UserStepDefs extends StepDefs {
      */
     @Before
     public void setup() {
-        userResource = new UserResource(accountBusinessService, userService, userSearchRepository);
+        userResource = new UserResource(accountBusinessService, userService, userSearchRepository,
+                jacksonMessageConverter.getObjectMapper());
         this.restUserMockMvc = MockMvcBuilders.standaloneSetup(userResource)
                 .setCustomArgumentResolvers(pageableArgumentResolver)
                 .setControllerAdvice(exceptionTranslator)
@@ -0,0 +1,91 @@
+package logia.assistant.gateway.gateway.accesscontrol;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.netflix.zuul.filters.Route;
+
+/**
+ * Tests RouteAccessTrie class.
+ *
+ * @author Dai Mai
+ */
+public class RouteAccessTrieTest {
+
+    /** The trie. */
+    private RouteAccessTrie trie;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setup() {
+        List<Route> routes = Arrays.asList(
+            new Route("app1", "/**", "app1", "/app1", false, null),
+            new Route("app2", "/**", "app2", "/app2", false, null),
+            new Route("app1sub", "/**", "app1sub", "/app1/sub", false, null));
+        Map<String, List<String>> authorizedEndpoints = new HashMap<>();
+        authorizedEndpoints.put("app1", Arrays.asList("/api", "/v2/api-docs"));
+        authorizedEndpoints.put("app1sub", Collections.emptyList());
+        trie = RouteAccessTrie.build(routes, authorizedEndpoints);
+    }
+
+    /**
+     * Should not find a route for unknown prefix.
+     */
+    @Test
+    public void shouldNotFindRoute_for_unknown_prefix() {
+        assertThat(trie.findRoute("/app3/api/foo")).isNull();
+        assertThat(trie.findRoute("/app1")).isNull();
+    }
+
+    /**
+     * Should allow authorized endpoint.
+     */
+    @Test
+    public void shouldAllow_authorized_endpoint() {
+        RouteAccessTrie.RouteAccess route = trie.findRoute("/app1/api/foo");
+
+        assertThat(route.getServiceName()).isEqualTo("app1");
+        assertThat(route.hasPolicy()).isTrue();
+        assertThat(route.findAuthorizedEndpoint("/app1/api/foo")).isEqualTo("/app1/api");
+        assertThat(route.findAuthorizedEndpoint("/app1/v2/api-docs")).isEqualTo("/app1/v2/api-docs");
+    }
+
+    /**
+     * Should deny endpoint not in the policy.
+     */
+    @Test
+    public void shouldDeny_endpoint_not_in_policy() {
+        RouteAccessTrie.RouteAccess route = trie.findRoute("/app1/management/env");
+
+        assertThat(route.getServiceName()).isEqualTo("app1");
+        assertThat(route.findAuthorizedEndpoint("/app1/management/env")).isNull();
+    }
+
+    /**
+     * Should allow everything when no policy is set up.
+     */
+    @Test
+    public void shouldAllow_everything_without_policy() {
+        RouteAccessTrie.RouteAccess route = trie.findRoute("/app2/management/env");
+
+        assertThat(route.getServiceName()).isEqualTo("app2");
+        assertThat(route.hasPolicy()).isFalse();
+    }
+
+    /**
+     * Should keep the route order when several prefixes match.
+     */
+    @Test
+    public void shouldKeepRouteOrder_when_several_prefixes_match() {
+        assertThat(trie.findRoute("/app1/sub/api").getServiceName()).isEqualTo("app1");
+    }
+}
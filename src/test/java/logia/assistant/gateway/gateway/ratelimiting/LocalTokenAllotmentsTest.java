@@ -0,0 +1,172 @@
+package logia.assistant.gateway.gateway.ratelimiting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.grid.ProxyManager;
+
+/**
+ * Tests LocalTokenAllotments class.
+ *
+ * @author Dai Mai
+ */
+public class LocalTokenAllotmentsTest {
+
+    /** The cluster bucket. */
+    private Bucket clusterBucket;
+
+    /** The cluster bucket configuration. */
+    private Supplier<BucketConfiguration> configuration;
+
+    /** The allotments. */
+    private LocalTokenAllotments allotments;
+
+    /**
+     * Setup.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        clusterBucket = Bucket4j.builder().addLimit(Bandwidth.simple(10, Duration.ofHours(1))).build();
+        BucketConfiguration bucketConfiguration = Bucket4j.configurationBuilder()
+            .addLimit(Bandwidth.simple(10, Duration.ofHours(1)))
+            .buildConfiguration();
+        configuration = () -> bucketConfiguration;
+        ProxyManager<String> buckets = mock(ProxyManager.class);
+        when(buckets.getProxy(anyString(), any(Supplier.class))).thenReturn(clusterBucket);
+        allotments = new LocalTokenAllotments(buckets, 4);
+    }
+
+    /**
+     * Should borrow tokens by batches.
+     */
+    @Test
+    public void shouldBorrowTokens_by_batches() {
+        assertThat(allotments.tryConsumeAndReturnRemaining("user", 1, configuration).isConsumed()).isTrue();
+
+        assertThat(clusterBucket.getAvailableTokens()).isEqualTo(6);
+        assertThat(allotments.getAvailableTokens("user")).isEqualTo(3);
+    }
+
+    /**
+     * Should reject when the cluster bucket is empty.
+     */
+    @Test
+    public void shouldReject_when_cluster_bucket_is_empty() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(allotments.tryConsumeAndReturnRemaining("user", 1, configuration).isConsumed()).isTrue();
+        }
+
+        assertThat(allotments.tryConsumeAndReturnRemaining("user", 1, configuration).isConsumed()).isFalse();
+    }
+
+    /**
+     * Should report the cluster bucket, not only the local allotment.
+     */
+    @Test
+    public void shouldReportClusterRemainingTokens() {
+        ConsumptionProbe probe = allotments.tryConsumeAndReturnRemaining("user", 1, configuration);
+
+        assertThat(probe.isConsumed()).isTrue();
+        assertThat(probe.getRemainingTokens()).isEqualTo(9);
+
+        probe = allotments.tryConsumeAndReturnRemaining("user", 1, configuration);
+
+        assertThat(probe.getRemainingTokens()).isEqualTo(8);
+    }
+
+    /**
+     * Should report the wait of the cluster bucket when rejecting.
+     */
+    @Test
+    public void shouldReportClusterWait_when_rejecting() {
+        for (int i = 0; i < 10; i++) {
+            allotments.tryConsumeAndReturnRemaining("user", 1, configuration);
+        }
+
+        ConsumptionProbe probe = allotments.tryConsumeAndReturnRemaining("user", 1, configuration);
+
+        assertThat(probe.isConsumed()).isFalse();
+        assertThat(probe.getRemainingTokens()).isEqualTo(0);
+        assertThat(probe.getNanosToWaitForRefill()).isGreaterThan(0);
+    }
+
+    /**
+     * Should borrow more than a batch for expensive requests.
+     */
+    @Test
+    public void shouldBorrowMoreThanBatch_for_expensive_requests() {
+        assertThat(allotments.tryConsumeAndReturnRemaining("user", 6, configuration).isConsumed()).isTrue();
+
+        assertThat(clusterBucket.getAvailableTokens()).isEqualTo(4);
+        assertThat(allotments.getAvailableTokens("user")).isEqualTo(0);
+    }
+
+    /**
+     * Should give unused tokens back on synchronize.
+     */
+    @Test
+    public void shouldGiveUnusedTokensBack_on_synchronize() {
+        allotments.tryConsumeAndReturnRemaining("user", 1, configuration);
+
+        allotments.synchronize();
+
+        assertThat(clusterBucket.getAvailableTokens()).isEqualTo(9);
+        assertThat(allotments.getAvailableTokens("user")).isEqualTo(0);
+    }
+
+    /**
+     * Should only reject when the cluster bucket is empty, though concurrent requests drain the borrowed batches.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldConsumeWholeClusterBucket_when_concurrent() throws Exception {
+        Bucket bucket = Bucket4j.builder().addLimit(Bandwidth.simple(1000, Duration.ofHours(1))).build();
+        BucketConfiguration bucketConfiguration = Bucket4j.configurationBuilder()
+            .addLimit(Bandwidth.simple(1000, Duration.ofHours(1)))
+            .buildConfiguration();
+        ProxyManager<String> buckets = mock(ProxyManager.class);
+        when(buckets.getProxy(anyString(), any(Supplier.class))).thenReturn(bucket);
+        LocalTokenAllotments concurrentAllotments = new LocalTokenAllotments(buckets, 4);
+        AtomicInteger consumed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> consumers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            consumers.add(executor.submit(() -> {
+                while (concurrentAllotments.tryConsumeAndReturnRemaining("user", 1, () -> bucketConfiguration)
+                    .isConsumed()) {
+                    consumed.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> consumer : consumers) {
+            consumer.get();
+        }
+        executor.shutdown();
+
+        assertThat(consumed.get()).isEqualTo(1000);
+        assertThat(bucket.getAvailableTokens()).isEqualTo(0);
+    }
+}
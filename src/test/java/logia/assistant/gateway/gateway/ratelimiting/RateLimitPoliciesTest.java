@@ -0,0 +1,141 @@
+package logia.assistant.gateway.gateway.ratelimiting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import io.github.jhipster.config.JHipsterProperties;
+import logia.assistant.gateway.config.ApplicationProperties;
+import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
+
+/**
+ * Tests RateLimitPolicies class.
+ *
+ * @author Dai Mai
+ */
+public class RateLimitPoliciesTest {
+
+    /** The admin authorities. */
+    private final List<GrantedAuthority> adminAuthorities =
+        Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN));
+
+    /** The policies. */
+    private RateLimitPolicies policies;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        List<ApplicationProperties.RateLimiting.Policy> configuredPolicies =
+            applicationProperties.getRateLimiting().getPolicies();
+        configuredPolicies.add(policy("app1", "app1", null, null));
+        configuredPolicies.add(policy("admin", null, AuthoritiesConstants.ADMIN, null));
+        configuredPolicies.add(policy("heavy", null, null, "heavy-tenant"));
+        configuredPolicies.get(0).getMethodCosts().put("post", 5L);
+        configuredPolicies.get(0).setBytesPerToken(1024);
+        policies = new RateLimitPolicies(new JHipsterProperties(), applicationProperties);
+    }
+
+    /**
+     * Should fall back to the default policy.
+     */
+    @Test
+    public void shouldResolveDefaultPolicy_when_nothing_matches() {
+        RateLimitPolicy policy = policies.resolve("app2", "user", Collections.emptyList());
+
+        assertThat(policy.getName()).isNull();
+        assertThat(policy.getBucketId("user")).isEqualTo("user");
+    }
+
+    /**
+     * Should prefer the most specific policy.
+     */
+    @Test
+    public void shouldResolveMostSpecificPolicy() {
+        assertThat(policies.resolve("app1", "user", Collections.emptyList()).getName()).isEqualTo("app1");
+        assertThat(policies.resolve("app1", "admin", adminAuthorities).getName()).isEqualTo("admin");
+        assertThat(policies.resolve("app1", "heavy-tenant", adminAuthorities).getName()).isEqualTo("heavy");
+    }
+
+    /**
+     * Should isolate route buckets.
+     */
+    @Test
+    public void shouldIsolateRouteBuckets() {
+        RateLimitPolicy policy = policies.resolve("app1", "user", null);
+
+        assertThat(policy.getBucketId("user")).isEqualTo("app1:app1:user");
+    }
+
+    /**
+     * Should weight the cost by method and request size.
+     */
+    @Test
+    public void shouldWeightCost_by_method_and_size() {
+        RateLimitPolicy policy = policies.resolve("app1", "user", null);
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/app1/api/foo");
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/app1/api/foo");
+        post.setContent(new byte[2048]);
+
+        assertThat(policy.getCost(get)).isEqualTo(1);
+        assertThat(policy.getCost(post)).isEqualTo(7);
+    }
+
+    /**
+     * Should cap the cost of a request larger than the bucket at its capacity.
+     */
+    @Test
+    public void shouldCapCost_at_capacity() {
+        RateLimitPolicy policy = policies.resolve("app1", "user", null);
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/app1/api/foo");
+        post.setContent(new byte[1024 * 1024]);
+
+        assertThat(policy.getCost(post)).isEqualTo(policy.getLimit());
+    }
+
+    /**
+     * Should report the most restrictive bandwidth.
+     */
+    @Test
+    public void shouldReportMostRestrictiveBandwidth() {
+        RateLimitPolicy policy = policies.resolve("app1", "user", null);
+
+        assertThat(policy.getLimit()).isEqualTo(10);
+    }
+
+    /**
+     * Create a policy with a burst and a sustained limit.
+     *
+     * @param name the name
+     * @param route the route
+     * @param authority the authority
+     * @param user the user
+     * @return the policy
+     */
+    private ApplicationProperties.RateLimiting.Policy policy(String name, String route, String authority,
+        String user) {
+        ApplicationProperties.RateLimiting.Policy policy = new ApplicationProperties.RateLimiting.Policy();
+        policy.setName(name);
+        policy.setRoute(route);
+        policy.setAuthority(authority);
+        policy.setUser(user);
+        ApplicationProperties.RateLimiting.Limit burst = new ApplicationProperties.RateLimiting.Limit();
+        burst.setCapacity(10);
+        burst.setDurationInSeconds(1);
+        ApplicationProperties.RateLimiting.Limit sustained = new ApplicationProperties.RateLimiting.Limit();
+        sustained.setCapacity(1000);
+        sustained.setDurationInSeconds(3600);
+        policy.getLimits().add(burst);
+        policy.getLimits().add(sustained);
+        return policy;
+    }
+}
@@ -0,0 +1,61 @@
+package logia.assistant.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import logia.assistant.gateway.AssistantGatewayApp;
+import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.service.LoginFilter;
+
+/**
+ * Test class for the login lookups of the CredentialRepository.
+ *
+ * @see CredentialRepository
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AssistantGatewayApp.class)
+@Transactional
+public class CredentialRepositoryIntTest {
+
+    /** The credential repository. */
+    @Autowired
+    private CredentialRepository credentialRepository;
+
+    /** The user repository. */
+    @Autowired
+    private UserRepository userRepository;
+
+    /** The login filter. */
+    @Autowired
+    private LoginFilter loginFilter;
+
+    /** The jdbc template. */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Should store the login in lower case, and find it regardless of its case.
+     */
+    @Test
+    public void shouldFindLogin_regardlessOfCase() {
+        User user = userRepository.saveAndFlush(new User().password(RandomStringUtils.random(60)).activated(true));
+        credentialRepository.saveAndFlush(new Credential().login("John.Doe@Localhost").primary(true).user(user));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT login FROM credential WHERE user_id = ?", String.class,
+            user.getId())).isEqualTo("john.doe@localhost");
+        Optional<Credential> credential = loginFilter.findOneWithUserByLogin("JOHN.DOE@localhost");
+        assertThat(credential.isPresent()).isTrue();
+        assertThat(credential.get().getUser().getId()).isEqualTo(user.getId());
+    }
+}
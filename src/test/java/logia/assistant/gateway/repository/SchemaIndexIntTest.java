@@ -0,0 +1,91 @@
+package logia.assistant.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import logia.assistant.gateway.AssistantGatewayApp;
+
+/**
+ * Test class checking that the lookups of the repository finders are served by an index, rather than by scanning
+ * their table, and that the index created by the changelog for each of them exists, so a dropped or missing index is
+ * caught even when another index of H2, such as the one of a foreign key, serves the lookup.
+ *
+ * @see CredentialRepository
+ * @see UserRepository
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AssistantGatewayApp.class)
+public class SchemaIndexIntTest {
+
+    /** The jdbc template. */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * CredentialRepository#findOneWithUserByLogin.
+     */
+    @Test
+    public void shouldFindCredentialByLogin_byIndex() {
+        assertIndexed("SELECT id FROM credential WHERE login = 'system'", "credential", "login",
+            "idx_credential_login");
+    }
+
+    /**
+     * CredentialRepository#findOneByResetKey.
+     */
+    @Test
+    public void shouldFindCredentialByResetKey_byIndex() {
+        assertIndexed("SELECT id FROM credential WHERE reset_key = '12345678901234567890'", "credential", "reset_key",
+            "ux_credential_reset_key");
+    }
+
+    /**
+     * CredentialRepository#findWithUserByUserId.
+     */
+    @Test
+    public void shouldFindCredentialsByUserId_byIndex() {
+        assertIndexed("SELECT id FROM credential WHERE user_id = 1", "credential", "user_id", "idx_credential_user_id");
+    }
+
+    /**
+     * UserRepository#findOneByActivationKey.
+     */
+    @Test
+    public void shouldFindUserByActivationKey_byIndex() {
+        assertIndexed("SELECT id FROM jhi_user WHERE activation_key = '12345678901234567890'", "jhi_user",
+            "activation_key", "ux_user_activation_key");
+    }
+
+    /**
+     * UserRepository#findOneWithAuthoritiesByUuid.
+     */
+    @Test
+    public void shouldFindUserByUuid_byIndex() {
+        assertIndexed("SELECT id FROM jhi_user WHERE uuid = 'system'", "jhi_user", "uuid", "ux_user_uuid");
+    }
+
+    /**
+     * Assert that the plan of a query looks its rows up by an index on a column, and that the named index of the
+     * column exists.
+     *
+     * @param sql the query
+     * @param table the table
+     * @param column the column of the index
+     * @param indexName the name of the index created by the changelog
+     */
+    private void assertIndexed(String sql, String table, String column, String indexName) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+
+        assertThat(plan).doesNotContain("tableScan");
+        assertThat(plan).containsIgnoringCase(": " + column + " = ");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES "
+            + "WHERE TABLE_NAME = ? AND COLUMN_NAME = ? AND INDEX_NAME = ?", Long.class,
+            table.toUpperCase(), column.toUpperCase(), indexName.toUpperCase())).isEqualTo(1L);
+    }
+}
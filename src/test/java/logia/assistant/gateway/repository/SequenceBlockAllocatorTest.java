@@ -0,0 +1,92 @@
+package logia.assistant.gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Tests SequenceBlockAllocator class.
+ *
+ * @author Dai Mai
+ */
+public class SequenceBlockAllocatorTest {
+
+    /** The block size. */
+    private static final int BLOCK_SIZE = 50;
+
+    /** The jdbc template. */
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Setup, the sequence starts at 1000 and is incremented by the block size.
+     */
+    @Before
+    public void setup() {
+        AtomicLong sequence = new AtomicLong(1000 - BLOCK_SIZE);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+            .thenAnswer(invocation -> sequence.addAndGet(BLOCK_SIZE));
+    }
+
+    /**
+     * Should query the sequence once per block.
+     */
+    @Test
+    public void shouldQuerySequenceOncePerBlock() {
+        SequenceBlockAllocator allocator = new SequenceBlockAllocator(jdbcTemplate, "nextval", BLOCK_SIZE);
+
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            assertThat(allocator.next()).isEqualTo(1000 + i);
+        }
+        assertThat(allocator.next()).isEqualTo(1000 + BLOCK_SIZE);
+
+        verify(jdbcTemplate, times(2)).queryForObject("nextval", Long.class);
+    }
+
+    /**
+     * Should never hand out the same number twice, from many threads and several nodes sharing the sequence.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void shouldAllocateUniqueNumbers_from_many_threads_and_nodes() throws Exception {
+        List<SequenceBlockAllocator> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            nodes.add(new SequenceBlockAllocator(jdbcTemplate, "nextval", BLOCK_SIZE));
+        }
+        Set<Long> allocated = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 12; thread++) {
+            SequenceBlockAllocator node = nodes.get(thread % nodes.size());
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    assertThat(allocated.add(node.next())).isTrue();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(allocated).hasSize(12 * 1000);
+    }
+}
@@ -0,0 +1,90 @@
+package logia.assistant.gateway.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Tests BoundedBCryptPasswordEncoder class.
+ *
+ * @author Dai Mai
+ */
+public class BoundedBCryptPasswordEncoderTest {
+
+    /** The password encoder. */
+    private BoundedBCryptPasswordEncoder passwordEncoder;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setup() {
+        passwordEncoder = new BoundedBCryptPasswordEncoder(5, 2, 4);
+    }
+
+    /**
+     * Tear down.
+     */
+    @After
+    public void tearDown() {
+        passwordEncoder.destroy();
+    }
+
+    /**
+     * Should encode and match on the hashing pool.
+     */
+    @Test
+    public void shouldEncodeAndMatch() {
+        String encoded = passwordEncoder.encode("password");
+
+        assertThat(encoded).startsWith("$2a$05$");
+        assertThat(passwordEncoder.matches("password", encoded)).isTrue();
+        assertThat(passwordEncoder.matches("other", encoded)).isFalse();
+        assertThat(passwordEncoder.matches("password", "not-bcrypt")).isFalse();
+    }
+
+    /**
+     * Should ask for a rehash only when the cost is lower.
+     */
+    @Test
+    public void shouldNeedRehash_when_cost_lower() {
+        assertThat(passwordEncoder.needsRehash(BCrypt.hashpw("password", BCrypt.gensalt(4)))).isTrue();
+        assertThat(passwordEncoder.needsRehash(BCrypt.hashpw("password", BCrypt.gensalt(5)))).isFalse();
+        assertThat(passwordEncoder.needsRehash(BCrypt.hashpw("password", BCrypt.gensalt(6)))).isFalse();
+        assertThat(passwordEncoder.needsRehash(null)).isFalse();
+    }
+
+    /**
+     * Should read the cost of a hash.
+     */
+    @Test
+    public void shouldReadStrength() {
+        assertThat(BoundedBCryptPasswordEncoder.getStrength("$2a$10$abcdefghijklmnopqrstuv")).isEqualTo(10);
+        assertThat(BoundedBCryptPasswordEncoder.getStrength("$2$12$abcdefghijklmnopqrstuv")).isEqualTo(12);
+        assertThat(BoundedBCryptPasswordEncoder.getStrength("plain")).isEqualTo(-1);
+    }
+
+    /**
+     * Should calibrate within bounds.
+     */
+    @Test
+    public void shouldCalibrateWithinBounds() {
+        assertThat(BoundedBCryptPasswordEncoder.calibrate(0, 4, 6)).isEqualTo(4);
+        assertThat(BoundedBCryptPasswordEncoder.calibrate(60000, 4, 6)).isEqualTo(6);
+    }
+
+    /**
+     * Should complete the async hash.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void shouldEncodeAsync() throws Exception {
+        String encoded = passwordEncoder.encodeAsync("password").get();
+
+        assertThat(BCrypt.checkpw("password", encoded)).isTrue();
+    }
+}
@@ -0,0 +1,159 @@
+package logia.assistant.gateway.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.github.jhipster.config.JHipsterProperties;
+import logia.assistant.gateway.config.ApplicationProperties;
+import logia.assistant.share.gateway.config.GatewayProperties;
+import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
+import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
+
+/**
+ * Tests JWTAuthenticationCache class.
+ *
+ * @author Dai Mai
+ */
+public class JWTAuthenticationCacheTest {
+
+    /** The token provider. */
+    private TokenProvider tokenProvider;
+
+    /** The authenticator. */
+    private JWTAuthenticator authenticator;
+
+    /** The application properties. */
+    private ApplicationProperties applicationProperties;
+
+    /** The metric registry. */
+    private MetricRegistry metricRegistry;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setup() {
+        tokenProvider = new TokenProvider(new GatewayProperties());
+        ReflectionTestUtils.setField(tokenProvider, "secretKey", "test secret");
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", 60000);
+        authenticator = spy(new JWTAuthenticator(jHipsterProperties("test secret")));
+        applicationProperties = new ApplicationProperties();
+        metricRegistry = new MetricRegistry();
+    }
+
+    /**
+     * Should verify a token only once.
+     */
+    @Test
+    public void shouldVerifyTokenOnlyOnce() {
+        JWTAuthenticationCache cache = new JWTAuthenticationCache(authenticator, applicationProperties, metricRegistry);
+        String jwt = createToken("test-user");
+
+        JWTAuthenticationResult first = cache.authenticate(jwt);
+        JWTAuthenticationResult second = cache.authenticate(jwt);
+
+        assertThat(first.getAuthentication().getName()).isEqualTo("test-user");
+        assertThat(second).isSameAs(first);
+        verify(authenticator, times(1)).authenticate(jwt);
+        assertThat(metricRegistry.meter(MetricRegistry.name(JWTAuthenticationCache.class, "hits")).getCount())
+            .isEqualTo(1);
+    }
+
+    /**
+     * Should not cache invalid tokens.
+     */
+    @Test
+    public void shouldNotCacheInvalidTokens() {
+        JWTAuthenticationCache cache = new JWTAuthenticationCache(authenticator, applicationProperties, metricRegistry);
+
+        assertThat(cache.authenticate("wrong_jwt").isAuthenticated()).isFalse();
+        assertThat(cache.authenticate("wrong_jwt").isAuthenticated()).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+
+    /**
+     * Should stay within the max size.
+     */
+    @Test
+    public void shouldStayWithinMaxSize() {
+        applicationProperties.getSecurity().getJwtCache().setMaxSize(2);
+        JWTAuthenticationCache cache = new JWTAuthenticationCache(authenticator, applicationProperties, metricRegistry);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.authenticate(createToken("user-" + i)).isAuthenticated()).isTrue();
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+    }
+
+    /**
+     * Should drop the oldest tokens first.
+     */
+    @Test
+    public void shouldEvictOldestTokensFirst() {
+        applicationProperties.getSecurity().getJwtCache().setMaxSize(2);
+        JWTAuthenticationCache cache = new JWTAuthenticationCache(authenticator, applicationProperties, metricRegistry);
+        String oldest = createToken("user-0");
+        String newest = createToken("user-2");
+
+        cache.authenticate(oldest);
+        cache.authenticate(createToken("user-1"));
+        cache.authenticate(newest);
+        cache.authenticate(newest);
+        cache.authenticate(oldest);
+
+        verify(authenticator, times(1)).authenticate(newest);
+        verify(authenticator, times(2)).authenticate(oldest);
+    }
+
+    /**
+     * Should verify every token when disabled.
+     */
+    @Test
+    public void shouldVerifyEveryToken_when_disabled() {
+        applicationProperties.getSecurity().getJwtCache().setEnabled(false);
+        JWTAuthenticationCache cache = new JWTAuthenticationCache(authenticator, applicationProperties, metricRegistry);
+        String jwt = createToken("test-user");
+
+        cache.authenticate(jwt);
+        cache.authenticate(jwt);
+
+        verify(authenticator, times(2)).authenticate(jwt);
+        assertThat(cache.size()).isZero();
+    }
+
+    /**
+     * Create a token.
+     *
+     * @param login the login
+     * @return the token
+     */
+    private String createToken(String login) {
+        return tokenProvider.createToken(new UsernamePasswordAuthenticationToken(login, "test-password",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))), false);
+    }
+
+    /**
+     * The JHipster properties holding the secret the token provider signs with.
+     *
+     * @param secret the secret
+     * @return the JHipster properties
+     */
+    private static JHipsterProperties jHipsterProperties(String secret) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setSecret(secret);
+        return jHipsterProperties;
+    }
+}
@@ -0,0 +1,51 @@
+package logia.assistant.gateway.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import logia.assistant.gateway.AssistantGatewayApp;
+import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
+import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
+
+/**
+ * Test class for the JWTAuthenticator, verifying the tokens of the configured TokenProvider.
+ *
+ * @see JWTAuthenticator
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AssistantGatewayApp.class)
+public class JWTAuthenticatorIntTest {
+
+    /** The token provider. */
+    @Autowired
+    private TokenProvider tokenProvider;
+
+    /** The authenticator. */
+    @Autowired
+    private JWTAuthenticator authenticator;
+
+    /**
+     * Should authenticate the tokens issued by the token provider.
+     */
+    @Test
+    public void shouldAuthenticateTokenOfTokenProvider() {
+        String token = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("test-user", "password",
+            AuthorityUtils.createAuthorityList(AuthoritiesConstants.USER, AuthoritiesConstants.ADMIN)), false);
+
+        JWTAuthenticationResult result = authenticator.authenticate(token);
+        Authentication expected = tokenProvider.getAuthentication(token);
+
+        assertThat(result.isAuthenticated()).isTrue();
+        assertThat(result.getAuthentication().getName()).isEqualTo(expected.getName());
+        assertThat(result.getAuthentication().getAuthorities())
+            .containsExactlyElementsOf(expected.getAuthorities());
+    }
+}
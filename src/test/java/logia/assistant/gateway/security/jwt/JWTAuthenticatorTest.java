@@ -0,0 +1,133 @@
+package logia.assistant.gateway.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.jhipster.config.JHipsterProperties;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import logia.assistant.gateway.security.jwt.JWTAuthenticationResult.Failure;
+import logia.assistant.share.gateway.config.GatewayProperties;
+import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
+import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
+
+/**
+ * Tests JWTAuthenticator class.
+ *
+ * @author Dai Mai
+ */
+public class JWTAuthenticatorTest {
+
+    /** The secret key. */
+    private final String secretKey = "e5c9ee274ae87bc031adda32e27fa98b9290da83";
+
+    /** The one minute. */
+    private final long ONE_MINUTE = 60000;
+
+    /** The token provider. */
+    private TokenProvider tokenProvider;
+
+    /** The authenticator. */
+    private JWTAuthenticator authenticator;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setup() {
+        tokenProvider = new TokenProvider(new GatewayProperties());
+        ReflectionTestUtils.setField(tokenProvider, "secretKey", secretKey);
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", ONE_MINUTE);
+        authenticator = new JWTAuthenticator(jHipsterProperties(secretKey));
+    }
+
+    /**
+     * Should build the same authentication as the token provider.
+     */
+    @Test
+    public void shouldBuildSameAuthenticationAsTokenProvider() {
+        String token = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("test-user", "password",
+            AuthorityUtils.createAuthorityList(AuthoritiesConstants.USER, AuthoritiesConstants.ADMIN)), false);
+
+        JWTAuthenticationResult result = authenticator.authenticate(token);
+        Authentication expected = tokenProvider.getAuthentication(token);
+
+        assertThat(result.isAuthenticated()).isTrue();
+        assertThat(result.getFailure()).isNull();
+        assertThat(result.getAuthentication().getName()).isEqualTo(expected.getName());
+        assertThat(result.getAuthentication().getCredentials()).isEqualTo(token);
+        assertThat(result.getAuthentication().getAuthorities())
+            .containsExactlyElementsOf(expected.getAuthorities());
+        assertThat(result.getExpiresAt()).isGreaterThan(System.currentTimeMillis());
+    }
+
+    /**
+     * Should tell why a token is rejected.
+     */
+    @Test
+    public void shouldTellWhyTokenIsRejected() {
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", -ONE_MINUTE);
+        String expired = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("test-user", "password",
+            AuthorityUtils.createAuthorityList(AuthoritiesConstants.USER)), false);
+        String otherSignature = Jwts.builder()
+            .setSubject("test-user")
+            .signWith(SignatureAlgorithm.HS512, "e5c9ee274ae87bc031adda32e27fa98b9290da90")
+            .setExpiration(new Date(new Date().getTime() + ONE_MINUTE))
+            .compact();
+        String unsupported = Jwts.builder()
+            .setPayload("payload")
+            .signWith(SignatureAlgorithm.HS512, secretKey)
+            .compact();
+
+        assertThat(authenticator.authenticate(null).getFailure()).isEqualTo(Failure.MISSING);
+        assertThat(authenticator.authenticate("wrong_jwt").getFailure()).isEqualTo(Failure.MALFORMED);
+        assertThat(authenticator.authenticate(expired).getFailure()).isEqualTo(Failure.EXPIRED);
+        assertThat(authenticator.authenticate(otherSignature).getFailure()).isEqualTo(Failure.INVALID_SIGNATURE);
+        assertThat(authenticator.authenticate(unsupported).getFailure()).isEqualTo(Failure.UNSUPPORTED);
+    }
+
+    /**
+     * Should reject a token without authorities.
+     */
+    @Test
+    public void shouldRejectTokenWithoutAuthorities() {
+        String token = Jwts.builder()
+            .setSubject("test-user")
+            .signWith(SignatureAlgorithm.HS512, secretKey)
+            .setExpiration(new Date(new Date().getTime() + ONE_MINUTE))
+            .compact();
+
+        assertThat(authenticator.authenticate(token).getFailure()).isEqualTo(Failure.MALFORMED);
+    }
+
+    /**
+     * Should resolve bearer tokens only.
+     */
+    @Test
+    public void shouldResolveBearerTokensOnly() {
+        assertThat(JWTAuthenticator.resolveToken("Bearer abc")).isEqualTo("abc");
+        assertThat(JWTAuthenticator.resolveToken("Bearer ")).isNull();
+        assertThat(JWTAuthenticator.resolveToken("Basic abc")).isNull();
+        assertThat(JWTAuthenticator.resolveToken(null)).isNull();
+    }
+
+    /**
+     * The JHipster properties holding the secret the token provider signs with.
+     *
+     * @param secret the secret
+     * @return the JHipster properties
+     */
+    private static JHipsterProperties jHipsterProperties(String secret) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setSecret(secret);
+        return jHipsterProperties;
+    }
+}
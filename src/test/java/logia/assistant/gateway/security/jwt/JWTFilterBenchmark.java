@@ -0,0 +1,130 @@
+package logia.assistant.gateway.security.jwt;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.github.jhipster.config.JHipsterProperties;
+import logia.assistant.gateway.config.ApplicationProperties;
+import logia.assistant.share.gateway.config.GatewayProperties;
+import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
+import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
+
+/**
+ * Per-request cost of authenticating a JWT: the former validate-then-parse flow of the token provider, the single
+ * pass {@link JWTAuthenticator} and the {@link JWTAuthenticationCache}.
+ *
+ * @author Dai Mai
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWTFilterBenchmark {
+
+    /** The secret key. */
+    private static final String SECRET_KEY = "e5c9ee274ae87bc031adda32e27fa98b9290da83";
+
+    /** The authorization header. */
+    private String authorizationHeader;
+
+    /** The token provider. */
+    private TokenProvider tokenProvider;
+
+    /** The authenticator. */
+    private JWTAuthenticator authenticator;
+
+    /** The authentication cache. */
+    private JWTAuthenticationCache authenticationCache;
+
+    /**
+     * Setup.
+     */
+    @Setup
+    public void setup() {
+        tokenProvider = new TokenProvider(new GatewayProperties());
+        ReflectionTestUtils.setField(tokenProvider, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", TimeUnit.HOURS.toMillis(1));
+        authorizationHeader = "Bearer " + tokenProvider.createToken(new UsernamePasswordAuthenticationToken("user",
+            "password", Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))), false);
+
+        authenticator = new JWTAuthenticator(jHipsterProperties(SECRET_KEY));
+        authenticationCache = new JWTAuthenticationCache(authenticator, new ApplicationProperties(),
+            new MetricRegistry());
+    }
+
+    /**
+     * The former flow: the token is parsed and verified twice.
+     *
+     * @return the authentication
+     */
+    @Benchmark
+    public Authentication validateThenParse() {
+        String jwt = authorizationHeader.substring(7, authorizationHeader.length());
+        return tokenProvider.validateToken(jwt) ? tokenProvider.getAuthentication(jwt) : null;
+    }
+
+    /**
+     * The single pass authenticator.
+     *
+     * @return the authentication
+     */
+    @Benchmark
+    public Authentication singlePass() {
+        return authenticator.authenticate(JWTAuthenticator.resolveToken(authorizationHeader)).getAuthentication();
+    }
+
+    /**
+     * The authentication cache, on a hit.
+     *
+     * @return the authentication
+     */
+    @Benchmark
+    public Authentication cached() {
+        return authenticationCache.authenticate(JWTAuthenticator.resolveToken(authorizationHeader))
+            .getAuthentication();
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args the arguments
+     * @throws RunnerException the runner exception
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JWTFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * The JHipster properties holding the secret the token provider signs with.
+     *
+     * @param secret the secret
+     * @return the JHipster properties
+     */
+    private static JHipsterProperties jHipsterProperties(String secret) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setSecret(secret);
+        return jHipsterProperties;
+    }
+}
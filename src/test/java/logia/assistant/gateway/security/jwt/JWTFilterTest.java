@@ -15,6 +15,7 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import io.github.jhipster.config.JHipsterProperties;
 import logia.assistant.share.gateway.securiry.jwt.AuthoritiesConstants;
 import logia.assistant.share.gateway.config.GatewayProperties;
 import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
@@ -41,7 +42,7 @@ public class JWTFilterTest {
         tokenProvider = new TokenProvider(properties);
         ReflectionTestUtils.setField(tokenProvider, "secretKey", "test secret");
         ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", 60000);
-        jwtFilter = new JWTFilter(tokenProvider);
+        jwtFilter = new JWTFilter(new JWTAuthenticator(jHipsterProperties("test secret")));
         SecurityContextHolder.getContext().setAuthentication(null);
     }
 
@@ -138,4 +139,15 @@ public class JWTFilterTest {
         request.setRequestURI("/api/test");
     }
 
+    /**
+     * The JHipster properties holding the secret the token provider signs with.
+     *
+     * @param secret the secret
+     * @return the JHipster properties
+     */
+    private static JHipsterProperties jHipsterProperties(String secret) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setSecret(secret);
+        return jHipsterProperties;
+    }
 }
@@ -0,0 +1,133 @@
+package logia.assistant.gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import logia.assistant.gateway.config.ApplicationProperties;
+import logia.assistant.gateway.domain.Credential;
+
+/**
+ * Tests LoginActivityRecorder class.
+ *
+ * @author Dai Mai
+ */
+public class LoginActivityRecorderTest {
+
+    /** The jdbc template. */
+    private JdbcTemplate jdbcTemplate;
+
+    /** The second level cache. */
+    private Cache secondLevelCache;
+
+    /** The recorder. */
+    private LoginActivityRecorder recorder;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setup() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        secondLevelCache = mock(Cache.class);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getLoginActivity().setBatchSize(2);
+        recorder = new LoginActivityRecorder(jdbcTemplate, entityManagerFactory, applicationProperties);
+    }
+
+    /**
+     * Should keep the latest login of each credential.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldCoalesceLogins_by_credential() {
+        Instant first = Instant.parse("2018-04-01T08:00:00Z");
+        Instant latest = Instant.parse("2018-04-01T09:00:00Z");
+        recorder.recordLogin(1L, first);
+        recorder.recordLogin(1L, latest);
+        recorder.recordLogin(1L, first);
+
+        recorder.flush();
+
+        ArgumentCaptor<List> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertThat(batch.getValue()).hasSize(1);
+        Object[] row = (Object[]) batch.getValue().get(0);
+        assertThat(row[0]).isEqualTo(Timestamp.from(latest));
+        assertThat(row[1]).isEqualTo(1L);
+        assertThat(recorder.getPendingCount()).isZero();
+    }
+
+    /**
+     * Should split the writes by batch size.
+     */
+    @Test
+    public void shouldSplitWrites_by_batch_size() {
+        for (long id = 1; id <= 5; id++) {
+            recorder.recordLogin(id, Instant.now());
+        }
+
+        recorder.flush();
+
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), anyListOf(Object[].class));
+    }
+
+    /**
+     * Should evict the written credentials from the second level cache, which the JDBC batch bypasses.
+     */
+    @Test
+    public void shouldEvictSecondLevelCache_when_written() {
+        recorder.recordLogin(1L, Instant.now());
+        recorder.recordLogin(2L, Instant.now());
+
+        recorder.flush();
+
+        verify(secondLevelCache).evict(Credential.class, 1L);
+        verify(secondLevelCache).evict(Credential.class, 2L);
+    }
+
+    /**
+     * Should not write when nobody logged in.
+     */
+    @Test
+    public void shouldNotWrite_when_nothing_is_pending() {
+        recorder.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyListOf(Object[].class));
+    }
+
+    /**
+     * Should keep the logins when the database is not available.
+     */
+    @Test
+    public void shouldKeepLogins_when_write_fails() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyListOf(Object[].class)))
+            .thenThrow(new DataAccessResourceFailureException("down"));
+        recorder.recordLogin(1L, Instant.now());
+
+        recorder.flush();
+
+        assertThat(recorder.getPendingCount()).isEqualTo(1);
+        verify(secondLevelCache, never()).evict(Credential.class, 1L);
+    }
+}
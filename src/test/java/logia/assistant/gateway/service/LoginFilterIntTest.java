@@ -0,0 +1,120 @@
+package logia.assistant.gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManager;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hazelcast.core.HazelcastInstance;
+
+import logia.assistant.gateway.AssistantGatewayApp;
+import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.repository.CredentialRepository;
+import logia.assistant.gateway.repository.UserRepository;
+
+/**
+ * Tests LoginFilter class.
+ *
+ * @author Dai Mai
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AssistantGatewayApp.class)
+@Transactional
+public class LoginFilterIntTest {
+
+    /** The login filter. */
+    @Autowired
+    private LoginFilter loginFilter;
+
+    /** The user repository. */
+    @Autowired
+    private UserRepository userRepository;
+
+    /** The credential repository. */
+    @Autowired
+    private CredentialRepository credentialRepository;
+
+    /** The entity manager. */
+    @Autowired
+    private EntityManager em;
+
+    /** The jdbc template. */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** The hazelcast instance. */
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    /**
+     * Should reject an unknown login without querying the database, once it was found missing.
+     */
+    @Test
+    public void shouldRejectUnknownLoginWithoutQuery() {
+        String login = "unknown-" + RandomStringUtils.randomAlphanumeric(10) + "@localhost";
+        assertThat(loginFilter.findOneWithUserByLogin(login).isPresent()).isFalse();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertThat(loginFilter.findOneWithUserByLogin(login).isPresent()).isFalse();
+        assertThat(loginFilter.mightExist(login)).isFalse();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    /**
+     * Should find a credential inserted after its login was found missing.
+     */
+    @Test
+    public void shouldFindCredential_when_insertedAfterFoundMissing() {
+        String login = "login-filter-" + RandomStringUtils.randomAlphanumeric(10) + "@localhost";
+        assertThat(loginFilter.findOneWithUserByLogin(login).isPresent()).isFalse();
+
+        User user = userRepository.saveAndFlush(new User().password(RandomStringUtils.random(60)).activated(true));
+        credentialRepository.saveAndFlush(new Credential().login(login).primary(true).user(user));
+
+        assertThat(loginFilter.mightExist(login)).isTrue();
+        assertThat(loginFilter.findOneWithUserByLogin(login).isPresent()).isTrue();
+    }
+
+    /**
+     * Should not remember a login as missing once a credential was committed with it, even by a lookup which missed
+     * it before the commit.
+     */
+    @Test
+    public void shouldNotRememberMissing_when_foundMeanwhile() {
+        String login = "login-filter-" + RandomStringUtils.randomAlphanumeric(10) + "@localhost";
+        hazelcastInstance.getMap(LoginFilter.MISSING_LOGINS_MAP).set(login, Boolean.FALSE);
+
+        assertThat(loginFilter.findOneWithUserByLogin(login).isPresent()).isFalse();
+
+        assertThat(hazelcastInstance.getMap(LoginFilter.MISSING_LOGINS_MAP).get(login)).isEqualTo(Boolean.FALSE);
+        assertThat(loginFilter.mightExist(login)).isTrue();
+    }
+
+    /**
+     * Should accept a login written out of Hibernate once the filter is rebuilt.
+     */
+    @Test
+    public void shouldAcceptLogin_when_rebuiltAfterMissedChange() {
+        String login = "login-filter-" + RandomStringUtils.randomAlphanumeric(10) + "@localhost";
+        User user = userRepository.saveAndFlush(new User().password(RandomStringUtils.random(60)).activated(true));
+        jdbcTemplate.update("INSERT INTO credential (login, jhi_primary, user_id, created_by) VALUES (?, ?, ?, ?)",
+            login, true, user.getId(), "system");
+        assertThat(loginFilter.mightExist(login)).isFalse();
+
+        loginFilter.rebuild();
+
+        assertThat(loginFilter.mightExist(login)).isTrue();
+    }
+}
@@ -0,0 +1,175 @@
+package logia.assistant.gateway.service;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.MessageSource;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.spring4.SpringTemplateEngine;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.github.jhipster.config.JHipsterProperties;
+import logia.assistant.gateway.config.ApplicationProperties;
+import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.repository.CredentialRepository;
+import logia.assistant.gateway.repository.MailOutboxRepository;
+import logia.assistant.gateway.repository.MailOutboxRepository.PendingEmail;
+
+/**
+ * Tests MailQueue class.
+ *
+ * @author Dai Mai
+ */
+public class MailQueueTest {
+
+    /** The mail outbox repository. */
+    private MailOutboxRepository mailOutboxRepository;
+
+    /** The credential repository. */
+    private CredentialRepository credentialRepository;
+
+    /** The java mail sender, behind a real mail service. */
+    private JavaMailSender javaMailSender;
+
+    /** The mail queue. */
+    private MailQueue mailQueue;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setup() {
+        mailOutboxRepository = mock(MailOutboxRepository.class);
+        credentialRepository = mock(CredentialRepository.class);
+        javaMailSender = mock(JavaMailSender.class);
+        when(javaMailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        MessageSource messageSource = mock(MessageSource.class);
+        when(messageSource.getMessage(anyString(), any(Object[].class), any(Locale.class))).thenReturn("Welcome");
+        SpringTemplateEngine templateEngine = mock(SpringTemplateEngine.class);
+        when(templateEngine.process(anyString(), any(IContext.class))).thenReturn("<p>Welcome</p>");
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getMail().setFrom("test@localhost");
+        MailService mailService = new MailService(jHipsterProperties, javaMailSender, messageSource, templateEngine);
+        mailQueue = new MailQueue(mailOutboxRepository, credentialRepository, mailService,
+            mock(PlatformTransactionManager.class), new ApplicationProperties(), new MetricRegistry());
+    }
+
+    /**
+     * Should write the emails to the outbox, in the transaction of the credentials.
+     */
+    @Test
+    public void shouldAppendToOutbox_when_enqueued() {
+        mailQueue.enqueueCreationEmails(Arrays.asList(1L, 2L));
+
+        verify(mailOutboxRepository).appendAll(Arrays.asList(1L, 2L));
+    }
+
+    /**
+     * Should delete the emails sent, and those of deleted credentials.
+     */
+    @Test
+    public void shouldDeleteSentEmails() {
+        givenClaimed(email(10L, 1L), email(11L, 2L));
+        Credential credential = credential(1L);
+        when(credentialRepository.findAllWithUserByIdIn(Arrays.asList(1L, 2L)))
+            .thenReturn(Collections.singletonList(credential));
+
+        mailQueue.drain();
+
+        verify(javaMailSender).send(any(MimeMessage.class));
+        verify(mailOutboxRepository).delete(Arrays.asList(10L, 11L));
+    }
+
+    /**
+     * Should keep the emails the mail server did not accept, to retry them once their claim expires.
+     */
+    @Test
+    public void shouldKeepEmail_when_sendFails() {
+        givenClaimed(email(10L, 1L), email(11L, 2L));
+        when(credentialRepository.findAllWithUserByIdIn(Arrays.asList(1L, 2L)))
+            .thenReturn(Arrays.asList(credential(1L), credential(2L)));
+        doThrow(new MailSendException("Connection refused")).doNothing()
+            .when(javaMailSender).send(any(MimeMessage.class));
+
+        mailQueue.drain();
+
+        verify(javaMailSender, times(2)).send(any(MimeMessage.class));
+        verify(mailOutboxRepository).delete(Collections.singletonList(11L));
+    }
+
+    /**
+     * Should not send the emails claimed by another node.
+     */
+    @Test
+    public void shouldSkip_when_claimedByAnotherNode() {
+        List<PendingEmail> ready = Collections.singletonList(email(10L, 1L));
+        when(mailOutboxRepository.findReady(any(Instant.class), anyInt())).thenReturn(ready);
+        when(mailOutboxRepository.claim(eq(ready), any(Instant.class))).thenReturn(Collections.emptyList());
+
+        mailQueue.drain();
+
+        verify(javaMailSender, never()).send(any(MimeMessage.class));
+        verify(mailOutboxRepository, never()).delete(any());
+    }
+
+    /**
+     * Given the ready emails, all claimed.
+     *
+     * @param emails the emails
+     */
+    private void givenClaimed(PendingEmail... emails) {
+        List<PendingEmail> ready = Arrays.asList(emails);
+        when(mailOutboxRepository.findReady(any(Instant.class), anyInt())).thenReturn(ready);
+        when(mailOutboxRepository.claim(eq(ready), any(Instant.class))).thenReturn(ready);
+    }
+
+    /**
+     * A queued email.
+     *
+     * @param id the email id
+     * @param credentialId the credential id
+     * @return the email
+     */
+    private static PendingEmail email(long id, long credentialId) {
+        return new PendingEmail(id, credentialId, Timestamp.from(Instant.now()));
+    }
+
+    /**
+     * A credential.
+     *
+     * @param id the id
+     * @return the credential
+     */
+    private static Credential credential(long id) {
+        Credential credential = new Credential();
+        credential.setId(id);
+        credential.setLogin("user" + id + "@localhost");
+        credential.setUser(new User().langKey("en"));
+        return credential;
+    }
+}
@@ -0,0 +1,277 @@
+package logia.assistant.gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.codahale.metrics.MetricRegistry;
+
+import logia.assistant.gateway.config.ApplicationProperties;
+import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.repository.CredentialRepository;
+import logia.assistant.gateway.repository.OutboxEventRepository;
+import logia.assistant.gateway.repository.OutboxEventRepository.EventType;
+import logia.assistant.gateway.repository.OutboxEventRepository.OutboxEvent;
+import logia.assistant.gateway.repository.ReindexCheckpointRepository;
+import logia.assistant.gateway.repository.ReindexCheckpointRepository.ReindexCheckpoint;
+import logia.assistant.gateway.repository.UserRepository;
+import logia.assistant.gateway.service.SearchIndexWriter.DocumentKey;
+import logia.assistant.gateway.service.SearchIndexWriter.SearchDocument;
+
+/**
+ * Tests OutboxRelay class.
+ *
+ * @author Dai Mai
+ */
+public class OutboxRelayTest {
+
+    /** The outbox event repository. */
+    private OutboxEventRepository outboxEventRepository;
+
+    /** The user repository. */
+    private UserRepository userRepository;
+
+    /** The search index writer. */
+    private SearchIndexWriter searchIndexWriter;
+
+    /** The reindex checkpoint repository. */
+    private ReindexCheckpointRepository checkpointRepository;
+
+    /** The users by uuid cache. */
+    private Cache cache;
+
+    /** The outbox relay. */
+    private OutboxRelay outboxRelay;
+
+    /**
+     * Setup.
+     */
+    @Before
+    public void setup() {
+        outboxEventRepository = mock(OutboxEventRepository.class);
+        userRepository = mock(UserRepository.class);
+        searchIndexWriter = mock(SearchIndexWriter.class);
+        checkpointRepository = mock(ReindexCheckpointRepository.class);
+        cache = mock(Cache.class);
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache(UserRepository.USERS_BY_UUID_CACHE)).thenReturn(cache);
+        when(searchIndexWriter.document(any(), anyLong(), anyLong())).thenAnswer(invocation -> Optional.of(
+            new SearchDocument(key(invocation.getArguments()[1]), "{}", (Long) invocation.getArguments()[2])));
+        when(searchIndexWriter.deletion(any(), anyLong(), anyLong())).thenAnswer(invocation -> new SearchDocument(
+            key(invocation.getArguments()[1]), null, (Long) invocation.getArguments()[2]));
+        when(searchIndexWriter.write(anyListOf(SearchDocument.class))).thenReturn(Collections.emptySet());
+
+        outboxRelay = new OutboxRelay(outboxEventRepository, userRepository, mock(CredentialRepository.class),
+            searchIndexWriter, checkpointRepository, cacheManager, mock(PlatformTransactionManager.class), new ApplicationProperties(),
+            new MetricRegistry());
+    }
+
+    /**
+     * Tear down.
+     */
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.unbindResourceIfPossible(outboxRelay);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Should write the latest state once and delete every event of the entity.
+     */
+    @Test
+    public void shouldWriteOnce_when_entityChangedTwice() {
+        givenReady(event(1L, 5L, EventType.SAVED, "uuid-5"), event(2L, 5L, EventType.SAVED, "uuid-5"));
+        when(userRepository.findAll(Collections.singletonList(5L))).thenReturn(Collections.singletonList(user(5L)));
+
+        outboxRelay.relayBatch();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SearchDocument>> documents = ArgumentCaptor.forClass((Class) List.class);
+        verify(searchIndexWriter).write(documents.capture());
+        assertThat(documents.getValue()).hasSize(1);
+        assertThat(documents.getValue().get(0).source).isEqualTo("{}");
+        assertThat(documents.getValue().get(0).version).isEqualTo(2L);
+        verify(outboxEventRepository).delete(Arrays.asList(1L, 2L));
+        verify(outboxEventRepository).postpone(eq(Collections.emptyList()), any());
+        verify(cache, times(2)).evict("uuid-5");
+    }
+
+    /**
+     * Should also write the document into the index being rebuilt.
+     */
+    @Test
+    public void shouldWriteIntoRebuiltIndex_when_reindexInProgress() {
+        givenReady(event(1L, 5L, EventType.SAVED, "uuid-5"));
+        when(userRepository.findAll(Collections.singletonList(5L))).thenReturn(Collections.singletonList(user(5L)));
+        when(checkpointRepository.findAll()).thenReturn(
+            Collections.singletonList(new ReindexCheckpoint("User", "user_v2", 3L)));
+
+        outboxRelay.relayBatch();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SearchDocument>> documents = ArgumentCaptor.forClass((Class) List.class);
+        verify(searchIndexWriter).write(documents.capture());
+        assertThat(documents.getValue()).hasSize(2);
+        assertThat(documents.getValue().get(0).key.indexName).isEqualTo("user");
+        assertThat(documents.getValue().get(1).key.indexName).isEqualTo("user_v2");
+        assertThat(documents.getValue().get(1).key.id).isEqualTo("5");
+        assertThat(documents.getValue().get(1).version).isEqualTo(1L);
+        verify(outboxEventRepository).delete(Collections.singletonList(1L));
+    }
+
+    /**
+     * Should postpone the event when its document failed in the index being rebuilt.
+     */
+    @Test
+    public void shouldPostpone_when_rebuiltIndexDocumentFailed() {
+        OutboxEvent event = event(1L, 5L, EventType.DELETED, "uuid-5");
+        givenReady(event);
+        when(checkpointRepository.findAll()).thenReturn(
+            Collections.singletonList(new ReindexCheckpoint("User", "user_v2", 3L)));
+        when(searchIndexWriter.write(anyListOf(SearchDocument.class))).thenReturn(
+            Collections.singleton(new DocumentKey("user_v2", "user", "5")));
+
+        outboxRelay.relayBatch();
+
+        verify(outboxEventRepository).postpone(eq(Collections.singletonList(event)), any());
+    }
+
+    /**
+     * Should delete the document when the saved entity no longer exists.
+     */
+    @Test
+    public void shouldDeleteDocument_when_entityNoLongerExists() {
+        givenReady(event(1L, 5L, EventType.SAVED, "uuid-5"));
+        when(userRepository.findAll(Collections.singletonList(5L))).thenReturn(Collections.emptyList());
+
+        outboxRelay.relayBatch();
+
+        verify(searchIndexWriter).deletion(User.class, 5L, 1L);
+        verify(outboxEventRepository).delete(Collections.singletonList(1L));
+    }
+
+    /**
+     * Should postpone the events and keep the cache when their document failed.
+     */
+    @Test
+    public void shouldPostpone_when_documentFailed() {
+        OutboxEvent event = event(1L, 5L, EventType.DELETED, "uuid-5");
+        givenReady(event);
+        when(searchIndexWriter.write(anyListOf(SearchDocument.class))).thenReturn(Collections.singleton(key(5L)));
+
+        outboxRelay.relayBatch();
+
+        verify(outboxEventRepository).delete(Collections.emptyList());
+        verify(outboxEventRepository).postpone(eq(Collections.singletonList(event)), any());
+        verify(cache, never()).evict(any());
+    }
+
+    /**
+     * Should skip the events claimed by another node.
+     */
+    @Test
+    public void shouldSkip_when_claimedByAnotherNode() {
+        List<OutboxEvent> ready = Collections.singletonList(event(1L, 5L, EventType.SAVED, "uuid-5"));
+        when(outboxEventRepository.findReady(any(Instant.class), anyInt())).thenReturn(ready);
+        when(outboxEventRepository.claim(eq(ready), any(Instant.class))).thenReturn(Collections.emptyList());
+
+        assertThat(outboxRelay.relayBatch()).isEqualTo(1);
+
+        verify(searchIndexWriter, never()).write(anyListOf(SearchDocument.class));
+    }
+
+    /**
+     * Should bypass the cache until the transaction commits, then evict it.
+     */
+    @Test
+    public void shouldEvictAfterCommit_when_changedInTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        outboxRelay.publishSaved(User.class, 5L, UserRepository.USERS_BY_UUID_CACHE, "uuid-5");
+
+        verify(outboxEventRepository).append("User", 5L, EventType.SAVED, UserRepository.USERS_BY_UUID_CACHE,
+            "uuid-5");
+        verify(cache, never()).evict(any());
+        assertThat(outboxRelay.isChangedInTransaction(UserRepository.USERS_BY_UUID_CACHE, "uuid-5")).isTrue();
+        assertThat(outboxRelay.isChangedInTransaction(UserRepository.USERS_BY_UUID_CACHE, "uuid-6")).isFalse();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.getSynchronizations()
+            .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        verify(cache).evict("uuid-5");
+        assertThat(outboxRelay.isChangedInTransaction(UserRepository.USERS_BY_UUID_CACHE, "uuid-5")).isFalse();
+    }
+
+    /**
+     * Given the ready events, all claimed.
+     *
+     * @param events the events
+     */
+    private void givenReady(OutboxEvent... events) {
+        List<OutboxEvent> ready = Arrays.asList(events);
+        when(outboxEventRepository.findReady(any(Instant.class), anyInt())).thenReturn(ready);
+        when(outboxEventRepository.claim(eq(ready), any(Instant.class))).thenReturn(ready);
+    }
+
+    /**
+     * A user event.
+     *
+     * @param id the event id
+     * @param userId the user id
+     * @param eventType the event type
+     * @param uuid the user uuid
+     * @return the event
+     */
+    private static OutboxEvent event(long id, long userId, EventType eventType, String uuid) {
+        return new OutboxEvent(id, "User", userId, eventType, UserRepository.USERS_BY_UUID_CACHE, uuid,
+            Instant.now(), null, 0);
+    }
+
+    /**
+     * A user.
+     *
+     * @param id the id
+     * @return the user
+     */
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    /**
+     * The document key of a user.
+     *
+     * @param id the user id
+     * @return the document key
+     */
+    private static DocumentKey key(Object id) {
+        return new DocumentKey("user", "user", String.valueOf(id));
+    }
+}
@@ -0,0 +1,62 @@
+package logia.assistant.gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests ReindexJob class.
+ *
+ * @author Dai Mai
+ */
+public class ReindexJobTest {
+
+    /**
+     * Should report the progress while running.
+     */
+    @Test
+    public void shouldReportProgress_when_running() {
+        ReindexJob job = new ReindexJob();
+        job.addTotal(1000);
+
+        assertThat(job.getEstimatedRemaining()).isEmpty();
+
+        job.indexed(250);
+
+        assertThat(job.getStatus()).isEqualTo(ReindexJob.Status.RUNNING);
+        assertThat(job.getDone()).isEqualTo(250);
+        assertThat(job.getTotal()).isEqualTo(1000);
+        assertThat(job.getDocumentsPerSecond()).isPositive();
+        assertThat(job.getEstimatedRemaining()).isPresent();
+    }
+
+    /**
+     * Should stop the estimation when ended.
+     */
+    @Test
+    public void shouldNotEstimate_when_ended() {
+        ReindexJob job = new ReindexJob();
+        job.addTotal(10);
+        job.indexed(5);
+        job.cancel();
+        job.end(ReindexJob.Status.CANCELLED);
+
+        assertThat(job.isCancelRequested()).isTrue();
+        assertThat(job.getStatus()).isEqualTo(ReindexJob.Status.CANCELLED);
+        assertThat(job.getEndedDate()).isNotNull();
+        assertThat(job.getEstimatedRemaining()).isEmpty();
+    }
+
+    /**
+     * Should keep a bounded number of errors.
+     */
+    @Test
+    public void shouldBoundErrors() {
+        ReindexJob job = new ReindexJob();
+        for (int i = 0; i < ReindexJob.MAX_ERRORS * 2; i++) {
+            job.error("error " + i);
+        }
+
+        assertThat(job.getErrors()).hasSize(ReindexJob.MAX_ERRORS).startsWith("error 0");
+    }
+}
@@ -0,0 +1,149 @@
+package logia.assistant.gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+
+import com.codahale.metrics.MetricRegistry;
+
+import logia.assistant.gateway.service.SearchIndexWriter.DocumentKey;
+import logia.assistant.gateway.service.SearchIndexWriter.SearchDocument;
+
+/**
+ * Tests SearchIndexWriter class.
+ *
+ * @author Dai Mai
+ */
+public class SearchIndexWriterTest {
+
+    /** The bulk response returned to the writer, null to fail the bulk request. */
+    private BulkResponse bulkResponse;
+
+    /** The search index writer. */
+    private SearchIndexWriter searchIndexWriter;
+
+    /**
+     * Setup.
+     *
+     * @throws Exception the exception
+     */
+    @Before
+    public void setup() throws Exception {
+        ElasticsearchPersistentEntity<?> persistentEntity = mock(ElasticsearchPersistentEntity.class);
+        when(persistentEntity.getIndexName()).thenReturn("user");
+        when(persistentEntity.getIndexType()).thenReturn("user");
+        ElasticsearchTemplate elasticsearchTemplate = mock(ElasticsearchTemplate.class);
+        doReturn(persistentEntity).when(elasticsearchTemplate).getPersistentEntityFor(any(Class.class));
+        EntityMapper entityMapper = mock(EntityMapper.class);
+        when(entityMapper.mapToString(any()))
+            .thenAnswer(invocation -> "{\"name\":\"" + invocation.getArguments()[0] + "\"}");
+
+        searchIndexWriter = new SearchIndexWriter(elasticsearchTemplate, entityMapper, new MetricRegistry()) {
+
+            @Override
+            BulkResponse bulk(List<SearchDocument> documents) {
+                if (bulkResponse == null) {
+                    throw new IllegalStateException("Elasticsearch unavailable");
+                }
+                return bulkResponse;
+            }
+        };
+    }
+
+    /**
+     * Should serialize the entity into the document of its alias.
+     */
+    @Test
+    public void shouldSerializeDocument() {
+        SearchDocument document = searchIndexWriter.document("first", 1L, 7L).get();
+
+        assertThat(document.key).isEqualTo(new DocumentKey("user", "user", "1"));
+        assertThat(document.source).isEqualTo("{\"name\":\"first\"}");
+        assertThat(document.version).isEqualTo(7L);
+        assertThat(searchIndexWriter.deletion(String.class, 1L, 8L).source).isNull();
+    }
+
+    /**
+     * Should report the failed items by their position in the request.
+     */
+    @Test
+    public void shouldReportFailedItems() {
+        List<SearchDocument> documents = Arrays.asList(searchIndexWriter.document("first", 1L, 1L).get(),
+            searchIndexWriter.document("second", 2L, 2L).get(), searchIndexWriter.deletion(String.class, 3L, 3L));
+        bulkResponse = response(item(0, null), item(1, RestStatus.INTERNAL_SERVER_ERROR), item(2, null));
+
+        assertThat(searchIndexWriter.write(documents)).containsExactly(new DocumentKey("user", "user", "2"));
+    }
+
+    /**
+     * Should not retry a document superseded by a newer version.
+     */
+    @Test
+    public void shouldNotFail_when_versionConflict() {
+        List<SearchDocument> documents = Collections.singletonList(searchIndexWriter.document("first", 1L, 1L).get());
+        bulkResponse = response(item(0, RestStatus.CONFLICT));
+
+        assertThat(searchIndexWriter.write(documents)).isEmpty();
+    }
+
+    /**
+     * Should fail every document when Elasticsearch is not available.
+     */
+    @Test
+    public void shouldFailAll_when_bulkFails() {
+        List<SearchDocument> documents = Arrays.asList(searchIndexWriter.document("first", 1L, 1L).get(),
+            searchIndexWriter.deletion(String.class, 2L, 2L));
+
+        assertThat(searchIndexWriter.write(documents)).containsOnly(new DocumentKey("user", "user", "1"),
+            new DocumentKey("user", "user", "2"));
+    }
+
+    /**
+     * A bulk response.
+     *
+     * @param items the items
+     * @return the bulk response
+     */
+    private static BulkResponse response(BulkItemResponse... items) {
+        boolean hasFailures = Arrays.stream(items).anyMatch(BulkItemResponse::isFailed);
+        BulkResponse response = mock(BulkResponse.class);
+        when(response.getItems()).thenReturn(items);
+        when(response.hasFailures()).thenReturn(hasFailures);
+        return response;
+    }
+
+    /**
+     * An item of a bulk response.
+     *
+     * @param itemId the position of the item in the request
+     * @param failure the status of the failure, null if the item succeeded
+     * @return the item
+     */
+    private static BulkItemResponse item(int itemId, RestStatus failure) {
+        BulkItemResponse item = mock(BulkItemResponse.class);
+        when(item.getItemId()).thenReturn(itemId);
+        when(item.isFailed()).thenReturn(failure != null);
+        if (failure != null) {
+            BulkItemResponse.Failure itemFailure = mock(BulkItemResponse.Failure.class);
+            when(itemFailure.getStatus()).thenReturn(failure);
+            when(item.getFailure()).thenReturn(itemFailure);
+            when(item.getFailureMessage()).thenReturn(failure.name());
+        }
+        return item;
+    }
+}
@@ -0,0 +1,135 @@
+package logia.assistant.gateway.service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import logia.assistant.gateway.AssistantGatewayApp;
+import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.repository.UserRepository;
+import logia.assistant.gateway.repository.search.UserSearchRepository;
+
+/**
+ * Latency percentiles of looking a user up by uuid: the former Elasticsearch first flow, the database and the
+ * {@link UserService#findByUuid(String)} cache path. Runs against the test configuration, with the embedded
+ * Elasticsearch node and database.
+ *
+ * @author Dai Mai
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserLookupBenchmark {
+
+    /** The application context. */
+    private ConfigurableApplicationContext context;
+
+    /** The user service. */
+    private UserService userService;
+
+    /** The user repository. */
+    private UserRepository userRepository;
+
+    /** The user search repository. */
+    private UserSearchRepository userSearchRepository;
+
+    /** The read transaction template. */
+    private TransactionTemplate transactionTemplate;
+
+    /** The looked up user. */
+    private User user;
+
+    /**
+     * Setup.
+     */
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(AssistantGatewayApp.class).properties("server.port=0").run();
+        userService = context.getBean(UserService.class);
+        userRepository = context.getBean(UserRepository.class);
+        userSearchRepository = context.getBean(UserSearchRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+
+        user = userService.saveOrUpdate(new User().password(RandomStringUtils.random(60)).firstName("john")
+            .lastName("doe").langKey("en").activated(true), true);
+        userSearchRepository.save(user);
+    }
+
+    /**
+     * Tear down.
+     */
+    @TearDown
+    public void tearDown() {
+        userSearchRepository.delete(user.getId());
+        userService.delete(user);
+        context.close();
+    }
+
+    /**
+     * The former flow: Elasticsearch, then the database on a miss.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public Optional<User> elasticsearchFirst() {
+        Optional<User> optUser = userSearchRepository.findOneByUuid(user.getUuid());
+        return optUser.isPresent() ? optUser : database();
+    }
+
+    /**
+     * The database, with the authorities.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public Optional<User> database() {
+        return transactionTemplate.execute(status -> {
+            Optional<User> optUser = userRepository.findOneByUuid(user.getUuid());
+            optUser.ifPresent(found -> found.getAuthorities().size());
+            return optUser;
+        });
+    }
+
+    /**
+     * The user service, on a cache hit.
+     *
+     * @return the user
+     */
+    @Benchmark
+    public Optional<User> cached() {
+        return userService.findByUuid(user.getUuid());
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args the arguments
+     * @throws RunnerException the runner exception
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UserLookupBenchmark.class.getSimpleName()).build()).run();
+    }
+}
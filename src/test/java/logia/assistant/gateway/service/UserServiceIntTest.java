@@ -2,8 +2,17 @@ package logia.assistant.gateway.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Before;
@@ -13,13 +22,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import logia.assistant.gateway.AssistantGatewayApp;
 import logia.assistant.gateway.config.Constants;
 import logia.assistant.gateway.domain.Credential;
 import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.repository.CredentialRepository;
 import logia.assistant.gateway.service.dto.UserDTO;
 
 /**
@@ -36,6 +50,14 @@ public class UserServiceIntTest extends AbstractUserServiceInitTest {
     @Autowired
     private UserService userService;
 
+    /** The jdbc template. */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** The transaction manager. */
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     /**
      * Inits the.
      */
@@ -78,4 +100,177 @@ public class UserServiceIntTest extends AbstractUserServiceInitTest {
         assertThat(userRepository.count()).isEqualByComparingTo(currentTotalUsers - 1);
     }
 
+    /**
+     * Test remove non credential users keeps the users having a credential.
+     */
+    @Test
+    @Transactional
+    public void testRemoveNonCredentialUsersKeepsCredentialUsers() {
+        userRepository.saveAndFlush(user);
+        credentialRepository.saveAndFlush(credential);
+
+        userService.removeNonCredentialUsers();
+        assertThat(userRepository.findOne(user.getId())).isNotNull();
+    }
+
+    /**
+     * Test remove non credential users is skipped while another node holds the lease.
+     */
+    @Test
+    @Transactional
+    public void testRemoveNonCredentialUsersSkippedWhenLocked() {
+        userRepository.saveAndFlush(user);
+        jdbcTemplate.update("INSERT INTO scheduled_lock (name, locked_until, locked_date, locked_by) "
+            + "VALUES (?, ?, ?, ?)", "removeNonCredentialUsers",
+            Timestamp.from(Instant.now().plus(1, ChronoUnit.HOURS)), Timestamp.from(Instant.now()), "other-node");
+
+        long currentTotalUsers = userRepository.count();
+        userService.removeNonCredentialUsers();
+        assertThat(userRepository.count()).isEqualByComparingTo(currentTotalUsers);
+    }
+
+    /**
+     * Test find by uuid reads the changes of the current transaction, though the user was cached before.
+     */
+    @Test
+    @Transactional
+    public void testFindByUuidReadsOwnWrites() {
+        user = userService.saveOrUpdate(user, true);
+        assertThat(userService.findByUuid(user.getUuid()).get().getFirstName()).isEqualTo("john");
+
+        user.setFirstName("jane");
+        userService.saveOrUpdate(user, true);
+
+        assertThat(userService.findByUuid(user.getUuid()).get().getFirstName()).isEqualTo("jane");
+    }
+
+    /**
+     * Test save or update publishes the change of the cached credentials of the user, holding its password.
+     */
+    @Test
+    @Transactional
+    public void testSaveOrUpdatePublishesCredentialsOfUser() {
+        user = userService.saveOrUpdate(user, true);
+        credential = credentialRepository.saveAndFlush(credential);
+
+        user.setPassword(RandomStringUtils.random(60));
+        userService.saveOrUpdate(user, true);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event WHERE aggregate_type = ? "
+            + "AND aggregate_id = ? AND cache_name = ? AND cache_key = ?", Long.class, "Credential",
+            credential.getId(), CredentialRepository.CREDENTIALS_BY_LOGIN_CACHE, credential.getLogin()))
+            .isEqualTo(1L);
+    }
+
+    /**
+     * Test create uuid concurrently: users registered from many threads get distinct uuids.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testCreateUuidConcurrently() throws Exception {
+        int threads = 8;
+        int usersPerThread = 10;
+        List<User> created = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < usersPerThread; i++) {
+                        User newUser = new User().password(RandomStringUtils.random(60)).activated(true);
+                        created.add(userService.saveOrUpdate(newUser, true));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            assertThat(created).hasSize(threads * usersPerThread);
+            assertThat(created.stream().map(User::getUuid).distinct().count())
+                .isEqualTo(threads * usersPerThread);
+        } finally {
+            executor.shutdown();
+            created.forEach(userService::delete);
+        }
+    }
+
+    /**
+     * Test save or update numbers the events of a user in the order of the commits, when two transactions change it
+     * at once: the second one waits for the row lock of the first before drawing its event id.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testSaveOrUpdateNumbersEventsInCommitOrder() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long userId = userService.saveOrUpdate(user, true).getId();
+        CountDownLatch firstPublished = new CountDownLatch(1);
+        CountDownLatch secondSaving = new CountDownLatch(1);
+        List<String> commits = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> first = executor.submit(() -> {
+                Long eventId = transactionTemplate.execute(status -> {
+                    Long id = rename(userId, "first");
+                    firstPublished.countDown();
+                    // Commit while the second transaction waits for the row
+                    await(secondSaving, 200);
+                    return id;
+                });
+                commits.add("first");
+                return eventId;
+            });
+            Future<Long> second = executor.submit(() -> {
+                await(firstPublished, 0);
+                Long eventId = transactionTemplate.execute(status -> {
+                    secondSaving.countDown();
+                    return rename(userId, "second");
+                });
+                commits.add("second");
+                return eventId;
+            });
+
+            assertThat(second.get(10, TimeUnit.SECONDS)).isGreaterThan(first.get(10, TimeUnit.SECONDS));
+            assertThat(commits).containsExactly("first", "second");
+            assertThat(userRepository.findOne(userId).getFirstName()).isEqualTo("second");
+        } finally {
+            executor.shutdown();
+            userService.delete(userRepository.findOne(userId));
+        }
+    }
+
+    /**
+     * Rename a user in the current transaction.
+     *
+     * @param userId the user id
+     * @param firstName the first name
+     * @return the id of the latest event of the user, as seen by the transaction
+     */
+    private Long rename(Long userId, String firstName) {
+        User renamed = userRepository.findOne(userId);
+        renamed.setFirstName(firstName);
+        userService.saveOrUpdate(renamed, false);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM outbox_event WHERE aggregate_type = ? "
+            + "AND aggregate_id = ?", Long.class, User.class.getSimpleName(), userId);
+    }
+
+    /**
+     * Wait for a latch, then pause.
+     *
+     * @param latch the latch
+     * @param pauseMillis the pause, in milliseconds
+     */
+    private static void await(CountDownLatch latch, long pauseMillis) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
 }
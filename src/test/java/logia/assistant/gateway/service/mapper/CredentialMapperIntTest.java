@@ -0,0 +1,110 @@
+package logia.assistant.gateway.service.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import logia.assistant.gateway.AssistantGatewayApp;
+import logia.assistant.gateway.domain.Credential;
+import logia.assistant.gateway.domain.User;
+import logia.assistant.gateway.repository.UserRepository;
+import logia.assistant.gateway.service.dto.CredentialDTO;
+
+/**
+ * Tests CredentialMapper class.
+ *
+ * @author Dai Mai
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AssistantGatewayApp.class)
+@Transactional
+public class CredentialMapperIntTest {
+
+    /** The number of credentials mapped. */
+    private static final int CREDENTIALS = 1000;
+
+    /** The number of users of the credentials. */
+    private static final int USERS = 100;
+
+    /** The credential mapper. */
+    @Autowired
+    private CredentialMapper credentialMapper;
+
+    /** The user repository. */
+    @Autowired
+    private UserRepository userRepository;
+
+    /** The entity manager. */
+    @Autowired
+    private EntityManager em;
+
+    /** The credential DTOs. */
+    private List<CredentialDTO> credentialDTOs;
+
+    /**
+     * Inits the test.
+     */
+    @Before
+    public void initTest() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User().password(RandomStringUtils.random(60)).activated(true);
+            user.setUuid("credential-mapper-" + i);
+            users.add(user);
+        }
+        userRepository.save(users);
+        userRepository.flush();
+        em.clear();
+
+        credentialDTOs = new ArrayList<>();
+        for (int i = 0; i < CREDENTIALS; i++) {
+            credentialDTOs.add(new CredentialDTO().login("credential-mapper-" + i + "@localhost")
+                .primary(false).userId("credential-mapper-" + (i % USERS)));
+        }
+    }
+
+    /**
+     * Should resolve the users of all the credentials by one statement.
+     */
+    @Test
+    public void shouldResolveUsersByOneStatement_when_mappingList() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Credential> credentials = credentialMapper.toEntity(credentialDTOs);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(credentials).hasSize(CREDENTIALS);
+        for (int i = 0; i < CREDENTIALS; i++) {
+            assertThat(credentials.get(i).getLogin()).isEqualTo(credentialDTOs.get(i).getLogin());
+            assertThat(credentials.get(i).getUser().getUuid()).isEqualTo(credentialDTOs.get(i).getUserId());
+        }
+    }
+
+    /**
+     * Should leave the user unset when it does not exist.
+     */
+    @Test
+    public void shouldLeaveUserUnset_when_userNotFound() {
+        List<Credential> credentials = credentialMapper.toEntity(
+            Collections.singletonList(new CredentialDTO().login("unknown@localhost").userId("unknown")));
+
+        assertThat(credentials).hasSize(1);
+        assertThat(credentials.get(0).getUser()).isNull();
+    }
+}
@@ -0,0 +1,73 @@
+package logia.assistant.gateway.service.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests CountingBloomFilter class.
+ *
+ * @author Dai Mai
+ */
+public class CountingBloomFilterTest {
+
+    /** The number of strings added. */
+    private static final int INSERTIONS = 10000;
+
+    /**
+     * Should contain every string added, and few others.
+     */
+    @Test
+    public void shouldContainAddedStrings_and_fewOthers() {
+        CountingBloomFilter filter = new CountingBloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.add("user-" + i + "@localhost");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertThat(filter.mightContain("user-" + i + "@localhost")).isTrue();
+            if (filter.mightContain("unknown-" + i + "@localhost")) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(INSERTIONS * 3 / 100);
+    }
+
+    /**
+     * Should forget a removed string, but keep the others.
+     */
+    @Test
+    public void shouldForgetRemovedString_but_keepOthers() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        filter.add("john@localhost");
+        filter.add("jane@localhost");
+
+        filter.remove("john@localhost");
+
+        assertThat(filter.mightContain("john@localhost")).isFalse();
+        assertThat(filter.mightContain("jane@localhost")).isTrue();
+    }
+
+    /**
+     * Should ignore the removal of a string never added.
+     */
+    @Test
+    public void shouldIgnoreRemoval_when_neverAdded() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        filter.add("john@localhost");
+
+        filter.remove("jane@localhost");
+        filter.remove("jane@localhost");
+
+        assertThat(filter.mightContain("john@localhost")).isTrue();
+    }
+
+    /**
+     * Should contain nothing when empty.
+     */
+    @Test
+    public void shouldContainNothing_when_empty() {
+        assertThat(new CountingBloomFilter(100, 0.01).mightContain("john@localhost")).isFalse();
+    }
+}
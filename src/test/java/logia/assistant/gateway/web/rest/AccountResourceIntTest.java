@@ -247,7 +247,7 @@ public class AccountResourceIntTest {
                         .content(TestUtil.convertObjectToJsonBytes(invalidUser)))
                 .andExpect(status().isBadRequest());
 
-        assertThat(credentialRepository.findOneByLoginIgnoreCase("funky@example.com").isPresent())
+        assertThat(credentialRepository.findOneWithUserByLogin("funky@example.com").isPresent())
                 .isFalse();
     }
 
@@ -347,7 +347,7 @@ public class AccountResourceIntTest {
                 .content(TestUtil.convertObjectToJsonBytes(duplicatedUser)))
                 .andExpect(status().is4xxClientError());
 
-        assertThat(credentialRepository.findOneByLoginIgnoreCase("alicejr@example.com").isPresent())
+        assertThat(credentialRepository.findOneWithUserByLogin("alicejr@example.com").isPresent())
                 .isFalse();
     }
 
@@ -1,6 +1,9 @@
 package logia.assistant.gateway.web.rest;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
@@ -17,6 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.format.support.FormattingConversionService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -123,6 +127,40 @@ public class AuditResourceIntTest {
             .andExpect(jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL)));
     }
 
+    /**
+     * Gets the audits by cursor, newest first, following the next link until the last page.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void getAuditsByCursor() throws Exception {
+        // Initialize the database
+        for (int i = 0; i < 3; i++) {
+            PersistentAuditEvent event = new PersistentAuditEvent();
+            event.setAuditEventType(SAMPLE_TYPE);
+            event.setPrincipal(SAMPLE_PRINCIPAL + i);
+            event.setAuditEventDate(SAMPLE_TIMESTAMP);
+            auditEventRepository.save(event);
+        }
+
+        // Get the first page, with the count
+        String link = restAuditMockMvc.perform(get("/management/audits?cursor=&size=2&count=true"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[*].principal").value(contains(SAMPLE_PRINCIPAL + 2, SAMPLE_PRINCIPAL + 1)))
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")))
+            .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+
+        // Get the last page, without the count
+        restAuditMockMvc.perform(get(next))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].principal").value(contains(SAMPLE_PRINCIPAL + 0)))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
     /**
      * Gets the audit.
      *
@@ -1,6 +1,7 @@
 package logia.assistant.gateway.web.rest;
 
 import logia.assistant.gateway.AssistantGatewayApp;
+import logia.assistant.gateway.config.Constants;
 
 import logia.assistant.gateway.domain.Credential;
 import logia.assistant.gateway.domain.User;
@@ -18,10 +19,12 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -50,10 +53,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 public class CredentialResourceIntTest {
 
     /** The Constant DEFAULT_LOGIN. */
-    public static final String                    DEFAULT_LOGIN           = "AAAAAAAAAA";
+    public static final String                    DEFAULT_LOGIN           = "aaaaaaaaaa";
 
     /** The Constant UPDATED_LOGIN. */
-    public static final String                    UPDATED_LOGIN           = "BBBBBBBBBB";
+    public static final String                    UPDATED_LOGIN           = "bbbbbbbbbb";
 
     /** The Constant DEFAULT_LAST_LOGIN_DATE. */
     public static final ZonedDateTime             DEFAULT_LAST_LOGIN_DATE = ZonedDateTime
@@ -127,7 +130,8 @@ public class CredentialResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final CredentialResource credentialResource = new CredentialResource(credentialService);
+        final CredentialResource credentialResource = new CredentialResource(credentialService,
+                jacksonMessageConverter.getObjectMapper());
         this.restCredentialMockMvc = MockMvcBuilders.standaloneSetup(credentialResource)
                 .setCustomArgumentResolvers(pageableArgumentResolver)
                 .setControllerAdvice(exceptionTranslator)
@@ -308,6 +312,8 @@ public class CredentialResourceIntTest {
         restCredentialMockMvc.perform(get("/api/credentials?sort=id,desc"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(header().exists("X-Total-Count"))
+                .andExpect(header().exists(HttpHeaders.LINK))
                 .andExpect(jsonPath("$.[*].id").value(hasItem(credential.getId().intValue())))
                 .andExpect(jsonPath("$.[*].login").value(hasItem(DEFAULT_LOGIN.toString())))
                 .andExpect(jsonPath("$.[*].lastLoginDate")
@@ -319,6 +325,27 @@ public class CredentialResourceIntTest {
                         jsonPath("$.[*].primary").value(hasItem(DEFAULT_PRIMARY.booleanValue())));
     }
 
+    /**
+     * Stream all credentials as newline delimited JSON.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    @Transactional
+    public void streamAllCredentials() throws Exception {
+        // Only the credentials loaded with the schema, as the stream is read in its own transaction by another thread
+        MvcResult result = restCredentialMockMvc
+                .perform(get("/api/credentials").accept(Constants.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+
+        assertThat(result.getResponse().getContentType()).startsWith(Constants.APPLICATION_NDJSON_VALUE);
+        assertThat(lines).hasSize((int) credentialRepository.count());
+        assertThat(lines).anyMatch(line -> line.contains("\"login\":\"admin\""));
+    }
+
     /**
      * Gets the credential.
      *
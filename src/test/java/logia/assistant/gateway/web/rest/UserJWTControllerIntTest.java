@@ -25,7 +25,8 @@ import logia.assistant.gateway.domain.Credential;
 import logia.assistant.gateway.domain.User;
 import logia.assistant.gateway.repository.CredentialRepository;
 import logia.assistant.gateway.repository.UserRepository;
-import logia.assistant.gateway.service.CredentialService;
+import logia.assistant.gateway.service.LoginActivityRecorder;
+import logia.assistant.gateway.service.PasswordUpgradeService;
 import logia.assistant.gateway.web.rest.errors.ExceptionTranslator;
 import logia.assistant.gateway.web.rest.vm.LoginVM;
 import logia.assistant.share.gateway.securiry.jwt.TokenProvider;
@@ -47,8 +48,13 @@ public class UserJWTControllerIntTest {
     @Autowired
     private AuthenticationManager authenticationManager;
 
+    /** The login activity recorder. */
     @Autowired
-    private CredentialService     credentialService;
+    private LoginActivityRecorder loginActivityRecorder;
+
+    /** The password upgrade service. */
+    @Autowired
+    private PasswordUpgradeService passwordUpgradeService;
 
     /** The user repository. */
     @Autowired
@@ -75,7 +81,7 @@ public class UserJWTControllerIntTest {
     @Before
     public void setup() {
         UserJWTController userJWTController = new UserJWTController(tokenProvider,
-                authenticationManager, this.credentialService);
+                authenticationManager, this.loginActivityRecorder, this.passwordUpgradeService);
         this.mockMvc = MockMvcBuilders.standaloneSetup(userJWTController)
                 .setControllerAdvice(exceptionTranslator).build();
     }
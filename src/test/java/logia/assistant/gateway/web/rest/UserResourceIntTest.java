@@ -9,9 +9,11 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -33,10 +35,14 @@ import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import logia.assistant.gateway.AssistantGatewayApp;
+import logia.assistant.gateway.config.Constants;
 import logia.assistant.gateway.domain.Authority;
 import logia.assistant.gateway.domain.Credential;
 import logia.assistant.gateway.domain.User;
@@ -46,6 +52,7 @@ import logia.assistant.gateway.repository.search.UserSearchRepository;
 import logia.assistant.gateway.service.AccountBusinessService;
 import logia.assistant.gateway.service.UserService;
 import logia.assistant.gateway.service.dto.UserDTO;
+import logia.assistant.gateway.service.dto.UserImportResultDTO;
 import logia.assistant.gateway.service.mapper.UserMapper;
 import logia.assistant.gateway.web.rest.errors.ExceptionTranslator;
 import logia.assistant.gateway.web.rest.vm.ManagedUserVM;
@@ -172,7 +179,7 @@ public class UserResourceIntTest {
         MockitoAnnotations.initMocks(this);
         cacheManager.getCache(UserRepository.USERS_BY_UUID_CACHE).clear();
         UserResource userResource = new UserResource(accountBusinessService, userService,
-                userSearchRepository);
+                userSearchRepository, jacksonMessageConverter.getObjectMapper());
         this.restUserMockMvc = MockMvcBuilders.standaloneSetup(userResource)
                 .setCustomArgumentResolvers(pageableArgumentResolver)
                 .setControllerAdvice(exceptionTranslator)
@@ -587,6 +594,98 @@ public class UserResourceIntTest {
                         AuthoritiesConstants.SYSTEM, AuthoritiesConstants.ADMIN)));
     }
 
+    /**
+     * Import users from a CSV document.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void importUsersFromCsv() throws Exception {
+        String csv = "login,firstName,lastName,authorities\n"
+                + "Import.User@localhost,john,doe,\n"
+                + "import.user@localhost,jane,doe,\n"
+                + "x,jim,doe,\n"
+                + "import-admin@localhost,\"doe, jack\",doe," + AuthoritiesConstants.ADMIN + "|ROLE_UNKNOWN\n"
+                + "Import_Login,jill,doe,\n"
+                + "import_login,joe,doe,\n";
+
+        // The users are committed by the import, in its own transaction
+        MvcResult result = restUserMockMvc
+                .perform(post("/api/users/import").contentType(Constants.TEXT_CSV_VALUE).content(csv)
+                        .accept(Constants.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted()).andReturn();
+        result.getAsyncResult();
+        ObjectMapper objectMapper = jacksonMessageConverter.getObjectMapper();
+        List<UserImportResultDTO> results = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString().split("\n")) {
+            results.add(objectMapper.readValue(line, UserImportResultDTO.class));
+        }
+
+        try {
+            assertThat(results).extracting(UserImportResultDTO::getLine).containsExactly(2L, 3L, 4L, 5L, 6L, 7L);
+            assertThat(results).extracting(UserImportResultDTO::getStatus).containsExactly(
+                    UserImportResultDTO.Status.CREATED, UserImportResultDTO.Status.REJECTED,
+                    UserImportResultDTO.Status.REJECTED, UserImportResultDTO.Status.REJECTED,
+                    UserImportResultDTO.Status.CREATED, UserImportResultDTO.Status.REJECTED);
+            assertThat(results.get(1).getErrors()).containsExactly("login: is duplicated in the import");
+            assertThat(results.get(3).getErrors()).containsExactly("authorities: unknown authority ROLE_UNKNOWN");
+            // Logins which are not emails are normalized too
+            assertThat(results.get(4).getLogin()).isEqualTo("import_login");
+            assertThat(results.get(5).getErrors()).containsExactly("login: is duplicated in the import");
+
+            Optional<Credential> credential = credentialRepostitory.findOneWithUserByLogin("import.user@localhost");
+            assertThat(credential.isPresent()).isTrue();
+            assertThat(credential.get().getLogin()).isEqualTo("import.user@localhost");
+            assertThat(credential.get().getResetKey()).isNotNull();
+            Optional<User> importedUser = userRepository.findOneWithAuthoritiesByUuid(results.get(0).getId());
+            assertThat(importedUser.isPresent()).isTrue();
+            assertThat(importedUser.get().getFirstName()).isEqualTo("john");
+            assertThat(importedUser.get().isActivated()).isFalse();
+            assertThat(importedUser.get().getAuthorities()).extracting(Authority::getName)
+                    .containsExactly(AuthoritiesConstants.USER);
+        }
+        finally {
+            results.stream().filter(row -> row.getStatus() == UserImportResultDTO.Status.CREATED)
+                    .forEach(row -> accountBusinessService.deleteUser(row.getId()));
+        }
+    }
+
+    /**
+     * Import users with a CSV header of an unknown column.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void importUsersWithInvalidHeader() throws Exception {
+        restUserMockMvc
+                .perform(post("/api/users/import").contentType(Constants.TEXT_CSV_VALUE)
+                        .content("login,password\nimport.user@localhost,secret\n")
+                        .accept(Constants.APPLICATION_NDJSON_VALUE))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Export the users as a CSV document.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    @Transactional
+    public void exportUsersAsCsv() throws Exception {
+        // Only the users loaded with the schema, as the export is read in its own transactions by another thread
+        MvcResult result = restUserMockMvc
+                .perform(get("/api/users/export").accept(Constants.TEXT_CSV_VALUE))
+                .andExpect(request().asyncStarted()).andReturn();
+        result.getAsyncResult();
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+
+        assertThat(result.getResponse().getContentType()).startsWith(Constants.TEXT_CSV_VALUE);
+        assertThat(lines[0]).isEqualTo("login,firstName,lastName,imageUrl,langKey,authorities");
+        assertThat(lines).anyMatch(line -> line.startsWith("admin,")
+                && line.endsWith(AuthoritiesConstants.ADMIN + "|" + AuthoritiesConstants.USER));
+        assertThat(lines).noneMatch(line -> line.startsWith(Constants.ANONYMOUS_USER + ","));
+    }
+
     /**
      * Test user equals.
      *
@@ -2,10 +2,14 @@ package logia.assistant.gateway.web.rest.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import org.junit.Test;
 import org.springframework.data.domain.Page;
@@ -13,6 +17,9 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpHeaders;
 
+import logia.assistant.gateway.service.dto.KeysetPage;
+import logia.assistant.gateway.web.rest.errors.BadRequestAlertException;
+
 /**
  * Tests based on parsing algorithm in app/components/util/pagination-util.service.js
  *
@@ -167,4 +174,41 @@ public class PaginationUtilUnitTest {
         assertTrue(xTotalCountHeaders.size() == 1);
         assertTrue(Long.valueOf(xTotalCountHeaders.get(0)).equals(0L));
     }
+
+    /**
+     * Keyset pagination test.
+     */
+    @Test
+    public void keysetPaginationTest() {
+        String baseUrl = "/api/example";
+        KeysetPage<Long> page = KeysetPage.of(Arrays.asList(1L, 2L, 3L), 2, Function.identity(), null);
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, baseUrl, 2);
+        String expectedData = "</api/example?cursor=" + PaginationUtil.encodeCursor(2L) + "&size=2>; rel=\"next\","
+                + "</api/example?cursor=&size=2>; rel=\"first\"";
+        assertEquals(expectedData, headers.getFirst(HttpHeaders.LINK));
+        assertNull(headers.get("X-Total-Count"));
+
+        // Last page
+        page = KeysetPage.of(Collections.singletonList(3L), 2, Function.identity(), 3L);
+        headers = PaginationUtil.generateKeysetPaginationHttpHeaders(page, baseUrl, 2);
+        assertEquals("</api/example?cursor=&size=2>; rel=\"first\"", headers.getFirst(HttpHeaders.LINK));
+        assertEquals("3", headers.getFirst("X-Total-Count"));
+    }
+
+    /**
+     * Cursor test.
+     */
+    @Test
+    public void cursorTest() {
+        assertEquals(Long.valueOf(42L), PaginationUtil.decodeCursor(PaginationUtil.encodeCursor(42L), "example"));
+        assertNull(PaginationUtil.decodeCursor("", "example"));
+    }
+
+    /**
+     * Invalid cursor test.
+     */
+    @Test(expected = BadRequestAlertException.class)
+    public void invalidCursorTest() {
+        PaginationUtil.decodeCursor("not a cursor", "example");
+    }
 }